@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Timer;
+import com.sitewhere.batch.spi.microservice.IBatchOperationsTenantEngine;
+import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.batch.IBatchManagement;
+import com.sitewhere.spi.batch.request.IBatchElementCreateRequest;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
+
+/**
+ * Writes batch element status updates behind element processing. Updates are
+ * queued and written in bulk by a background thread, either when enough have
+ * accumulated or when the flush interval passes. Callers wait only if the
+ * queue is full. After each group is written, the listener is told which
+ * operations had elements written. When the component is stopped, the writer
+ * finishes the queued updates before exiting and is interrupted only if that
+ * takes longer than the shutdown timeout.
+ * 
+ * @author Derek
+ */
+public class BatchElementStatusWriter extends TenantEngineLifecycleComponent {
+
+    /** Max number of updates written at once */
+    private static final int MAX_BATCH_SIZE = 500;
+
+    /** Max time an update waits before being written */
+    private static final long FLUSH_INTERVAL_MS = 1000;
+
+    /** Max number of queued updates */
+    private static final int QUEUE_CAPACITY = 10000;
+
+    /** Time allowed for queued updates to be written on shutdown */
+    private static final long SHUTDOWN_TIMEOUT_SECS = 10;
+
+    /** Notified after updates are written */
+    private IFlushListener listener;
+
+    /** Indicates writer should exit once the queue is empty */
+    private volatile boolean stopping;
+
+    /** Queued updates */
+    private BlockingQueue<PendingUpdate> queue = new LinkedBlockingQueue<PendingUpdate>(QUEUE_CAPACITY);
+
+    /** Executor for background writer */
+    private ExecutorService executor;
+
+    /** Time taken to write a group of updates */
+    private Timer writeTime;
+
+    /** Number of updates written at once */
+    private Histogram writeSize;
+
+    public BatchElementStatusWriter(IFlushListener listener) {
+	super(LifecycleComponentType.Other);
+	this.listener = listener;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.writeTime = createTimerMetric("batch.statusWriteTime");
+	this.writeSize = createHistogramMetric("batch.statusWriteSize");
+	this.stopping = false;
+	this.executor = Executors.newSingleThreadExecutor(new WriterThreadFactory());
+	executor.execute(new Writer());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	stopping = true;
+	if (executor != null) {
+	    executor.shutdown();
+	    try {
+		if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+		    getLogger().warn("Batch element status writer did not finish within allotted time.");
+		    executor.shutdownNow();
+		    executor.awaitTermination(SHUTDOWN_TIMEOUT_SECS, TimeUnit.SECONDS);
+		}
+	    } catch (InterruptedException e) {
+		executor.shutdownNow();
+		Thread.currentThread().interrupt();
+	    }
+	}
+
+	// Write anything the writer did not get to.
+	List<PendingUpdate> remaining = new ArrayList<PendingUpdate>();
+	queue.drainTo(remaining);
+	if (!remaining.isEmpty()) {
+	    write(remaining);
+	}
+    }
+
+    /**
+     * Queue a status update for an element.
+     * 
+     * @param operationId
+     * @param elementId
+     * @param request
+     * @throws SiteWhereException
+     */
+    public void update(UUID operationId, UUID elementId, IBatchElementCreateRequest request)
+	    throws SiteWhereException {
+	try {
+	    queue.put(new PendingUpdate(operationId, elementId, request));
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while queueing batch element update.", e);
+	}
+    }
+
+    /**
+     * Write a group of updates. Later updates for the same element replace
+     * earlier ones. If the bulk update fails, each element is updated
+     * individually so that one bad element does not lose the others. The
+     * listener is notified once the writes have been attempted.
+     * 
+     * @param updates
+     */
+    protected void write(List<PendingUpdate> updates) {
+	Map<UUID, IBatchElementCreateRequest> requests = new LinkedHashMap<UUID, IBatchElementCreateRequest>();
+	Set<UUID> operationIds = new LinkedHashSet<UUID>();
+	for (PendingUpdate update : updates) {
+	    requests.put(update.getElementId(), update.getRequest());
+	    operationIds.add(update.getOperationId());
+	}
+	writeSize.update(requests.size());
+	Timer.Context time = writeTime.time();
+	try {
+	    getBatchManagement().updateBatchElements(requests);
+	} catch (SiteWhereException e) {
+	    getLogger().warn("Bulk batch element update failed. Updating elements individually.", e);
+	    for (Map.Entry<UUID, IBatchElementCreateRequest> entry : requests.entrySet()) {
+		try {
+		    getBatchManagement().updateBatchElement(entry.getKey(), entry.getValue());
+		} catch (SiteWhereException e1) {
+		    getLogger().error("Unable to update batch element " + entry.getKey() + ".", e1);
+		}
+	    }
+	} finally {
+	    time.stop();
+	}
+	try {
+	    listener.onFlushed(operationIds);
+	} catch (Throwable t) {
+	    getLogger().error("Unhandled exception notifying batch element update listener.", t);
+	}
+    }
+
+    /**
+     * Waits for queued updates and writes them in groups.
+     */
+    private class Writer implements Runnable {
+
+	/*
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+	    while (!Thread.currentThread().isInterrupted() && (!stopping || !queue.isEmpty())) {
+		try {
+		    PendingUpdate first = queue.poll(FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+		    if (first == null) {
+			continue;
+		    }
+		    List<PendingUpdate> updates = new ArrayList<PendingUpdate>();
+		    updates.add(first);
+		    queue.drainTo(updates, MAX_BATCH_SIZE - 1);
+		    write(updates);
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		} catch (Throwable t) {
+		    getLogger().error("Unhandled exception writing batch element updates.", t);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Notified after a group of element updates has been written.
+     */
+    public static interface IFlushListener {
+
+	/**
+	 * Called after updates for elements of the given operations are written.
+	 * 
+	 * @param operationIds
+	 */
+	public void onFlushed(Set<UUID> operationIds);
+    }
+
+    /**
+     * Status update waiting to be written.
+     */
+    private static class PendingUpdate {
+
+	/** Operation id */
+	private UUID operationId;
+
+	/** Element id */
+	private UUID elementId;
+
+	/** Update request */
+	private IBatchElementCreateRequest request;
+
+	public PendingUpdate(UUID operationId, UUID elementId, IBatchElementCreateRequest request) {
+	    this.operationId = operationId;
+	    this.elementId = elementId;
+	    this.request = request;
+	}
+
+	public UUID getOperationId() {
+	    return operationId;
+	}
+
+	public UUID getElementId() {
+	    return elementId;
+	}
+
+	public IBatchElementCreateRequest getRequest() {
+	    return request;
+	}
+    }
+
+    /** Used for naming writer thread */
+    private class WriterThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Batch Element Status Writer");
+	}
+    }
+
+    protected IBatchManagement getBatchManagement() {
+	return ((IBatchOperationsTenantEngine) getTenantEngine()).getBatchManagement();
+    }
+}
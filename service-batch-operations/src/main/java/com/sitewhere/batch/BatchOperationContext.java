@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.spi.batch.ElementProcessingStatus;
+import com.sitewhere.spi.batch.IBatchOperation;
+
+/**
+ * In-memory state for a batch operation being processed. Holds the operation
+ * so that it is not loaded for each element, limits the rate and concurrency
+ * of element processing, and keeps progress counters that are updated as each
+ * element completes. The counters only drive metrics and estimates, since they
+ * are lost if the context is evicted or the service restarts. Completion is
+ * decided from persisted element statuses.
+ * 
+ * @author Derek
+ */
+public class BatchOperationContext {
+
+    /** Time to wait before retrying when all workers are busy */
+    private static final long WORKER_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** Batch operation */
+    private IBatchOperation operation;
+
+    /** Limits rate of processing (null if unlimited) */
+    private TokenBucketRateLimiter limiter;
+
+    /** Limits concurrent processing (null if unlimited) */
+    private Semaphore workers;
+
+    /** Total number of elements if known, otherwise zero */
+    private volatile long totalElements;
+
+    /** Number of elements processed */
+    private AtomicLong processed = new AtomicLong();
+
+    /** Number of elements that failed */
+    private AtomicLong failed = new AtomicLong();
+
+    /** Rate at which elements are processed */
+    private Meter throughput = new Meter();
+
+    public BatchOperationContext(IBatchOperation operation, TokenBucketRateLimiter limiter, Semaphore workers) {
+	this.operation = operation;
+	this.limiter = limiter;
+	this.workers = workers;
+    }
+
+    /**
+     * Try to start processing an element without blocking. If processing may
+     * start, a worker slot and rate token are taken and {@link #release()} must
+     * be called when done.
+     * 
+     * @return zero if processing may start, otherwise nanoseconds to wait before
+     *         trying again
+     */
+    public long tryAcquire() {
+	if ((workers != null) && (!workers.tryAcquire())) {
+	    return WORKER_RETRY_NANOS;
+	}
+	if (limiter != null) {
+	    long wait = limiter.tryAcquire();
+	    if (wait > 0) {
+		if (workers != null) {
+		    workers.release();
+		}
+		return wait;
+	    }
+	}
+	return 0;
+    }
+
+    /**
+     * Indicate that an element has been processed.
+     */
+    public void release() {
+	if (workers != null) {
+	    workers.release();
+	}
+    }
+
+    /**
+     * Record the result of processing an element.
+     * 
+     * @param status
+     */
+    public void recordResult(ElementProcessingStatus status) {
+	throughput.mark();
+	if (status != ElementProcessingStatus.Succeeded) {
+	    failed.incrementAndGet();
+	}
+	processed.incrementAndGet();
+    }
+
+    /**
+     * Indicates whether all elements may have been processed. Counts are not
+     * exact (elements may be redelivered), so this is only a hint that persisted
+     * statuses should be checked. True if the total is not known.
+     * 
+     * @return
+     */
+    public boolean isPossiblyComplete() {
+	return (getTotalElements() <= 0) || (getProcessed() >= getTotalElements());
+    }
+
+    /**
+     * Get recent processing rate in elements per second.
+     * 
+     * @return
+     */
+    public double getElementsPerSecond() {
+	return throughput.getOneMinuteRate();
+    }
+
+    /**
+     * Get estimated time to complete the operation based on the recent rate.
+     * Returns -1 if the total is not known or nothing has been processed
+     * recently.
+     * 
+     * @return
+     */
+    public long getEstimatedSecondsRemaining() {
+	double rate = getElementsPerSecond();
+	if ((getTotalElements() <= 0) || (rate <= 0)) {
+	    return -1;
+	}
+	long remaining = Math.max(0, getTotalElements() - getProcessed());
+	return (long) Math.ceil(remaining / rate);
+    }
+
+    public IBatchOperation getOperation() {
+	return operation;
+    }
+
+    public long getTotalElements() {
+	return totalElements;
+    }
+
+    public void setTotalElements(long totalElements) {
+	this.totalElements = totalElements;
+    }
+
+    public long getProcessed() {
+	return processed.get();
+    }
+
+    public long getFailed() {
+	return failed.get();
+    }
+}
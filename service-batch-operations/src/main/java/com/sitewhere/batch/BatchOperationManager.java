@@ -7,15 +7,26 @@
  */
 package com.sitewhere.batch;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.sitewhere.batch.handler.BatchCommandInvocationHandler;
 import com.sitewhere.batch.kafka.UnprocessedBatchElementsConsumer;
 import com.sitewhere.batch.kafka.UnprocessedBatchOperationsConsumer;
@@ -31,10 +42,10 @@ import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.batch.BatchModelConverter;
 import com.sitewhere.grpc.client.batch.BatchModelMarshaler;
 import com.sitewhere.microservice.security.SystemUserRunnable;
-import com.sitewhere.rest.model.batch.kafka.UnprocessedBatchElement;
 import com.sitewhere.rest.model.batch.kafka.UnprocessedBatchOperation;
 import com.sitewhere.rest.model.batch.request.BatchElementCreateRequest;
 import com.sitewhere.rest.model.batch.request.BatchOperationUpdateRequest;
+import com.sitewhere.rest.model.search.device.BatchElementSearchCriteria;
 import com.sitewhere.server.lifecycle.CompositeLifecycleStep;
 import com.sitewhere.server.lifecycle.SimpleLifecycleStep;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
@@ -54,21 +65,80 @@ import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 
 /**
  * Default implementation of {@link IBatchOperationManager}. Uses multiple
- * threads to process batch operations.
+ * threads to process batch operations. Elements are created and published in
+ * chunks when an operation is initialized. Element processing for each
+ * operation is limited by a token bucket shared by all processing threads and
+ * optionally by a max number of concurrent workers. Rate, burst size and
+ * worker count may be set per operation using
+ * {@link BatchOperationParameters}. Elements that may not run yet are
+ * rescheduled for when capacity is expected rather than holding a processing
+ * thread while they wait. Each operation being processed has a
+ * {@link BatchOperationContext} that caches the operation and tracks progress,
+ * and element results are written in bulk by a
+ * {@link BatchElementStatusWriter}. An operation is marked finished only after
+ * its element results have been written and the persisted element statuses
+ * show that none are left to process.
  * 
  * @author Derek
  */
 public class BatchOperationManager extends TenantEngineLifecycleComponent implements IBatchOperationManager {
 
-    /** Number of threads used for batch operation processing */
-    private static final int BATCH_PROCESSOR_THREAD_COUNT = 10;
+    /** Default number of threads used for batch operation processing */
+    private static final int DEFAULT_PROCESSOR_THREAD_COUNT = 10;
+
+    /** Number of elements created and published at once during initialization */
+    private static final int INITIALIZER_CHUNK_SIZE = 500;
+
+    /** Max number of operations for which context is kept */
+    private static final int MAX_OPERATION_CONTEXTS = 100;
 
     /** Thread pool for processing events */
     private ExecutorService processorPool;
 
-    /** Throttling delay in milliseconds */
+    /** Resubmits elements that were throttled */
+    private ScheduledExecutorService retryScheduler;
+
+    /** Number of threads used for batch operation processing */
+    private int processorThreadCount = DEFAULT_PROCESSOR_THREAD_COUNT;
+
+    /** Throttling delay in milliseconds (used if no rate is set) */
     private long throttleDelayMs;
 
+    /** Default max elements processed per second for an operation */
+    private double elementsPerSecond;
+
+    /** Default burst size for an operation */
+    private int burstSize = 1;
+
+    /** Default max elements of an operation processed concurrently */
+    private int workersPerOperation;
+
+    /** Operation contexts by operation id in access order */
+    private Map<UUID, BatchOperationContext> operationContexts = new LinkedHashMap<UUID, BatchOperationContext>(16,
+	    0.75f, true) {
+
+	/** Serial version UID */
+	private static final long serialVersionUID = -2390618127466393185L;
+
+	/*
+	 * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+	 */
+	@Override
+	protected boolean removeEldestEntry(Map.Entry<UUID, BatchOperationContext> eldest) {
+	    if (size() > MAX_OPERATION_CONTEXTS) {
+		removeOperationGauges(eldest.getValue().getOperation());
+		return true;
+	    }
+	    return false;
+	}
+    };
+
+    /** Writes element status updates in bulk */
+    private BatchElementStatusWriter statusWriter;
+
+    /** Serializes completion checks so an operation is finished once */
+    private Object completionLock = new Object();
+
     /** Map of handlers by operation type */
     private Map<String, IBatchOperationHandler> handlersByOperationType = new HashMap<String, IBatchOperationHandler>();
 
@@ -95,10 +165,24 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	this.unprocessedBatchOperationsConsumer = new UnprocessedBatchOperationsConsumer();
 	this.unprocessedBatchElementsConsumer = new UnprocessedBatchElementsConsumer();
+	this.statusWriter = new BatchElementStatusWriter(new BatchElementStatusWriter.IFlushListener() {
+
+	    @Override
+	    public void onFlushed(Set<UUID> operationIds) {
+		for (UUID operationId : operationIds) {
+		    if (isPossiblyComplete(operationId)) {
+			checkCompletion(operationId);
+		    }
+		}
+	    }
+	});
 
 	// Create step that will initialize components.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getComponentName());
 
+	// Initialize element status writer.
+	init.addInitializeStep(this, getStatusWriter(), true);
+
 	// Initialize unprocessed batch operations consumer.
 	init.addInitializeStep(this, getUnprocessedBatchOperationsConsumer(), true);
 
@@ -132,11 +216,18 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	if (getProcessorPool() != null) {
 	    getProcessorPool().shutdownNow();
 	}
-	processorPool = Executors.newFixedThreadPool(BATCH_PROCESSOR_THREAD_COUNT, new ProcessorsThreadFactory());
+	processorPool = Executors.newFixedThreadPool(getProcessorThreadCount(), new ProcessorsThreadFactory());
+	if (getRetryScheduler() != null) {
+	    getRetryScheduler().shutdownNow();
+	}
+	retryScheduler = Executors.newSingleThreadScheduledExecutor(new RetryThreadFactory());
 
 	// Create step that will start components.
 	ICompositeLifecycleStep start = new CompositeLifecycleStep("Start " + getComponentName());
 
+	// Start element status writer.
+	start.addStartStep(this, getStatusWriter(), true);
+
 	// Start unprocessed batch operations consumer.
 	start.addStartStep(this, getUnprocessedBatchOperationsConsumer(), true);
 
@@ -177,6 +268,9 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (getRetryScheduler() != null) {
+	    getRetryScheduler().shutdownNow();
+	}
 	if (getProcessorPool() != null) {
 	    getProcessorPool().shutdownNow();
 	}
@@ -190,6 +284,9 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	// Stop unprocessed batch operations consumer.
 	stop.addStopStep(this, getUnprocessedBatchOperationsConsumer());
 
+	// Stop element status writer after processing has stopped.
+	stop.addStopStep(this, getStatusWriter());
+
 	// Execute shutdown steps.
 	stop.execute(monitor);
 
@@ -198,6 +295,14 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    IBatchOperationHandler handler = getHandlersByOperationType().get(key);
 	    stopNestedComponent(handler, monitor);
 	}
+
+	// Discard operation contexts.
+	synchronized (operationContexts) {
+	    for (BatchOperationContext context : operationContexts.values()) {
+		removeOperationGauges(context.getOperation());
+	    }
+	    operationContexts.clear();
+	}
     }
 
     /*
@@ -248,14 +353,6 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	return unprocessedBatchElementsConsumer;
     }
 
-    public long getThrottleDelayMs() {
-	return throttleDelayMs;
-    }
-
-    public void setThrottleDelayMs(long throttleDelayMs) {
-	this.throttleDelayMs = throttleDelayMs;
-    }
-
     /**
      * Creates an unprocessed batch operation in a separate thread.
      * 
@@ -322,34 +419,28 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 
 	@Override
 	public void runAsSystemUser() throws SiteWhereException {
-	    getLogger()
-		    .info("Initializing batch operation: " + getUnprocessed().getBatchOperation().getId().toString());
+	    UUID operationId = getUnprocessed().getBatchOperation().getId();
+	    getLogger().info("Initializing batch operation: " + operationId.toString());
 	    try {
 		BatchOperationUpdateRequest request = new BatchOperationUpdateRequest();
 		request.setProcessingStatus(BatchOperationStatus.Initializing);
 		request.setProcessingStartedDate(new Date());
-		getBatchManagement().updateBatchOperation(getUnprocessed().getBatchOperation().getId(), request);
+		getBatchManagement().updateBatchOperation(operationId, request);
 
 		int errorCount = 0;
-		for (String deviceToken : getUnprocessed().getDeviceTokens()) {
-		    BatchElementCreateRequest element = new BatchElementCreateRequest();
-		    element.setDeviceToken(deviceToken);
-		    element.setProcessingStatus(ElementProcessingStatus.Unprocessed);
-		    element.setProcessedDate(null);
-		    try {
-			IBatchElement created = getBatchManagement()
-				.createBatchElement(getUnprocessed().getBatchOperation().getId(), element);
-			sendUnprocessedBatchElement(created);
-		    } catch (SiteWhereException e) {
-			getLogger().error("Unable to create batch element.", e);
-			sendFailedBatchElementRequest(element);
-			errorCount++;
-		    }
+		List<String> deviceTokens = getUnprocessed().getDeviceTokens();
+		for (int start = 0; start < deviceTokens.size(); start += INITIALIZER_CHUNK_SIZE) {
+		    // Potentially pause batch element creation.
+		    handlePause();
 
-		    // Potentially pause or throttle batch element processing.
-		    handlePauseAndThrottle();
+		    int end = Math.min(deviceTokens.size(), start + INITIALIZER_CHUNK_SIZE);
+		    errorCount += initializeElements(operationId, deviceTokens.subList(start, end));
 		}
 
+		// Total is now known and is used for progress estimates.
+		BatchOperationContext context = getOperationContext(getUnprocessed().getBatchOperation());
+		context.setTotalElements(deviceTokens.size() - errorCount);
+
 		// Update operation to reflect processing results.
 		request = new BatchOperationUpdateRequest();
 		request.setProcessingStatus(BatchOperationStatus.InitializedSuccessfully);
@@ -357,24 +448,55 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 		if (errorCount > 0) {
 		    request.setProcessingStatus(BatchOperationStatus.InitializedWithErrors);
 		}
-		getBatchManagement().updateBatchOperation(getUnprocessed().getBatchOperation().getId(), request);
+		getBatchManagement().updateBatchOperation(operationId, request);
+
+		// Elements may already all have been processed.
+		checkCompletion(operationId);
 	    } catch (SiteWhereException e) {
 		getLogger().error("Error processing batch operation.", e);
 	    }
 	}
 
 	/**
-	 * Send unprocessed batch element to Kafka topic.
+	 * Create elements for a chunk of device tokens and send them to the Kafka
+	 * topic for processing. Requests for elements that could not be created are
+	 * sent to the failed elements topic.
 	 * 
-	 * @param element
+	 * @param operationId
+	 * @param deviceTokens
+	 * @return number of elements that could not be created
 	 * @throws SiteWhereException
 	 */
-	protected void sendUnprocessedBatchElement(IBatchElement element) throws SiteWhereException {
-	    UnprocessedBatchElement unprocessedElement = new UnprocessedBatchElement();
-	    unprocessedElement.setBatchElement(element);
-	    getUnprocessedBatchElementsProducer().send(element.getDeviceId().toString(),
-		    BatchModelMarshaler.buildUnprocessedBatchElementPayloadMessage(
-			    BatchModelConverter.asGrpcUnprocessedBatchElement(unprocessedElement)));
+	protected int initializeElements(UUID operationId, List<String> deviceTokens) throws SiteWhereException {
+	    List<IBatchElementCreateRequest> requests = new ArrayList<IBatchElementCreateRequest>();
+	    for (String deviceToken : deviceTokens) {
+		BatchElementCreateRequest element = new BatchElementCreateRequest();
+		element.setDeviceToken(deviceToken);
+		element.setProcessingStatus(ElementProcessingStatus.Unprocessed);
+		element.setProcessedDate(null);
+		requests.add(element);
+	    }
+
+	    List<IBatchElement> created;
+	    try {
+		created = getBatchManagement().createBatchElements(operationId, requests);
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to create batch elements.", e);
+		created = Collections.nCopies(requests.size(), null);
+	    }
+
+	    int errorCount = 0;
+	    List<IBatchElement> unprocessed = new ArrayList<IBatchElement>();
+	    for (int i = 0; i < requests.size(); i++) {
+		if (created.get(i) != null) {
+		    unprocessed.add(created.get(i));
+		} else {
+		    sendFailedBatchElementRequest(requests.get(i));
+		    errorCount++;
+		}
+	    }
+	    getUnprocessedBatchElementsProducer().sendBatchElements(unprocessed);
+	    return errorCount;
 	}
 
 	/**
@@ -413,24 +535,70 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	 */
 	@Override
 	public void runAsSystemUser() throws SiteWhereException {
-	    getLogger().info("Processing batch element: " + getUnprocessed().getBatchElement().getId().toString());
-
 	    // Check whether manager has been paused.
-	    handlePauseAndThrottle();
+	    handlePause();
 
 	    // Only process unprocessed elements.
 	    IBatchElement element = getUnprocessed().getBatchElement();
-	    IBatchOperation operation = getBatchManagement().getBatchOperation(element.getBatchOperationId());
 	    if (element.getProcessingStatus() != ElementProcessingStatus.Unprocessed) {
 		return;
 	    }
+	    BatchOperationContext context = getOperationContext(element.getBatchOperationId());
+	    if (context == null) {
+		getLogger().warn("Batch operation not found for element: " + element.getId().toString());
+		return;
+	    }
 
-	    // Indicate element is being processed.
-	    BatchElementCreateRequest request = new BatchElementCreateRequest();
-	    request.setProcessingStatus(ElementProcessingStatus.Processing);
-	    getBatchManagement().updateBatchElement(element.getId(), request);
+	    // Retry later if no processing capacity is available to the operation.
+	    long delay = context.tryAcquire();
+	    if (delay > 0) {
+		reschedule(delay);
+		return;
+	    }
+
+	    getLogger().info("Processing batch element: " + element.getId().toString());
+	    try {
+		process(context, element);
+	    } finally {
+		context.release();
+	    }
+	}
+
+	/**
+	 * Resubmit this processor to the pool after a delay.
+	 * 
+	 * @param delayNanos
+	 */
+	protected void reschedule(long delayNanos) {
+	    try {
+		getRetryScheduler().schedule(new Runnable() {
+
+		    @Override
+		    public void run() {
+			try {
+			    getProcessorPool().execute(BatchElementProcessor.this);
+			} catch (RejectedExecutionException e) {
+			    getLogger().warn("Processor pool shut down before batch element could be retried.");
+			}
+		    }
+		}, delayNanos, TimeUnit.NANOSECONDS);
+	    } catch (RejectedExecutionException e) {
+		getLogger().warn("Retry scheduler shut down before batch element could be retried.");
+	    }
+	}
 
-	    request = new BatchElementCreateRequest();
+	/**
+	 * Process element and record the result. The result is written by the status
+	 * writer rather than inline, and no separate update is made while the
+	 * element is in progress.
+	 * 
+	 * @param context
+	 * @param element
+	 * @throws SiteWhereException
+	 */
+	protected void process(BatchOperationContext context, IBatchElement element) throws SiteWhereException {
+	    IBatchOperation operation = context.getOperation();
+	    BatchElementCreateRequest request = new BatchElementCreateRequest();
 	    request.setMetadata(new HashMap<String, String>());
 	    ElementProcessingStatus status = ElementProcessingStatus.Succeeded;
 	    try {
@@ -449,7 +617,8 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 		getLogger().error("Error processing batch invocation element.", t);
 		request.setProcessingStatus(ElementProcessingStatus.Failed);
 	    } finally {
-		getBatchManagement().updateBatchElement(element.getId(), request);
+		getStatusWriter().update(operation.getId(), element.getId(), request);
+		context.recordResult(request.getProcessingStatus());
 	    }
 	}
 
@@ -459,20 +628,212 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
     }
 
     /**
-     * Handle case where batch operation manager has been paused.
+     * Get context for an operation, creating it if necessary.
+     * 
+     * @param operation
+     * @return
      */
-    protected void handlePauseAndThrottle() {
-	while (getLifecycleStatus() == LifecycleStatus.Paused) {
+    protected BatchOperationContext getOperationContext(IBatchOperation operation) {
+	synchronized (operationContexts) {
+	    BatchOperationContext context = operationContexts.get(operation.getId());
+	    if (context == null) {
+		context = createOperationContext(operation);
+		operationContexts.put(operation.getId(), context);
+		addOperationGauges(context);
+	    }
+	    return context;
+	}
+    }
+
+    /**
+     * Get context for an operation by id, loading the operation only if it is not
+     * already cached. Returns null if the operation does not exist.
+     * 
+     * @param operationId
+     * @return
+     * @throws SiteWhereException
+     */
+    protected BatchOperationContext getOperationContext(UUID operationId) throws SiteWhereException {
+	synchronized (operationContexts) {
+	    BatchOperationContext context = operationContexts.get(operationId);
+	    if (context != null) {
+		return context;
+	    }
+	}
+	IBatchOperation operation = getBatchManagement().getBatchOperation(operationId);
+	return (operation != null) ? getOperationContext(operation) : null;
+    }
+
+    /**
+     * Create context for an operation. Throttling is based on operation
+     * parameters, falling back to manager settings. The legacy throttle delay is
+     * converted to an equivalent rate if no rate is configured.
+     * 
+     * @param operation
+     * @return
+     */
+    protected BatchOperationContext createOperationContext(IBatchOperation operation) {
+	double rate = getNumericParameter(operation, BatchOperationParameters.PARAM_ELEMENTS_PER_SECOND,
+		getElementsPerSecond());
+	if ((rate <= 0) && (getThrottleDelayMs() > 0)) {
+	    rate = 1000.0 / getThrottleDelayMs();
+	}
+	int burst = (int) getNumericParameter(operation, BatchOperationParameters.PARAM_BURST_SIZE, getBurstSize());
+	int workers = (int) getNumericParameter(operation, BatchOperationParameters.PARAM_WORKERS,
+		getWorkersPerOperation());
+	TokenBucketRateLimiter limiter = (rate > 0) ? new TokenBucketRateLimiter(rate, burst) : null;
+	Semaphore permits = (workers > 0) ? new Semaphore(workers) : null;
+	return new BatchOperationContext(operation, limiter, permits);
+    }
+
+    /**
+     * Indicates whether in-memory progress suggests an operation may be complete.
+     * If no context is cached, persisted statuses must be checked.
+     * 
+     * @param operationId
+     * @return
+     */
+    protected boolean isPossiblyComplete(UUID operationId) {
+	synchronized (operationContexts) {
+	    BatchOperationContext context = operationContexts.get(operationId);
+	    return (context == null) || context.isPossiblyComplete();
+	}
+    }
+
+    /**
+     * Mark the operation as finished if it has been initialized and the
+     * persisted element statuses show that no elements remain to be processed.
+     * Counts come from the datastore, so elements processed more than once are
+     * not double counted and progress survives restarts.
+     * 
+     * @param operationId
+     */
+    protected void checkCompletion(UUID operationId) {
+	synchronized (completionLock) {
 	    try {
-		Thread.sleep(1000);
-	    } catch (InterruptedException e) {
+		IBatchOperation operation = getBatchManagement().getBatchOperation(operationId);
+		if (operation == null) {
+		    return;
+		}
+		BatchOperationStatus status = operation.getProcessingStatus();
+		if ((status != BatchOperationStatus.InitializedSuccessfully)
+			&& (status != BatchOperationStatus.InitializedWithErrors)) {
+		    return;
+		}
+		if ((countElements(operationId, ElementProcessingStatus.Unprocessed) > 0)
+			|| (countElements(operationId, ElementProcessingStatus.Processing) > 0)) {
+		    return;
+		}
+		long failed = countElements(operationId, ElementProcessingStatus.Failed);
+		long total = countElements(operationId, null);
+
+		BatchOperationUpdateRequest request = new BatchOperationUpdateRequest();
+		request.setProcessingStatus(
+			((failed > 0) || (status == BatchOperationStatus.InitializedWithErrors))
+				? BatchOperationStatus.FinishedWithErrors
+				: BatchOperationStatus.FinishedSuccessfully);
+		request.setProcessingEndedDate(new Date());
+		getBatchManagement().updateBatchOperation(operationId, request);
+		getLogger().info("Finished batch operation " + operation.getToken() + ". Processed " + total
+			+ " elements with " + failed + " failures.");
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to check completion of batch operation.", e);
+	    }
+	}
+    }
+
+    /**
+     * Count persisted elements for an operation with the given status.
+     * 
+     * @param operationId
+     * @param status
+     *            status to match or null for all elements
+     * @return
+     * @throws SiteWhereException
+     */
+    protected long countElements(UUID operationId, ElementProcessingStatus status) throws SiteWhereException {
+	BatchElementSearchCriteria criteria = new BatchElementSearchCriteria(1, 1);
+	criteria.setProcessingStatus(status);
+	return getBatchManagement().listBatchElements(operationId, criteria).getNumResults();
+    }
+
+    /**
+     * Register throughput and completion estimate gauges for an operation.
+     * 
+     * @param context
+     */
+    protected void addOperationGauges(final BatchOperationContext context) {
+	MetricRegistry registry = getTenantEngine().getMicroservice().getMetricRegistry();
+	String prefix = getOperationMetricPrefix(context.getOperation());
+	registry.remove(prefix + "elementsPerSecond");
+	registry.register(prefix + "elementsPerSecond", new Gauge<Double>() {
+
+	    @Override
+	    public Double getValue() {
+		return context.getElementsPerSecond();
+	    }
+	});
+	registry.remove(prefix + "estimatedSecondsRemaining");
+	registry.register(prefix + "estimatedSecondsRemaining", new Gauge<Long>() {
+
+	    @Override
+	    public Long getValue() {
+		return context.getEstimatedSecondsRemaining();
 	    }
+	});
+    }
+
+    /**
+     * Remove gauges registered for an operation.
+     * 
+     * @param operation
+     */
+    protected void removeOperationGauges(IBatchOperation operation) {
+	MetricRegistry registry = getTenantEngine().getMicroservice().getMetricRegistry();
+	String prefix = getOperationMetricPrefix(operation);
+	registry.remove(prefix + "elementsPerSecond");
+	registry.remove(prefix + "estimatedSecondsRemaining");
+    }
+
+    /**
+     * Get prefix for metrics related to an operation.
+     * 
+     * @param operation
+     * @return
+     */
+    protected String getOperationMetricPrefix(IBatchOperation operation) {
+	return getTenentMetricPrefix() + "batch.operation." + operation.getToken() + ".";
+    }
+
+    /**
+     * Get a numeric operation parameter or the default if not set or invalid.
+     * 
+     * @param operation
+     * @param name
+     * @param defaultValue
+     * @return
+     */
+    protected double getNumericParameter(IBatchOperation operation, String name, double defaultValue) {
+	String value = (operation.getParameters() != null) ? operation.getParameters().get(name) : null;
+	if (value == null) {
+	    return defaultValue;
+	}
+	try {
+	    return Double.parseDouble(value);
+	} catch (NumberFormatException e) {
+	    getLogger().warn("Invalid value for batch operation parameter '" + name + "': " + value);
+	    return defaultValue;
 	}
-	if (getThrottleDelayMs() > 0) {
+    }
+
+    /**
+     * Handle case where batch operation manager has been paused.
+     */
+    protected void handlePause() {
+	while (getLifecycleStatus() == LifecycleStatus.Paused) {
 	    try {
-		Thread.sleep(getThrottleDelayMs());
+		Thread.sleep(1000);
 	    } catch (InterruptedException e) {
-		getLogger().warn("Throttle timer interrupted.");
 	    }
 	}
     }
@@ -485,10 +846,58 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	this.handlersByOperationType = handlersByOperationType;
     }
 
+    public int getProcessorThreadCount() {
+	return processorThreadCount;
+    }
+
+    public void setProcessorThreadCount(int processorThreadCount) {
+	this.processorThreadCount = processorThreadCount;
+    }
+
+    public long getThrottleDelayMs() {
+	return throttleDelayMs;
+    }
+
+    public void setThrottleDelayMs(long throttleDelayMs) {
+	this.throttleDelayMs = throttleDelayMs;
+    }
+
+    public double getElementsPerSecond() {
+	return elementsPerSecond;
+    }
+
+    public void setElementsPerSecond(double elementsPerSecond) {
+	this.elementsPerSecond = elementsPerSecond;
+    }
+
+    public int getBurstSize() {
+	return burstSize;
+    }
+
+    public void setBurstSize(int burstSize) {
+	this.burstSize = burstSize;
+    }
+
+    public int getWorkersPerOperation() {
+	return workersPerOperation;
+    }
+
+    public void setWorkersPerOperation(int workersPerOperation) {
+	this.workersPerOperation = workersPerOperation;
+    }
+
     protected ExecutorService getProcessorPool() {
 	return processorPool;
     }
 
+    protected ScheduledExecutorService getRetryScheduler() {
+	return retryScheduler;
+    }
+
+    protected BatchElementStatusWriter getStatusWriter() {
+	return statusWriter;
+    }
+
     protected IUnprocessedBatchElementsProducer getUnprocessedBatchElementsProducer() {
 	return ((IBatchOperationsTenantEngine) getTenantEngine()).getUnprocessedBatchElementsProducer();
     }
@@ -515,4 +924,14 @@ public class BatchOperationManager extends TenantEngineLifecycleComponent implem
 	    return new Thread(r, "Batch Operation Processor " + counter.incrementAndGet());
 	}
     }
+
+    /** Used for naming batch element retry thread */
+    private class RetryThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "Batch Element Retry");
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch;
+
+/**
+ * Constants for batch operation parameters that control how elements are
+ * processed. Values not set on an operation fall back to the batch operation
+ * manager configuration.
+ * 
+ * @author Derek
+ */
+public interface BatchOperationParameters {
+
+    /** Max number of elements processed per second */
+    public static final String PARAM_ELEMENTS_PER_SECOND = "elementsPerSecond";
+
+    /** Number of elements that may be processed at once before rate applies */
+    public static final String PARAM_BURST_SIZE = "burstSize";
+
+    /** Max number of elements processed concurrently */
+    public static final String PARAM_WORKERS = "workers";
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.batch;
+
+/**
+ * Token bucket shared by threads that need to limit the rate of some work.
+ * Tokens are added continuously at the configured rate up to the burst size.
+ * Callers never block. Each caller either takes a token or is told how long
+ * until the next one is added, so that it can retry later without holding a
+ * thread.
+ * 
+ * @author Derek
+ */
+public class TokenBucketRateLimiter {
+
+    /** Tokens added per second */
+    private double permitsPerSecond;
+
+    /** Max tokens held */
+    private double burstSize;
+
+    /** Tokens currently available */
+    private double storedPermits;
+
+    /** Time tokens were last added */
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burstSize) {
+	this.permitsPerSecond = permitsPerSecond;
+	this.burstSize = Math.max(1, burstSize);
+	this.storedPermits = this.burstSize;
+	this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Take a token if one is available. Otherwise nothing is taken and the time
+     * until the next token is added is returned.
+     * 
+     * @return zero if a token was taken, otherwise nanoseconds to wait before
+     *         trying again
+     */
+    public synchronized long tryAcquire() {
+	long now = System.nanoTime();
+	double added = ((now - lastRefillNanos) / 1e9) * getPermitsPerSecond();
+	storedPermits = Math.min(getBurstSize(), storedPermits + added);
+	lastRefillNanos = now;
+
+	if (storedPermits >= 1) {
+	    storedPermits -= 1;
+	    return 0;
+	}
+	return Math.max(1, (long) (((1 - storedPermits) / getPermitsPerSecond()) * 1e9));
+    }
+
+    public double getPermitsPerSecond() {
+	return permitsPerSecond;
+    }
+
+    public double getBurstSize() {
+	return burstSize;
+    }
+}
@@ -101,6 +101,24 @@ public class BatchOperationsModelProvider extends ConfigurationModelProvider {
 			.description("Number of milliseconds to wait between processing elements in a "
 				+ "batch operation. This throttles the output to prevent overloading the system.")
 			.defaultValue("0").build()));
+	builder.attribute((new AttributeNode.Builder("Processor threads", "processorThreadCount",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Number of threads used to process batch operations and elements.")
+			.defaultValue("10").build()));
+	builder.attribute((new AttributeNode.Builder("Elements per second", "elementsPerSecond", AttributeType.Decimal,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Default maximum number of elements processed per second for a batch operation. "
+				+ "Operations may override this value. Zero means no limit.")
+			.defaultValue("0").build()));
+	builder.attribute((new AttributeNode.Builder("Burst size", "burstSize", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Number of elements that may be processed at once before the rate limit applies.")
+			.defaultValue("1").build()));
+	builder.attribute((new AttributeNode.Builder("Workers per operation", "workersPerOperation",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Default maximum number of elements of a batch operation processed concurrently. "
+				+ "Zero means no limit.")
+			.defaultValue("0").build()));
 	return builder.build();
     }
 }
\ No newline at end of file
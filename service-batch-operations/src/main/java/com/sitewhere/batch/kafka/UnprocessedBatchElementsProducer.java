@@ -7,18 +7,34 @@
  */
 package com.sitewhere.batch.kafka;
 
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+
 import com.sitewhere.batch.spi.kafka.IUnprocessedBatchElementsProducer;
+import com.sitewhere.grpc.client.batch.BatchModelConverter;
+import com.sitewhere.grpc.client.batch.BatchModelMarshaler;
 import com.sitewhere.microservice.kafka.AckPolicy;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
+import com.sitewhere.rest.model.batch.kafka.UnprocessedBatchElement;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.batch.IBatchElement;
 
 /**
  * Kafka producer that sends sends unprocessed batch elements to a topic for
- * further processing.
+ * further processing. Elements are usually sent in large groups, so the
+ * producer waits briefly to fill larger record batches.
  */
 public class UnprocessedBatchElementsProducer extends MicroserviceKafkaProducer
 	implements IUnprocessedBatchElementsProducer {
 
+    /** Time producer waits for more records before sending a batch */
+    private static final int LINGER_MS = 20;
+
+    /** Max size in bytes of a producer record batch */
+    private static final int BATCH_SIZE_BYTES = 256 * 1024;
+
     public UnprocessedBatchElementsProducer() {
 	super(AckPolicy.FireAndForget);
     }
@@ -31,4 +47,32 @@ public class UnprocessedBatchElementsProducer extends MicroserviceKafkaProducer
     public String getTargetTopicName() throws SiteWhereException {
 	return getMicroservice().getKafkaTopicNaming().getUnprocessedBatchElementsTopic(getTenantEngine().getTenant());
     }
+
+    /*
+     * @see com.sitewhere.batch.spi.kafka.IUnprocessedBatchElementsProducer#
+     * sendBatchElements(java.util.List)
+     */
+    @Override
+    public void sendBatchElements(List<IBatchElement> elements) throws SiteWhereException {
+	for (IBatchElement element : elements) {
+	    UnprocessedBatchElement unprocessed = new UnprocessedBatchElement();
+	    unprocessed.setBatchElement(element);
+	    send(element.getDeviceId().toString(), BatchModelMarshaler.buildUnprocessedBatchElementPayloadMessage(
+		    BatchModelConverter.asGrpcUnprocessedBatchElement(unprocessed)));
+	}
+	getProducer().flush();
+    }
+
+    /*
+     * @see
+     * com.sitewhere.microservice.kafka.MicroserviceKafkaProducer#buildConfiguration
+     * ()
+     */
+    @Override
+    protected Properties buildConfiguration() throws SiteWhereException {
+	Properties config = super.buildConfiguration();
+	config.put(ProducerConfig.LINGER_MS_CONFIG, LINGER_MS);
+	config.put(ProducerConfig.BATCH_SIZE_CONFIG, BATCH_SIZE_BYTES);
+	return config;
+    }
 }
\ No newline at end of file
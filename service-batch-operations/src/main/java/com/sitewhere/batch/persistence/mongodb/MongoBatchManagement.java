@@ -7,17 +7,29 @@
  */
 package com.sitewhere.batch.persistence.mongodb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import org.bson.Document;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import com.sitewhere.batch.persistence.BatchManagementPersistence;
 import com.sitewhere.batch.spi.microservice.IBatchOperationsMicroservice;
 import com.sitewhere.mongodb.IMongoConverterLookup;
 import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.mongodb.common.MongoMetadataProvider;
 import com.sitewhere.mongodb.common.MongoPersistentEntity;
 import com.sitewhere.rest.model.batch.BatchElement;
 import com.sitewhere.rest.model.batch.BatchOperation;
@@ -65,6 +77,9 @@ public class MongoBatchManagement extends TenantEngineLifecycleComponent impleme
 	getMongoClient().getBatchOperationElementsCollection().createIndex(
 		new Document(MongoBatchElement.PROP_BATCH_OPERATION_ID, 1).append(MongoBatchElement.PROP_DEVICE_ID, 1),
 		new IndexOptions().unique(true));
+	getMongoClient().getBatchOperationElementsCollection()
+		.createIndex(new Document(MongoBatchElement.PROP_BATCH_OPERATION_ID, 1)
+			.append(MongoBatchElement.PROP_PROCESSING_STATUS, 1));
     }
 
     /*
@@ -202,6 +217,61 @@ public class MongoBatchManagement extends TenantEngineLifecycleComponent impleme
 	return element;
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId, List<IBatchElementCreateRequest> requests)
+	    throws SiteWhereException {
+	MongoCollection<Document> elements = getMongoClient().getBatchOperationElementsCollection();
+	IBatchOperation operation = MongoBatchOperation.fromDocument(assertBatchOperation(batchOperationId));
+
+	// Resolve all device tokens in one call.
+	List<String> tokens = new ArrayList<String>(requests.size());
+	for (IBatchElementCreateRequest request : requests) {
+	    tokens.add(request.getDeviceToken());
+	}
+	List<IDevice> devices;
+	try {
+	    devices = getDeviceManagement().getDevicesByToken(tokens);
+	} catch (SiteWhereException e) {
+	    getLogger().warn("Unable to look up devices for " + tokens.size() + " batch elements.", e);
+	    devices = Collections.nCopies(tokens.size(), null);
+	}
+
+	// Build documents, keeping track of which request each came from.
+	List<IBatchElement> results = new ArrayList<IBatchElement>(requests.size());
+	List<Document> documents = new ArrayList<Document>(requests.size());
+	List<Integer> positions = new ArrayList<Integer>(requests.size());
+	for (IDevice device : devices) {
+	    if (device == null) {
+		results.add(null);
+		continue;
+	    }
+	    BatchElement element = BatchManagementPersistence.batchElementCreateLogic(operation, device);
+	    positions.add(results.size());
+	    results.add(element);
+	    documents.add(MongoBatchElement.toDocument(element));
+	}
+	if (documents.isEmpty()) {
+	    return results;
+	}
+
+	// Unordered insert so that one failure does not stop the rest.
+	try {
+	    elements.insertMany(documents, new InsertManyOptions().ordered(false));
+	} catch (MongoBulkWriteException e) {
+	    for (BulkWriteError error : e.getWriteErrors()) {
+		results.set(positions.get(error.getIndex()), null);
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+	return results;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#updateBatchElement(java.util.UUID,
@@ -223,6 +293,50 @@ public class MongoBatchManagement extends TenantEngineLifecycleComponent impleme
 	return MongoBatchElement.fromDocument(updated);
     }
 
+    /*
+     * @see com.sitewhere.spi.batch.IBatchManagement#updateBatchElements(java.util.
+     * Map)
+     */
+    @Override
+    public void updateBatchElements(Map<UUID, IBatchElementCreateRequest> requests) throws SiteWhereException {
+	if (requests.isEmpty()) {
+	    return;
+	}
+	MongoCollection<Document> elements = getMongoClient().getBatchOperationElementsCollection();
+
+	// Set only the fields present in each request, as in the single update.
+	List<WriteModel<Document>> updates = new ArrayList<WriteModel<Document>>(requests.size());
+	for (Map.Entry<UUID, IBatchElementCreateRequest> entry : requests.entrySet()) {
+	    IBatchElementCreateRequest request = entry.getValue();
+	    Document fields = new Document();
+	    if (request.getProcessingStatus() != null) {
+		fields.append(MongoBatchElement.PROP_PROCESSING_STATUS, request.getProcessingStatus().name());
+	    }
+	    if (request.getProcessedDate() != null) {
+		fields.append(MongoBatchElement.PROP_PROCESSED_DATE, request.getProcessedDate());
+	    }
+	    if (request.getMetadata() != null) {
+		Document metadata = new Document();
+		metadata.putAll(request.getMetadata());
+		fields.append(MongoMetadataProvider.PROP_METADATA, metadata);
+	    }
+	    if (!fields.isEmpty()) {
+		updates.add(new UpdateOneModel<Document>(Filters.eq(MongoBatchElement.PROP_ID, entry.getKey()),
+			new Document("$set", fields)));
+	    }
+	}
+	if (updates.isEmpty()) {
+	    return;
+	}
+	try {
+	    elements.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+	} catch (MongoBulkWriteException e) {
+	    throw new SiteWhereException("Unable to update " + e.getWriteErrors().size() + " batch elements.", e);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -7,6 +7,10 @@
  */
 package com.sitewhere.batch.spi.kafka;
 
+import java.util.List;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.batch.IBatchElement;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
 
 /**
@@ -16,4 +20,13 @@ import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
  * @author Derek
  */
 public interface IUnprocessedBatchElementsProducer extends IMicroserviceKafkaProducer {
+
+    /**
+     * Send a group of batch elements, returning once all have been handed off to
+     * the broker.
+     * 
+     * @param elements
+     * @throws SiteWhereException
+     */
+    public void sendBatchElements(List<IBatchElement> elements) throws SiteWhereException;
 }
\ No newline at end of file
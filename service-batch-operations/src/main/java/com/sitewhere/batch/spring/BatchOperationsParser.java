@@ -113,6 +113,26 @@ public class BatchOperationsParser extends AbstractBeanDefinitionParser {
 	    manager.addPropertyValue("throttleDelayMs", throttleDelayMs.getValue());
 	}
 
+	Attr processorThreadCount = element.getAttributeNode("processorThreadCount");
+	if (processorThreadCount != null) {
+	    manager.addPropertyValue("processorThreadCount", processorThreadCount.getValue());
+	}
+
+	Attr elementsPerSecond = element.getAttributeNode("elementsPerSecond");
+	if (elementsPerSecond != null) {
+	    manager.addPropertyValue("elementsPerSecond", elementsPerSecond.getValue());
+	}
+
+	Attr burstSize = element.getAttributeNode("burstSize");
+	if (burstSize != null) {
+	    manager.addPropertyValue("burstSize", burstSize.getValue());
+	}
+
+	Attr workersPerOperation = element.getAttributeNode("workersPerOperation");
+	if (workersPerOperation != null) {
+	    manager.addPropertyValue("workersPerOperation", workersPerOperation.getValue());
+	}
+
 	context.getRegistry().registerBeanDefinition(BatchManagementBeans.BEAN_BATCH_OPERATION_MANAGER,
 		manager.getBeanDefinition());
     }
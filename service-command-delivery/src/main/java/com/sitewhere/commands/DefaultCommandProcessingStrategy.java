@@ -7,9 +7,12 @@
  */
 package com.sitewhere.commands;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.sitewhere.commands.routing.CommandRoutingLogic;
+import com.sitewhere.commands.routing.CommandRoutingLogic.CommandTarget;
+import com.sitewhere.commands.routing.ConcurrentCommandDelivery;
 import com.sitewhere.commands.spi.ICommandExecutionBuilder;
 import com.sitewhere.commands.spi.ICommandProcessingStrategy;
 import com.sitewhere.commands.spi.ICommandTargetResolver;
@@ -47,6 +50,12 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
     /** Configured command execution builder */
     private ICommandExecutionBuilder commandExecutionBuilder = new DefaultCommandExecutionBuilder();
 
+    /** Delivers commands to destinations concurrently */
+    private ConcurrentCommandDelivery concurrentCommandDelivery = new ConcurrentCommandDelivery();
+
+    /** Memoized nesting information for devices */
+    private NestedDeviceCache nestedDeviceCache = new NestedDeviceCache();
+
     public DefaultCommandProcessingStrategy() {
 	super(LifecycleComponentType.CommandProcessingStrategy);
     }
@@ -65,17 +74,19 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	if (command != null) {
 	    IDeviceCommandExecution execution = getCommandExecutionBuilder().createExecution(command, invocation);
 	    List<IDeviceAssignment> assignments = getCommandTargetResolver().resolveTargets(invocation);
+	    List<CommandTarget> targets = new ArrayList<>();
 	    for (IDeviceAssignment assignment : assignments) {
 		IDevice device = getDeviceManagementApiChannel().getDevice(assignment.getDeviceId());
 		if (device == null) {
 		    throw new SiteWhereException("Targeted assignment references device that does not exist.");
 		}
 
-		IDeviceNestingContext nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device,
-			getTenantEngine().getTenant());
-		CommandRoutingLogic.routeCommand(getOutboundCommandRouter(), getUndeliveredCommandInvocationsProducer(),
-			context, execution, nesting, assignment);
+		IDeviceNestingContext nesting = getNestedDeviceCache().getNestingContext(device,
+			getDeviceManagementApiChannel());
+		targets.add(new CommandTarget(assignment, nesting));
 	    }
+	    CommandRoutingLogic.routeCommand(getOutboundCommandRouter(), getUndeliveredCommandInvocationsProducer(),
+		    getConcurrentCommandDelivery(), context, execution, targets);
 	} else {
 	    throw new SiteWhereException("Invalid command referenced from invocation.");
 	}
@@ -97,8 +108,8 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	}
 	IDeviceAssignment assignment = getDeviceManagementApiChannel()
 		.getDeviceAssignment(device.getDeviceAssignmentId());
-	IDeviceNestingContext nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device,
-		getTenantEngine().getTenant());
+	IDeviceNestingContext nesting = getNestedDeviceCache().getNestingContext(device,
+		getDeviceManagementApiChannel());
 	CommandRoutingLogic.routeSystemCommand(getOutboundCommandRouter(), command, nesting, assignment);
     }
 
@@ -118,6 +129,9 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	// Initialize command target resolver.
 	init.addInitializeStep(this, getCommandTargetResolver(), true);
 
+	// Initialize concurrent command delivery.
+	init.addInitializeStep(this, getConcurrentCommandDelivery(), true);
+
 	// Execute initialization steps.
 	init.execute(monitor);
     }
@@ -139,6 +153,9 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	// Start command target resolver.
 	start.addStartStep(this, getCommandTargetResolver(), true);
 
+	// Start concurrent command delivery.
+	start.addStartStep(this, getConcurrentCommandDelivery(), true);
+
 	// Execute startup steps.
 	start.execute(monitor);
     }
@@ -155,6 +172,9 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	// Composite step for stopping processing strategy.
 	ICompositeLifecycleStep stop = new CompositeLifecycleStep("Stop " + getComponentName());
 
+	// Stop concurrent command delivery.
+	stop.addStopStep(this, getConcurrentCommandDelivery());
+
 	// Stop command target resolver.
 	stop.addStopStep(this, getCommandTargetResolver());
 
@@ -181,6 +201,22 @@ public class DefaultCommandProcessingStrategy extends TenantEngineLifecycleCompo
 	this.commandExecutionBuilder = commandExecutionBuilder;
     }
 
+    public ConcurrentCommandDelivery getConcurrentCommandDelivery() {
+	return concurrentCommandDelivery;
+    }
+
+    public void setConcurrentCommandDelivery(ConcurrentCommandDelivery concurrentCommandDelivery) {
+	this.concurrentCommandDelivery = concurrentCommandDelivery;
+    }
+
+    public NestedDeviceCache getNestedDeviceCache() {
+	return nestedDeviceCache;
+    }
+
+    public void setNestedDeviceCache(NestedDeviceCache nestedDeviceCache) {
+	this.nestedDeviceCache = nestedDeviceCache;
+    }
+
     private IDeviceManagementApiChannel<?> getDeviceManagementApiChannel() {
 	return ((ICommandDeliveryMicroservice) getMicroservice()).getDeviceManagementApiDemux().getApiChannel();
     }
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+
+/**
+ * Memoizes nesting information calculated by {@link NestedDeviceSupport} so
+ * that repeated commands to the same device do not resolve the parent device
+ * each time. Entries expire after a fixed period and are discarded if the
+ * parent of the device changes. Least recently used entries are evicted when
+ * the cache is full.
+ *
+ * @author Derek
+ */
+public class NestedDeviceCache {
+
+    /** Default max number of cached entries */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** Default time entries remain valid */
+    public static final long DEFAULT_TTL_MS = 30 * 1000;
+
+    /** Max number of cached entries */
+    private int maxEntries;
+
+    /** Time entries remain valid */
+    private long ttlMs;
+
+    /** Cached entries in access order */
+    private Map<UUID, Entry> entries;
+
+    public NestedDeviceCache() {
+	this(DEFAULT_MAX_ENTRIES, DEFAULT_TTL_MS);
+    }
+
+    public NestedDeviceCache(int maxEntries, long ttlMs) {
+	this.maxEntries = maxEntries;
+	this.ttlMs = ttlMs;
+	this.entries = new LinkedHashMap<UUID, Entry>(16, 0.75f, true) {
+
+	    /** Serial version UID */
+	    private static final long serialVersionUID = 6306326429553616226L;
+
+	    /*
+	     * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+	     */
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<UUID, Entry> eldest) {
+		return size() > getMaxEntries();
+	    }
+	};
+    }
+
+    /**
+     * Get nesting information for a device, calculating it if not cached.
+     *
+     * @param device
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public IDeviceNestingContext getNestingContext(IDevice device, IDeviceManagement deviceManagement)
+	    throws SiteWhereException {
+	long now = System.currentTimeMillis();
+	synchronized (entries) {
+	    Entry entry = entries.get(device.getId());
+	    if ((entry != null) && (entry.getExpires() > now) && (isSameParent(entry, device))) {
+		return entry.getNesting();
+	    }
+	}
+	IDeviceNestingContext nesting = NestedDeviceSupport.calculateNestedDeviceInformation(device, deviceManagement);
+	synchronized (entries) {
+	    entries.put(device.getId(), new Entry(device.getParentDeviceId(), nesting, now + getTtlMs()));
+	}
+	return nesting;
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void clear() {
+	synchronized (entries) {
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Indicates whether the parent recorded in the entry matches the device.
+     *
+     * @param entry
+     * @param device
+     * @return
+     */
+    protected boolean isSameParent(Entry entry, IDevice device) {
+	if (entry.getParentDeviceId() == null) {
+	    return device.getParentDeviceId() == null;
+	}
+	return entry.getParentDeviceId().equals(device.getParentDeviceId());
+    }
+
+    /**
+     * Cached nesting information.
+     */
+    private static class Entry {
+
+	/** Parent device id when calculated */
+	private UUID parentDeviceId;
+
+	/** Nesting information */
+	private IDeviceNestingContext nesting;
+
+	/** Time at which entry expires */
+	private long expires;
+
+	public Entry(UUID parentDeviceId, IDeviceNestingContext nesting, long expires) {
+	    this.parentDeviceId = parentDeviceId;
+	    this.nesting = nesting;
+	    this.expires = expires;
+	}
+
+	public UUID getParentDeviceId() {
+	    return parentDeviceId;
+	}
+
+	public IDeviceNestingContext getNesting() {
+	    return nesting;
+	}
+
+	public long getExpires() {
+	    return expires;
+	}
+    }
+
+    public int getMaxEntries() {
+	return maxEntries;
+    }
+
+    public long getTtlMs() {
+	return ttlMs;
+    }
+}
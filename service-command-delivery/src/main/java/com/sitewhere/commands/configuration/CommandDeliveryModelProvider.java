@@ -215,6 +215,15 @@ public class CommandDeliveryModelProvider extends ConfigurationModelProvider {
 	CommonConnectorModel.addMqttCommonAttributes(builder, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY,
 		ConfigurationModelProvider.ATTR_GROUP_AUTHENTICATION);
 
+	builder.attribute((new AttributeNode.Builder("Connection count", "connectionCount", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY)
+			.description("Number of broker connections used to publish commands.").defaultValue("4")
+			.build()));
+	builder.attribute((new AttributeNode.Builder("Max in-flight publishes", "maxInFlightPublishes",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_CONNECTIVITY)
+			.description("Maximum number of unacknowledged publishes on each connection.")
+			.defaultValue("100").build()));
+
 	return builder.build();
     }
 
@@ -7,8 +7,11 @@
  */
 package com.sitewhere.commands.destination.mqtt;
 
-import org.fusesource.hawtdispatch.ShutdownException;
-import org.fusesource.mqtt.client.FutureConnection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.fusesource.mqtt.client.QoS;
 
 import com.sitewhere.commands.spi.ICommandDeliveryProvider;
@@ -23,15 +26,30 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 /**
  * Implementation of {@link ICommandDeliveryProvider} that publishes commands to
  * an MQTT topic so that they can be processed asynchronously by a device
- * listening on the topic.
+ * listening on the topic. Commands are published over a pool of connections
+ * with a bounded number of outstanding publishes per connection. Each delivery
+ * waits for the broker to acknowledge its publish so that failures are
+ * reported to the caller.
  * 
  * @author Derek
  */
 public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
 	implements ICommandDeliveryProvider<byte[], MqttParameters> {
 
-    /** Shared MQTT connection */
-    private FutureConnection connection;
+    /** Number of publishes between sampled debug messages */
+    private static final long LOG_SAMPLE_INTERVAL = 1000;
+
+    /** Number of connections used for publishing */
+    private int connectionCount = MqttPublisherPool.DEFAULT_CONNECTION_COUNT;
+
+    /** Max publishes outstanding on each connection */
+    private int maxInFlightPublishes = MqttPublisherPool.DEFAULT_MAX_IN_FLIGHT;
+
+    /** Pool of publishing connections */
+    private MqttPublisherPool publisherPool;
+
+    /** Number of messages published */
+    private AtomicLong publishCount = new AtomicLong();
 
     public MqttCommandDeliveryProvider() {
 	super(LifecycleComponentType.CommandDeliveryProvider);
@@ -48,8 +66,10 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	super.start(monitor);
 
-	getLogger().info("Connecting to MQTT broker at '" + getHostname() + ":" + getPort() + "'...");
-	connection = getConnection();
+	getLogger().info("Connecting to MQTT broker at '" + getHostname() + ":" + getPort() + "' with "
+		+ getConnectionCount() + " connections...");
+	this.publisherPool = new MqttPublisherPool(this, getConnectionCount(), getMaxInFlightPublishes());
+	getPublisherPool().connect();
 	getLogger().info("Connected to MQTT broker.");
     }
 
@@ -61,15 +81,8 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
      */
     @Override
     public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	if (connection != null) {
-	    try {
-		connection.disconnect().await();
-		connection.kill().await();
-	    } catch (ShutdownException e) {
-		getLogger().info("Dispatcher has already been shut down.");
-	    } catch (Exception e) {
-		getLogger().error("Error shutting down MQTT device event receiver.", e);
-	    }
+	if (getPublisherPool() != null) {
+	    getPublisherPool().disconnect();
 	}
 	super.stop(monitor);
     }
@@ -86,13 +99,7 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
     @Override
     public void deliver(IDeviceNestingContext nested, IDeviceAssignment assignment, IDeviceCommandExecution execution,
 	    byte[] encoded, MqttParameters params) throws SiteWhereException {
-	try {
-	    getLogger().info("About to publish command message to topic: " + params.getCommandTopic());
-	    connection.publish(params.getCommandTopic(), encoded, QoS.AT_LEAST_ONCE, false);
-	    getLogger().info("Command published.");
-	} catch (Exception e) {
-	    throw new SiteWhereException("Unable to publish command to MQTT topic.", e);
-	}
+	publish(params.getCommandTopic(), encoded);
     }
 
     /*
@@ -106,12 +113,52 @@ public class MqttCommandDeliveryProvider extends MqttLifecycleComponent
     @Override
     public void deliverSystemCommand(IDeviceNestingContext nested, IDeviceAssignment assignment, byte[] encoded,
 	    MqttParameters params) throws SiteWhereException {
+	publish(params.getSystemTopic(), encoded);
+    }
+
+    /**
+     * Publish a message to a topic. Waits until the broker acknowledges the
+     * publish or the publish timeout expires.
+     * 
+     * @param topic
+     * @param encoded
+     * @throws SiteWhereException
+     */
+    protected void publish(String topic, byte[] encoded) throws SiteWhereException {
+	long count = publishCount.incrementAndGet();
+	if ((count % LOG_SAMPLE_INTERVAL == 0) && (getLogger().isDebugEnabled())) {
+	    getLogger().debug("Published " + count + " MQTT command messages. Latest topic: " + topic);
+	}
 	try {
-	    getLogger().info("About to publish system message to topic: " + params.getSystemTopic());
-	    connection.publish(params.getSystemTopic(), encoded, QoS.AT_LEAST_ONCE, false);
-	    getLogger().info("Command published.");
-	} catch (Exception e) {
-	    throw new SiteWhereException("Unable to publish command to MQTT topic.", e);
+	    getPublisherPool().publish(topic, encoded, QoS.AT_LEAST_ONCE)
+		    .get(getPublisherPool().getPublishTimeoutMs(), TimeUnit.MILLISECONDS);
+	} catch (ExecutionException e) {
+	    throw new SiteWhereException("Unable to publish command to MQTT topic: " + topic, e.getCause());
+	} catch (TimeoutException e) {
+	    throw new SiteWhereException("Timed out publishing command to MQTT topic: " + topic, e);
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted publishing command to MQTT topic: " + topic, e);
 	}
     }
+
+    public int getConnectionCount() {
+	return connectionCount;
+    }
+
+    public void setConnectionCount(int connectionCount) {
+	this.connectionCount = connectionCount;
+    }
+
+    public int getMaxInFlightPublishes() {
+	return maxInFlightPublishes;
+    }
+
+    public void setMaxInFlightPublishes(int maxInFlightPublishes) {
+	this.maxInFlightPublishes = maxInFlightPublishes;
+    }
+
+    protected MqttPublisherPool getPublisherPool() {
+	return publisherPool;
+    }
 }
\ No newline at end of file
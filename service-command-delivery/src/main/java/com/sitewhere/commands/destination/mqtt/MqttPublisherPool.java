@@ -0,0 +1,444 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.destination.mqtt;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.fusesource.hawtbuf.Buffer;
+import org.fusesource.hawtbuf.UTF8Buffer;
+import org.fusesource.hawtdispatch.Task;
+import org.fusesource.mqtt.client.Callback;
+import org.fusesource.mqtt.client.CallbackConnection;
+import org.fusesource.mqtt.client.Listener;
+import org.fusesource.mqtt.client.MQTT;
+import org.fusesource.mqtt.client.QoS;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Publishes messages over a pool of MQTT callback connections. Each connection
+ * allows a bounded number of publishes to be outstanding at once, so many
+ * publishes are pipelined on each connection rather than waiting for a broker
+ * round trip between them. Publishes complete asynchronously through the
+ * returned future. A publish that is not acknowledged within the publish
+ * timeout, or that cannot be sent at all, fails its future and releases its
+ * slot so that capacity is never lost.
+ *
+ * @author Derek
+ */
+public class MqttPublisherPool {
+
+    /** Default number of connections */
+    public static final int DEFAULT_CONNECTION_COUNT = 4;
+
+    /** Default max publishes outstanding on each connection */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 100;
+
+    /** Default time allowed for a publish to be acknowledged */
+    public static final long DEFAULT_PUBLISH_TIMEOUT_MS = 30 * 1000;
+
+    /** Time to wait for a publish slot before failing */
+    private static final long PERMIT_TIMEOUT_MS = 10 * 1000;
+
+    /** Component that owns the pool */
+    private MqttLifecycleComponent component;
+
+    /** Number of connections */
+    private int connectionCount;
+
+    /** Max publishes outstanding on each connection */
+    private int maxInFlight;
+
+    /** Pooled connections */
+    private List<PooledConnection> connections = new ArrayList<>();
+
+    /** Used to choose next connection */
+    private AtomicInteger next = new AtomicInteger();
+
+    /** Time allowed for a publish to be acknowledged */
+    private long publishTimeoutMs = DEFAULT_PUBLISH_TIMEOUT_MS;
+
+    /** Fails publishes that are not acknowledged in time */
+    private ScheduledExecutorService timeouts;
+
+    /** Time from publish to broker acknowledgement */
+    private Timer publishLatency;
+
+    /** Publishes outstanding when a publish is sent */
+    private Histogram inFlightWindow;
+
+    /** Rate of failed publishes */
+    private Meter failures;
+
+    public MqttPublisherPool(MqttLifecycleComponent component, int connectionCount, int maxInFlight) {
+	this.component = component;
+	this.connectionCount = connectionCount;
+	this.maxInFlight = maxInFlight;
+	this.publishLatency = component.createTimerMetric("mqtt.publishLatency");
+	this.inFlightWindow = component.createHistogramMetric("mqtt.publishInFlight");
+	this.failures = component.createMeterMetric("mqtt.publishFailures");
+    }
+
+    /**
+     * Create connections and wait for them to connect.
+     *
+     * @throws SiteWhereException
+     */
+    public void connect() throws SiteWhereException {
+	this.timeouts = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+	    @Override
+	    public Thread newThread(Runnable r) {
+		Thread thread = new Thread(r, "MQTT Publish Timeouts");
+		thread.setDaemon(true);
+		return thread;
+	    }
+	});
+	CountDownLatch latch = new CountDownLatch(getConnectionCount());
+	for (int i = 0; i < getConnectionCount(); i++) {
+	    MQTT mqtt = MqttLifecycleComponent.configure(component, null);
+
+	    // Brokers drop existing sessions with the same client id.
+	    if (component.getClientId() != null) {
+		mqtt.setClientId(component.getClientId() + "-" + i);
+	    }
+	    PooledConnection pooled = new PooledConnection(mqtt.callbackConnection(), getMaxInFlight());
+	    connections.add(pooled);
+	    pooled.connect(latch);
+	}
+	try {
+	    if (!latch.await(MqttLifecycleComponent.DEFAULT_CONNECT_TIMEOUT_SECS, TimeUnit.SECONDS)) {
+		component.getLogger().warn("Not all MQTT connections were established before timeout.");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while connecting to MQTT broker.", e);
+	}
+    }
+
+    /**
+     * Disconnect all connections.
+     */
+    public void disconnect() {
+	for (PooledConnection pooled : connections) {
+	    pooled.disconnect();
+	}
+	connections.clear();
+	if (timeouts != null) {
+	    timeouts.shutdownNow();
+	}
+    }
+
+    /**
+     * Publish a message. Waits only if the chosen connection already has the max
+     * number of publishes outstanding.
+     *
+     * @param topic
+     * @param payload
+     * @param qos
+     * @return
+     * @throws SiteWhereException
+     */
+    public CompletableFuture<Void> publish(String topic, byte[] payload, QoS qos) throws SiteWhereException {
+	PooledConnection pooled = chooseConnection();
+	try {
+	    if (!pooled.getPermits().tryAcquire(PERMIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+		failures.mark();
+		throw new SiteWhereException("Timed out waiting for MQTT publish capacity.");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted waiting for MQTT publish capacity.", e);
+	}
+	inFlightWindow.update(getMaxInFlight() - pooled.getPermits().availablePermits());
+	return pooled.publish(topic, payload, qos);
+    }
+
+    /**
+     * Choose the next connected connection in round robin order. Falls back to
+     * the next connection if none are connected, in which case the publish is
+     * queued until the client reconnects.
+     *
+     * @return
+     * @throws SiteWhereException
+     */
+    protected PooledConnection chooseConnection() throws SiteWhereException {
+	int size = connections.size();
+	if (size == 0) {
+	    throw new SiteWhereException("No MQTT connections available.");
+	}
+	int start = Math.abs(next.getAndIncrement() % size);
+	for (int i = 0; i < size; i++) {
+	    PooledConnection pooled = connections.get((start + i) % size);
+	    if (pooled.isConnected()) {
+		return pooled;
+	    }
+	}
+	return connections.get(start);
+    }
+
+    /**
+     * Get number of publishes currently outstanding across all connections.
+     *
+     * @return
+     */
+    public int getInFlight() {
+	int inFlight = 0;
+	for (PooledConnection pooled : connections) {
+	    inFlight += getMaxInFlight() - pooled.getPermits().availablePermits();
+	}
+	return inFlight;
+    }
+
+    /**
+     * Publish that has been sent or queued on a connection. The slot is released
+     * and the future completed exactly once, whichever of acknowledgement,
+     * failure or timeout happens first.
+     */
+    private class PendingPublish {
+
+	/** Permits for connection the publish was sent on */
+	private Semaphore permits;
+
+	/** Time publish was started */
+	private long start = System.nanoTime();
+
+	/** Result returned to caller */
+	private CompletableFuture<Void> result = new CompletableFuture<Void>();
+
+	/** Indicates publish has been completed or failed */
+	private AtomicBoolean settled = new AtomicBoolean();
+
+	/** Pending timeout for publish */
+	private volatile ScheduledFuture<?> timeout;
+
+	public PendingPublish(Semaphore permits) {
+	    this.permits = permits;
+	}
+
+	/**
+	 * Complete publish successfully.
+	 */
+	public void succeed() {
+	    if (settled.compareAndSet(false, true)) {
+		release();
+		publishLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		result.complete(null);
+	    }
+	}
+
+	/**
+	 * Fail publish with the given cause.
+	 *
+	 * @param cause
+	 */
+	public void fail(Throwable cause) {
+	    if (settled.compareAndSet(false, true)) {
+		release();
+		failures.mark();
+		result.completeExceptionally(cause);
+	    }
+	}
+
+	/**
+	 * Release slot and cancel timeout.
+	 */
+	protected void release() {
+	    permits.release();
+	    ScheduledFuture<?> pending = timeout;
+	    if (pending != null) {
+		pending.cancel(false);
+	    }
+	}
+
+	public CompletableFuture<Void> getResult() {
+	    return result;
+	}
+
+	public void setTimeout(ScheduledFuture<?> timeout) {
+	    this.timeout = timeout;
+	}
+    }
+
+    /**
+     * Wraps a callback connection with a limit on outstanding publishes.
+     */
+    private class PooledConnection {
+
+	/** Underlying connection */
+	private CallbackConnection connection;
+
+	/** Permits for outstanding publishes */
+	private Semaphore permits;
+
+	/** Indicates whether connection is currently established */
+	private volatile boolean connected = false;
+
+	public PooledConnection(CallbackConnection connection, int maxInFlight) {
+	    this.connection = connection;
+	    this.permits = new Semaphore(maxInFlight);
+	}
+
+	/**
+	 * Start connecting, counting down the latch on completion.
+	 *
+	 * @param latch
+	 */
+	public void connect(final CountDownLatch latch) {
+	    connection.listener(new Listener() {
+
+		@Override
+		public void onConnected() {
+		    connected = true;
+		}
+
+		@Override
+		public void onDisconnected() {
+		    connected = false;
+		}
+
+		@Override
+		public void onPublish(UTF8Buffer topic, Buffer body, Runnable ack) {
+		    ack.run();
+		}
+
+		@Override
+		public void onFailure(Throwable value) {
+		    connected = false;
+		    component.getLogger().error("MQTT publisher connection failed.", value);
+		}
+	    });
+	    connection.connect(new Callback<Void>() {
+
+		@Override
+		public void onSuccess(Void value) {
+		    connected = true;
+		    latch.countDown();
+		}
+
+		@Override
+		public void onFailure(Throwable value) {
+		    component.getLogger().error("Unable to connect to MQTT broker.", value);
+		    latch.countDown();
+		}
+	    });
+	}
+
+	/**
+	 * Publish a message on the connection dispatch queue. The permit is released
+	 * when the broker acknowledges the message, the publish fails or the publish
+	 * timeout expires.
+	 *
+	 * @param topic
+	 * @param payload
+	 * @param qos
+	 * @return
+	 */
+	public CompletableFuture<Void> publish(final String topic, final byte[] payload, final QoS qos) {
+	    final PendingPublish pending = new PendingPublish(permits);
+	    try {
+		pending.setTimeout(timeouts.schedule(new Runnable() {
+
+		    @Override
+		    public void run() {
+			pending.fail(new TimeoutException(
+				"MQTT publish was not acknowledged within " + getPublishTimeoutMs() + "ms."));
+		    }
+		}, getPublishTimeoutMs(), TimeUnit.MILLISECONDS));
+		connection.getDispatchQueue().execute(new Task() {
+
+		    @Override
+		    public void run() {
+			try {
+			    connection.publish(topic, payload, qos, false, new Callback<Void>() {
+
+				@Override
+				public void onSuccess(Void value) {
+				    pending.succeed();
+				}
+
+				@Override
+				public void onFailure(Throwable value) {
+				    pending.fail(value);
+				}
+			    });
+			} catch (Throwable t) {
+			    pending.fail(t);
+			}
+		    }
+		});
+	    } catch (RuntimeException e) {
+		pending.fail(e);
+	    }
+	    return pending.getResult();
+	}
+
+	/**
+	 * Disconnect and stop the transport.
+	 */
+	public void disconnect() {
+	    connection.getDispatchQueue().execute(new Task() {
+
+		@Override
+		public void run() {
+		    connection.disconnect(new Callback<Void>() {
+
+			@Override
+			public void onSuccess(Void value) {
+			}
+
+			@Override
+			public void onFailure(Throwable value) {
+			    component.getLogger().info("MQTT disconnect failed.");
+			}
+		    });
+		}
+	    });
+	}
+
+	public Semaphore getPermits() {
+	    return permits;
+	}
+
+	public boolean isConnected() {
+	    return connected;
+	}
+    }
+
+    public int getConnectionCount() {
+	return connectionCount;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+
+    public long getPublishTimeoutMs() {
+	return publishTimeoutMs;
+    }
+
+    public void setPublishTimeoutMs(long publishTimeoutMs) {
+	this.publishTimeoutMs = publishTimeoutMs;
+    }
+}
@@ -14,6 +14,7 @@ import com.google.protobuf.ByteString;
 import com.sitewhere.commands.spi.ICommandExecutionEncoder;
 import com.sitewhere.commands.spi.microservice.ICommandDeliveryMicroservice;
 import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.communication.protobuf.ProtobufDescriptorCache;
 import com.sitewhere.communication.protobuf.ProtobufMessageBuilder;
 import com.sitewhere.communication.protobuf.proto.SiteWhere.Device.Command;
 import com.sitewhere.communication.protobuf.proto.SiteWhere.Device.DeviceStreamAck;
@@ -37,21 +38,36 @@ import com.sitewhere.spi.device.command.IRegistrationAckCommand;
 import com.sitewhere.spi.device.command.IRegistrationFailureCommand;
 import com.sitewhere.spi.device.command.ISendDeviceStreamDataCommand;
 import com.sitewhere.spi.device.command.ISystemCommand;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
 /**
  * Implementation of {@link ICommandExecutionEncoder} that uses Google Protocol
- * Buffers to encode the execution.
+ * Buffers to encode the execution. Compiled descriptors for each device type
+ * are cached so that the schema is not rebuilt for every command.
  * 
  * @author Derek
  */
 public class ProtobufExecutionEncoder extends TenantEngineLifecycleComponent
 	implements ICommandExecutionEncoder<byte[]> {
 
+    /** Cache of compiled device type descriptors */
+    private ProtobufDescriptorCache descriptorCache = new ProtobufDescriptorCache();
+
     public ProtobufExecutionEncoder() {
 	super(LifecycleComponentType.CommandExecutionEncoder);
     }
 
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	getDescriptorCache().clear();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -64,8 +80,10 @@ public class ProtobufExecutionEncoder extends TenantEngineLifecycleComponent
     public byte[] encode(IDeviceCommandExecution execution, IDeviceNestingContext nested, IDeviceAssignment assignment)
 	    throws SiteWhereException {
 	byte[] encoded = ProtobufMessageBuilder.createMessage(execution, nested, assignment,
-		getTenantEngine().getTenant(), getDeviceManagement());
-	getLogger().debug("Protobuf message: 0x" + DataUtils.bytesToHex(encoded));
+		getTenantEngine().getTenant(), getDeviceManagement(), getDescriptorCache());
+	if (getLogger().isDebugEnabled()) {
+	    getLogger().debug("Protobuf message: 0x" + DataUtils.bytesToHex(encoded));
+	}
 	return encoded;
     }
 
@@ -217,6 +235,14 @@ public class ProtobufExecutionEncoder extends TenantEngineLifecycleComponent
 	}
     }
 
+    public ProtobufDescriptorCache getDescriptorCache() {
+	return descriptorCache;
+    }
+
+    public void setDescriptorCache(ProtobufDescriptorCache descriptorCache) {
+	this.descriptorCache = descriptorCache;
+    }
+
     private IDeviceManagement getDeviceManagement() {
 	return ((ICommandDeliveryMicroservice) getMicroservice()).getDeviceManagementApiDemux().getApiChannel();
     }
@@ -7,6 +7,12 @@
  */
 package com.sitewhere.commands.kafka;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
 import com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer;
 import com.sitewhere.microservice.kafka.AckPolicy;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
@@ -34,4 +40,24 @@ public class UndeliveredCommandInvocationsProducer extends MicroserviceKafkaProd
 	return getMicroservice().getKafkaTopicNaming()
 		.getUndeliveredCommandInvocationsTopic(getTenantEngine().getTenant());
     }
+
+    /*
+     * @see com.sitewhere.commands.spi.kafka.IUndeliveredCommandInvocationsProducer#
+     * send(java.lang.String, byte[], java.lang.String)
+     */
+    @Override
+    public Future<RecordMetadata> send(String key, byte[] message, String destinationId) throws SiteWhereException {
+	ProducerRecord<String, byte[]> record = new ProducerRecord<String, byte[]>(getTargetTopicName(), key, message);
+	addEventTiming(record);
+	if (destinationId != null) {
+	    record.headers().add(HEADER_DESTINATION_ID, destinationId.getBytes(StandardCharsets.UTF_8));
+	}
+	try {
+	    return getProducer().send(record);
+	} catch (IllegalStateException e) {
+	    throw new SiteWhereException("Producer unable to send record.", e);
+	} catch (Throwable e) {
+	    throw new SiteWhereException("Unhandled exception in producer while sending record.", e);
+	}
+    }
 }
\ No newline at end of file
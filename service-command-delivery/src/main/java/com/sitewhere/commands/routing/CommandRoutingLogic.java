@@ -7,6 +7,7 @@
  */
 package com.sitewhere.commands.routing;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import com.sitewhere.commands.spi.ICommandDestination;
@@ -25,41 +26,51 @@ import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
 public class CommandRoutingLogic {
 
     /**
-     * Route a command using the given router.
+     * Route a command to one or more targets using the given router. Deliveries
+     * to all destinations for all targets run concurrently. Each destination
+     * that was not available or did not receive the command is recorded
+     * separately on the undelivered topic.
      * 
      * @param router
      * @param undelivered
+     * @param delivery
      * @param eventContext
      * @param execution
-     * @param nesting
-     * @param assignment
+     * @param targets
      * @throws SiteWhereException
      */
     public static void routeCommand(IOutboundCommandRouter router, IUndeliveredCommandInvocationsProducer undelivered,
-	    IDeviceEventContext eventContext, IDeviceCommandExecution execution, IDeviceNestingContext nesting,
-	    IDeviceAssignment assignment) throws SiteWhereException {
-	List<ICommandDestination<?, ?>> destinations = router.getDestinationsFor(execution, nesting, assignment);
-	boolean deliveredToAll = true;
-	for (ICommandDestination<?, ?> destination : destinations) {
-	    if (destination.getLifecycleStatus() == LifecycleStatus.Started) {
-		try {
-		    deliverCommand(destination, execution, nesting, assignment);
-		} catch (SiteWhereException e) {
-		    router.getLogger().error("Unable to deliver command to destination.", e);
-		    deliveredToAll = false;
+	    ConcurrentCommandDelivery delivery, IDeviceEventContext eventContext, IDeviceCommandExecution execution,
+	    List<CommandTarget> targets) throws SiteWhereException {
+	List<String> failed = new ArrayList<>();
+	List<ConcurrentCommandDelivery.Delivery> deliveries = new ArrayList<>();
+	for (CommandTarget target : targets) {
+	    List<ICommandDestination<?, ?>> destinations = router.getDestinationsFor(execution, target.getNesting(),
+		    target.getAssignment());
+	    for (ICommandDestination<?, ?> destination : destinations) {
+		if (destination.getLifecycleStatus() == LifecycleStatus.Started) {
+		    deliveries.add(
+			    delivery.submit(destination, execution, target.getNesting(), target.getAssignment()));
+		} else {
+		    failed.add(destination.getDestinationId());
 		}
-	    } else {
-		deliveredToAll = false;
 	    }
 	}
-	// If any command destination was not available, add to undelivered topic.
-	if (!deliveredToAll) {
+	for (ConcurrentCommandDelivery.Delivery missed : delivery.awaitAll(deliveries)) {
+	    failed.add(missed.getDestination().getDestinationId());
+	}
+
+	// Add an entry to undelivered topic for each destination that failed.
+	if (!failed.isEmpty()) {
 	    EnrichedEventPayload payload = new EnrichedEventPayload();
 	    payload.setEventContext(eventContext);
 	    payload.setEvent(execution.getInvocation());
 	    byte[] message = EventModelMarshaler.buildEnrichedEventPayloadMessage(payload);
-	    undelivered.send(eventContext.getDeviceId().toString(), message);
-	    router.getLogger().warn("Due to delivery failure, pushed command to undeliverable topic.");
+	    for (String destinationId : failed) {
+		undelivered.send(eventContext.getDeviceId().toString(), message, destinationId);
+	    }
+	    router.getLogger().warn("Due to delivery failure, pushed command to undeliverable topic for destinations "
+		    + failed + ".");
 	}
     }
 
@@ -108,4 +119,32 @@ public class CommandRoutingLogic {
 	    IDeviceNestingContext nesting, IDeviceAssignment assignment) throws SiteWhereException {
 	destination.deliverSystemCommand(command, nesting, assignment);
     }
+
+    /**
+     * Assignment targeted by a command along with nesting information for the
+     * assigned device.
+     * 
+     * @author Derek
+     */
+    public static class CommandTarget {
+
+	/** Targeted assignment */
+	private IDeviceAssignment assignment;
+
+	/** Nesting information for assigned device */
+	private IDeviceNestingContext nesting;
+
+	public CommandTarget(IDeviceAssignment assignment, IDeviceNestingContext nesting) {
+	    this.assignment = assignment;
+	    this.nesting = nesting;
+	}
+
+	public IDeviceAssignment getAssignment() {
+	    return assignment;
+	}
+
+	public IDeviceNestingContext getNesting() {
+	    return nesting;
+	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sitewhere.commands.spi.ICommandDestination;
+import com.sitewhere.microservice.security.SystemUserCallable;
+import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.IDeviceNestingContext;
+import com.sitewhere.spi.device.command.IDeviceCommandExecution;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
+
+/**
+ * Delivers commands to destinations concurrently. Each delivery runs as the
+ * system user for the tenant on a bounded thread pool. Callers wait for a
+ * group of deliveries and any destination that has not completed within the
+ * delivery timeout is cancelled, so one slow destination does not hold up the
+ * others. The timeout for each destination starts when its delivery begins
+ * rather than when it is queued. Deliveries that wait in the queue longer than
+ * the queue timeout are cancelled without starting. If the pool is saturated,
+ * the calling thread delivers the command itself.
+ *
+ * @author Derek
+ */
+public class ConcurrentCommandDelivery extends TenantEngineLifecycleComponent {
+
+    /** Default number of delivery threads */
+    public static final int DEFAULT_DELIVERY_THREADS = 10;
+
+    /** Default time allowed for delivery to a single destination */
+    public static final long DEFAULT_DELIVERY_TIMEOUT_MS = 10 * 1000;
+
+    /** Default time a delivery may wait in the queue before starting */
+    public static final long DEFAULT_QUEUE_TIMEOUT_MS = 30 * 1000;
+
+    /** Max deliveries queued before callers deliver inline */
+    private static final int DELIVERY_QUEUE_SIZE = 1000;
+
+    /** Number of delivery threads */
+    private int deliveryThreads = DEFAULT_DELIVERY_THREADS;
+
+    /** Time allowed for delivery to a single destination */
+    private long deliveryTimeoutMs = DEFAULT_DELIVERY_TIMEOUT_MS;
+
+    /** Time a delivery may wait in the queue before starting */
+    private long queueTimeoutMs = DEFAULT_QUEUE_TIMEOUT_MS;
+
+    /** Executor for deliveries */
+    private ThreadPoolExecutor executor;
+
+    public ConcurrentCommandDelivery() {
+	super(LifecycleComponentType.Other);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.executor = new ThreadPoolExecutor(getDeliveryThreads(), getDeliveryThreads(), 60, TimeUnit.SECONDS,
+		new ArrayBlockingQueue<Runnable>(DELIVERY_QUEUE_SIZE), new CommandDeliveryThreadFactory(),
+		new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (executor != null) {
+	    executor.shutdown();
+	    try {
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+	    } catch (InterruptedException e) {
+		getLogger().warn("Command delivery executor did not terminate within allotted time.");
+	    }
+	}
+    }
+
+    /**
+     * Start delivery of a command to a destination.
+     *
+     * @param destination
+     * @param execution
+     * @param nesting
+     * @param assignment
+     * @return
+     */
+    public Delivery submit(final ICommandDestination<?, ?> destination, final IDeviceCommandExecution execution,
+	    final IDeviceNestingContext nesting, final IDeviceAssignment assignment) {
+	final Delivery delivery = new Delivery(destination, nesting, assignment);
+	SystemUserCallable<Void> callable = new SystemUserCallable<Void>(getMicroservice(),
+		getTenantEngine().getTenant()) {
+
+	    /*
+	     * @see com.sitewhere.microservice.security.SystemUserCallable#call()
+	     */
+	    @Override
+	    public Void call() throws Exception {
+		delivery.markStarted();
+		return super.call();
+	    }
+
+	    /*
+	     * @see com.sitewhere.microservice.security.SystemUserCallable#
+	     * runAsSystemUser()
+	     */
+	    @Override
+	    public Void runAsSystemUser() throws SiteWhereException {
+		CommandRoutingLogic.deliverCommand(destination, execution, nesting, assignment);
+		return null;
+	    }
+	};
+	delivery.setFuture(executor.submit(callable));
+	return delivery;
+    }
+
+    /**
+     * Wait for deliveries to complete. Each delivery is allowed the delivery
+     * timeout from the time it started. Deliveries that do not complete in time
+     * are cancelled.
+     *
+     * @param deliveries
+     * @return deliveries that failed or timed out
+     */
+    public List<Delivery> awaitAll(List<Delivery> deliveries) {
+	List<Delivery> failed = new ArrayList<>();
+	for (Delivery delivery : deliveries) {
+	    if (!await(delivery)) {
+		failed.add(delivery);
+	    }
+	}
+	return failed;
+    }
+
+    /**
+     * Wait for a single delivery to complete.
+     *
+     * @param delivery
+     * @return true if delivery succeeded
+     */
+    protected boolean await(Delivery delivery) {
+	String destinationId = delivery.getDestination().getDestinationId();
+	try {
+	    if (!delivery.awaitStarted(getQueueTimeoutMs())) {
+		delivery.getFuture().cancel(false);
+		getLogger().error("Timed out waiting to start command delivery to '" + destinationId + "'.");
+		return false;
+	    }
+	    long remaining = Math.max(0,
+		    delivery.getStartedAt() + getDeliveryTimeoutMs() - System.currentTimeMillis());
+	    delivery.getFuture().get(remaining, TimeUnit.MILLISECONDS);
+	    return true;
+	} catch (TimeoutException e) {
+	    delivery.getFuture().cancel(true);
+	    getLogger().error("Timed out delivering command to '" + destinationId + "'.");
+	    return false;
+	} catch (ExecutionException e) {
+	    getLogger().error("Unable to deliver command to '" + destinationId + "'.", e.getCause());
+	    return false;
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    delivery.getFuture().cancel(true);
+	    return false;
+	}
+    }
+
+    /**
+     * Delivery of a command to a single destination.
+     *
+     * @author Derek
+     */
+    public static class Delivery {
+
+	/** Destination receiving command */
+	private ICommandDestination<?, ?> destination;
+
+	/** Nesting information for assigned device */
+	private IDeviceNestingContext nesting;
+
+	/** Targeted assignment */
+	private IDeviceAssignment assignment;
+
+	/** Released when delivery starts */
+	private CountDownLatch started = new CountDownLatch(1);
+
+	/** Time delivery started */
+	private volatile long startedAt;
+
+	/** Result of delivery */
+	private volatile Future<Void> future;
+
+	public Delivery(ICommandDestination<?, ?> destination, IDeviceNestingContext nesting,
+		IDeviceAssignment assignment) {
+	    this.destination = destination;
+	    this.nesting = nesting;
+	    this.assignment = assignment;
+	}
+
+	/**
+	 * Record that delivery has started.
+	 */
+	protected void markStarted() {
+	    this.startedAt = System.currentTimeMillis();
+	    started.countDown();
+	}
+
+	/**
+	 * Wait for delivery to start.
+	 *
+	 * @param timeoutMs
+	 * @return true if delivery started within the timeout
+	 * @throws InterruptedException
+	 */
+	protected boolean awaitStarted(long timeoutMs) throws InterruptedException {
+	    return started.await(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	public ICommandDestination<?, ?> getDestination() {
+	    return destination;
+	}
+
+	public IDeviceNestingContext getNesting() {
+	    return nesting;
+	}
+
+	public IDeviceAssignment getAssignment() {
+	    return assignment;
+	}
+
+	public long getStartedAt() {
+	    return startedAt;
+	}
+
+	public Future<Void> getFuture() {
+	    return future;
+	}
+
+	protected void setFuture(Future<Void> future) {
+	    this.future = future;
+	}
+    }
+
+    /** Used for naming command delivery threads */
+    private class CommandDeliveryThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Command Delivery " + counter.incrementAndGet());
+	}
+    }
+
+    public int getDeliveryThreads() {
+	return deliveryThreads;
+    }
+
+    public void setDeliveryThreads(int deliveryThreads) {
+	this.deliveryThreads = deliveryThreads;
+    }
+
+    public long getDeliveryTimeoutMs() {
+	return deliveryTimeoutMs;
+    }
+
+    public void setDeliveryTimeoutMs(long deliveryTimeoutMs) {
+	this.deliveryTimeoutMs = deliveryTimeoutMs;
+    }
+
+    public long getQueueTimeoutMs() {
+	return queueTimeoutMs;
+    }
+
+    public void setQueueTimeoutMs(long queueTimeoutMs) {
+	this.queueTimeoutMs = queueTimeoutMs;
+    }
+}
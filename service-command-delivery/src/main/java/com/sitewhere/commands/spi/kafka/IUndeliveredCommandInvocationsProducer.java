@@ -7,6 +7,11 @@
  */
 package com.sitewhere.commands.spi.kafka;
 
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
 
 /**
@@ -15,4 +20,19 @@ import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
  * @author Derek
  */
 public interface IUndeliveredCommandInvocationsProducer extends IMicroserviceKafkaProducer {
+
+    /** Record header that holds id of destination that did not receive command */
+    public static final String HEADER_DESTINATION_ID = "sw-destination";
+
+    /**
+     * Send an undelivered command invocation, recording the destination that did
+     * not receive it in the record headers.
+     * 
+     * @param key
+     * @param message
+     * @param destinationId
+     * @return
+     * @throws SiteWhereException
+     */
+    public Future<RecordMetadata> send(String key, byte[] message, String destinationId) throws SiteWhereException;
 }
\ No newline at end of file
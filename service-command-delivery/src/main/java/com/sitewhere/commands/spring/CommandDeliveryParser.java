@@ -239,6 +239,16 @@ public class CommandDeliveryParser extends AbstractBeanDefinitionParser {
 	    mqtt.addPropertyValue("keyStorePassword", trustStorePassword.getValue());
 	}
 
+	Attr connectionCount = element.getAttributeNode("connectionCount");
+	if (connectionCount != null) {
+	    mqtt.addPropertyValue("connectionCount", connectionCount.getValue());
+	}
+
+	Attr maxInFlightPublishes = element.getAttributeNode("maxInFlightPublishes");
+	if (maxInFlightPublishes != null) {
+	    mqtt.addPropertyValue("maxInFlightPublishes", maxInFlightPublishes.getValue());
+	}
+
 	return mqtt.getBeanDefinition();
     }
 
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.commands.destination.mqtt;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.activemq.broker.BrokerService;
+import org.apache.activemq.broker.TransportConnector;
+import org.fusesource.mqtt.client.QoS;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.SlidingWindowReservoir;
+import com.codahale.metrics.Timer;
+import com.sitewhere.communication.mqtt.MqttLifecycleComponent;
+import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
+
+public class MqttPublisherPoolTest {
+
+    /** Topic used for publishing */
+    private static final String TOPIC = "sitewhere/test/commands";
+
+    /** Number of messages published */
+    private static final int MESSAGE_COUNT = 500;
+
+    /** Embedded broker */
+    private BrokerService broker;
+
+    /** Pool under test */
+    private MqttPublisherPool pool;
+
+    @Before
+    public void setUp() throws Exception {
+	this.broker = new BrokerService();
+	broker.setPersistent(false);
+	broker.setUseJmx(false);
+	broker.setAdvisorySupport(false);
+	TransportConnector connector = broker.addConnector("mqtt://localhost:0");
+	broker.start();
+	broker.waitUntilStarted();
+
+	TestMqttComponent component = new TestMqttComponent();
+	component.setHostname("localhost");
+	component.setPort(String.valueOf(connector.getConnectUri().getPort()));
+	component.setClientId("publisher-pool-test");
+	this.pool = new MqttPublisherPool(component, 2, 10);
+	pool.connect();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+	pool.disconnect();
+	if (broker.isStarted()) {
+	    broker.stop();
+	    broker.waitUntilStopped();
+	}
+    }
+
+    @Test
+    public void testPublishReleasesSlots() throws Exception {
+	List<CompletableFuture<Void>> results = new ArrayList<>();
+	for (int i = 0; i < MESSAGE_COUNT; i++) {
+	    results.add(pool.publish(TOPIC, ("message " + i).getBytes(StandardCharsets.UTF_8), QoS.AT_LEAST_ONCE));
+	}
+	for (CompletableFuture<Void> result : results) {
+	    result.get(10, TimeUnit.SECONDS);
+	}
+	assertEquals(0, pool.getInFlight());
+    }
+
+    @Test
+    public void testUnacknowledgedPublishTimesOut() throws Exception {
+	pool.setPublishTimeoutMs(500);
+	broker.stop();
+	broker.waitUntilStopped();
+
+	List<CompletableFuture<Void>> results = new ArrayList<>();
+	for (int i = 0; i < 5; i++) {
+	    results.add(pool.publish(TOPIC, ("message " + i).getBytes(StandardCharsets.UTF_8), QoS.AT_LEAST_ONCE));
+	}
+	for (CompletableFuture<Void> result : results) {
+	    try {
+		result.get(5, TimeUnit.SECONDS);
+		fail("Publish was expected to fail.");
+	    } catch (ExecutionException e) {
+		// Expected.
+	    }
+	}
+	assertEquals(0, pool.getInFlight());
+    }
+
+    @Test
+    public void testPublishAfterDisconnectFails() throws Exception {
+	pool.disconnect();
+	try {
+	    pool.publish(TOPIC, "message".getBytes(StandardCharsets.UTF_8), QoS.AT_LEAST_ONCE);
+	    fail("Publish was expected to fail.");
+	} catch (Exception e) {
+	    assertTrue(e.getMessage().contains("No MQTT connections"));
+	}
+    }
+
+    /** MQTT component with metrics that are not registered with a microservice */
+    private static class TestMqttComponent extends MqttLifecycleComponent {
+
+	public TestMqttComponent() {
+	    super(LifecycleComponentType.Other);
+	}
+
+	@Override
+	public Timer createTimerMetric(String name) {
+	    return new Timer();
+	}
+
+	@Override
+	public Meter createMeterMetric(String name) {
+	    return new Meter();
+	}
+
+	@Override
+	public Histogram createHistogramMetric(String name) {
+	    return new Histogram(new SlidingWindowReservoir(100));
+	}
+    }
+}
@@ -19,6 +19,7 @@ import com.sitewhere.microservice.grpc.MultitenantGrpcServer;
 public class DeviceManagementGrpcServer extends MultitenantGrpcServer implements IDeviceManagementGrpcServer {
 
     public DeviceManagementGrpcServer(IDeviceManagementMicroservice microservice) {
-	super(new DeviceManagementRouter(microservice), microservice.getInstanceSettings().getGrpcPort());
+	super(new DeviceManagementService(new DeviceManagementRouter(microservice)),
+		microservice.getInstanceSettings().getGrpcPort());
     }
 }
\ No newline at end of file
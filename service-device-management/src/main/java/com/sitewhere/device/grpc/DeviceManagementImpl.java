@@ -12,6 +12,7 @@ import java.util.List;
 import com.sitewhere.device.spi.microservice.IDeviceManagementMicroservice;
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
+import com.sitewhere.grpc.client.device.AreaHierarchyGrpc;
 import com.sitewhere.grpc.client.device.DeviceModelConverter;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.model.DeviceModel.GAreaSearchResults;
@@ -60,6 +61,7 @@ import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.search.device.IDeviceCommandSearchCriteria;
 
+import io.grpc.MethodDescriptor;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -670,6 +672,63 @@ public class DeviceManagementImpl extends DeviceManagementGrpc.DeviceManagementI
 	}
     }
 
+    /**
+     * Get all descendants of an area. Handles the method described by
+     * {@link AreaHierarchyGrpc}, which is not part of the generated service
+     * contract.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreaDescendants(GGetAreaRequest request,
+	    StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+	MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> method = AreaHierarchyGrpc
+		.getGetAreaDescendantsMethod();
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, method);
+	    List<IArea> apiResult = getDeviceManagement()
+		    .getAreaDescendants(CommonModelConverter.asApiUuid(request.getId()));
+	    GGetAreaChildrenResponse.Builder response = GGetAreaChildrenResponse.newBuilder();
+	    if (apiResult != null) {
+		response.addAllAreas(DeviceModelConverter.asGrpcAreas(apiResult));
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(method, e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(method);
+	}
+    }
+
+    /**
+     * Get ancestors of an area ordered from the root down to the parent. Handles
+     * the method described by {@link AreaHierarchyGrpc}, which is not part of the
+     * generated service contract.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreaAncestors(GGetAreaRequest request, StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+	MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> method = AreaHierarchyGrpc
+		.getGetAreaAncestorsMethod();
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, method);
+	    List<IArea> apiResult = getDeviceManagement()
+		    .getAreaAncestors(CommonModelConverter.asApiUuid(request.getId()));
+	    GGetAreaChildrenResponse.Builder response = GGetAreaChildrenResponse.newBuilder();
+	    if (apiResult != null) {
+		response.addAllAreas(DeviceModelConverter.asGrpcAreas(apiResult));
+	    }
+	    responseObserver.onNext(response.build());
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(method, e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(method);
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
@@ -399,6 +399,33 @@ public class DeviceManagementRouter extends DeviceManagementGrpc.DeviceManagemen
 	}
     }
 
+    /**
+     * Route area descendants call to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreaDescendants(GGetAreaRequest request,
+	    StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getAreaDescendants(request, responseObserver);
+	}
+    }
+
+    /**
+     * Route area ancestors call to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void getAreaAncestors(GGetAreaRequest request, StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+	DeviceManagementGrpc.DeviceManagementImplBase engine = getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((DeviceManagementImpl) engine).getAreaAncestors(request, responseObserver);
+	}
+    }
+
     /*
      * @see
      * com.sitewhere.grpc.service.DeviceManagementGrpc.DeviceManagementImplBase#
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.grpc;
+
+import com.sitewhere.grpc.client.device.AreaHierarchyGrpc;
+import com.sitewhere.grpc.service.GGetAreaChildrenResponse;
+import com.sitewhere.grpc.service.GGetAreaRequest;
+
+import io.grpc.BindableService;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Binds the generated device management methods from the router along with
+ * the area hierarchy methods, which are not part of the generated service
+ * contract.
+ * 
+ * @author Derek
+ */
+public class DeviceManagementService implements BindableService {
+
+    /** Router for tenant requests */
+    private DeviceManagementRouter router;
+
+    public DeviceManagementService(DeviceManagementRouter router) {
+	this.router = router;
+    }
+
+    /*
+     * @see io.grpc.BindableService#bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	ServerServiceDefinition generated = getRouter().bindService();
+	ServerServiceDefinition.Builder builder = ServerServiceDefinition
+		.builder(generated.getServiceDescriptor().getName());
+	for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+	    builder.addMethod(method);
+	}
+	builder.addMethod(AreaHierarchyGrpc.getGetAreaDescendantsMethod(),
+		ServerCalls.asyncUnaryCall(new ServerCalls.UnaryMethod<GGetAreaRequest, GGetAreaChildrenResponse>() {
+
+		    @Override
+		    public void invoke(GGetAreaRequest request,
+			    StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+			getRouter().getAreaDescendants(request, responseObserver);
+		    }
+		}));
+	builder.addMethod(AreaHierarchyGrpc.getGetAreaAncestorsMethod(),
+		ServerCalls.asyncUnaryCall(new ServerCalls.UnaryMethod<GGetAreaRequest, GGetAreaChildrenResponse>() {
+
+		    @Override
+		    public void invoke(GGetAreaRequest request,
+			    StreamObserver<GGetAreaChildrenResponse> responseObserver) {
+			getRouter().getAreaAncestors(request, responseObserver);
+		    }
+		}));
+	return builder.build();
+    }
+
+    public DeviceManagementRouter getRouter() {
+	return router;
+    }
+}
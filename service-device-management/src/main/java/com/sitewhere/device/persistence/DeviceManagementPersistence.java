@@ -1073,12 +1073,28 @@ public class DeviceManagementPersistence extends Persistence {
      */
     public static DeviceGroupElement deviceGroupElementCreateLogic(IDeviceGroupElementCreateRequest request,
 	    IDeviceGroup group, IDevice device, IDeviceGroup nested) throws SiteWhereException {
+	return deviceGroupElementCreateLogic(request, group.getId(), device != null ? device.getId() : null,
+		nested != null ? nested.getId() : null);
+    }
+
+    /**
+     * Common logic for creating a new device group element from resolved ids.
+     * 
+     * @param request
+     * @param groupId
+     * @param deviceId
+     * @param nestedGroupId
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceGroupElement deviceGroupElementCreateLogic(IDeviceGroupElementCreateRequest request,
+	    UUID groupId, UUID deviceId, UUID nestedGroupId) throws SiteWhereException {
 	DeviceGroupElement element = new DeviceGroupElement();
 	element.setId(UUID.randomUUID());
 
-	element.setGroupId(group.getId());
-	element.setDeviceId(device != null ? device.getId() : null);
-	element.setNestedGroupId(nested != null ? nested.getId() : null);
+	element.setGroupId(groupId);
+	element.setDeviceId(deviceId);
+	element.setNestedGroupId(nestedGroupId);
 	element.setRoles(request.getRoles());
 	return element;
     }
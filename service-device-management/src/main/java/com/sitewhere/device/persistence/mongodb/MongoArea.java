@@ -7,6 +7,7 @@
  */
 package com.sitewhere.device.persistence.mongodb;
 
+import java.util.List;
 import java.util.UUID;
 
 import org.bson.Document;
@@ -35,6 +36,9 @@ public class MongoArea implements MongoConverter<IArea> {
     /** Property for description */
     public static final String PROP_DESCRIPTION = "desc";
 
+    /** Property for ids of ancestor areas ordered from root to parent */
+    public static final String PROP_PATH = "path";
+
     /*
      * (non-Javadoc)
      * 
@@ -92,6 +96,18 @@ public class MongoArea implements MongoConverter<IArea> {
 	MongoBrandedEntity.fromDocument(source, target);
     }
 
+    /**
+     * Get ids of ancestor areas stored on an area document, ordered from root to
+     * parent. Returns null if the path has not been calculated.
+     * 
+     * @param source
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public static List<UUID> getPath(Document source) {
+	return (List<UUID>) source.get(PROP_PATH);
+    }
+
     /**
      * Convert SPI object to Mongo {@link Document}.
      * 
@@ -9,19 +9,33 @@ package com.sitewhere.device.persistence.mongodb;
 
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.lang.StringUtils;
 import org.bson.Document;
 
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoClientException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoCursor;
+import com.mongodb.client.model.BulkWriteOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
 import com.mongodb.client.result.DeleteResult;
 import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.device.group.DeviceGroupElementBulkResult;
+import com.sitewhere.device.group.DeviceGroupElementFailure;
 import com.sitewhere.device.microservice.DeviceManagementMicroservice;
 import com.sitewhere.device.persistence.DeviceManagementPersistence;
 import com.sitewhere.mongodb.IMongoConverterLookup;
@@ -70,6 +84,7 @@ import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.command.IDeviceCommand;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
 import com.sitewhere.spi.device.request.IDeviceAlarmCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceCommandCreateRequest;
@@ -91,6 +106,7 @@ import com.sitewhere.spi.search.device.IDeviceCommandSearchCriteria;
 import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
 import com.sitewhere.spi.search.device.IDeviceStatusSearchCriteria;
 import com.sitewhere.spi.search.device.IZoneSearchCriteria;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
 /**
@@ -108,6 +124,12 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
     /** Converter lookup */
     private static IMongoConverterLookup LOOKUP = new MongoConverters();
 
+    /** Number of area path updates sent in each bulk write */
+    private static final int AREA_PATH_BATCH_SIZE = 500;
+
+    /** Number of group elements sent in each insert */
+    private static final int GROUP_ELEMENT_INSERT_CHUNK_SIZE = 1000;
+
     /** Injected with global SiteWhere Mongo client */
     private DeviceManagementMongoClient mongoClient;
 
@@ -115,6 +137,19 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	super(LifecycleComponentType.DataStore);
     }
 
+    /*
+     * @see
+     * com.sitewhere.mongodb.MongoTenantComponent#start(com.sitewhere.spi.server.
+     * lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	super.start(monitor);
+
+	// Calculate paths for areas stored before paths were maintained.
+	backfillAreaPaths();
+    }
+
     /*
      * @see com.sitewhere.mongodb.MongoTenantComponent#ensureIndexes()
      */
@@ -123,6 +158,7 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	// Area indexes.
 	getMongoClient().getAreasCollection().createIndex(new Document(MongoPersistentEntity.PROP_TOKEN, 1),
 		new IndexOptions().unique(true));
+	getMongoClient().getAreasCollection().createIndex(new Document(MongoArea.PROP_PATH, 1));
 
 	// Device-type-related indexes.
 	getMongoClient().getDeviceTypesCollection().createIndex(new Document(MongoPersistentEntity.PROP_TOKEN, 1),
@@ -745,6 +781,71 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
     @Override
     public SearchResults<IDevice> listDevices(IDeviceSearchCriteria criteria) throws SiteWhereException {
 	MongoCollection<Document> devices = getMongoClient().getDevicesCollection();
+	Document dbCriteria = buildDeviceSearchCriteria(criteria);
+	Document sort = new Document(MongoPersistentEntity.PROP_CREATED_DATE, -1);
+	return MongoPersistence.search(IDevice.class, devices, dbCriteria, sort, criteria, LOOKUP);
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevices(java.util.List,
+     * com.sitewhere.spi.search.device.IDeviceSearchCriteria)
+     */
+    @Override
+    public List<IDevice> getDevices(List<UUID> deviceIds, IDeviceSearchCriteria criteria) throws SiteWhereException {
+	List<IDevice> matches = new ArrayList<IDevice>();
+	if (deviceIds.isEmpty()) {
+	    return matches;
+	}
+	MongoCollection<Document> devices = getMongoClient().getDevicesCollection();
+	Document dbCriteria = buildDeviceSearchCriteria(criteria);
+	dbCriteria.put(MongoPersistentEntity.PROP_ID, new Document("$in", deviceIds));
+	MongoCursor<Document> cursor = devices.find(dbCriteria).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		matches.add(MongoDevice.fromDocument(cursor.next()));
+	    }
+	} finally {
+	    cursor.close();
+	}
+	return matches;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDevicesByToken(java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByToken(List<String> tokens) throws SiteWhereException {
+	List<IDevice> matches = new ArrayList<IDevice>(tokens.size());
+	if (tokens.isEmpty()) {
+	    return matches;
+	}
+	Map<String, IDevice> byToken = new HashMap<String, IDevice>();
+	MongoCollection<Document> devices = getMongoClient().getDevicesCollection();
+	Document dbCriteria = new Document(MongoPersistentEntity.PROP_TOKEN, new Document("$in", tokens));
+	MongoCursor<Document> cursor = devices.find(dbCriteria).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		IDevice device = MongoDevice.fromDocument(cursor.next());
+		byToken.put(device.getToken(), device);
+	    }
+	} finally {
+	    cursor.close();
+	}
+	for (String token : tokens) {
+	    matches.add(byToken.get(token));
+	}
+	return matches;
+    }
+
+    /**
+     * Build query for device search criteria.
+     * 
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Document buildDeviceSearchCriteria(IDeviceSearchCriteria criteria) throws SiteWhereException {
 	Document dbCriteria = new Document();
 	if (criteria.isExcludeAssigned()) {
 	    dbCriteria.put(MongoDevice.PROP_ASSIGNMENT_ID, null);
@@ -754,11 +855,12 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	// Add device type filter if specified.
 	if (!StringUtils.isEmpty(criteria.getDeviceTypeToken())) {
 	    IDeviceType deviceType = getDeviceTypeByToken(criteria.getDeviceTypeToken());
+	    if (deviceType == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceTypeToken, ErrorLevel.ERROR);
+	    }
 	    dbCriteria.put(MongoDevice.PROP_DEVICE_TYPE_ID, deviceType.getId());
 	}
-
-	Document sort = new Document(MongoPersistentEntity.PROP_CREATED_DATE, -1);
-	return MongoPersistence.search(IDevice.class, devices, dbCriteria, sort, criteria, LOOKUP);
+	return dbCriteria;
     }
 
     /*
@@ -1537,8 +1639,16 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	// Use common logic so all backend implementations work the same.
 	Area area = DeviceManagementPersistence.areaCreateLogic(request, areaType, parentArea);
 
+	// Store ids of all ancestors to allow subtree queries.
+	List<UUID> path = new ArrayList<UUID>();
+	if (parentArea != null) {
+	    path.addAll(getAreaPath(getAreaDocumentById(parentArea.getId())));
+	    path.add(parentArea.getId());
+	}
+
 	MongoCollection<Document> areas = getMongoClient().getAreasCollection();
 	Document created = MongoArea.toDocument(area);
+	created.append(MongoArea.PROP_PATH, path);
 	MongoPersistence.insert(areas, created, ErrorCode.DuplicateAreaToken);
 	return MongoArea.fromDocument(created);
     }
@@ -1587,6 +1697,74 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return matches.getResults();
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaDescendants(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaDescendants(UUID areaId) throws SiteWhereException {
+	if (getAreaDocumentById(areaId) == null) {
+	    throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
+	}
+	try {
+	    MongoCollection<Document> areas = getMongoClient().getAreasCollection();
+	    Document query = new Document(MongoArea.PROP_PATH, areaId);
+	    Document sort = new Document(MongoArea.PROP_NAME, 1);
+	    List<IArea> descendants = new ArrayList<IArea>();
+	    MongoCursor<Document> cursor = areas.find(query).sort(sort).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    descendants.add(MongoArea.fromDocument(cursor.next()));
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    return descendants;
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaAncestors(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaAncestors(UUID areaId) throws SiteWhereException {
+	Document existing = getAreaDocumentById(areaId);
+	if (existing == null) {
+	    throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
+	}
+	List<UUID> path = getAreaPath(existing);
+	if (path.isEmpty()) {
+	    return new ArrayList<IArea>();
+	}
+	try {
+	    MongoCollection<Document> areas = getMongoClient().getAreasCollection();
+	    Document query = new Document(MongoPersistentEntity.PROP_ID, new Document("$in", path));
+	    Map<UUID, IArea> byId = new HashMap<UUID, IArea>();
+	    MongoCursor<Document> cursor = areas.find(query).iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    Area area = MongoArea.fromDocument(cursor.next());
+		    byId.put(area.getId(), area);
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    List<IArea> ancestors = new ArrayList<IArea>();
+	    for (UUID id : path) {
+		IArea ancestor = byId.get(id);
+		if (ancestor != null) {
+		    ancestors.add(ancestor);
+		}
+	    }
+	    return ancestors;
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateArea(java.util.UUID,
      * com.sitewhere.spi.area.request.IAreaCreateRequest)
@@ -1594,15 +1772,48 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
     @Override
     public IArea updateArea(UUID id, IAreaCreateRequest request) throws SiteWhereException {
 	IArea area = assertApiArea(id);
+	UUID previousParentId = area.getParentAreaId();
 
 	// Use common update logic.
 	DeviceManagementPersistence.areaUpdateLogic(request, (Area) area);
 
+	// Handle area being moved to the root or a new parent.
+	List<UUID> path = null;
+	if ((request.getParentAreaToken() != null) && (request.getParentAreaToken().isEmpty())) {
+	    if (previousParentId != null) {
+		path = new ArrayList<UUID>();
+		((Area) area).setParentAreaId(null);
+	    }
+	} else if (request.getParentAreaToken() != null) {
+	    Document parent = getAreaDocumentByToken(request.getParentAreaToken());
+	    if (parent == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidAreaToken, ErrorLevel.ERROR);
+	    }
+	    UUID parentId = (UUID) parent.get(MongoPersistentEntity.PROP_ID);
+	    if (!parentId.equals(previousParentId)) {
+		List<UUID> parentPath = getAreaPath(parent);
+		if (parentId.equals(id) || parentPath.contains(id)) {
+		    throw new SiteWhereException("Area can not be moved below itself or one of its descendants.");
+		}
+		path = new ArrayList<UUID>(parentPath);
+		path.add(parentId);
+		((Area) area).setParentAreaId(parentId);
+	    }
+	}
+
 	Document updated = MongoArea.toDocument(area);
+	if (path != null) {
+	    updated.append(MongoArea.PROP_PATH, path);
+	}
 
 	MongoCollection<Document> areas = getMongoClient().getAreasCollection();
 	Document query = new Document(MongoPersistentEntity.PROP_ID, id);
 	MongoPersistence.update(areas, query, updated);
+	if (path != null) {
+	    List<UUID> prefix = new ArrayList<UUID>(path);
+	    prefix.add(id);
+	    updateDescendantPaths(id, prefix);
+	}
 	return MongoArea.fromDocument(updated);
     }
 
@@ -1638,6 +1849,7 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	}
 	MongoCollection<Document> areas = getMongoClient().getAreasCollection();
 	MongoPersistence.delete(areas, existing);
+	updateDescendantPaths(id, new ArrayList<UUID>());
 	return MongoArea.fromDocument(existing);
     }
 
@@ -1864,40 +2076,18 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
     @Override
     public List<IDeviceGroupElement> addDeviceGroupElements(UUID groupId,
 	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException {
-	Document existing = assertDeviceGroup(groupId);
-	IDeviceGroup group = MongoDeviceGroup.fromDocument(existing);
-	List<IDeviceGroupElement> results = new ArrayList<IDeviceGroupElement>();
-	for (IDeviceGroupElementCreateRequest request : elements) {
-	    // Look up referenced device if provided.
-	    IDevice device = null;
-	    if (request.getDeviceToken() != null) {
-		device = getDeviceByToken(request.getDeviceToken());
-		if (device == null) {
-		    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceToken, ErrorLevel.ERROR);
-		}
-	    }
-	    // Look up referenced nested group if provided.
-	    IDeviceGroup nested = null;
-	    if (request.getNestedGroupToken() != null) {
-		nested = getDeviceGroupByToken(request.getNestedGroupToken());
-		if (nested == null) {
-		    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceGroupToken, ErrorLevel.ERROR);
-		}
-	    }
+	return insertDeviceGroupElements(groupId, elements, ignoreDuplicates, true).getAdded();
+    }
 
-	    DeviceGroupElement element = DeviceManagementPersistence.deviceGroupElementCreateLogic(request, group,
-		    device, nested);
-	    Document created = MongoDeviceGroupElement.toDocument(element);
-	    try {
-		MongoPersistence.insert(getMongoClient().getGroupElementsCollection(), created, ErrorCode.DuplicateId);
-		results.add(MongoDeviceGroupElement.fromDocument(created));
-	    } catch (ResourceExistsException e) {
-		if (!ignoreDuplicates) {
-		    throw e;
-		}
-	    }
-	}
-	return results;
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#addDeviceGroupElementsBulk(java.
+     * util.UUID, java.util.List, boolean)
+     */
+    @Override
+    public IDeviceGroupElementBulkResult addDeviceGroupElementsBulk(UUID groupId,
+	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException {
+	return insertDeviceGroupElements(groupId, elements, ignoreDuplicates, false);
     }
 
     /*
@@ -2206,6 +2396,143 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	return areas.find(query).first();
     }
 
+    /**
+     * Get ids of ancestors for an area document, ordered from root to parent. If
+     * the path has not been stored, it is calculated from parent references.
+     * 
+     * @param area
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<UUID> getAreaPath(Document area) throws SiteWhereException {
+	List<UUID> path = MongoArea.getPath(area);
+	if (path != null) {
+	    return path;
+	}
+	LinkedList<UUID> calculated = new LinkedList<UUID>();
+	Set<UUID> visited = new HashSet<UUID>();
+	visited.add((UUID) area.get(MongoPersistentEntity.PROP_ID));
+	UUID parentId = (UUID) area.get(MongoArea.PROP_PARENT_AREA_ID);
+	while ((parentId != null) && (visited.add(parentId))) {
+	    Document parent = getAreaDocumentById(parentId);
+	    if (parent == null) {
+		break;
+	    }
+	    calculated.addFirst(parentId);
+	    parentId = (UUID) parent.get(MongoArea.PROP_PARENT_AREA_ID);
+	}
+	return calculated;
+    }
+
+    /**
+     * Rewrite paths for all descendants of an area after it has been moved or
+     * deleted. The portion of each path up to and including the area is replaced
+     * by the given prefix. An empty prefix detaches descendants of a deleted area
+     * so they are no longer returned as its descendants.
+     * 
+     * @param areaId
+     * @param prefix
+     * @throws SiteWhereException
+     */
+    protected void updateDescendantPaths(UUID areaId, List<UUID> prefix) throws SiteWhereException {
+	try {
+	    MongoCollection<Document> areas = getMongoClient().getAreasCollection();
+	    Document query = new Document(MongoArea.PROP_PATH, areaId);
+	    List<WriteModel<Document>> updates = new ArrayList<WriteModel<Document>>();
+	    MongoCursor<Document> cursor = areas.find(query).projection(new Document(MongoArea.PROP_PATH, 1))
+		    .iterator();
+	    try {
+		while (cursor.hasNext()) {
+		    Document match = cursor.next();
+		    List<UUID> existing = MongoArea.getPath(match);
+		    List<UUID> path = new ArrayList<UUID>(prefix);
+		    path.addAll(existing.subList(existing.indexOf(areaId) + 1, existing.size()));
+		    updates.add(createAreaPathUpdate((UUID) match.get(MongoPersistentEntity.PROP_ID), path));
+		    if (updates.size() >= AREA_PATH_BATCH_SIZE) {
+			areas.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+			updates.clear();
+		    }
+		}
+	    } finally {
+		cursor.close();
+	    }
+	    if (updates.size() > 0) {
+		areas.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Calculate and store paths for areas that do not have one. Parent references
+     * for all areas are loaded once so that paths are calculated in memory.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void backfillAreaPaths() throws SiteWhereException {
+	try {
+	    MongoCollection<Document> areas = getMongoClient().getAreasCollection();
+	    Document missing = new Document(MongoArea.PROP_PATH, new Document("$exists", false));
+	    if (areas.count(missing) == 0) {
+		return;
+	    }
+
+	    Map<UUID, UUID> parents = new HashMap<UUID, UUID>();
+	    MongoCursor<Document> cursor = areas.find()
+		    .projection(new Document(MongoArea.PROP_PARENT_AREA_ID, 1).append(MongoArea.PROP_PATH, 1))
+		    .iterator();
+	    List<UUID> pending = new ArrayList<UUID>();
+	    try {
+		while (cursor.hasNext()) {
+		    Document match = cursor.next();
+		    UUID id = (UUID) match.get(MongoPersistentEntity.PROP_ID);
+		    parents.put(id, (UUID) match.get(MongoArea.PROP_PARENT_AREA_ID));
+		    if (MongoArea.getPath(match) == null) {
+			pending.add(id);
+		    }
+		}
+	    } finally {
+		cursor.close();
+	    }
+
+	    List<WriteModel<Document>> updates = new ArrayList<WriteModel<Document>>();
+	    for (UUID id : pending) {
+		LinkedList<UUID> path = new LinkedList<UUID>();
+		Set<UUID> visited = new HashSet<UUID>();
+		visited.add(id);
+		UUID parentId = parents.get(id);
+		while ((parentId != null) && (parents.containsKey(parentId)) && (visited.add(parentId))) {
+		    path.addFirst(parentId);
+		    parentId = parents.get(parentId);
+		}
+		updates.add(createAreaPathUpdate(id, path));
+		if (updates.size() >= AREA_PATH_BATCH_SIZE) {
+		    areas.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+		    updates.clear();
+		}
+	    }
+	    if (updates.size() > 0) {
+		areas.bulkWrite(updates, new BulkWriteOptions().ordered(false));
+	    }
+	    getLogger().info("Calculated hierarchy paths for " + pending.size() + " areas.");
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Create an update that sets the path for an area.
+     * 
+     * @param areaId
+     * @param path
+     * @return
+     */
+    protected UpdateOneModel<Document> createAreaPathUpdate(UUID areaId, List<UUID> path) {
+	return new UpdateOneModel<Document>(new Document(MongoPersistentEntity.PROP_ID, areaId),
+		new Document("$set", new Document(MongoArea.PROP_PATH, path)));
+    }
+
     /**
      * Return the {@link Document} for the area with the given token. Throws an
      * exception if the token is not found.
@@ -2346,6 +2673,219 @@ public class MongoDeviceManagement extends MongoTenantComponent<DeviceManagement
 	}
     }
 
+    /**
+     * Add elements to a device group. Device and nested group tokens for all
+     * elements are resolved with one query each and existing members are checked
+     * with one query before elements are inserted in chunks. If failFast is set,
+     * the first invalid element causes an exception to be thrown before anything
+     * is written. Otherwise invalid elements are reported in the result and the
+     * remaining elements are added.
+     * 
+     * @param groupId
+     * @param elements
+     * @param ignoreDuplicates
+     * @param failFast
+     * @return
+     * @throws SiteWhereException
+     */
+    protected DeviceGroupElementBulkResult insertDeviceGroupElements(UUID groupId,
+	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates, boolean failFast)
+	    throws SiteWhereException {
+	assertDeviceGroup(groupId);
+	DeviceGroupElementBulkResult result = new DeviceGroupElementBulkResult();
+	try {
+	    // Resolve all referenced tokens up front.
+	    Set<String> deviceTokens = new HashSet<String>();
+	    Set<String> groupTokens = new HashSet<String>();
+	    for (IDeviceGroupElementCreateRequest request : elements) {
+		if (request.getDeviceToken() != null) {
+		    deviceTokens.add(request.getDeviceToken());
+		}
+		if (request.getNestedGroupToken() != null) {
+		    groupTokens.add(request.getNestedGroupToken());
+		}
+	    }
+	    Map<String, UUID> deviceIds = getIdsByToken(getMongoClient().getDevicesCollection(), deviceTokens);
+	    Map<String, UUID> groupIds = getIdsByToken(getMongoClient().getDeviceGroupsCollection(), groupTokens);
+
+	    // Validate elements and create documents.
+	    List<Document> documents = new ArrayList<Document>();
+	    List<Integer> positions = new ArrayList<Integer>();
+	    for (int i = 0; i < elements.size(); i++) {
+		IDeviceGroupElementCreateRequest request = elements.get(i);
+		UUID deviceId = null;
+		if (request.getDeviceToken() != null) {
+		    deviceId = deviceIds.get(request.getDeviceToken());
+		    if (deviceId == null) {
+			addDeviceGroupElementFailure(result, i, request, ErrorCode.InvalidDeviceToken, failFast);
+			continue;
+		    }
+		}
+		UUID nestedGroupId = null;
+		if (request.getNestedGroupToken() != null) {
+		    nestedGroupId = groupIds.get(request.getNestedGroupToken());
+		    if (nestedGroupId == null) {
+			addDeviceGroupElementFailure(result, i, request, ErrorCode.InvalidDeviceGroupToken, failFast);
+			continue;
+		    }
+		}
+		DeviceGroupElement element = DeviceManagementPersistence.deviceGroupElementCreateLogic(request,
+			groupId, deviceId, nestedGroupId);
+		documents.add(MongoDeviceGroupElement.toDocument(element));
+		positions.add(i);
+	    }
+
+	    // Skip elements that duplicate existing members or earlier elements.
+	    Set<UUID> members = getDeviceGroupMemberIds(groupId, documents);
+	    Set<UUID> seen = new HashSet<UUID>();
+	    List<Document> inserts = new ArrayList<Document>();
+	    List<Integer> insertPositions = new ArrayList<Integer>();
+	    for (int i = 0; i < documents.size(); i++) {
+		UUID deviceId = (UUID) documents.get(i).get(MongoDeviceGroupElement.PROP_DEVICE_ID);
+		if (members.contains(deviceId) || !seen.add(deviceId)) {
+		    if (ignoreDuplicates) {
+			result.setDuplicates(result.getDuplicates() + 1);
+		    } else if (failFast) {
+			throw new ResourceExistsException(ErrorCode.DuplicateId);
+		    } else {
+			int position = positions.get(i);
+			addDeviceGroupElementFailure(result, position, elements.get(position), ErrorCode.DuplicateId,
+				false);
+		    }
+		    continue;
+		}
+		inserts.add(documents.get(i));
+		insertPositions.add(positions.get(i));
+	    }
+
+	    // Insert in chunks, allowing the rest of a chunk to succeed if one fails.
+	    MongoCollection<Document> collection = getMongoClient().getGroupElementsCollection();
+	    boolean duplicateFound = false;
+	    for (int start = 0; start < inserts.size(); start += GROUP_ELEMENT_INSERT_CHUNK_SIZE) {
+		List<Document> chunk = inserts.subList(start,
+			Math.min(inserts.size(), start + GROUP_ELEMENT_INSERT_CHUNK_SIZE));
+		Set<Integer> failed = new HashSet<Integer>();
+		try {
+		    collection.insertMany(chunk, new InsertManyOptions().ordered(false));
+		} catch (MongoBulkWriteException e) {
+		    for (BulkWriteError error : e.getWriteErrors()) {
+			failed.add(error.getIndex());
+			int position = insertPositions.get(start + error.getIndex());
+			if (ErrorCategory.fromErrorCode(error.getCode()) == ErrorCategory.DUPLICATE_KEY) {
+			    if (ignoreDuplicates) {
+				result.setDuplicates(result.getDuplicates() + 1);
+			    } else if (failFast) {
+				duplicateFound = true;
+			    } else {
+				addDeviceGroupElementFailure(result, position, elements.get(position),
+					ErrorCode.DuplicateId, false);
+			    }
+			} else if (failFast) {
+			    throw new SiteWhereException("Error during MongoDB insert: " + error.getMessage());
+			} else {
+			    result.getFailures().add(new DeviceGroupElementFailure(position, elements.get(position),
+				    ErrorCode.Error, error.getMessage()));
+			}
+		    }
+		}
+		for (int i = 0; i < chunk.size(); i++) {
+		    if (!failed.contains(i)) {
+			result.getAdded().add(MongoDeviceGroupElement.fromDocument(chunk.get(i)));
+		    }
+		}
+	    }
+	    if (duplicateFound) {
+		throw new ResourceExistsException(ErrorCode.DuplicateId);
+	    }
+	    return result;
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Record an element that could not be added to a group, or throw an exception
+     * if processing should stop at the first failure.
+     * 
+     * @param result
+     * @param index
+     * @param request
+     * @param code
+     * @param failFast
+     * @throws SiteWhereException
+     */
+    protected void addDeviceGroupElementFailure(DeviceGroupElementBulkResult result, int index,
+	    IDeviceGroupElementCreateRequest request, ErrorCode code, boolean failFast) throws SiteWhereException {
+	if (failFast) {
+	    throw new SiteWhereSystemException(code, ErrorLevel.ERROR);
+	}
+	result.getFailures().add(new DeviceGroupElementFailure(index, request, code, code.getMessage()));
+    }
+
+    /**
+     * Get ids for all entities in a collection that match the given tokens using
+     * a single query.
+     * 
+     * @param collection
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Map<String, UUID> getIdsByToken(MongoCollection<Document> collection, Set<String> tokens)
+	    throws SiteWhereException {
+	Map<String, UUID> ids = new HashMap<String, UUID>();
+	if (tokens.isEmpty()) {
+	    return ids;
+	}
+	Document query = new Document(MongoPersistentEntity.PROP_TOKEN,
+		new Document("$in", new ArrayList<String>(tokens)));
+	MongoCursor<Document> cursor = collection.find(query)
+		.projection(new Document(MongoPersistentEntity.PROP_TOKEN, 1)).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		Document match = cursor.next();
+		ids.put((String) match.get(MongoPersistentEntity.PROP_TOKEN),
+			(UUID) match.get(MongoPersistentEntity.PROP_ID));
+	    }
+	} finally {
+	    cursor.close();
+	}
+	return ids;
+    }
+
+    /**
+     * Get device ids already present in a group for the given element documents.
+     * Uses the same key as the unique index on group elements, so nested group
+     * elements are matched on a null device id.
+     * 
+     * @param groupId
+     * @param documents
+     * @return
+     * @throws SiteWhereException
+     */
+    protected Set<UUID> getDeviceGroupMemberIds(UUID groupId, List<Document> documents) throws SiteWhereException {
+	Set<UUID> members = new HashSet<UUID>();
+	if (documents.isEmpty()) {
+	    return members;
+	}
+	Set<UUID> deviceIds = new HashSet<UUID>();
+	for (Document document : documents) {
+	    deviceIds.add((UUID) document.get(MongoDeviceGroupElement.PROP_DEVICE_ID));
+	}
+	Document query = new Document(MongoDeviceGroupElement.PROP_GROUP_ID, groupId)
+		.append(MongoDeviceGroupElement.PROP_DEVICE_ID, new Document("$in", new ArrayList<UUID>(deviceIds)));
+	MongoCursor<Document> cursor = getMongoClient().getGroupElementsCollection().find(query)
+		.projection(new Document(MongoDeviceGroupElement.PROP_DEVICE_ID, 1)).iterator();
+	try {
+	    while (cursor.hasNext()) {
+		members.add((UUID) cursor.next().get(MongoDeviceGroupElement.PROP_DEVICE_ID));
+	    }
+	} finally {
+	    cursor.close();
+	}
+	return members;
+    }
+
     /**
      * Return the {@link Document} for the device group with the given token. Throws
      * an exception if the token is not valid.
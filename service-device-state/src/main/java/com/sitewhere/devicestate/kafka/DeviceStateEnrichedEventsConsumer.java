@@ -20,6 +20,7 @@ import org.apache.kafka.common.TopicPartition;
 import com.sitewhere.devicestate.processing.DeviceStateProcessingLogic;
 import com.sitewhere.devicestate.spi.kafka.IDeviceStateEnrichedEventsConsumer;
 import com.sitewhere.devicestate.spi.processing.IDeviceStateProcessingLogic;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer;
 import com.sitewhere.microservice.security.SystemUserRunnable;
 import com.sitewhere.server.lifecycle.CompositeLifecycleStep;
@@ -64,6 +65,15 @@ public class DeviceStateEnrichedEventsConsumer extends MicroserviceKafkaConsumer
 	return getMicroservice().getKafkaTopicNaming().getTenantPrefix(getTenantEngine().getTenant()) + GROUP_ID_SUFFIX;
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_DEVICE_STATE;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
      * getSourceTopicNames()
@@ -22,6 +22,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -100,6 +101,20 @@ public class DeviceEventManagementDecorator extends TenantEngineLifecycleCompone
 	return getDelegate().listDeviceMeasurementsForIndex(index, entityIds, criteria);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria)
+     */
+    @Override
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	return getDelegate().aggregateDeviceMeasurementsForIndex(index, entityIds, measurementNames, windowMs,
+		criteria);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
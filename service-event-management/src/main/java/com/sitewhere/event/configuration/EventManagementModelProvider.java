@@ -10,7 +10,9 @@ package com.sitewhere.event.configuration;
 import com.sitewhere.configuration.model.CommonDatastoreProvider;
 import com.sitewhere.configuration.model.ConfigurationModelProvider;
 import com.sitewhere.configuration.parser.IEventManagementParser;
+import com.sitewhere.rest.model.configuration.AttributeNode;
 import com.sitewhere.rest.model.configuration.ElementNode;
+import com.sitewhere.spi.microservice.configuration.model.AttributeType;
 import com.sitewhere.spi.microservice.configuration.model.IConfigurationRoleProvider;
 
 /**
@@ -57,6 +59,28 @@ public class EventManagementModelProvider extends ConfigurationModelProvider {
 		"exchange-alt", EventManagementRoleKeys.EventManagement, this);
 
 	builder.description("Handles operations related to the device event management model including persistence.");
+	builder.attributeGroup(ConfigurationModelProvider.ATTR_GROUP_GENERAL);
+
+	builder.attribute((new AttributeNode.Builder("Use measurement buckets", "useMeasurementBuckets",
+		AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Store measurements in documents that each hold many measurements for an "
+				+ "assignment over a time window. Only used with MongoDB.")
+			.defaultValue("false").build()));
+	builder.attribute((new AttributeNode.Builder("Measurement bucket (minutes)", "measurementBucketMinutes",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Length of the time window covered by a measurement bucket.")
+			.defaultValue("60").build()));
+	builder.attribute((new AttributeNode.Builder("Migrate measurements to buckets",
+		"migrateMeasurementsToBuckets", AttributeType.Boolean, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Move measurements stored as individual events into buckets on startup. "
+				+ "Measurements are read from events until the move completes. Required when "
+				+ "enabling buckets on a store that already has measurements.")
+			.defaultValue("false").build()));
+	builder.attribute((new AttributeNode.Builder("Max writes in flight", "maxWritesInFlight",
+		AttributeType.Integer, ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Maximum number of asynchronous writes in flight before event storage waits. "
+				+ "Only used with Cassandra.")
+			.defaultValue("256").build()));
 
 	return builder.build();
     }
@@ -19,6 +19,7 @@ import com.sitewhere.microservice.grpc.MultitenantGrpcServer;
 public class EventManagementGrpcServer extends MultitenantGrpcServer implements IEventManagementGrpcServer {
 
     public EventManagementGrpcServer(IEventManagementMicroservice microservice) {
-	super(new EventManagementRouter(microservice), microservice.getInstanceSettings().getGrpcPort());
+	super(new EventManagementService(new EventManagementRouter(microservice)),
+		microservice.getInstanceSettings().getGrpcPort());
     }
 }
\ No newline at end of file
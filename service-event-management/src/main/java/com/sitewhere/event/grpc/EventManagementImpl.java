@@ -9,10 +9,14 @@ package com.sitewhere.event.grpc;
 
 import java.util.List;
 
+import com.sitewhere.device.event.DeviceMeasurementAggregate;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
 import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateResponse;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceAlertSearchResults;
 import com.sitewhere.grpc.model.DeviceEventModel.GDeviceCommandInvocationSearchResults;
@@ -54,6 +58,7 @@ import com.sitewhere.grpc.service.GListMeasurementsForIndexResponse;
 import com.sitewhere.grpc.service.GListStateChangesForIndexRequest;
 import com.sitewhere.grpc.service.GListStateChangesForIndexResponse;
 import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.rest.model.search.DateRangeSearchCriteria;
 import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
@@ -62,6 +67,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -72,6 +78,7 @@ import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
 import com.sitewhere.spi.microservice.IMicroservice;
 import com.sitewhere.spi.search.ISearchResults;
 
+import io.grpc.MethodDescriptor;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -240,6 +247,38 @@ public class EventManagementImpl extends DeviceEventManagementGrpc.DeviceEventMa
 	}
     }
 
+    /**
+     * Calculate measurement aggregates for an index. Handles the method described
+     * by {@link MeasurementAggregationGrpc}, which is not part of the generated
+     * service contract.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void aggregateMeasurementsForIndex(AggregateRequest request,
+	    StreamObserver<AggregateResponse> responseObserver) {
+	MethodDescriptor<AggregateRequest, AggregateResponse> method = MeasurementAggregationGrpc
+		.getAggregateMeasurementsForIndexMethod();
+	try {
+	    GrpcUtils.handleServerMethodEntry(this, method);
+	    DateRangeSearchCriteria criteria = new DateRangeSearchCriteria(1, 0, request.getStartDate(),
+		    request.getEndDate());
+	    List<IDeviceMeasurementAggregate> apiResult = getDeviceEventManagement()
+		    .aggregateDeviceMeasurementsForIndex(request.getIndex(), request.getEntityIds(),
+			    request.getMeasurementNames(), request.getWindowMs(), criteria);
+	    AggregateResponse response = new AggregateResponse();
+	    for (IDeviceMeasurementAggregate api : apiResult) {
+		response.getAggregates().add(DeviceMeasurementAggregate.copy(api));
+	    }
+	    responseObserver.onNext(response);
+	    responseObserver.onCompleted();
+	} catch (Throwable e) {
+	    GrpcUtils.handleServerMethodException(method, e, responseObserver);
+	} finally {
+	    GrpcUtils.handleServerMethodExit(method);
+	}
+    }
+
     /*
      * @see com.sitewhere.grpc.service.DeviceEventManagementGrpc.
      * DeviceEventManagementImplBase#addLocations(com.sitewhere.grpc.service.
@@ -16,6 +16,8 @@ import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.event.spi.microservice.IEventManagementTenantEngine;
 import com.sitewhere.grpc.client.GrpcContextKeys;
 import com.sitewhere.grpc.client.GrpcUtils;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateResponse;
 import com.sitewhere.grpc.client.spi.server.IGrpcRouter;
 import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
 import com.sitewhere.grpc.service.GAddAlertsRequest;
@@ -325,6 +327,20 @@ public class EventManagementRouter extends DeviceEventManagementGrpc.DeviceEvent
 	}
     }
 
+    /**
+     * Route measurement aggregation call to tenant implementation.
+     * 
+     * @param request
+     * @param responseObserver
+     */
+    public void aggregateMeasurementsForIndex(AggregateRequest request,
+	    StreamObserver<AggregateResponse> responseObserver) {
+	DeviceEventManagementGrpc.DeviceEventManagementImplBase engine = getTenantImplementation(responseObserver);
+	if (engine != null) {
+	    ((EventManagementImpl) engine).aggregateMeasurementsForIndex(request, responseObserver);
+	}
+    }
+
     public IEventManagementMicroservice getMicroservice() {
 	return microservice;
     }
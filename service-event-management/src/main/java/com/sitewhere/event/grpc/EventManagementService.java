@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.grpc;
+
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateResponse;
+
+import io.grpc.BindableService;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Binds the generated device event management methods from the router along
+ * with the measurement aggregation method, which is not part of the generated
+ * service contract.
+ * 
+ * @author Derek
+ */
+public class EventManagementService implements BindableService {
+
+    /** Router for tenant requests */
+    private EventManagementRouter router;
+
+    public EventManagementService(EventManagementRouter router) {
+	this.router = router;
+    }
+
+    /*
+     * @see io.grpc.BindableService#bindService()
+     */
+    @Override
+    public ServerServiceDefinition bindService() {
+	ServerServiceDefinition generated = getRouter().bindService();
+	ServerServiceDefinition.Builder builder = ServerServiceDefinition
+		.builder(generated.getServiceDescriptor().getName());
+	for (ServerMethodDefinition<?, ?> method : generated.getMethods()) {
+	    builder.addMethod(method);
+	}
+	builder.addMethod(MeasurementAggregationGrpc.getAggregateMeasurementsForIndexMethod(),
+		ServerCalls.asyncUnaryCall(new ServerCalls.UnaryMethod<AggregateRequest, AggregateResponse>() {
+
+		    @Override
+		    public void invoke(AggregateRequest request, StreamObserver<AggregateResponse> responseObserver) {
+			getRouter().aggregateMeasurementsForIndex(request, responseObserver);
+		    }
+		}));
+	return builder.build();
+    }
+
+    public EventManagementRouter getRouter() {
+	return router;
+    }
+}
@@ -8,6 +8,7 @@
 package com.sitewhere.event.kafka;
 
 import com.sitewhere.event.spi.kafka.IInboundPersistedEventsProducer;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.microservice.kafka.AckPolicy;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
 import com.sitewhere.spi.SiteWhereException;
@@ -33,4 +34,13 @@ public class InboundPersistedEventsProducer extends MicroserviceKafkaProducer
     public String getTargetTopicName() throws SiteWhereException {
 	return getMicroservice().getKafkaTopicNaming().getInboundPersistedEventsTopic(getTenantEngine().getTenant());
     }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaProducer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_PERSISTED;
+    }
 }
\ No newline at end of file
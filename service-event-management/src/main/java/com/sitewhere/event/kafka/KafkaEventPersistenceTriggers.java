@@ -28,6 +28,8 @@ import com.sitewhere.spi.device.event.IDeviceAlert;
 import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
 import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventBatch;
+import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
@@ -71,7 +73,22 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
      */
     protected <T extends IDeviceEvent> List<T> forwardEvents(UUID deviceAssignmentId, List<T> events)
 	    throws SiteWhereException {
-	IDeviceAssignment assignment = assertDeviceAssignmentById(deviceAssignmentId);
+	if (events.isEmpty()) {
+	    return events;
+	}
+	return forwardEvents(assertDeviceAssignmentById(deviceAssignmentId), events);
+    }
+
+    /**
+     * Forward the given events for an assignment that has already been resolved.
+     * 
+     * @param assignment
+     * @param events
+     * @return
+     * @throws SiteWhereException
+     */
+    protected <T extends IDeviceEvent> List<T> forwardEvents(IDeviceAssignment assignment, List<T> events)
+	    throws SiteWhereException {
 	for (T event : events) {
 	    PersistedEventPayload api = new PersistedEventPayload();
 	    api.setDeviceId(assignment.getDeviceId());
@@ -84,6 +101,28 @@ public class KafkaEventPersistenceTriggers extends DeviceEventManagementDecorato
 	return events;
     }
 
+    /*
+     * @see
+     * com.sitewhere.event.DeviceEventManagementDecorator#addDeviceEventBatch(java.
+     * util.UUID, com.sitewhere.spi.device.event.IDeviceEventBatch)
+     */
+    @Override
+    public IDeviceEventBatchResponse addDeviceEventBatch(UUID deviceAssignmentId, IDeviceEventBatch batch)
+	    throws SiteWhereException {
+	IDeviceEventBatchResponse response = super.addDeviceEventBatch(deviceAssignmentId, batch);
+	if (response.getCreatedMeasurements().isEmpty() && response.getCreatedLocations().isEmpty()
+		&& response.getCreatedAlerts().isEmpty()) {
+	    return response;
+	}
+
+	// Resolve assignment once for all events in the batch.
+	IDeviceAssignment assignment = assertDeviceAssignmentById(deviceAssignmentId);
+	forwardEvents(assignment, response.getCreatedMeasurements());
+	forwardEvents(assignment, response.getCreatedLocations());
+	forwardEvents(assignment, response.getCreatedAlerts());
+	return response;
+    }
+
     /*
      * @see
      * com.sitewhere.event.DeviceEventManagementDecorator#addDeviceMeasurements(java
@@ -7,6 +7,8 @@
  */
 package com.sitewhere.event.persistence;
 
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
 import java.util.Date;
 import java.util.Map;
 import java.util.UUID;
@@ -45,8 +47,13 @@ import com.sitewhere.spi.device.streaming.request.IDeviceStreamDataCreateRequest
  */
 public class DeviceEventManagementPersistence extends Persistence {
 
+    /** Source of random bytes for event ids */
+    private static final SecureRandom RANDOM = new SecureRandom();
+
     /**
-     * Executes logic to process a batch of device events.
+     * Executes logic to process a batch of device events for implementations
+     * that do not have a native bulk path. Each event type is added with a single
+     * call.
      * 
      * @param assignmentToken
      * @param batch
@@ -56,19 +63,72 @@ public class DeviceEventManagementPersistence extends Persistence {
      */
     public static DeviceEventBatchResponse deviceEventBatchLogic(IDeviceAssignment assignment, IDeviceEventBatch batch,
 	    IDeviceEventManagement management) throws SiteWhereException {
+	DeviceEventBatchResponse response = new DeviceEventBatchResponse();
+	if (!batch.getMeasurements().isEmpty()) {
+	    response.getCreatedMeasurements().addAll(management.addDeviceMeasurements(assignment.getId(),
+		    batch.getMeasurements().toArray(new IDeviceMeasurementCreateRequest[0])));
+	}
+	if (!batch.getLocations().isEmpty()) {
+	    response.getCreatedLocations().addAll(management.addDeviceLocations(assignment.getId(),
+		    batch.getLocations().toArray(new IDeviceLocationCreateRequest[0])));
+	}
+	if (!batch.getAlerts().isEmpty()) {
+	    response.getCreatedAlerts().addAll(management.addDeviceAlerts(assignment.getId(),
+		    batch.getAlerts().toArray(new IDeviceAlertCreateRequest[0])));
+	}
+	return response;
+    }
+
+    /**
+     * Validates and builds all events in a batch without storing them. Event ids
+     * are generated in bulk. Implementations with a native bulk write path store
+     * the returned events in as few writes as possible.
+     * 
+     * @param assignment
+     * @param batch
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceEventBatchResponse deviceEventBatchCreateLogic(IDeviceAssignment assignment,
+	    IDeviceEventBatch batch) throws SiteWhereException {
+	int total = batch.getMeasurements().size() + batch.getLocations().size() + batch.getAlerts().size();
+	UUID[] ids = generateEventIds(total);
+	int index = 0;
+
 	DeviceEventBatchResponse response = new DeviceEventBatchResponse();
 	for (IDeviceMeasurementCreateRequest mx : batch.getMeasurements()) {
-	    response.getCreatedMeasurements().addAll(management.addDeviceMeasurements(assignment.getId(), mx));
+	    response.getCreatedMeasurements().add(deviceMeasurementCreateLogic(mx, assignment, ids[index++]));
 	}
 	for (IDeviceLocationCreateRequest location : batch.getLocations()) {
-	    response.getCreatedLocations().addAll(management.addDeviceLocations(assignment.getId(), location));
+	    response.getCreatedLocations().add(deviceLocationCreateLogic(assignment, location, ids[index++]));
 	}
 	for (IDeviceAlertCreateRequest alert : batch.getAlerts()) {
-	    response.getCreatedAlerts().addAll(management.addDeviceAlerts(assignment.getId(), alert));
+	    response.getCreatedAlerts().add(deviceAlertCreateLogic(assignment, alert, ids[index++]));
 	}
 	return response;
     }
 
+    /**
+     * Generate random (version 4) event ids for all events in a batch. Random
+     * bytes for the whole batch are drawn in a single call rather than once per
+     * id, then version and variant bits are set on each id.
+     * 
+     * @param count
+     * @return
+     */
+    public static UUID[] generateEventIds(int count) {
+	byte[] bytes = new byte[count * 16];
+	RANDOM.nextBytes(bytes);
+	ByteBuffer buffer = ByteBuffer.wrap(bytes);
+	UUID[] ids = new UUID[count];
+	for (int i = 0; i < count; i++) {
+	    long msb = (buffer.getLong() & 0xffffffffffff0fffL) | 0x0000000000004000L;
+	    long lsb = (buffer.getLong() & 0x3fffffffffffffffL) | 0x8000000000000000L;
+	    ids[i] = new UUID(msb, lsb);
+	}
+	return ids;
+    }
+
     /**
      * Common creation logic for all device events.
      * 
@@ -79,7 +139,21 @@ public class DeviceEventManagementPersistence extends Persistence {
      */
     public static void deviceEventCreateLogic(IDeviceEventCreateRequest request, IDeviceAssignment assignment,
 	    DeviceEvent target) throws SiteWhereException {
-	target.setId(UUID.randomUUID());
+	deviceEventCreateLogic(request, assignment, target, UUID.randomUUID());
+    }
+
+    /**
+     * Common creation logic for all device events using a pre-generated id.
+     * 
+     * @param request
+     * @param assignment
+     * @param target
+     * @param id
+     * @throws SiteWhereException
+     */
+    public static void deviceEventCreateLogic(IDeviceEventCreateRequest request, IDeviceAssignment assignment,
+	    DeviceEvent target, UUID id) throws SiteWhereException {
+	target.setId(id);
 	target.setAlternateId(request.getAlternateId());
 	target.setDeviceId(assignment.getDeviceId());
 	target.setDeviceAssignmentId(assignment.getId());
@@ -106,8 +180,23 @@ public class DeviceEventManagementPersistence extends Persistence {
      */
     public static DeviceMeasurement deviceMeasurementCreateLogic(IDeviceMeasurementCreateRequest request,
 	    IDeviceAssignment assignment) throws SiteWhereException {
+	return deviceMeasurementCreateLogic(request, assignment, UUID.randomUUID());
+    }
+
+    /**
+     * Common logic for creating {@link DeviceMeasurement} from
+     * {@link IDeviceMeasurementCreateRequest} using a pre-generated id.
+     * 
+     * @param request
+     * @param assignment
+     * @param id
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceMeasurement deviceMeasurementCreateLogic(IDeviceMeasurementCreateRequest request,
+	    IDeviceAssignment assignment, UUID id) throws SiteWhereException {
 	DeviceMeasurement measurements = new DeviceMeasurement();
-	deviceEventCreateLogic(request, assignment, measurements);
+	deviceEventCreateLogic(request, assignment, measurements, id);
 	measurements.setName(request.getName());
 	measurements.setValue(request.getValue());
 	return measurements;
@@ -124,8 +213,23 @@ public class DeviceEventManagementPersistence extends Persistence {
      */
     public static DeviceLocation deviceLocationCreateLogic(IDeviceAssignment assignment,
 	    IDeviceLocationCreateRequest request) throws SiteWhereException {
+	return deviceLocationCreateLogic(assignment, request, UUID.randomUUID());
+    }
+
+    /**
+     * Common logic for creating {@link DeviceLocation} from
+     * {@link IDeviceLocationCreateRequest} using a pre-generated id.
+     * 
+     * @param assignment
+     * @param request
+     * @param id
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceLocation deviceLocationCreateLogic(IDeviceAssignment assignment,
+	    IDeviceLocationCreateRequest request, UUID id) throws SiteWhereException {
 	DeviceLocation location = new DeviceLocation();
-	deviceEventCreateLogic(request, assignment, location);
+	deviceEventCreateLogic(request, assignment, location, id);
 	location.setLatitude(request.getLatitude());
 	location.setLongitude(request.getLongitude());
 	location.setElevation(request.getElevation());
@@ -143,8 +247,23 @@ public class DeviceEventManagementPersistence extends Persistence {
      */
     public static DeviceAlert deviceAlertCreateLogic(IDeviceAssignment assignment, IDeviceAlertCreateRequest request)
 	    throws SiteWhereException {
+	return deviceAlertCreateLogic(assignment, request, UUID.randomUUID());
+    }
+
+    /**
+     * Common logic for creating {@link DeviceAlert} from
+     * {@link IDeviceAlertCreateRequest} using a pre-generated id.
+     * 
+     * @param assignment
+     * @param request
+     * @param id
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DeviceAlert deviceAlertCreateLogic(IDeviceAssignment assignment, IDeviceAlertCreateRequest request,
+	    UUID id) throws SiteWhereException {
 	DeviceAlert alert = new DeviceAlert();
-	deviceEventCreateLogic(request, assignment, alert);
+	deviceEventCreateLogic(request, assignment, alert, id);
 
 	if (request.getSource() != null) {
 	    alert.setSource(request.getSource());
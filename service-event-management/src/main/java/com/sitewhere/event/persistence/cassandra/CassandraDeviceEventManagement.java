@@ -10,23 +10,26 @@ package com.sitewhere.event.persistence.cassandra;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
+import com.datastax.driver.core.BatchStatement;
 import com.datastax.driver.core.BoundStatement;
 import com.datastax.driver.core.PreparedStatement;
 import com.datastax.driver.core.ResultSet;
 import com.datastax.driver.core.ResultSetFuture;
 import com.datastax.driver.core.Row;
-import com.google.common.util.concurrent.FutureCallback;
-import com.google.common.util.concurrent.Futures;
-import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.device.event.MeasurementAggregator;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.rest.model.device.event.DeviceAlert;
 import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
 import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
+import com.sitewhere.rest.model.device.event.DeviceEventBatchResponse;
 import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
@@ -48,6 +51,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -70,12 +74,21 @@ import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
  */
 public class CassandraDeviceEventManagement extends TenantEngineLifecycleComponent implements IDeviceEventManagement {
 
+    /** Max statements in an unlogged batch (keeps batches under size warnings) */
+    private static final int MAX_STATEMENTS_PER_BATCH = 25;
+
     /** Configured Cassandra client */
     private CassandraClient client;
 
     /** Cassandra event management client */
     private CassandraEventManagementClient cassandraEventManagementClient;
 
+    /** Max number of asynchronous writes in flight */
+    private int maxWritesInFlight = CassandraWriteScheduler.DEFAULT_MAX_WRITES_IN_FLIGHT;
+
+    /** Limits and retries asynchronous writes */
+    private CassandraWriteScheduler writeScheduler;
+
     public CassandraDeviceEventManagement() {
 	super(LifecycleComponentType.DataStore);
     }
@@ -106,6 +119,7 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	getClient().start(monitor);
 	getCassandraEventManagementClient().start(monitor);
+	this.writeScheduler = new CassandraWriteScheduler(getClient(), getMaxWritesInFlight(), this);
     }
 
     /*
@@ -128,7 +142,22 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     public IDeviceEventBatchResponse addDeviceEventBatch(UUID deviceAssignmentId, IDeviceEventBatch batch)
 	    throws SiteWhereException {
 	IDeviceAssignment assignment = assertDeviceAssignmentById(deviceAssignmentId);
-	return DeviceEventManagementPersistence.deviceEventBatchLogic(assignment, batch, this);
+	DeviceEventBatchResponse response = DeviceEventManagementPersistence.deviceEventBatchCreateLogic(assignment,
+		batch);
+
+	// Bind all events before writing so that a bad event fails the batch.
+	Map<String, List<BoundStatement>> byPartition = new LinkedHashMap<>();
+	for (IDeviceMeasurement mx : response.getCreatedMeasurements()) {
+	    addDeviceEventStatements(assignment, mx, CassandraDeviceMeasurement.INSTANCE, byPartition);
+	}
+	for (IDeviceLocation location : response.getCreatedLocations()) {
+	    addDeviceEventStatements(assignment, location, CassandraDeviceLocation.INSTANCE, byPartition);
+	}
+	for (IDeviceAlert alert : response.getCreatedAlerts()) {
+	    addDeviceEventStatements(assignment, alert, CassandraDeviceAlert.INSTANCE, byPartition);
+	}
+	storePartitionedStatements(byPartition);
+	return response;
     }
 
     /*
@@ -181,6 +210,33 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	return searchEventsByIndex(index, entityIds, criteria, CassandraDeviceMeasurement.INSTANCE);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria)
+     */
+    @Override
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	MeasurementAggregator.validate(windowMs, criteria);
+	PreparedStatement query = getQueryForIndex(index);
+	MeasurementAggregator aggregator = new MeasurementAggregator(windowMs, measurementNames);
+
+	// Roll up rows from each bucket partition as they are read.
+	for (int bucket : getBucketsForDateRange(criteria)) {
+	    List<ResultSet> perBucket = listResultsForBucket(query, entityIds, criteria, DeviceEventType.Measurement,
+		    bucket);
+	    for (ResultSet perKey : perBucket) {
+		for (Row row : perKey) {
+		    aggregator.add(CassandraDeviceMeasurement.INSTANCE.load(getCassandraEventManagementClient(), row));
+		}
+	    }
+	}
+	return aggregator.getResults();
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -356,50 +412,125 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
      */
     protected <I extends IDeviceEvent> void storeDeviceEvent(IDeviceAssignment assignment, I event,
 	    ICassandraEventBinder<I> binder) throws SiteWhereException {
+	Map<String, List<BoundStatement>> byPartition = new LinkedHashMap<>();
+	addDeviceEventStatements(assignment, event, binder, byPartition);
+	storePartitionedStatements(byPartition);
+    }
+
+    /**
+     * Build inserts for a device event for each indexing strategy. Statements are
+     * grouped by the table partition they write to.
+     * 
+     * @param assignment
+     * @param event
+     * @param binder
+     * @param byPartition
+     * @throws SiteWhereException
+     */
+    protected <I extends IDeviceEvent> void addDeviceEventStatements(IDeviceAssignment assignment, I event,
+	    ICassandraEventBinder<I> binder, Map<String, List<BoundStatement>> byPartition)
+	    throws SiteWhereException {
+	int bucket = getClient().getBucketValue(event.getEventDate().getTime());
+	String suffix = ":" + binder.getEventType().name() + ":" + bucket;
+
 	// Build insert for event by id.
 	BoundStatement eventById = getCassandraEventManagementClient().getInsertDeviceEventById().bind();
 	binder.bind(getCassandraEventManagementClient(), eventById, event);
-	process(eventById, event);
+	addToPartition(byPartition, "id:" + event.getId(), eventById);
 
 	// Build insert for event by alternate id.
 	if (event.getAlternateId() != null) {
 	    BoundStatement eventByAltId = getCassandraEventManagementClient().getInsertDeviceEventByAltId().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByAltId, event);
-	    process(eventByAltId, event);
+	    addToPartition(byPartition, "alt:" + event.getAlternateId(), eventByAltId);
 	}
 
 	// Build insert for event by assignment.
 	BoundStatement eventByAssn = getCassandraEventManagementClient().getInsertDeviceEventByAssignment().bind();
 	binder.bind(getCassandraEventManagementClient(), eventByAssn, event);
-	eventByAssn.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	process(eventByAssn, event);
+	eventByAssn.setInt("bucket", bucket);
+	addToPartition(byPartition, "assignment:" + assignment.getId() + suffix, eventByAssn);
 
 	// Build insert for event by customer.
 	if (assignment.getCustomerId() != null) {
 	    BoundStatement eventByCustomer = getCassandraEventManagementClient().getInsertDeviceEventByCustomer()
 		    .bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByCustomer, event);
-	    eventByCustomer.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByCustomer, event);
+	    eventByCustomer.setInt("bucket", bucket);
+	    addToPartition(byPartition, "customer:" + assignment.getCustomerId() + suffix, eventByCustomer);
 	}
 
 	// Build insert for event by area.
 	if (assignment.getAreaId() != null) {
 	    BoundStatement eventByArea = getCassandraEventManagementClient().getInsertDeviceEventByArea().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByArea, event);
-	    eventByArea.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByArea, event);
+	    eventByArea.setInt("bucket", bucket);
+	    addToPartition(byPartition, "area:" + assignment.getAreaId() + suffix, eventByArea);
 	}
 
 	// Build insert for event by asset.
 	if (assignment.getAssetId() != null) {
 	    BoundStatement eventByAsset = getCassandraEventManagementClient().getInsertDeviceEventByAsset().bind();
 	    binder.bind(getCassandraEventManagementClient(), eventByAsset, event);
-	    eventByAsset.setInt("bucket", getClient().getBucketValue(event.getEventDate().getTime()));
-	    process(eventByAsset, event);
+	    eventByAsset.setInt("bucket", bucket);
+	    addToPartition(byPartition, "asset:" + assignment.getAssetId() + suffix, eventByAsset);
 	}
     }
 
+    /**
+     * Add a statement to the list for its partition.
+     * 
+     * @param byPartition
+     * @param partition
+     * @param statement
+     */
+    protected void addToPartition(Map<String, List<BoundStatement>> byPartition, String partition,
+	    BoundStatement statement) {
+	List<BoundStatement> statements = byPartition.get(partition);
+	if (statements == null) {
+	    statements = new ArrayList<>();
+	    byPartition.put(partition, statements);
+	}
+	statements.add(statement);
+    }
+
+    /**
+     * Store statements grouped by partition. Statements for the same partition
+     * are sent as unlogged batches, which Cassandra applies as a single mutation
+     * without batch log overhead. Writes are sent through the write scheduler and
+     * this method waits for all of them, so failures are reported to the caller.
+     * If a submit fails part way through, writes that were already submitted are
+     * allowed to complete before the failure is rethrown.
+     * 
+     * @param byPartition
+     * @throws SiteWhereException
+     */
+    protected void storePartitionedStatements(Map<String, List<BoundStatement>> byPartition)
+	    throws SiteWhereException {
+	List<ListenableFuture<ResultSet>> writes = new ArrayList<>();
+	boolean submitted = false;
+	try {
+	    for (List<BoundStatement> statements : byPartition.values()) {
+		if (statements.size() == 1) {
+		    writes.add(getWriteScheduler().submit(statements.get(0)));
+		    continue;
+		}
+		for (int start = 0; start < statements.size(); start += MAX_STATEMENTS_PER_BATCH) {
+		    int end = Math.min(statements.size(), start + MAX_STATEMENTS_PER_BATCH);
+		    BatchStatement batch = new BatchStatement(BatchStatement.Type.UNLOGGED);
+		    batch.addAll(statements.subList(start, end));
+		    writes.add(getWriteScheduler().submit(batch));
+		}
+	    }
+	    submitted = true;
+	} finally {
+	    if (!submitted) {
+		getWriteScheduler().awaitQuietly(writes);
+	    }
+	}
+	getWriteScheduler().await(writes, "Failed to persist Cassandra events.");
+    }
+
     /**
      * Search events by a given index.
      * 
@@ -430,35 +561,6 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
 	return new SearchResults<I>(pager.getResults(), pager.getTotal());
     }
 
-    /**
-     * Process a Cassandra query and handle failures.
-     * 
-     * @param statement
-     * @param event
-     * @throws SiteWhereException
-     */
-    protected void process(BoundStatement statement, IDeviceEvent event) throws SiteWhereException {
-	ResultSetFuture future = getClient().getSession().executeAsync(statement);
-	Futures.addCallback(future, new FutureCallback<ResultSet>() {
-	    /*
-	     * @see
-	     * com.google.common.util.concurrent.FutureCallback#onSuccess(java.lang.Object)
-	     */
-	    @Override
-	    public void onSuccess(ResultSet result) {
-	    }
-
-	    /*
-	     * @see com.google.common.util.concurrent.FutureCallback#onFailure(java.lang.
-	     * Throwable)
-	     */
-	    @Override
-	    public void onFailure(Throwable t) {
-		getLogger().error("Failed to persist Cassandra event: " + event.getId(), t);
-	    }
-	}, MoreExecutors.directExecutor());
-    }
-
     /**
      * Get query that corresponds to the given event index.
      * 
@@ -590,4 +692,16 @@ public class CassandraDeviceEventManagement extends TenantEngineLifecycleCompone
     protected void setCassandraEventManagementClient(CassandraEventManagementClient cassandraEventManagementClient) {
 	this.cassandraEventManagementClient = cassandraEventManagementClient;
     }
+
+    public int getMaxWritesInFlight() {
+	return maxWritesInFlight;
+    }
+
+    public void setMaxWritesInFlight(int maxWritesInFlight) {
+	this.maxWritesInFlight = maxWritesInFlight;
+    }
+
+    protected CassandraWriteScheduler getWriteScheduler() {
+	return writeScheduler;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.cassandra;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Timer;
+import com.datastax.driver.core.ResultSet;
+import com.datastax.driver.core.ResultSetFuture;
+import com.datastax.driver.core.Statement;
+import com.datastax.driver.core.exceptions.OperationTimedOutException;
+import com.datastax.driver.core.exceptions.WriteTimeoutException;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.sitewhere.cassandra.CassandraClient;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Limits the number of asynchronous Cassandra writes in flight. Callers wait
+ * for a permit before a write is sent so that load backs up into the caller
+ * rather than overflowing the driver request queue. Writes that time out are
+ * retried a limited number of times before the failure is reported through the
+ * returned future.
+ *
+ * @author Derek
+ */
+public class CassandraWriteScheduler {
+
+    /** Default max number of writes in flight */
+    public static final int DEFAULT_MAX_WRITES_IN_FLIGHT = 256;
+
+    /** Default number of retries for timed out writes */
+    public static final int DEFAULT_MAX_RETRIES = 3;
+
+    /** Default time to wait for a permit before failing */
+    public static final long DEFAULT_PERMIT_TIMEOUT_MS = 10 * 1000;
+
+    /** Cassandra client */
+    private CassandraClient client;
+
+    /** Permits for writes in flight */
+    private Semaphore permits;
+
+    /** Max number of retries for timed out writes */
+    private int maxRetries = DEFAULT_MAX_RETRIES;
+
+    /** Time to wait for a permit before failing */
+    private long permitTimeoutMs = DEFAULT_PERMIT_TIMEOUT_MS;
+
+    /** Time from send to completion for writes */
+    private Timer writeLatency;
+
+    /** Time spent waiting for a permit */
+    private Timer permitWait;
+
+    /** Rate of retried writes */
+    private Meter retries;
+
+    /** Rate of writes that failed after retries */
+    private Meter failures;
+
+    public CassandraWriteScheduler(CassandraClient client, int maxWritesInFlight,
+	    ITenantEngineLifecycleComponent component) {
+	this.client = client;
+	this.permits = new Semaphore(maxWritesInFlight);
+	this.writeLatency = component.createTimerMetric("cassandra.writeLatency");
+	this.permitWait = component.createTimerMetric("cassandra.writePermitWait");
+	this.retries = component.createMeterMetric("cassandra.writeRetries");
+	this.failures = component.createMeterMetric("cassandra.writeFailures");
+    }
+
+    /**
+     * Send a write once a permit is available. All writes are inserts, so the
+     * statement is marked idempotent, which allows it to be retried safely.
+     *
+     * @param statement
+     * @return
+     * @throws SiteWhereException
+     */
+    public ListenableFuture<ResultSet> submit(Statement statement) throws SiteWhereException {
+	long waitStart = System.nanoTime();
+	try {
+	    if (!permits.tryAcquire(getPermitTimeoutMs(), TimeUnit.MILLISECONDS)) {
+		throw new SiteWhereException("Timed out waiting for Cassandra write capacity.");
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted waiting for Cassandra write capacity.", e);
+	}
+	permitWait.update(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+
+	statement.setIdempotent(true);
+	SettableFuture<ResultSet> result = SettableFuture.create();
+	execute(statement, 0, System.nanoTime(), result);
+	return result;
+    }
+
+    /**
+     * Wait for writes to complete, throwing an exception if any failed.
+     *
+     * @param writes
+     * @param failureMessage
+     * @throws SiteWhereException
+     */
+    public void await(List<ListenableFuture<ResultSet>> writes, String failureMessage) throws SiteWhereException {
+	try {
+	    Futures.allAsList(writes).get();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException(failureMessage, e);
+	} catch (ExecutionException e) {
+	    throw new SiteWhereException(failureMessage, e.getCause());
+	}
+    }
+
+    /**
+     * Wait for writes to complete without reporting failures. Used to settle
+     * writes that were already submitted when a later submit fails, so that they
+     * are not abandoned while still holding permits.
+     *
+     * @param writes
+     */
+    public void awaitQuietly(List<ListenableFuture<ResultSet>> writes) {
+	try {
+	    Futures.successfulAsList(writes).get();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	} catch (ExecutionException e) {
+	    // Not expected since failures are converted to null results.
+	}
+    }
+
+    /**
+     * Execute a statement, retrying on timeouts. The permit is held across
+     * retries and released once the write succeeds or fails for good.
+     *
+     * @param statement
+     * @param attempt
+     * @param start
+     * @param result
+     */
+    protected void execute(final Statement statement, final int attempt, final long start,
+	    final SettableFuture<ResultSet> result) {
+	ResultSetFuture future;
+	try {
+	    future = client.getSession().executeAsync(statement);
+	} catch (RuntimeException e) {
+	    permits.release();
+	    failures.mark();
+	    result.setException(e);
+	    return;
+	}
+	Futures.addCallback(future, new FutureCallback<ResultSet>() {
+
+	    /*
+	     * @see
+	     * com.google.common.util.concurrent.FutureCallback#onSuccess(java.lang.Object)
+	     */
+	    @Override
+	    public void onSuccess(ResultSet rs) {
+		permits.release();
+		writeLatency.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+		result.set(rs);
+	    }
+
+	    /*
+	     * @see com.google.common.util.concurrent.FutureCallback#onFailure(java.lang.
+	     * Throwable)
+	     */
+	    @Override
+	    public void onFailure(Throwable t) {
+		if (isRetryable(t) && (attempt < getMaxRetries())) {
+		    retries.mark();
+		    execute(statement, attempt + 1, start, result);
+		    return;
+		}
+		permits.release();
+		failures.mark();
+		result.setException(t);
+	    }
+	}, MoreExecutors.directExecutor());
+    }
+
+    /**
+     * Indicates whether a failed write may be retried.
+     *
+     * @param t
+     * @return
+     */
+    protected boolean isRetryable(Throwable t) {
+	return (t instanceof WriteTimeoutException) || (t instanceof OperationTimedOutException);
+    }
+
+    public int getMaxRetries() {
+	return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+	this.maxRetries = maxRetries;
+    }
+
+    public long getPermitTimeoutMs() {
+	return permitTimeoutMs;
+    }
+
+    public void setPermitTimeoutMs(long permitTimeoutMs) {
+	this.permitTimeoutMs = permitTimeoutMs;
+    }
+}
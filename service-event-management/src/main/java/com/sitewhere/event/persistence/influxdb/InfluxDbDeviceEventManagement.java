@@ -14,6 +14,7 @@ import java.util.UUID;
 
 import org.influxdb.dto.Point;
 
+import com.sitewhere.device.event.MeasurementAggregator;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.influxdb.InfluxDbClient;
@@ -39,6 +40,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -210,6 +212,21 @@ public class InfluxDbDeviceEventManagement extends TenantEngineLifecycleComponen
 		IDeviceMeasurement.class);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria)
+     */
+    @Override
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	MeasurementAggregator.validate(windowMs, criteria);
+	return InfluxDbDeviceMeasurements.aggregateByIndex(index, entityIds, measurementNames, windowMs, criteria,
+		getClient());
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -7,12 +7,28 @@
  */
 package com.sitewhere.event.persistence.influxdb;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.influxdb.dto.Point;
+import org.influxdb.dto.Query;
+import org.influxdb.dto.QueryResult;
+import org.influxdb.dto.QueryResult.Result;
+import org.influxdb.dto.QueryResult.Series;
 
+import com.sitewhere.device.event.DeviceMeasurementAggregate;
+import com.sitewhere.influxdb.InfluxDbClient;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
 
 /**
  * Class for saving device measurements data to InfluxDB.
@@ -65,4 +81,118 @@ public class InfluxDbDeviceMeasurements {
 	builder.addField(MX_VALUE, event.getValue());
 	InfluxDbDeviceEvent.saveToBuilder(event, builder);
     }
-}
\ No newline at end of file
+
+    /**
+     * Aggregate measurements over fixed time windows with GROUP BY time(). The
+     * measurement name is stored as a field rather than a tag, so one statement
+     * is issued per name and all statements are sent in a single query. If no
+     * names are given, the distinct names in the range are queried first.
+     * 
+     * @param index
+     * @param entityIds
+     * @param measurementNames
+     * @param windowMs
+     * @param criteria
+     * @param client
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IDeviceMeasurementAggregate> aggregateByIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria, InfluxDbClient client)
+	    throws SiteWhereException {
+	String database = client.getDatabase().getValue();
+	String where = " where type='" + DeviceEventType.Measurement.name() + "' and "
+		+ InfluxDbDeviceEvent.buildInClause(index, entityIds)
+		+ InfluxDbDeviceEvent.buildDateRangeCriteria(criteria);
+	List<String> names = new ArrayList<>();
+	if ((measurementNames != null) && (!measurementNames.isEmpty())) {
+	    names.addAll(measurementNames);
+	} else {
+	    names.addAll(listMeasurementNames(where, database, client));
+	}
+	List<IDeviceMeasurementAggregate> results = new ArrayList<>();
+	if (names.isEmpty()) {
+	    return results;
+	}
+	Collections.sort(names);
+
+	List<String> statements = new ArrayList<>();
+	for (String name : names) {
+	    statements.add("SELECT count(" + MX_VALUE + "), min(" + MX_VALUE + "), max(" + MX_VALUE + "), mean("
+		    + MX_VALUE + "), last(" + MX_VALUE + ") FROM " + InfluxDbDeviceEvent.COLLECTION_EVENTS + where
+		    + " and " + MX_NAME + "='" + escape(name) + "' GROUP BY time(" + windowMs + "ms) fill(none)");
+	}
+	QueryResult response = client.getInflux().query(new Query(String.join("; ", statements), database),
+		TimeUnit.MILLISECONDS);
+	InfluxDbDeviceEvent.handleError(response);
+
+	// Results are returned in statement order.
+	for (int i = 0; i < response.getResults().size(); i++) {
+	    Result result = response.getResults().get(i);
+	    if (result.getError() != null) {
+		throw new SiteWhereException("Error performing aggregate query: " + result.getError());
+	    }
+	    if (result.getSeries() == null) {
+		continue;
+	    }
+	    for (Series series : result.getSeries()) {
+		for (List<Object> values : series.getValues()) {
+		    Map<String, Object> valueMap = InfluxDbDeviceEvent.getValueMap(series, values);
+		    Date start = InfluxDbDeviceEvent.parseDateField(valueMap, "time");
+		    DeviceMeasurementAggregate aggregate = new DeviceMeasurementAggregate();
+		    aggregate.setName(names.get(i));
+		    aggregate.setWindowStart(start);
+		    aggregate.setWindowEnd(new Date(start.getTime() + windowMs));
+		    aggregate.setCount(((Number) valueMap.get("count")).longValue());
+		    aggregate.setMin((Double) valueMap.get("min"));
+		    aggregate.setMax((Double) valueMap.get("max"));
+		    aggregate.setAverage((Double) valueMap.get("mean"));
+		    aggregate.setLast((Double) valueMap.get("last"));
+		    results.add(aggregate);
+		}
+	    }
+	}
+	return results;
+    }
+
+    /**
+     * List distinct measurement names for events matching a where clause.
+     * 
+     * @param where
+     * @param database
+     * @param client
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static List<String> listMeasurementNames(String where, String database, InfluxDbClient client)
+	    throws SiteWhereException {
+	Query query = new Query(
+		"SELECT DISTINCT(" + MX_NAME + ") FROM " + InfluxDbDeviceEvent.COLLECTION_EVENTS + where, database);
+	QueryResult response = client.getInflux().query(query);
+	InfluxDbDeviceEvent.handleError(response);
+	List<String> names = new ArrayList<>();
+	for (Result result : response.getResults()) {
+	    if (result.getSeries() != null) {
+		for (Series series : result.getSeries()) {
+		    for (List<Object> values : series.getValues()) {
+			Object name = InfluxDbDeviceEvent.getValueMap(series, values).get("distinct");
+			if (name instanceof String) {
+			    names.add((String) name);
+			}
+		    }
+		}
+	    }
+	}
+	return names;
+    }
+
+    /**
+     * Escape a value for use in a quoted string literal.
+     * 
+     * @param value
+     * @return
+     */
+    protected static String escape(String value) {
+	return value.replace("\\", "\\\\").replace("'", "\\'");
+    }
+}
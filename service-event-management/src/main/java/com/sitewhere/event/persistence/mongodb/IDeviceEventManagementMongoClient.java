@@ -22,6 +22,9 @@ public interface IDeviceEventManagementMongoClient {
     /** Default collection name for SiteWhere events */
     public static final String DEFAULT_EVENTS_COLLECTION_NAME = "events";
 
+    /** Default collection name for bucketed measurements */
+    public static final String DEFAULT_MEASUREMENT_BUCKETS_COLLECTION_NAME = "measurementBuckets";
+
     /**
      * Collection for events.
      * 
@@ -29,4 +32,12 @@ public interface IDeviceEventManagementMongoClient {
      * @throws SiteWhereException
      */
     public MongoCollection<Document> getEventsCollection() throws SiteWhereException;
+
+    /**
+     * Collection for bucketed measurements.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    public MongoCollection<Document> getMeasurementBucketsCollection() throws SiteWhereException;
 }
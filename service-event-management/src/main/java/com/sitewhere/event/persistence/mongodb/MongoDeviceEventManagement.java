@@ -10,12 +10,18 @@ package com.sitewhere.event.persistence.mongodb;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.bson.Document;
 
 import com.mongodb.BasicDBObject;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.IndexOptions;
+import com.sitewhere.device.event.MeasurementAggregator;
 import com.sitewhere.event.persistence.DeviceEventManagementPersistence;
 import com.sitewhere.event.spi.microservice.IEventManagementMicroservice;
 import com.sitewhere.mongodb.IMongoConverterLookup;
@@ -23,6 +29,7 @@ import com.sitewhere.mongodb.MongoPersistence;
 import com.sitewhere.rest.model.device.event.DeviceAlert;
 import com.sitewhere.rest.model.device.event.DeviceCommandInvocation;
 import com.sitewhere.rest.model.device.event.DeviceCommandResponse;
+import com.sitewhere.rest.model.device.event.DeviceEventBatchResponse;
 import com.sitewhere.rest.model.device.event.DeviceLocation;
 import com.sitewhere.rest.model.device.event.DeviceMeasurement;
 import com.sitewhere.rest.model.device.event.DeviceStateChange;
@@ -43,6 +50,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -79,6 +87,27 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     /** Maximum number of records to write in a chunk */
     private int bulkInsertMaxChunkSize = 200;
 
+    /** Indicates whether measurements are stored in time buckets */
+    private boolean useMeasurementBuckets = false;
+
+    /** Length of measurement bucket window in minutes */
+    private int measurementBucketMinutes = 60;
+
+    /** Indicates whether existing measurements are moved into buckets on start */
+    private boolean migrateMeasurementsToBuckets = false;
+
+    /** Bucketed measurement storage */
+    private MongoMeasurementBuckets measurementBuckets;
+
+    /** Indicates whether buckets hold all measurements and may be read */
+    private volatile boolean measurementBucketsReadable = false;
+
+    /** Keeps measurement writes from overlapping the switch to bucket reads */
+    private ReadWriteLock migrationLock = new ReentrantReadWriteLock();
+
+    /** Executor for measurement migration */
+    private ExecutorService migrationExecutor;
+
     public MongoDeviceEventManagement() {
 	super(LifecycleComponentType.DataStore);
     }
@@ -104,6 +133,25 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	} else {
 	    getLogger().info("MongoDB device event management is not using bulk inserts for events.");
 	}
+
+	// Store measurements in time buckets if enabled.
+	if (isUseMeasurementBuckets()) {
+	    this.measurementBuckets = new MongoMeasurementBuckets(getMongoClient().getMeasurementBucketsCollection(),
+		    TimeUnit.MINUTES.toMillis(getMeasurementBucketMinutes()));
+	    getMeasurementBuckets().ensureIndexes();
+	    getLogger().info("MongoDB device event management is storing measurements in buckets of "
+		    + getMeasurementBucketMinutes() + " minutes.");
+	    if (isMigrateMeasurementsToBuckets()) {
+		getLogger().info("Measurements are read from events until migration into buckets completes.");
+		this.migrationExecutor = Executors.newSingleThreadExecutor();
+		migrationExecutor.execute(new MeasurementMigrator());
+	    } else if (getMeasurementBuckets().hasUnmigrated(getMongoClient().getEventsCollection())) {
+		throw new SiteWhereException("Measurements exist that are not stored in buckets. Enable migration "
+			+ "of measurements to buckets before storing measurements in buckets.");
+	    } else {
+		this.measurementBucketsReadable = true;
+	    }
+	}
     }
 
     /*
@@ -119,6 +167,11 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	if (getEventBuffer() != null) {
 	    getEventBuffer().stop();
 	}
+
+	// Stop measurement migration if running.
+	if (migrationExecutor != null) {
+	    migrationExecutor.shutdownNow();
+	}
     }
 
     /**
@@ -149,7 +202,40 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     public IDeviceEventBatchResponse addDeviceEventBatch(UUID deviceAssignmentId, IDeviceEventBatch batch)
 	    throws SiteWhereException {
 	IDeviceAssignment assignment = assertDeviceAssignmentById(deviceAssignmentId);
-	return DeviceEventManagementPersistence.deviceEventBatchLogic(assignment, batch, this);
+	DeviceEventBatchResponse response = DeviceEventManagementPersistence.deviceEventBatchCreateLogic(assignment,
+		batch);
+
+	boolean migrating = isMeasurementMigrationPending();
+	if (migrating) {
+	    getMigrationLock().readLock().lock();
+	}
+	try {
+	    // Convert all events before writing so that a bad event fails the batch.
+	    List<Document> documents = new ArrayList<>();
+	    if (!isMeasurementBucketsReadable()) {
+		for (IDeviceMeasurement mx : response.getCreatedMeasurements()) {
+		    documents.add(MongoDeviceMeasurement.toDocument(mx, false));
+		}
+	    }
+	    for (IDeviceLocation location : response.getCreatedLocations()) {
+		documents.add(MongoDeviceLocation.toDocument(location, false));
+	    }
+	    for (IDeviceAlert alert : response.getCreatedAlerts()) {
+		documents.add(MongoDeviceAlert.toDocument(alert, false));
+	    }
+
+	    // Measurements are bucketed first so migration never copies them twice.
+	    if (isUseMeasurementBuckets()) {
+		getMeasurementBuckets().addMeasurements(response.getCreatedMeasurements());
+	    }
+	    MongoDeviceEventManagementPersistence.insertEvents(getMongoClient().getEventsCollection(), documents,
+		    getBulkInsertMaxChunkSize());
+	    return response;
+	} finally {
+	    if (migrating) {
+		getMigrationLock().readLock().unlock();
+	    }
+	}
     }
 
     /*
@@ -162,7 +248,9 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	Document query = new Document(MongoDeviceEvent.PROP_ID, eventId);
 	Document found = getMongoClient().getEventsCollection().find(query).first();
 	if (found == null) {
-	    return null;
+	    return isUseMeasurementBuckets()
+		    ? getMeasurementBuckets().findMeasurement(MongoDeviceEvent.PROP_ID, eventId)
+		    : null;
 	}
 	return MongoDeviceEventManagementPersistence.unmarshalEvent(found);
     }
@@ -176,7 +264,9 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	Document query = new Document(MongoDeviceEvent.PROP_ALTERNATE_ID, alternateId);
 	Document found = getMongoClient().getEventsCollection().find(query).first();
 	if (found == null) {
-	    return null;
+	    return isUseMeasurementBuckets()
+		    ? getMeasurementBuckets().findMeasurement(MongoDeviceEvent.PROP_ALTERNATE_ID, alternateId)
+		    : null;
 	}
 	return MongoDeviceEventManagementPersistence.unmarshalEvent(found);
     }
@@ -190,19 +280,40 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     @Override
     public List<IDeviceMeasurement> addDeviceMeasurements(UUID deviceAssignmentId,
 	    IDeviceMeasurementCreateRequest... requests) throws SiteWhereException {
-	List<IDeviceMeasurement> result = new ArrayList<>();
 	IDeviceAssignment assignment = assertDeviceAssignmentById(deviceAssignmentId);
+	List<DeviceMeasurement> created = new ArrayList<>();
 	for (IDeviceMeasurementCreateRequest request : requests) {
-	    DeviceMeasurement measurements = DeviceEventManagementPersistence.deviceMeasurementCreateLogic(request,
-		    assignment);
+	    created.add(DeviceEventManagementPersistence.deviceMeasurementCreateLogic(request, assignment));
+	}
 
-	    MongoCollection<Document> events = getMongoClient().getEventsCollection();
-	    Document mObject = MongoDeviceMeasurement.toDocument(measurements, false);
-	    MongoDeviceEventManagementPersistence.insertEvent(events, mObject, isUseBulkEventInserts(),
-		    getEventBuffer());
-	    result.add(MongoDeviceMeasurement.fromDocument(mObject, false));
+	boolean migrating = isMeasurementMigrationPending();
+	if (migrating) {
+	    getMigrationLock().readLock().lock();
+	}
+	try {
+	    // Measurements are bucketed first so migration never copies them twice.
+	    if (isUseMeasurementBuckets()) {
+		getMeasurementBuckets().addMeasurements(created);
+		if (isMeasurementBucketsReadable()) {
+		    return new ArrayList<IDeviceMeasurement>(created);
+		}
+	    }
+
+	    // Buffered inserts could land after migration removes measurements.
+	    boolean buffered = isUseBulkEventInserts() && !isUseMeasurementBuckets();
+	    List<IDeviceMeasurement> result = new ArrayList<>();
+	    for (DeviceMeasurement measurements : created) {
+		MongoCollection<Document> events = getMongoClient().getEventsCollection();
+		Document mObject = MongoDeviceMeasurement.toDocument(measurements, false);
+		MongoDeviceEventManagementPersistence.insertEvent(events, mObject, buffered, getEventBuffer());
+		result.add(MongoDeviceMeasurement.fromDocument(mObject, false));
+	    }
+	    return result;
+	} finally {
+	    if (migrating) {
+		getMigrationLock().readLock().unlock();
+	    }
 	}
-	return result;
     }
 
     /*
@@ -214,6 +325,9 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
     @Override
     public SearchResults<IDeviceMeasurement> listDeviceMeasurementsForIndex(DeviceEventIndex index,
 	    List<UUID> entityIds, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	if (isMeasurementBucketsReadable()) {
+	    return getMeasurementBuckets().search(getFieldForIndex(index), entityIds, criteria);
+	}
 	MongoCollection<Document> events = getMongoClient().getEventsCollection();
 	Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds))
 		.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
@@ -222,6 +336,32 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	return MongoPersistence.search(IDeviceMeasurement.class, events, query, sort, criteria, LOOKUP);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria)
+     */
+    @Override
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	MeasurementAggregator.validate(windowMs, criteria);
+	if (isMeasurementBucketsReadable()) {
+	    return getMeasurementBuckets().aggregate(getFieldForIndex(index), entityIds, measurementNames, windowMs,
+		    criteria);
+	}
+	Document query = new Document(getFieldForIndex(index), new Document("$in", entityIds))
+		.append(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	MongoMeasurementAggregation.addMeasurementCriteria(query, measurementNames);
+	MongoPersistence.addDateSearchCriteria(query, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+
+	List<Document> pipeline = new ArrayList<>();
+	pipeline.add(new Document("$match", query));
+	MongoMeasurementAggregation.addGroupStages(pipeline, windowMs);
+	return MongoMeasurementAggregation.aggregate(getMongoClient().getEventsCollection(), pipeline, windowMs);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
@@ -476,6 +616,64 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	throw new SiteWhereException("Unknown index: " + index.name());
     }
 
+    /**
+     * Indicates whether measurement reads are served from buckets. Until
+     * migration completes, new measurements are written to both buckets and
+     * events and reads use the events collection, which holds all measurements.
+     * 
+     * @return
+     */
+    protected boolean isMeasurementBucketsReadable() {
+	return measurementBucketsReadable;
+    }
+
+    /**
+     * Indicates whether measurements are being migrated into buckets. Writes
+     * hold the migration read lock while pending so that reads do not switch to
+     * buckets while a measurement is being written to the events collection.
+     * 
+     * @return
+     */
+    protected boolean isMeasurementMigrationPending() {
+	return isUseMeasurementBuckets() && !isMeasurementBucketsReadable();
+    }
+
+    /**
+     * Moves measurements stored as individual events into buckets. Reads switch
+     * to buckets once all measurements have been copied, after which the copies
+     * in the events collection are removed.
+     * 
+     * @author Derek
+     */
+    private class MeasurementMigrator implements Runnable {
+
+	@Override
+	public void run() {
+	    getLogger().info("Migrating existing measurements into buckets.");
+	    try {
+		MongoCollection<Document> events = getMongoClient().getEventsCollection();
+		long count = getMeasurementBuckets().migrateFrom(events, getBulkInsertMaxChunkSize());
+		if (count < 0) {
+		    getLogger().info("Migration of measurements into buckets was interrupted.");
+		    return;
+		}
+		getMigrationLock().writeLock().lock();
+		try {
+		    measurementBucketsReadable = true;
+		} finally {
+		    getMigrationLock().writeLock().unlock();
+		}
+		getLogger().info("Migrated " + count + " measurements into buckets. Reading from buckets.");
+		long removed = getMeasurementBuckets().removeMigrated(events);
+		getLogger().info("Removed " + removed + " migrated measurements from events.");
+	    } catch (SiteWhereException e) {
+		getLogger().error("Unable to migrate measurements into buckets.", e);
+	    } catch (Throwable e) {
+		getLogger().error("Unhandled exception migrating measurements into buckets.", e);
+	    }
+	}
+    }
+
     protected IDeviceManagement getDeviceManagement() {
 	return ((IEventManagementMicroservice) getTenantEngine().getMicroservice()).getDeviceManagementApiDemux()
 		.getApiChannel();
@@ -515,6 +713,42 @@ public class MongoDeviceEventManagement extends TenantEngineLifecycleComponent i
 	this.bulkInsertMaxChunkSize = bulkInsertMaxChunkSize;
     }
 
+    public boolean isUseMeasurementBuckets() {
+	return useMeasurementBuckets;
+    }
+
+    public void setUseMeasurementBuckets(boolean useMeasurementBuckets) {
+	this.useMeasurementBuckets = useMeasurementBuckets;
+    }
+
+    public int getMeasurementBucketMinutes() {
+	return measurementBucketMinutes;
+    }
+
+    public void setMeasurementBucketMinutes(int measurementBucketMinutes) {
+	this.measurementBucketMinutes = measurementBucketMinutes;
+    }
+
+    public boolean isMigrateMeasurementsToBuckets() {
+	return migrateMeasurementsToBuckets;
+    }
+
+    public void setMigrateMeasurementsToBuckets(boolean migrateMeasurementsToBuckets) {
+	this.migrateMeasurementsToBuckets = migrateMeasurementsToBuckets;
+    }
+
+    public ReadWriteLock getMigrationLock() {
+	return migrationLock;
+    }
+
+    public MongoMeasurementBuckets getMeasurementBuckets() {
+	return measurementBuckets;
+    }
+
+    public void setMeasurementBuckets(MongoMeasurementBuckets measurementBuckets) {
+	this.measurementBuckets = measurementBuckets;
+    }
+
     public IDeviceEventManagementMongoClient getMongoClient() {
 	return mongoClient;
     }
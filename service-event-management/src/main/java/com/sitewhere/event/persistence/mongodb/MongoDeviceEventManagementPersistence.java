@@ -7,8 +7,11 @@
  */
 package com.sitewhere.event.persistence.mongodb;
 
+import java.util.List;
+
 import org.bson.Document;
 
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoCommandException;
 import com.mongodb.MongoTimeoutException;
 import com.mongodb.client.MongoCollection;
@@ -50,6 +53,31 @@ public class MongoDeviceEventManagementPersistence extends MongoPersistence {
 	}
     }
 
+    /**
+     * Insert a list of events directly using as few bulk writes as possible.
+     * Events are written in chunks no larger than the given size.
+     * 
+     * @param collection
+     * @param objects
+     * @param maxChunkSize
+     * @throws SiteWhereException
+     */
+    public static void insertEvents(MongoCollection<Document> collection, List<Document> objects, int maxChunkSize)
+	    throws SiteWhereException {
+	try {
+	    for (int start = 0; start < objects.size(); start += maxChunkSize) {
+		int end = Math.min(objects.size(), start + maxChunkSize);
+		collection.insertMany(objects.subList(start, end));
+	    }
+	} catch (MongoBulkWriteException e) {
+	    throw new SiteWhereException("Error during MongoDB bulk insert.", e);
+	} catch (MongoCommandException e) {
+	    throw new SiteWhereException("Error during MongoDB insert.", e);
+	} catch (MongoTimeoutException e) {
+	    throw new SiteWhereException("Connection to MongoDB lost.", e);
+	}
+    }
+
     /**
      * Marshal an {@link IDeviceEvent} into a {@link Document}.
      * 
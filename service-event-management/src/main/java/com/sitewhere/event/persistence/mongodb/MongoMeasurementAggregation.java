@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.bson.Document;
+
+import com.mongodb.MongoClientException;
+import com.mongodb.client.MongoCollection;
+import com.sitewhere.device.event.DeviceMeasurementAggregate;
+import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
+
+/**
+ * Builds aggregation pipeline stages that calculate count, min, max, average
+ * and last value per measurement name over fixed time windows. Windows are
+ * aligned to the epoch. Used for measurements stored as individual events and
+ * for measurements unwound from buckets.
+ *
+ * @author Derek
+ */
+public class MongoMeasurementAggregation {
+
+    /** Group key for measurement name */
+    private static final String KEY_NAME = "n";
+
+    /** Group key for window start */
+    private static final String KEY_WINDOW = "w";
+
+    /** Field for count */
+    private static final String FIELD_COUNT = "cnt";
+
+    /** Field for minimum */
+    private static final String FIELD_MIN = "min";
+
+    /** Field for maximum */
+    private static final String FIELD_MAX = "max";
+
+    /** Field for average */
+    private static final String FIELD_AVERAGE = "avg";
+
+    /** Field for last value */
+    private static final String FIELD_LAST = "last";
+
+    /**
+     * Add criteria that limit matched measurements to those with a value and,
+     * if names are given, to those names.
+     *
+     * @param query
+     * @param measurementNames
+     */
+    public static void addMeasurementCriteria(Document query, List<String> measurementNames) {
+	if ((measurementNames != null) && (!measurementNames.isEmpty())) {
+	    query.append(MongoDeviceMeasurement.PROP_NAME, new Document("$in", measurementNames));
+	}
+	query.append(MongoDeviceMeasurement.PROP_VALUE, new Document("$ne", null));
+    }
+
+    /**
+     * Add stages that sort measurements by date and group them by name and
+     * window. Sorting first allows the last value to be taken with $last.
+     *
+     * @param pipeline
+     * @param windowMs
+     */
+    public static void addGroupStages(List<Document> pipeline, long windowMs) {
+	String date = "$" + MongoDeviceEvent.PROP_EVENT_DATE;
+	String value = "$" + MongoDeviceMeasurement.PROP_VALUE;
+	Document offset = new Document("$mod",
+		Arrays.asList(new Document("$subtract", Arrays.asList(date, new Date(0))), windowMs));
+	Document window = new Document("$subtract", Arrays.asList(date, offset));
+
+	pipeline.add(new Document("$sort", new Document(MongoDeviceEvent.PROP_EVENT_DATE, 1)));
+	Document groupId = new Document(KEY_NAME, "$" + MongoDeviceMeasurement.PROP_NAME).append(KEY_WINDOW, window);
+	Document group = new Document("_id", groupId).append(FIELD_COUNT, new Document("$sum", 1))
+		.append(FIELD_MIN, new Document("$min", value)).append(FIELD_MAX, new Document("$max", value))
+		.append(FIELD_AVERAGE, new Document("$avg", value)).append(FIELD_LAST, new Document("$last", value));
+	pipeline.add(new Document("$group", group));
+	pipeline.add(new Document("$sort", new Document("_id." + KEY_NAME, 1).append("_id." + KEY_WINDOW, 1)));
+    }
+
+    /**
+     * Run an aggregation pipeline and convert grouped documents to aggregates.
+     *
+     * @param collection
+     * @param pipeline
+     * @param windowMs
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IDeviceMeasurementAggregate> aggregate(MongoCollection<Document> collection,
+	    List<Document> pipeline, long windowMs) throws SiteWhereException {
+	List<IDeviceMeasurementAggregate> results = new ArrayList<>();
+	try {
+	    for (Document group : collection.aggregate(pipeline).allowDiskUse(true)) {
+		results.add(fromDocument(group, windowMs));
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+	return results;
+    }
+
+    /**
+     * Convert a grouped document to an aggregate.
+     *
+     * @param group
+     * @param windowMs
+     * @return
+     */
+    protected static DeviceMeasurementAggregate fromDocument(Document group, long windowMs) {
+	Document id = (Document) group.get("_id");
+	Date start = id.getDate(KEY_WINDOW);
+	DeviceMeasurementAggregate aggregate = new DeviceMeasurementAggregate();
+	aggregate.setName(id.getString(KEY_NAME));
+	aggregate.setWindowStart(start);
+	aggregate.setWindowEnd(new Date(start.getTime() + windowMs));
+	aggregate.setCount(((Number) group.get(FIELD_COUNT)).longValue());
+	aggregate.setMin(asDouble(group.get(FIELD_MIN)));
+	aggregate.setMax(asDouble(group.get(FIELD_MAX)));
+	aggregate.setAverage(asDouble(group.get(FIELD_AVERAGE)));
+	aggregate.setLast(asDouble(group.get(FIELD_LAST)));
+	return aggregate;
+    }
+
+    /**
+     * Convert a numeric value to a double.
+     *
+     * @param value
+     * @return
+     */
+    protected static Double asDouble(Object value) {
+	return (value != null) ? ((Number) value).doubleValue() : null;
+    }
+}
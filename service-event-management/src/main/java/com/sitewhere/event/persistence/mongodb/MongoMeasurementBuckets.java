@@ -0,0 +1,450 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.event.persistence.mongodb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.MongoClientException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.sitewhere.mongodb.MongoPersistence;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.search.SearchResults;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+
+/**
+ * Stores measurements in bucket documents rather than one document per event.
+ * Each bucket holds measurements with the same name for a single assignment
+ * over a fixed time window, along with min, max, sum and count summaries.
+ * Measurements are appended with upserts so that a new bucket is created when
+ * a window starts or the current bucket is full. Range queries read a few
+ * buckets rather than one document per measurement.
+ *
+ * @author Derek
+ */
+public class MongoMeasurementBuckets {
+
+    /** Property for bucket window start */
+    public static final String PROP_BUCKET_START = "bkst";
+
+    /** Property for bucket window end */
+    public static final String PROP_BUCKET_END = "bken";
+
+    /** Property for number of measurements in bucket */
+    public static final String PROP_COUNT = "cnt";
+
+    /** Property for minimum measurement value */
+    public static final String PROP_MIN = "min";
+
+    /** Property for maximum measurement value */
+    public static final String PROP_MAX = "max";
+
+    /** Property for sum of measurement values */
+    public static final String PROP_SUM = "sum";
+
+    /** Property for array of measurements */
+    public static final String PROP_EVENTS = "evts";
+
+    /** Max number of measurements stored in a single bucket */
+    public static final int MAX_MEASUREMENTS_PER_BUCKET = 200;
+
+    /** Collection holding buckets */
+    private MongoCollection<Document> collection;
+
+    /** Length of bucket window in milliseconds */
+    private long windowMs;
+
+    public MongoMeasurementBuckets(MongoCollection<Document> collection, long windowMs) {
+	this.collection = collection;
+	this.windowMs = windowMs;
+    }
+
+    /**
+     * Ensure that expected collection indexes exist.
+     *
+     * @throws SiteWhereException
+     */
+    public void ensureIndexes() throws SiteWhereException {
+	getCollection().createIndex(new BasicDBObject(MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID, 1)
+		.append(MongoDeviceMeasurement.PROP_NAME, 1).append(PROP_BUCKET_START, -1));
+	getCollection().createIndex(
+		new BasicDBObject(MongoDeviceEvent.PROP_CUSTOMER_ID, 1).append(PROP_BUCKET_START, -1));
+	getCollection().createIndex(new BasicDBObject(MongoDeviceEvent.PROP_AREA_ID, 1).append(PROP_BUCKET_START, -1));
+	getCollection().createIndex(new BasicDBObject(MongoDeviceEvent.PROP_ASSET_ID, 1).append(PROP_BUCKET_START, -1));
+	getCollection().createIndex(new BasicDBObject(PROP_EVENTS + "." + MongoDeviceEvent.PROP_ID, 1));
+	getCollection().createIndex(new BasicDBObject(PROP_EVENTS + "." + MongoDeviceEvent.PROP_ALTERNATE_ID, 1),
+		new IndexOptions().sparse(true));
+    }
+
+    /**
+     * Append measurements to buckets. Measurements are grouped so that each
+     * bucket is updated with a single upsert and all upserts are sent in one
+     * bulk write.
+     *
+     * @param measurements
+     * @throws SiteWhereException
+     */
+    public void addMeasurements(List<? extends IDeviceMeasurement> measurements) throws SiteWhereException {
+	Map<String, List<IDeviceMeasurement>> byBucket = new LinkedHashMap<>();
+	for (IDeviceMeasurement mx : measurements) {
+	    String key = mx.getDeviceAssignmentId() + ":" + mx.getName() + ":" + getWindowStart(mx.getEventDate());
+	    List<IDeviceMeasurement> bucket = byBucket.get(key);
+	    if (bucket == null) {
+		bucket = new ArrayList<>();
+		byBucket.put(key, bucket);
+	    }
+	    bucket.add(mx);
+	}
+
+	List<WriteModel<Document>> updates = new ArrayList<>();
+	for (List<IDeviceMeasurement> bucket : byBucket.values()) {
+	    for (int start = 0; start < bucket.size(); start += MAX_MEASUREMENTS_PER_BUCKET) {
+		List<IDeviceMeasurement> chunk = bucket.subList(start,
+			Math.min(bucket.size(), start + MAX_MEASUREMENTS_PER_BUCKET));
+		updates.add(createBucketUpdate(chunk));
+	    }
+	}
+	if (updates.isEmpty()) {
+	    return;
+	}
+	try {
+	    getCollection().bulkWrite(updates, new BulkWriteOptions().ordered(false));
+	} catch (MongoCommandException e) {
+	    throw new SiteWhereException("Error during MongoDB bucket update.", e);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Create an upsert that appends measurements to a bucket that has room for
+     * them, creating the bucket if necessary.
+     *
+     * @param chunk
+     * @return
+     */
+    protected UpdateOneModel<Document> createBucketUpdate(List<IDeviceMeasurement> chunk) {
+	IDeviceMeasurement first = chunk.get(0);
+	long windowStart = getWindowStart(first.getEventDate());
+
+	List<Document> events = new ArrayList<>();
+	Double min = null;
+	Double max = null;
+	double sum = 0;
+	for (IDeviceMeasurement mx : chunk) {
+	    events.add(MongoDeviceMeasurement.toDocument(mx, false));
+	    Double value = mx.getValue();
+	    if (value != null) {
+		min = (min == null) ? value : Math.min(min, value);
+		max = (max == null) ? value : Math.max(max, value);
+		sum += value;
+	    }
+	}
+
+	Bson filter = new Document(MongoDeviceEvent.PROP_DEVICE_ASSIGNMENT_ID, first.getDeviceAssignmentId())
+		.append(MongoDeviceMeasurement.PROP_NAME, first.getName())
+		.append(PROP_BUCKET_START, new Date(windowStart))
+		.append(PROP_COUNT, new Document("$lte", MAX_MEASUREMENTS_PER_BUCKET - chunk.size()));
+
+	Document update = new Document();
+	update.append("$push", new Document(PROP_EVENTS, new Document("$each", events)));
+	update.append("$inc", new Document(PROP_COUNT, chunk.size()).append(PROP_SUM, sum));
+	if (min != null) {
+	    update.append("$min", new Document(PROP_MIN, min));
+	    update.append("$max", new Document(PROP_MAX, max));
+	}
+	update.append("$setOnInsert",
+		new Document(PROP_BUCKET_END, new Date(windowStart + getWindowMs()))
+			.append(MongoDeviceEvent.PROP_DEVICE_ID, first.getDeviceId())
+			.append(MongoDeviceEvent.PROP_CUSTOMER_ID, first.getCustomerId())
+			.append(MongoDeviceEvent.PROP_AREA_ID, first.getAreaId())
+			.append(MongoDeviceEvent.PROP_ASSET_ID, first.getAssetId()));
+	return new UpdateOneModel<Document>(filter, update, new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Search for measurements stored in buckets. Only buckets that overlap the
+     * date range are read. Measurements are unwound, filtered and paged on the
+     * server.
+     *
+     * @param indexField
+     * @param entityIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    @SuppressWarnings("unchecked")
+    public SearchResults<IDeviceMeasurement> search(String indexField, List<UUID> entityIds,
+	    IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	Document bucketMatch = new Document(indexField, new Document("$in", entityIds));
+	if (criteria.getEndDate() != null) {
+	    bucketMatch.append(PROP_BUCKET_START, new Document("$lte", criteria.getEndDate()));
+	}
+	if (criteria.getStartDate() != null) {
+	    bucketMatch.append(PROP_BUCKET_END, new Document("$gte", criteria.getStartDate()));
+	}
+
+	List<Document> pipeline = new ArrayList<>();
+	pipeline.add(new Document("$match", bucketMatch));
+	pipeline.add(new Document("$unwind", "$" + PROP_EVENTS));
+	pipeline.add(new Document("$replaceRoot", new Document("newRoot", "$" + PROP_EVENTS)));
+	Document eventMatch = new Document();
+	MongoPersistence.addDateSearchCriteria(eventMatch, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+	if (!eventMatch.isEmpty()) {
+	    pipeline.add(new Document("$match", eventMatch));
+	}
+	pipeline.add(new Document("$sort", new Document(MongoDeviceEvent.PROP_EVENT_DATE, -1)));
+
+	List<Document> page = new ArrayList<>();
+	if (criteria.getPageSize() == 0) {
+	    page.add(new Document("$skip", 0));
+	} else {
+	    int offset = Math.max(0, criteria.getPageNumber() - 1) * criteria.getPageSize();
+	    page.add(new Document("$skip", offset));
+	    page.add(new Document("$limit", criteria.getPageSize()));
+	}
+	pipeline.add(new Document("$facet", new Document("results", page).append("total",
+		Arrays.asList(new Document("$count", "count")))));
+
+	try {
+	    Document result = getCollection().aggregate(pipeline).allowDiskUse(true).first();
+	    List<IDeviceMeasurement> matches = new ArrayList<>();
+	    long total = 0;
+	    if (result != null) {
+		for (Document event : (List<Document>) result.get("results")) {
+		    matches.add(MongoDeviceMeasurement.fromDocument(event, false));
+		}
+		List<Document> count = (List<Document>) result.get("total");
+		if (!count.isEmpty()) {
+		    total = ((Number) count.get(0).get("count")).longValue();
+		}
+	    }
+	    return new SearchResults<IDeviceMeasurement>(matches, total);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Aggregate measurements stored in buckets over fixed time windows. Only
+     * buckets that overlap the date range are read. Measurements are unwound and
+     * grouped on the server.
+     *
+     * @param indexField
+     * @param entityIds
+     * @param measurementNames
+     * @param windowMs
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDeviceMeasurementAggregate> aggregate(String indexField, List<UUID> entityIds,
+	    List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	Document bucketMatch = new Document(indexField, new Document("$in", entityIds));
+	if ((measurementNames != null) && (!measurementNames.isEmpty())) {
+	    bucketMatch.append(MongoDeviceMeasurement.PROP_NAME, new Document("$in", measurementNames));
+	}
+	if (criteria.getEndDate() != null) {
+	    bucketMatch.append(PROP_BUCKET_START, new Document("$lte", criteria.getEndDate()));
+	}
+	if (criteria.getStartDate() != null) {
+	    bucketMatch.append(PROP_BUCKET_END, new Document("$gte", criteria.getStartDate()));
+	}
+
+	List<Document> pipeline = new ArrayList<>();
+	pipeline.add(new Document("$match", bucketMatch));
+	pipeline.add(new Document("$unwind", "$" + PROP_EVENTS));
+	pipeline.add(new Document("$replaceRoot", new Document("newRoot", "$" + PROP_EVENTS)));
+	Document eventMatch = new Document();
+	MongoMeasurementAggregation.addMeasurementCriteria(eventMatch, null);
+	MongoPersistence.addDateSearchCriteria(eventMatch, MongoDeviceEvent.PROP_EVENT_DATE, criteria);
+	pipeline.add(new Document("$match", eventMatch));
+	MongoMeasurementAggregation.addGroupStages(pipeline, windowMs);
+	return MongoMeasurementAggregation.aggregate(getCollection(), pipeline, windowMs);
+    }
+
+    /**
+     * Find a measurement in a bucket based on a property of the measurement.
+     * Returns null if not found.
+     *
+     * @param property
+     * @param value
+     * @return
+     * @throws SiteWhereException
+     */
+    @SuppressWarnings("unchecked")
+    public DeviceMeasurement findMeasurement(String property, Object value) throws SiteWhereException {
+	Document query = new Document(PROP_EVENTS + "." + property, value);
+	Document projection = new Document(PROP_EVENTS, new Document("$elemMatch", new Document(property, value)));
+	try {
+	    Document found = getCollection().find(query).projection(projection).first();
+	    if (found == null) {
+		return null;
+	    }
+	    List<Document> events = (List<Document>) found.get(PROP_EVENTS);
+	    if ((events == null) || (events.isEmpty())) {
+		return null;
+	    }
+	    return MongoDeviceMeasurement.fromDocument(events.get(0), false);
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Copy measurements stored as individual documents in the events collection
+     * into buckets. Measurements are copied in chunks ordered by id and are left
+     * in the events collection so that it stays complete until the copy has
+     * finished. Measurements that are already in a bucket are skipped, so an
+     * interrupted copy can be rerun without duplicating measurements.
+     *
+     * @param events
+     * @param chunkSize
+     * @return number of measurements copied, or -1 if interrupted
+     * @throws SiteWhereException
+     */
+    public long migrateFrom(MongoCollection<Document> events, int chunkSize) throws SiteWhereException {
+	Document sort = new Document(MongoDeviceEvent.PROP_ID, 1);
+	Object lastId = null;
+	long total = 0;
+	try {
+	    while (true) {
+		if (Thread.currentThread().isInterrupted()) {
+		    return -1;
+		}
+		Document query = new Document(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+		if (lastId != null) {
+		    query.append(MongoDeviceEvent.PROP_ID, new Document("$gt", lastId));
+		}
+		List<Document> chunk = events.find(query).sort(sort).limit(chunkSize).into(new ArrayList<Document>());
+		if (chunk.isEmpty()) {
+		    break;
+		}
+		lastId = chunk.get(chunk.size() - 1).get(MongoDeviceEvent.PROP_ID);
+		List<Object> ids = new ArrayList<>();
+		for (Document document : chunk) {
+		    ids.add(document.get(MongoDeviceEvent.PROP_ID));
+		}
+		Set<Object> bucketed = getBucketedIds(ids);
+		List<DeviceMeasurement> measurements = new ArrayList<>();
+		for (Document document : chunk) {
+		    if (!bucketed.contains(document.get(MongoDeviceEvent.PROP_ID))) {
+			measurements.add(MongoDeviceMeasurement.fromDocument(document, false));
+		    }
+		}
+		addMeasurements(measurements);
+		total += measurements.size();
+	    }
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+	return total;
+    }
+
+    /**
+     * Indicates whether the events collection contains measurements that are
+     * stored as individual documents.
+     *
+     * @param events
+     * @return
+     * @throws SiteWhereException
+     */
+    public boolean hasUnmigrated(MongoCollection<Document> events) throws SiteWhereException {
+	try {
+	    Document query = new Document(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	    return events.find(query).projection(new Document(MongoDeviceEvent.PROP_ID, 1)).first() != null;
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Remove measurements stored as individual documents from the events
+     * collection once they have been copied into buckets.
+     *
+     * @param events
+     * @return number of measurements removed
+     * @throws SiteWhereException
+     */
+    public long removeMigrated(MongoCollection<Document> events) throws SiteWhereException {
+	try {
+	    Document query = new Document(MongoDeviceEvent.PROP_EVENT_TYPE, DeviceEventType.Measurement.name());
+	    return events.deleteMany(query).getDeletedCount();
+	} catch (MongoClientException e) {
+	    throw MongoPersistence.handleClientException(e);
+	}
+    }
+
+    /**
+     * Get the subset of the given measurement ids that are already stored in a
+     * bucket.
+     *
+     * @param ids
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    protected Set<Object> getBucketedIds(List<Object> ids) {
+	String eventId = PROP_EVENTS + "." + MongoDeviceEvent.PROP_ID;
+	Set<Object> wanted = new HashSet<>(ids);
+	Set<Object> found = new HashSet<>();
+	for (Document bucket : getCollection().find(new Document(eventId, new Document("$in", ids)))
+		.projection(new Document(eventId, 1))) {
+	    List<Document> events = (List<Document>) bucket.get(PROP_EVENTS);
+	    if (events == null) {
+		continue;
+	    }
+	    for (Document event : events) {
+		Object id = event.get(MongoDeviceEvent.PROP_ID);
+		if (wanted.contains(id)) {
+		    found.add(id);
+		}
+	    }
+	}
+	return found;
+    }
+
+    /**
+     * Get start of the bucket window that contains the given date.
+     *
+     * @param date
+     * @return
+     */
+    protected long getWindowStart(Date date) {
+	long time = date.getTime();
+	return time - Math.floorMod(time, getWindowMs());
+    }
+
+    public MongoCollection<Document> getCollection() {
+	return collection;
+    }
+
+    public long getWindowMs() {
+	return windowMs;
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.xml.AbstractBeanDefinitionParser;
 import org.springframework.beans.factory.xml.ParserContext;
 import org.springframework.util.xml.DomUtils;
+import org.w3c.dom.Attr;
 import org.w3c.dom.Element;
 
 import com.sitewhere.cassandra.CassandraClient;
@@ -79,6 +80,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(MongoDeviceEventManagement.class);
 	    management.addPropertyReference("mongoClient", EventManagementBeans.BEAN_MONGODB_CLIENT);
+	    parseMeasurementBucketAttributes((Element) element.getParentNode(), management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -94,6 +96,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(MongoDeviceEventManagement.class);
 	    management.addPropertyReference("mongoClient", EventManagementBeans.BEAN_MONGODB_CLIENT);
+	    parseMeasurementBucketAttributes((Element) element.getParentNode(), management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -136,6 +139,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(CassandraDeviceEventManagement.class);
 	    management.addPropertyReference("client", EventManagementBeans.BEAN_CASSANDRA_CLIENT);
+	    parseCassandraWriteAttributes((Element) element.getParentNode(), management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -150,6 +154,7 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	    BeanDefinitionBuilder management = BeanDefinitionBuilder
 		    .rootBeanDefinition(CassandraDeviceEventManagement.class);
 	    management.addPropertyReference("client", EventManagementBeans.BEAN_CASSANDRA_CLIENT);
+	    parseCassandraWriteAttributes((Element) element.getParentNode(), management);
 
 	    context.getRegistry().registerBeanDefinition(EventManagementBeans.BEAN_EVENT_MANAGEMENT,
 		    management.getBeanDefinition());
@@ -160,4 +165,40 @@ public class EventManagementParser extends AbstractBeanDefinitionParser {
 	}
 	}
     }
+
+    /**
+     * Parse attributes that control bucketed measurement storage for MongoDB.
+     * 
+     * @param element
+     * @param management
+     */
+    protected void parseMeasurementBucketAttributes(Element element, BeanDefinitionBuilder management) {
+	Attr useMeasurementBuckets = element.getAttributeNode("useMeasurementBuckets");
+	if (useMeasurementBuckets != null) {
+	    management.addPropertyValue("useMeasurementBuckets", useMeasurementBuckets.getValue());
+	}
+
+	Attr measurementBucketMinutes = element.getAttributeNode("measurementBucketMinutes");
+	if (measurementBucketMinutes != null) {
+	    management.addPropertyValue("measurementBucketMinutes", measurementBucketMinutes.getValue());
+	}
+
+	Attr migrateMeasurementsToBuckets = element.getAttributeNode("migrateMeasurementsToBuckets");
+	if (migrateMeasurementsToBuckets != null) {
+	    management.addPropertyValue("migrateMeasurementsToBuckets", migrateMeasurementsToBuckets.getValue());
+	}
+    }
+
+    /**
+     * Parse attributes that control asynchronous writes for Cassandra.
+     * 
+     * @param element
+     * @param management
+     */
+    protected void parseCassandraWriteAttributes(Element element, BeanDefinitionBuilder management) {
+	Attr maxWritesInFlight = element.getAttributeNode("maxWritesInFlight");
+	if (maxWritesInFlight != null) {
+	    management.addPropertyValue("maxWritesInFlight", maxWritesInFlight.getValue());
+	}
+    }
 }
\ No newline at end of file
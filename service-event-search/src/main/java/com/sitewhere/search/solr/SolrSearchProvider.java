@@ -9,18 +9,24 @@ package com.sitewhere.search.solr;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.solr.client.solrj.SolrQuery;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.StreamingResponseCallback;
 import org.apache.solr.client.solrj.impl.NoOpResponseParser;
 import org.apache.solr.client.solrj.request.QueryRequest;
 import org.apache.solr.client.solrj.response.QueryResponse;
 import org.apache.solr.client.solrj.response.SolrPingResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
 import org.apache.solr.common.params.ModifiableSolrParams;
 import org.apache.solr.common.params.SolrParams;
 import org.apache.solr.common.util.NamedList;
@@ -30,12 +36,15 @@ import org.springframework.web.util.UriComponentsBuilder;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sitewhere.configuration.instance.solr.SolrConfiguration;
+import com.sitewhere.rest.model.search.external.CursorSearchResults;
 import com.sitewhere.server.lifecycle.LifecycleComponent;
+import com.sitewhere.solr.ISolrFields;
 import com.sitewhere.solr.SiteWhereSolrFactory;
 import com.sitewhere.solr.SolrConnection;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 import com.sitewhere.spi.device.event.IDeviceLocation;
+import com.sitewhere.spi.search.ICursorSearchResults;
 import com.sitewhere.spi.search.IDateRangeSearchCriteria;
 import com.sitewhere.spi.search.IDeviceEventSearchProvider;
 import com.sitewhere.spi.search.ISearchProvider;
@@ -53,6 +62,16 @@ public class SolrSearchProvider extends LifecycleComponent implements IDeviceEve
     /** Name returned for provider */
     private static final String DEFAULT_NAME = "Solr Search Provider";
 
+    /** Max number of events returned in a page */
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    /** Response format understood by the streaming parser */
+    private static final String JAVABIN = "javabin";
+
+    /** Fields always loaded so that typed events can be created */
+    private static final List<String> REQUIRED_FIELDS = Arrays.asList(ISolrFields.EVENT_TYPE, ISolrFields.EVENT_ID,
+	    ISolrFields.LOCATION, ISolrFields.ALERT_LEVEL, ISolrFields.ALERT_SOURCE);
+
     /** Provider id */
     private String id;
 
@@ -141,6 +160,67 @@ public class SolrSearchProvider extends LifecycleComponent implements IDeviceEve
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.search.IDeviceEventSearchProvider#executeQueryPage(java.
+     * lang.String, java.lang.String, int, java.util.List)
+     */
+    @Override
+    public ICursorSearchResults<IDeviceEvent> executeQueryPage(String queryString, String cursor, int pageSize,
+	    List<String> fields) throws SiteWhereException {
+	if ((pageSize < 1) || (pageSize > MAX_PAGE_SIZE)) {
+	    throw new SiteWhereException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+	}
+	String cursorMark = (cursor != null) ? cursor : CursorMarkParams.CURSOR_MARK_START;
+	try {
+	    getLogger().debug("About to execute Solr paged search with query string: " + queryString);
+	    SolrQuery query = new SolrQuery();
+	    query.setQuery(queryString);
+	    query.setRows(pageSize);
+	    query.setSort(SolrQuery.SortClause.desc(ISolrFields.EVENT_DATE));
+	    query.addSort(SolrQuery.SortClause.asc(ISolrFields.EVENT_ID));
+	    query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+	    query.set(CommonParams.WT, JAVABIN);
+	    if ((fields != null) && (!fields.isEmpty())) {
+		query.setFields(getProjection(fields));
+	    }
+
+	    // Convert documents as they are read rather than holding the list.
+	    EventStreamingCallback callback = new EventStreamingCallback(pageSize);
+	    QueryResponse response = getSolrConnection().getSolrClient().queryAndStreamResponse(query, callback);
+	    if (callback.getError() != null) {
+		throw callback.getError();
+	    }
+
+	    // Cursor is unchanged once all results have been returned.
+	    String next = response.getNextCursorMark();
+	    if ((next == null) || (next.equals(cursorMark)) || (callback.getEvents().size() < pageSize)) {
+		next = null;
+	    }
+	    return new CursorSearchResults<IDeviceEvent>(callback.getEvents(), callback.getNumFound(), next);
+	} catch (SolrServerException e) {
+	    throw new SiteWhereException("Unable to execute query.", e);
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to execute query.", e);
+	}
+    }
+
+    /**
+     * Get fields to load, adding those required to create typed events.
+     * 
+     * @param fields
+     * @return
+     */
+    protected String[] getProjection(List<String> fields) {
+	Set<String> projection = new LinkedHashSet<String>(REQUIRED_FIELDS);
+	for (String field : fields) {
+	    if ((field != null) && (!field.trim().isEmpty())) {
+		projection.add(field.trim());
+	    }
+	}
+	return projection.toArray(new String[0]);
+    }
+
     /*
      * @see com.sitewhere.spi.search.IDeviceEventSearchProvider#
      * executeQueryWithRawResponse(java.lang.String)
@@ -191,6 +271,63 @@ public class SolrSearchProvider extends LifecycleComponent implements IDeviceEve
 	}
     }
 
+    /**
+     * Converts documents to events as they are streamed from Solr.
+     */
+    private static class EventStreamingCallback extends StreamingResponseCallback {
+
+	/** Events converted from documents */
+	private List<IDeviceEvent> events;
+
+	/** Total number of matching documents */
+	private long numFound;
+
+	/** First error converting a document */
+	private SiteWhereException error;
+
+	public EventStreamingCallback(int pageSize) {
+	    this.events = new ArrayList<IDeviceEvent>(pageSize);
+	}
+
+	/*
+	 * @see org.apache.solr.client.solrj.StreamingResponseCallback#
+	 * streamSolrDocument(org.apache.solr.common.SolrDocument)
+	 */
+	@Override
+	public void streamSolrDocument(SolrDocument doc) {
+	    if (error != null) {
+		return;
+	    }
+	    try {
+		events.add(SiteWhereSolrFactory.parseDocument(doc));
+	    } catch (SiteWhereException e) {
+		this.error = e;
+	    }
+	}
+
+	/*
+	 * @see
+	 * org.apache.solr.client.solrj.StreamingResponseCallback#streamDocListInfo(
+	 * long, long, java.lang.Float)
+	 */
+	@Override
+	public void streamDocListInfo(long numFound, long start, Float maxScore) {
+	    this.numFound = numFound;
+	}
+
+	public List<IDeviceEvent> getEvents() {
+	    return events;
+	}
+
+	public long getNumFound() {
+	    return numFound;
+	}
+
+	public SiteWhereException getError() {
+	    return error;
+	}
+    }
+
     /*
      * (non-Javadoc)
      * 
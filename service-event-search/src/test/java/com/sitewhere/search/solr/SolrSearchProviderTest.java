@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.search.solr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
+import org.apache.solr.common.SolrInputDocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sitewhere.solr.ISolrFields;
+import com.sitewhere.solr.SolrConnection;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.search.ICursorSearchResults;
+
+public class SolrSearchProviderTest {
+
+    /** Number of measurement documents indexed */
+    private static final int DOCUMENT_COUNT = 25;
+
+    /** Number of documents that share each event date */
+    private static final int PER_DATE = 3;
+
+    /** Embedded Solr server */
+    private EmbeddedSolrServer server;
+
+    /** Provider under test */
+    private SolrSearchProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+	this.server = new EmbeddedSolrServer(Paths.get(getClass().getResource("/solr").toURI()), "events");
+	server.deleteByQuery("*:*");
+	List<SolrInputDocument> docs = new ArrayList<SolrInputDocument>();
+	for (int i = 0; i < DOCUMENT_COUNT; i++) {
+	    SolrInputDocument doc = new SolrInputDocument();
+	    doc.addField(ISolrFields.EVENT_ID, UUID.randomUUID().toString());
+	    doc.addField(ISolrFields.EVENT_TYPE, "Measurement");
+	    doc.addField(ISolrFields.DEVICE_ID, UUID.randomUUID().toString());
+	    doc.addField(ISolrFields.EVENT_DATE, new Date(1000000L + (i / PER_DATE) * 1000L));
+	    doc.addField(ISolrFields.MX_NAME, (i % 2 == 0) ? "temp" : "humidity");
+	    doc.addField(ISolrFields.MX_VALUE, (double) i);
+	    docs.add(doc);
+	}
+	server.add(docs);
+	server.commit();
+
+	SolrConnection connection = new SolrConnection(null);
+	connection.setSolrClient(server);
+	this.provider = new SolrSearchProvider();
+	provider.setSolrConnection(connection);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+	server.close();
+    }
+
+    @Test
+    public void testPagesCoverAllEventsOnceInOrder() throws SiteWhereException {
+	Set<UUID> seen = new HashSet<UUID>();
+	List<IDeviceEvent> all = new ArrayList<IDeviceEvent>();
+	String cursor = null;
+	int pages = 0;
+	do {
+	    ICursorSearchResults<IDeviceEvent> page = provider.executeQueryPage("*:*", cursor, 10, null);
+	    assertEquals(DOCUMENT_COUNT, page.getNumResults());
+	    for (IDeviceEvent event : page.getResults()) {
+		assertNotNull(event.getId());
+		assertTrue("Event returned twice.", seen.add(event.getId()));
+		all.add(event);
+	    }
+	    cursor = page.getNextCursor();
+	    pages++;
+	} while (cursor != null);
+
+	assertEquals(3, pages);
+	assertEquals(DOCUMENT_COUNT, all.size());
+	for (int i = 1; i < all.size(); i++) {
+	    IDeviceEvent previous = all.get(i - 1);
+	    IDeviceEvent current = all.get(i);
+	    int byDate = current.getEventDate().compareTo(previous.getEventDate());
+	    assertTrue("Events not ordered by date.", byDate <= 0);
+	    if (byDate == 0) {
+		assertTrue("Events with same date not ordered by id.",
+			previous.getId().toString().compareTo(current.getId().toString()) < 0);
+	    }
+	}
+    }
+
+    @Test
+    public void testQueryMatchesExecuteQuery() throws SiteWhereException {
+	String query = "mxName:temp AND mxValue:[0 TO 10]";
+	ICursorSearchResults<IDeviceEvent> page = provider.executeQueryPage(query, null, 100, null);
+	List<IDeviceEvent> unpaged = provider.executeQuery(query);
+	assertEquals(6, page.getNumResults());
+	assertEquals(6, page.getResults().size());
+	assertNull(page.getNextCursor());
+	Set<UUID> pagedIds = new HashSet<UUID>();
+	for (IDeviceEvent event : page.getResults()) {
+	    assertEquals("temp", ((IDeviceMeasurement) event).getName());
+	    pagedIds.add(event.getId());
+	}
+	Set<UUID> unpagedIds = new HashSet<UUID>();
+	for (IDeviceEvent event : unpaged) {
+	    unpagedIds.add(event.getId());
+	}
+	assertEquals(unpagedIds, pagedIds);
+    }
+
+    @Test
+    public void testProjectionLoadsRequestedAndRequiredFields() throws SiteWhereException {
+	ICursorSearchResults<IDeviceEvent> page = provider.executeQueryPage("*:*", null, 5,
+		Collections.singletonList(ISolrFields.MX_VALUE));
+	assertEquals(5, page.getResults().size());
+	for (IDeviceEvent event : page.getResults()) {
+	    IDeviceMeasurement mx = (IDeviceMeasurement) event;
+	    assertNotNull(mx.getId());
+	    assertNotNull(mx.getValue());
+	    assertNull(mx.getName());
+	    assertNull(mx.getDeviceId());
+	}
+    }
+
+    @Test
+    public void testPageSizeIsBounded() {
+	try {
+	    provider.executeQueryPage("*:*", null, SolrSearchProvider.MAX_PAGE_SIZE + 1, null);
+	    fail("Expected page size to be rejected.");
+	} catch (SiteWhereException e) {
+	    // Expected.
+	}
+    }
+}
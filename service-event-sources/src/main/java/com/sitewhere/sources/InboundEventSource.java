@@ -12,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 
 import com.codahale.metrics.Meter;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.sources.spi.EventDecodeException;
 import com.sitewhere.sources.spi.IDecodedDeviceRequest;
@@ -25,6 +26,8 @@ import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
+import io.grpc.Context;
+
 /**
  * Default implementation of {@link IInboundEventSource}.
  * 
@@ -187,14 +190,22 @@ public abstract class InboundEventSource<T> extends TenantEngineLifecycleCompone
      */
     @Override
     public void onEncodedEventReceived(IInboundEventReceiver<T> receiver, T encoded, Map<String, Object> metadata) {
-	List<IDecodedDeviceRequest<?>> requests = decodeEvent(encoded, metadata);
-	if (requests != null) {
-	    for (IDecodedDeviceRequest<?> decoded : requests) {
-		getDecodedEvents().mark();
-		if (shouldProcess(decoded)) {
-		    handleDecodedRequest(encoded, metadata, decoded);
+	// Start timing envelope that travels with decoded events.
+	Context context = EventTimingEnvelope
+		.contextFor(EventTimingEnvelope.start(EventTimingEnvelope.STAGE_RECEIVED));
+	Context previous = context.attach();
+	try {
+	    List<IDecodedDeviceRequest<?>> requests = decodeEvent(encoded, metadata);
+	    if (requests != null) {
+		for (IDecodedDeviceRequest<?> decoded : requests) {
+		    getDecodedEvents().mark();
+		    if (shouldProcess(decoded)) {
+			handleDecodedRequest(encoded, metadata, decoded);
+		    }
 		}
 	    }
+	} finally {
+	    context.detach(previous);
 	}
     }
 
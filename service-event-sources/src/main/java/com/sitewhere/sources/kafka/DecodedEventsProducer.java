@@ -7,6 +7,7 @@
  */
 package com.sitewhere.sources.kafka;
 
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.microservice.kafka.AckPolicy;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
 import com.sitewhere.spi.SiteWhereException;
@@ -31,4 +32,13 @@ public class DecodedEventsProducer extends MicroserviceKafkaProducer {
     public String getTargetTopicName() throws SiteWhereException {
 	return getMicroservice().getKafkaTopicNaming().getEventSourceDecodedEventsTopic(getTenantEngine().getTenant());
     }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaProducer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_DECODED;
+    }
 }
\ No newline at end of file
@@ -17,6 +17,7 @@ import org.apache.kafka.clients.consumer.OffsetAndMetadata;
 import org.apache.kafka.clients.consumer.OffsetCommitCallback;
 import org.apache.kafka.common.TopicPartition;
 
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.inbound.processing.InboundPayloadProcessingLogic;
 import com.sitewhere.inbound.spi.kafka.IDecodedEventsConsumer;
 import com.sitewhere.inbound.spi.processing.IInboundPayloadProcessingLogic;
@@ -70,6 +71,15 @@ public class DecodedEventsConsumer extends MicroserviceKafkaConsumer implements
 	return getMicroservice().getKafkaTopicNaming().getTenantPrefix(getTenantEngine().getTenant()) + GROUP_ID_SUFFIX;
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_INBOUND_PROCESSING;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
      * getSourceTopicNames()
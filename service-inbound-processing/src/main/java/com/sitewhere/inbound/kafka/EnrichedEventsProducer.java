@@ -7,6 +7,7 @@
  */
 package com.sitewhere.inbound.kafka;
 
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.inbound.spi.kafka.IEnrichedEventsProducer;
 import com.sitewhere.microservice.kafka.AckPolicy;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaProducer;
@@ -32,4 +33,13 @@ public class EnrichedEventsProducer extends MicroserviceKafkaProducer implements
     public String getTargetTopicName() throws SiteWhereException {
 	return getMicroservice().getKafkaTopicNaming().getInboundEnrichedEventsTopic(getTenantEngine().getTenant());
     }
+
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaProducer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_ENRICHED;
+    }
 }
\ No newline at end of file
@@ -21,6 +21,7 @@ import org.apache.kafka.common.TopicPartition;
 import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.grpc.model.DeviceEventModel.GPersistedEventPayload;
 import com.sitewhere.inbound.processing.OutboundPayloadEnrichmentLogic;
 import com.sitewhere.inbound.spi.kafka.IPersistedEventsConsumer;
@@ -32,6 +33,8 @@ import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
+import io.grpc.Context;
+
 /**
  * Listens on Kafka topic for events that have been persisted via the event
  * management APIs.
@@ -73,6 +76,15 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
 	return getMicroservice().getKafkaTopicNaming().getTenantPrefix(getTenantEngine().getTenant()) + GROUP_ID_SUFFIX;
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.STAGE_ENRICHMENT;
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
      * getSourceTopicNames()
@@ -133,12 +145,12 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
     public void attemptToProcess(TopicPartition topicPartition, List<ConsumerRecord<String, byte[]>> records)
 	    throws SiteWhereException {
 	for (ConsumerRecord<String, byte[]> record : records) {
-	    received(record.key(), record.value());
+	    received(record.key(), record.value(), EventTimingEnvelope.from(record.headers()));
 	}
     }
 
-    public void received(String key, byte[] message) throws SiteWhereException {
-	executor.execute(new PersistedEventPayloadProcessor(getTenantEngine(), message));
+    public void received(String key, byte[] message, EventTimingEnvelope timing) throws SiteWhereException {
+	executor.execute(new PersistedEventPayloadProcessor(getTenantEngine(), message, timing));
     }
 
     public OutboundPayloadEnrichmentLogic getOutboundPayloadEnrichmentLogic() {
@@ -159,9 +171,14 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
 	/** Encoded payload */
 	private byte[] encoded;
 
-	public PersistedEventPayloadProcessor(IMicroserviceTenantEngine tenantEngine, byte[] encoded) {
+	/** Event timing envelope (may be null) */
+	private EventTimingEnvelope timing;
+
+	public PersistedEventPayloadProcessor(IMicroserviceTenantEngine tenantEngine, byte[] encoded,
+		EventTimingEnvelope timing) {
 	    super(tenantEngine.getMicroservice(), tenantEngine.getTenant());
 	    this.encoded = encoded;
+	    this.timing = timing;
 	}
 
 	/*
@@ -177,7 +194,13 @@ public class PersistedEventsConsumer extends DirectKafkaConsumer implements IPer
 		    getLogger().debug(
 			    "Received persisted event payload:\n\n" + MarshalUtils.marshalJsonAsPrettyString(payload));
 		}
-		getOutboundPayloadEnrichmentLogic().process(grpc);
+		Context context = EventTimingEnvelope.contextFor(timing);
+		Context previous = context.attach();
+		try {
+		    getOutboundPayloadEnrichmentLogic().process(grpc);
+		} finally {
+		    context.detach(previous);
+		}
 	    } catch (SiteWhereException e) {
 		getLogger().error("Unable to parse persisted event payload.", e);
 	    }
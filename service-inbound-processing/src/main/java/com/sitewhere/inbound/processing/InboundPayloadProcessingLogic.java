@@ -20,6 +20,7 @@ import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.event.BlockingDeviceEventManagement;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
 import com.sitewhere.inbound.spi.kafka.IDecodedEventsConsumer;
 import com.sitewhere.inbound.spi.kafka.IUnregisteredEventsProducer;
@@ -27,6 +28,7 @@ import com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
 import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
 import com.sitewhere.inbound.spi.processing.IInboundPayloadProcessingLogic;
+import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
 import com.sitewhere.microservice.security.SystemUserRunnable;
 import com.sitewhere.rest.model.device.event.kafka.InboundEventPayload;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
@@ -37,6 +39,8 @@ import com.sitewhere.spi.device.IDeviceManagement;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
+import io.grpc.Context;
+
 /**
  * Processing logic which verifies that an incoming event belongs to a
  * registered device. If the event does not belong to a registered device, it is
@@ -93,8 +97,14 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
 	this.deviceLookupTimer = createTimerMetric("deviceLookup");
 	this.assignmentLookupTimer = createTimerMetric("assignmentLookup");
 	this.eventStorageTimer = createTimerMetric("eventStorage");
-	this.eventStorageStrategy = new UnaryEventStorageStrategy((IInboundProcessingTenantEngine) getTenantEngine(),
-		this);
+	IInboundProcessingConfiguration configuration = getDecodedEventsConsumer().getInboundProcessingConfiguration();
+	if (configuration.getEventStorageBatchSize() > 1) {
+	    this.eventStorageStrategy = new StreamingEventStorageStrategy(
+		    (IInboundProcessingTenantEngine) getTenantEngine(), this, configuration);
+	} else {
+	    this.eventStorageStrategy = new UnaryEventStorageStrategy(
+		    (IInboundProcessingTenantEngine) getTenantEngine(), this);
+	}
     }
 
     /*
@@ -111,6 +121,7 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
 	}
 	this.inboundProcessorsExecutor = Executors.newFixedThreadPool(
 		getDecodedEventsConsumer().getInboundProcessingConfiguration().getProcessingThreadCount());
+	getEventStorageStrategy().start();
     }
 
     /*
@@ -123,6 +134,9 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
 	if (getInboundProcessorsExecutor() != null) {
 	    getInboundProcessorsExecutor().shutdownNow();
 	}
+	if (getEventStorageStrategy() != null) {
+	    getEventStorageStrategy().stop();
+	}
 	super.stop(monitor);
     }
 
@@ -264,7 +278,14 @@ public class InboundPayloadProcessingLogic extends TenantEngineLifecycleComponen
 
 	@Override
 	public void runAsSystemUser() throws SiteWhereException {
-	    processRecord(record);
+	    // Make timing envelope available to event management calls.
+	    Context context = EventTimingEnvelope.contextFor(EventTimingEnvelope.from(record.headers()));
+	    Context previous = context.attach();
+	    try {
+		processRecord(record);
+	    } finally {
+		context.detach(previous);
+	    }
 	}
     }
 
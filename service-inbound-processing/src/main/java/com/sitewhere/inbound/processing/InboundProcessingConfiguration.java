@@ -19,6 +19,12 @@ public class InboundProcessingConfiguration implements IInboundProcessingConfigu
     /** Number of threads used for processing decoded events */
     private int processingThreadCount = 25;
 
+    /** Maximum number of events stored in a single call */
+    private int eventStorageBatchSize = 1;
+
+    /** Maximum number of event storage batches in flight */
+    private int eventStorageWindowSize = 10;
+
     /*
      * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
      * getProcessingThreadCount()
@@ -31,4 +37,30 @@ public class InboundProcessingConfiguration implements IInboundProcessingConfigu
     public void setProcessingThreadCount(int processingThreadCount) {
 	this.processingThreadCount = processingThreadCount;
     }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getEventStorageBatchSize()
+     */
+    @Override
+    public int getEventStorageBatchSize() {
+	return eventStorageBatchSize;
+    }
+
+    public void setEventStorageBatchSize(int eventStorageBatchSize) {
+	this.eventStorageBatchSize = eventStorageBatchSize;
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration#
+     * getEventStorageWindowSize()
+     */
+    @Override
+    public int getEventStorageWindowSize() {
+	return eventStorageWindowSize;
+    }
+
+    public void setEventStorageWindowSize(int eventStorageWindowSize) {
+	this.eventStorageWindowSize = eventStorageWindowSize;
+    }
 }
\ No newline at end of file
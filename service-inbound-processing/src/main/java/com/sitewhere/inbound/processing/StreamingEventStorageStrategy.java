@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.inbound.processing;
+
+import com.sitewhere.grpc.client.event.DeviceEventIngestStream;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload;
+import com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingMicroservice;
+import com.sitewhere.inbound.spi.microservice.IInboundProcessingTenantEngine;
+import com.sitewhere.inbound.spi.processing.IInboundProcessingConfiguration;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceAssignment;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+
+/**
+ * Event storage strategy that streams events to event management, coalescing
+ * events for the same assignment into batches so that many events share a
+ * single GRPC call.
+ *
+ * @author Derek
+ */
+public class StreamingEventStorageStrategy implements IInboundEventStorageStrategy {
+
+    /** Maximum time an event waits for its batch to fill */
+    private static final long LINGER_MS = 50;
+
+    /** Handle to inbound processing tenant engine */
+    private IInboundProcessingTenantEngine tenantEngine;
+
+    /** Get processing logic */
+    private InboundPayloadProcessingLogic inboundPayloadProcessingLogic;
+
+    /** Inbound processing configuration */
+    private IInboundProcessingConfiguration configuration;
+
+    /** Stream used to send events */
+    private DeviceEventIngestStream ingestStream;
+
+    public StreamingEventStorageStrategy(IInboundProcessingTenantEngine tenantEngine,
+	    InboundPayloadProcessingLogic inboundPayloadProcessingLogic, IInboundProcessingConfiguration configuration) {
+	this.tenantEngine = tenantEngine;
+	this.inboundPayloadProcessingLogic = inboundPayloadProcessingLogic;
+	this.configuration = configuration;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#start()
+     */
+    @Override
+    public void start() throws SiteWhereException {
+	this.ingestStream = ((IInboundProcessingMicroservice) getTenantEngine().getMicroservice())
+		.getDeviceEventManagementApiDemux().createEventIngestStream(getConfiguration().getEventStorageBatchSize(),
+			LINGER_MS, getConfiguration().getEventStorageWindowSize());
+	getIngestStream().start();
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#stop()
+     */
+    @Override
+    public void stop() throws SiteWhereException {
+	if (getIngestStream() != null) {
+	    getIngestStream().stop();
+	}
+    }
+
+    /*
+     * @see com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#
+     * storeDeviceEvent(com.sitewhere.spi.device.IDeviceAssignment,
+     * com.sitewhere.grpc.model.DeviceEventModel.GInboundEventPayload)
+     */
+    @Override
+    public void storeDeviceEvent(IDeviceAssignment assignment, GInboundEventPayload payload) throws SiteWhereException {
+	IDeviceEventCreateRequest request = EventModelConverter.asApiDeviceEventCreateRequest(payload.getEvent());
+	getIngestStream().send(assignment.getId(), payload.getDeviceToken(), request,
+		new AlertHandlerStreamObserver<IDeviceEvent>(getInboundPayloadProcessingLogic()));
+    }
+
+    protected IInboundProcessingTenantEngine getTenantEngine() {
+	return tenantEngine;
+    }
+
+    protected InboundPayloadProcessingLogic getInboundPayloadProcessingLogic() {
+	return inboundPayloadProcessingLogic;
+    }
+
+    protected IInboundProcessingConfiguration getConfiguration() {
+	return configuration;
+    }
+
+    protected DeviceEventIngestStream getIngestStream() {
+	return ingestStream;
+    }
+}
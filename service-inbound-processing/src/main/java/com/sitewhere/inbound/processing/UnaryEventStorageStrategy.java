@@ -44,6 +44,22 @@ public class UnaryEventStorageStrategy implements IInboundEventStorageStrategy {
 	this.inboundPayloadProcessingLogic = inboundPayloadProcessingLogic;
     }
 
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#start()
+     */
+    @Override
+    public void start() throws SiteWhereException {
+    }
+
+    /*
+     * @see
+     * com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#stop()
+     */
+    @Override
+    public void stop() throws SiteWhereException {
+    }
+
     /*
      * @see com.sitewhere.inbound.spi.microservice.IInboundEventStorageStrategy#
      * storeDeviceEvent(com.sitewhere.spi.device.IDeviceAssignment,
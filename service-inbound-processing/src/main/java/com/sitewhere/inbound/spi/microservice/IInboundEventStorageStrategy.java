@@ -18,6 +18,20 @@ import com.sitewhere.spi.device.IDeviceAssignment;
  */
 public interface IInboundEventStorageStrategy {
 
+    /**
+     * Start any resources used by the strategy.
+     * 
+     * @throws SiteWhereException
+     */
+    public void start() throws SiteWhereException;
+
+    /**
+     * Stop the strategy, storing any pending events.
+     * 
+     * @throws SiteWhereException
+     */
+    public void stop() throws SiteWhereException;
+
     /**
      * Store a device event.
      * 
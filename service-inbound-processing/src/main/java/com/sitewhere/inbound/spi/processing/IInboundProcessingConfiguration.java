@@ -21,4 +21,20 @@ public interface IInboundProcessingConfiguration {
      * @return
      */
     public int getProcessingThreadCount();
+
+    /**
+     * Get maximum number of events coalesced into a single call to event
+     * management. A value of one stores each event with its own unary call.
+     * 
+     * @return
+     */
+    public int getEventStorageBatchSize();
+
+    /**
+     * Get maximum number of event storage batches in flight before inbound
+     * processing blocks.
+     * 
+     * @return
+     */
+    public int getEventStorageWindowSize();
 }
\ No newline at end of file
@@ -48,6 +48,16 @@ public class InboundProcessingParser extends AbstractBeanDefinitionParser {
 	    config.addPropertyValue("processingThreadCount", processingThreadCount.getValue());
 	}
 
+	Attr eventStorageBatchSize = element.getAttributeNode("eventStorageBatchSize");
+	if (eventStorageBatchSize != null) {
+	    config.addPropertyValue("eventStorageBatchSize", eventStorageBatchSize.getValue());
+	}
+
+	Attr eventStorageWindowSize = element.getAttributeNode("eventStorageWindowSize");
+	if (eventStorageWindowSize != null) {
+	    config.addPropertyValue("eventStorageWindowSize", eventStorageWindowSize.getValue());
+	}
+
 	context.getRegistry().registerBeanDefinition(InboundProcessingBeans.BEAN_INBOUND_PROCESSING_CONFIGURATION,
 		config.getBeanDefinition());
 
@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.labels.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.codahale.metrics.Meter;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent;
+
+/**
+ * Content-addressed cache of rendered label images. Keys are hashes of
+ * everything that affects the rendered image, so a change to an entity
+ * identifier or generator setting results in a new key rather than a stale
+ * hit. Images are held in a heap tier bounded by total size, backed by a disk
+ * tier bounded by number of entries. Least recently used entries are evicted
+ * from each tier independently.
+ * 
+ * @author Derek
+ */
+public class RenderedLabelCache {
+
+    /** Default max bytes held on heap */
+    public static final long DEFAULT_MAX_HEAP_BYTES = 16 * 1024 * 1024;
+
+    /** Default max number of images held on disk */
+    public static final int DEFAULT_MAX_DISK_ENTRIES = 100000;
+
+    /** Suffix for cached image files */
+    private static final String FILE_SUFFIX = ".png";
+
+    /** Component that owns the cache */
+    private ITenantEngineLifecycleComponent component;
+
+    /** Directory for disk tier */
+    private File directory;
+
+    /** Max bytes held on heap */
+    private long maxHeapBytes;
+
+    /** Max number of images held on disk */
+    private int maxDiskEntries;
+
+    /** Heap tier in access order */
+    private LinkedHashMap<String, byte[]> heap = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+
+    /** Bytes currently held on heap */
+    private long heapBytes = 0;
+
+    /** Keys of images on disk in access order */
+    private LinkedHashMap<String, Boolean> disk = new LinkedHashMap<String, Boolean>(16, 0.75f, true);
+
+    /** Rate of heap tier hits */
+    private Meter heapHits;
+
+    /** Rate of disk tier hits */
+    private Meter diskHits;
+
+    /** Rate of misses */
+    private Meter misses;
+
+    public RenderedLabelCache(ITenantEngineLifecycleComponent component, String metricPrefix, File directory,
+	    long maxHeapBytes, int maxDiskEntries) {
+	this.component = component;
+	this.directory = directory;
+	this.maxHeapBytes = maxHeapBytes;
+	this.maxDiskEntries = maxDiskEntries;
+	this.heapHits = component.createMeterMetric(metricPrefix + "cacheHeapHits");
+	this.diskHits = component.createMeterMetric(metricPrefix + "cacheDiskHits");
+	this.misses = component.createMeterMetric(metricPrefix + "cacheMisses");
+    }
+
+    /**
+     * Create the disk directory and index images left by a previous run, oldest
+     * first so that they are evicted first.
+     * 
+     * @throws SiteWhereException
+     */
+    public void initialize() throws SiteWhereException {
+	if (!getDirectory().exists() && !getDirectory().mkdirs()) {
+	    throw new SiteWhereException("Unable to create label cache directory: " + getDirectory());
+	}
+	File[] files = getDirectory().listFiles();
+	if (files == null) {
+	    return;
+	}
+	Arrays.sort(files, new Comparator<File>() {
+
+	    @Override
+	    public int compare(File o1, File o2) {
+		return Long.compare(o1.lastModified(), o2.lastModified());
+	    }
+	});
+	synchronized (disk) {
+	    for (File file : files) {
+		String name = file.getName();
+		if (name.endsWith(FILE_SUFFIX)) {
+		    disk.put(name.substring(0, name.length() - FILE_SUFFIX.length()), Boolean.TRUE);
+		}
+	    }
+	}
+	evictFromDisk();
+	component.getLogger().info("Label cache indexed " + files.length + " files in " + getDirectory() + ".");
+    }
+
+    /**
+     * Create a cache key from the values that determine a rendered image.
+     * 
+     * @param parts
+     * @return
+     * @throws SiteWhereException
+     */
+    public static String createKey(Object... parts) throws SiteWhereException {
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+	    for (Object part : parts) {
+		digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	    }
+	    StringBuilder key = new StringBuilder();
+	    for (byte b : digest.digest()) {
+		key.append(String.format("%02x", b));
+	    }
+	    return key.toString();
+	} catch (NoSuchAlgorithmException e) {
+	    throw new SiteWhereException("Unable to create label cache key.", e);
+	}
+    }
+
+    /**
+     * Get an image from the cache, checking the heap tier then the disk tier.
+     * Images found on disk are promoted to the heap tier.
+     * 
+     * @param key
+     * @return image or null if not cached
+     */
+    public byte[] get(String key) {
+	synchronized (heap) {
+	    byte[] content = heap.get(key);
+	    if (content != null) {
+		heapHits.mark();
+		return content;
+	    }
+	}
+	boolean onDisk;
+	synchronized (disk) {
+	    onDisk = disk.get(key) != null;
+	}
+	if (onDisk) {
+	    try {
+		byte[] content = Files.readAllBytes(getFile(key).toPath());
+		diskHits.mark();
+		putOnHeap(key, content);
+		return content;
+	    } catch (IOException e) {
+		synchronized (disk) {
+		    disk.remove(key);
+		}
+		component.getLogger().warn("Unable to read cached label. Removed from cache.", e);
+	    }
+	}
+	misses.mark();
+	return null;
+    }
+
+    /**
+     * Add an image to both tiers.
+     * 
+     * @param key
+     * @param content
+     */
+    public void put(String key, byte[] content) {
+	putOnHeap(key, content);
+	putOnDisk(key, content);
+    }
+
+    /**
+     * Get ratio of hits to requests over the last minute.
+     * 
+     * @return
+     */
+    public double getHitRatio() {
+	double hits = heapHits.getOneMinuteRate() + diskHits.getOneMinuteRate();
+	double requests = hits + misses.getOneMinuteRate();
+	return (requests == 0) ? 0 : hits / requests;
+    }
+
+    /**
+     * Add an image to the heap tier, evicting least recently used images if over
+     * the size limit.
+     * 
+     * @param key
+     * @param content
+     */
+    protected void putOnHeap(String key, byte[] content) {
+	if (content.length > getMaxHeapBytes()) {
+	    return;
+	}
+	synchronized (heap) {
+	    byte[] previous = heap.put(key, content);
+	    heapBytes += content.length - ((previous != null) ? previous.length : 0);
+	    Iterator<Map.Entry<String, byte[]>> it = heap.entrySet().iterator();
+	    while ((heapBytes > getMaxHeapBytes()) && it.hasNext()) {
+		heapBytes -= it.next().getValue().length;
+		it.remove();
+	    }
+	}
+    }
+
+    /**
+     * Write an image to the disk tier. The image is written to a temporary file
+     * and moved into place so readers never see a partial file.
+     * 
+     * @param key
+     * @param content
+     */
+    protected void putOnDisk(String key, byte[] content) {
+	synchronized (disk) {
+	    if (disk.get(key) != null) {
+		return;
+	    }
+	}
+	try {
+	    File temp = File.createTempFile(key, ".tmp", getDirectory());
+	    Files.write(temp.toPath(), content);
+	    Files.move(temp.toPath(), getFile(key).toPath(), StandardCopyOption.REPLACE_EXISTING,
+		    StandardCopyOption.ATOMIC_MOVE);
+	    synchronized (disk) {
+		disk.put(key, Boolean.TRUE);
+	    }
+	    evictFromDisk();
+	} catch (IOException e) {
+	    component.getLogger().warn("Unable to write label to disk cache.", e);
+	}
+    }
+
+    /**
+     * Delete least recently used images if over the entry limit.
+     */
+    protected void evictFromDisk() {
+	synchronized (disk) {
+	    Iterator<String> it = disk.keySet().iterator();
+	    while ((disk.size() > getMaxDiskEntries()) && it.hasNext()) {
+		String key = it.next();
+		it.remove();
+		if (!getFile(key).delete()) {
+		    component.getLogger().debug("Unable to delete evicted label: " + key);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get file used to store image for a key.
+     * 
+     * @param key
+     * @return
+     */
+    protected File getFile(String key) {
+	return new File(getDirectory(), key + FILE_SUFFIX);
+    }
+
+    public File getDirectory() {
+	return directory;
+    }
+
+    public long getMaxHeapBytes() {
+	return maxHeapBytes;
+    }
+
+    public int getMaxDiskEntries() {
+	return maxDiskEntries;
+    }
+}
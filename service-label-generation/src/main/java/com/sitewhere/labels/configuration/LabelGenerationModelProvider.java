@@ -127,6 +127,19 @@ public class LabelGenerationModelProvider extends ConfigurationModelProvider {
 		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
 			.description("Foreground color of QR-Code image in AARRGGBB format.").defaultValue("FF333333")
 			.build()));
+	builder.attribute((new AttributeNode.Builder("Cache enabled", "cacheEnabled", AttributeType.Boolean,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Indicates whether rendered images are cached in memory and on disk.")
+			.defaultValue("true").build()));
+	builder.attribute((new AttributeNode.Builder("Cache directory", "cacheDirectory", AttributeType.String,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Base directory for cached images. Defaults to the temp directory.").build()));
+	builder.attribute((new AttributeNode.Builder("Max cache memory", "maxCacheHeapBytes", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Max bytes of cached images held in memory.").defaultValue("16777216").build()));
+	builder.attribute((new AttributeNode.Builder("Max cache files", "maxCacheDiskEntries", AttributeType.Integer,
+		ConfigurationModelProvider.ATTR_GROUP_GENERAL)
+			.description("Max number of cached images held on disk.").defaultValue("100000").build()));
 	return builder.build();
     }
 }
\ No newline at end of file
@@ -104,6 +104,26 @@ public class LabelGeneratorManagerParser extends AbstractBeanDefinitionParser {
 	    generator.addPropertyValue("foregroundColor", foregroundColor.getValue());
 	}
 
+	Attr cacheEnabled = element.getAttributeNode("cacheEnabled");
+	if (cacheEnabled != null) {
+	    generator.addPropertyValue("cacheEnabled", cacheEnabled.getValue());
+	}
+
+	Attr cacheDirectory = element.getAttributeNode("cacheDirectory");
+	if (cacheDirectory != null) {
+	    generator.addPropertyValue("cacheDirectory", cacheDirectory.getValue());
+	}
+
+	Attr maxCacheHeapBytes = element.getAttributeNode("maxCacheHeapBytes");
+	if (maxCacheHeapBytes != null) {
+	    generator.addPropertyValue("maxCacheHeapBytes", maxCacheHeapBytes.getValue());
+	}
+
+	Attr maxCacheDiskEntries = element.getAttributeNode("maxCacheDiskEntries");
+	if (maxCacheDiskEntries != null) {
+	    generator.addPropertyValue("maxCacheDiskEntries", maxCacheDiskEntries.getValue());
+	}
+
 	return generator.getBeanDefinition();
     }
 }
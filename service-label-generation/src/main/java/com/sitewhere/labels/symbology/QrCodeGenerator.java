@@ -7,8 +7,14 @@
  */
 package com.sitewhere.labels.symbology;
 
+import java.io.File;
 import java.net.URI;
+import java.util.concurrent.TimeUnit;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.sitewhere.labels.cache.RenderedLabelCache;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.area.IArea;
@@ -23,6 +29,7 @@ import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.label.IEntityUriProvider;
 import com.sitewhere.spi.label.ILabelGenerator;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleComponentType;
 
 import net.glxn.qrgen.core.image.ImageType;
@@ -30,7 +37,8 @@ import net.glxn.qrgen.javase.QRCode;
 
 /**
  * Implementation of {@link ILabelGenerator} that generates QR-Codes for
- * SiteWhere entities.
+ * SiteWhere entities. Rendered images are cached so that repeated requests for
+ * the same entity do not render the image again.
  * 
  * @author Derek
  */
@@ -54,10 +62,116 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     /** Background color */
     private int backgroundColor = 0xffffffff;
 
+    /** Indicates whether rendered images are cached */
+    private boolean cacheEnabled = true;
+
+    /** Base directory for disk cache (defaults to temp directory) */
+    private String cacheDirectory;
+
+    /** Max bytes of rendered images held on heap */
+    private long maxCacheHeapBytes = RenderedLabelCache.DEFAULT_MAX_HEAP_BYTES;
+
+    /** Max number of rendered images held on disk */
+    private int maxCacheDiskEntries = RenderedLabelCache.DEFAULT_MAX_DISK_ENTRIES;
+
+    /** Cache for rendered images */
+    private RenderedLabelCache cache;
+
+    /** Time spent rendering images */
+    private Timer renderTime;
+
     public QrCodeGenerator() {
 	super(LifecycleComponentType.LabelGenerator);
     }
 
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	this.renderTime = createTimerMetric(getMetricPrefix() + "renderTime");
+	if (isCacheEnabled()) {
+	    File base = new File((getCacheDirectory() != null) ? getCacheDirectory()
+		    : new File(System.getProperty("java.io.tmpdir"), "sitewhere-labels").getAbsolutePath());
+	    File directory = new File(new File(base, getTenantEngine().getTenant().getToken()), getId());
+	    this.cache = new RenderedLabelCache(this, getMetricPrefix(), directory, getMaxCacheHeapBytes(),
+		    getMaxCacheDiskEntries());
+	    getCache().initialize();
+	    registerHitRatioGauge();
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	getTenantEngine().getMicroservice().getMetricRegistry()
+		.remove(getTenentMetricPrefix() + getMetricPrefix() + "cacheHitRatio");
+	this.cache = null;
+    }
+
+    /**
+     * Render a QR-Code for a URI, using a cached image if available. The cache
+     * key covers the URI and every setting that affects the image.
+     * 
+     * @param uri
+     * @return
+     * @throws SiteWhereException
+     */
+    protected byte[] render(URI uri) throws SiteWhereException {
+	RenderedLabelCache current = getCache();
+	String key = null;
+	if (current != null) {
+	    key = RenderedLabelCache.createKey(getId(), getWidth(), getHeight(), getForegroundColor(),
+		    getBackgroundColor(), uri);
+	    byte[] cached = current.get(key);
+	    if (cached != null) {
+		return cached;
+	    }
+	}
+	long start = System.nanoTime();
+	byte[] content = QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
+		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	if (renderTime != null) {
+	    renderTime.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+	if (current != null) {
+	    current.put(key, content);
+	}
+	return content;
+    }
+
+    /**
+     * Register gauge for cache hit ratio.
+     */
+    protected void registerHitRatioGauge() {
+	final RenderedLabelCache current = getCache();
+	MetricRegistry registry = getTenantEngine().getMicroservice().getMetricRegistry();
+	String name = getTenentMetricPrefix() + getMetricPrefix() + "cacheHitRatio";
+	registry.remove(name);
+	registry.register(name, new Gauge<Double>() {
+
+	    @Override
+	    public Double getValue() {
+		return current.getHitRatio();
+	    }
+	});
+    }
+
+    /**
+     * Get prefix for metrics specific to this generator.
+     * 
+     * @return
+     */
+    protected String getMetricPrefix() {
+	return "labels." + getId() + ".";
+    }
+
     /*
      * @see
      * com.sitewhere.spi.label.ILabelGenerator#getCustomerTypeLabel(com.sitewhere.
@@ -67,8 +181,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     public byte[] getCustomerTypeLabel(ICustomerType customerType, IEntityUriProvider provider)
 	    throws SiteWhereException {
 	URI uri = provider.getCustomerTypeIdentifier(customerType);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -79,8 +192,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getCustomerLabel(ICustomer customer, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getCustomerIdentifier(customer);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -91,8 +203,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getAreaTypeLabel(IAreaType areaType, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getAreaTypeIdentifier(areaType);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -103,8 +214,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getAreaLabel(IArea area, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getAreaIdentifier(area);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -115,8 +225,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getDeviceTypeLabel(IDeviceType deviceType, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getDeviceTypeIdentifier(deviceType);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -127,8 +236,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getDeviceLabel(IDevice device, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getDeviceIdentifier(device);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -139,8 +247,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getDeviceGroupLabel(IDeviceGroup group, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getDeviceGroupIdentifier(group);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -152,8 +259,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     public byte[] getDeviceAssignmentLabel(IDeviceAssignment assignment, IEntityUriProvider provider)
 	    throws SiteWhereException {
 	URI uri = provider.getDeviceAssignmentIdentifier(assignment);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -164,8 +270,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getAssetTypeLabel(IAssetType assetType, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getAssetTypeIdentifier(assetType);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -176,8 +281,7 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
     @Override
     public byte[] getAssetLabel(IAsset asset, IEntityUriProvider provider) throws SiteWhereException {
 	URI uri = provider.getAssetIdentifier(asset);
-	return QRCode.from(uri.toString()).withSize(getWidth(), getHeight())
-		.withColor(getForegroundColor(), getBackgroundColor()).to(ImageType.PNG).stream().toByteArray();
+	return render(uri);
     }
 
     /*
@@ -238,6 +342,42 @@ public class QrCodeGenerator extends TenantEngineLifecycleComponent implements I
 	this.backgroundColor = parse(backgroundColor);
     }
 
+    public boolean isCacheEnabled() {
+	return cacheEnabled;
+    }
+
+    public void setCacheEnabled(boolean cacheEnabled) {
+	this.cacheEnabled = cacheEnabled;
+    }
+
+    public String getCacheDirectory() {
+	return cacheDirectory;
+    }
+
+    public void setCacheDirectory(String cacheDirectory) {
+	this.cacheDirectory = cacheDirectory;
+    }
+
+    public long getMaxCacheHeapBytes() {
+	return maxCacheHeapBytes;
+    }
+
+    public void setMaxCacheHeapBytes(long maxCacheHeapBytes) {
+	this.maxCacheHeapBytes = maxCacheHeapBytes;
+    }
+
+    public int getMaxCacheDiskEntries() {
+	return maxCacheDiskEntries;
+    }
+
+    public void setMaxCacheDiskEntries(int maxCacheDiskEntries) {
+	this.maxCacheDiskEntries = maxCacheDiskEntries;
+    }
+
+    public RenderedLabelCache getCache() {
+	return cache;
+    }
+
     /**
      * Parse an ARGB string into an integer.
      * 
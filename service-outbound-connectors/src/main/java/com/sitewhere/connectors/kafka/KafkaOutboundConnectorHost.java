@@ -26,6 +26,7 @@ import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.connectors.spi.IOutboundConnector;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
 import com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer;
 import com.sitewhere.microservice.security.SystemUserRunnable;
@@ -74,6 +75,16 @@ public class KafkaOutboundConnectorHost extends MicroserviceKafkaConsumer {
 		+ getOutboundConnector().getConnectorId();
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.qualify(EventTimingEnvelope.STAGE_OUTBOUND_CONNECTOR,
+		getOutboundConnector().getConnectorId());
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
      * getSourceTopicNames()
@@ -22,6 +22,7 @@ import org.apache.kafka.common.TopicPartition;
 import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.event.EventModelConverter;
 import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
 import com.sitewhere.microservice.kafka.DirectKafkaConsumer;
 import com.sitewhere.microservice.security.SystemUserRunnable;
@@ -78,6 +79,16 @@ public class KafkaRuleProcessorHost extends DirectKafkaConsumer {
 		+ "rule-processor." + getRuleProcessor().getProcessorId();
     }
 
+    /*
+     * @see com.sitewhere.microservice.kafka.MicroserviceKafkaConsumer#
+     * getEventTimingStage()
+     */
+    @Override
+    protected String getEventTimingStage() {
+	return EventTimingEnvelope.qualify(EventTimingEnvelope.STAGE_RULE_PROCESSOR,
+		getRuleProcessor().getProcessorId());
+    }
+
     /*
      * @see com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#
      * getSourceTopicNames()
@@ -1,45 +0,0 @@
-/*
- * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
- *
- * The software in this package is published under the terms of the CPAL v1.0
- * license, a copy of which has been included with this distribution in the
- * LICENSE.txt file.
- */
-package com.sitewhere.web.filters;
-
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-
-import javax.servlet.ServletOutputStream;
-import javax.servlet.WriteListener;
-
-public class FilterServletOutputStream extends ServletOutputStream {
-
-    private DataOutputStream stream;
-
-    public FilterServletOutputStream(OutputStream output) {
-	stream = new DataOutputStream(output);
-    }
-
-    public void write(int b) throws IOException {
-	stream.write(b);
-    }
-
-    public void write(byte[] b) throws IOException {
-	stream.write(b);
-    }
-
-    public void write(byte[] b, int off, int len) throws IOException {
-	stream.write(b, off, len);
-    }
-
-    @Override
-    public boolean isReady() {
-	return true;
-    }
-
-    @Override
-    public void setWriteListener(WriteListener writeListener) {
-    }
-}
\ No newline at end of file
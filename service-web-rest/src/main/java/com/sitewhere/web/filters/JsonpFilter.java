@@ -8,7 +8,9 @@
 package com.sitewhere.web.filters;
 
 import java.io.IOException;
-import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
 import java.util.regex.Pattern;
 
@@ -16,10 +18,13 @@ import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
 
 /**
  * Wraps API calls that request a JSONP response.
@@ -28,6 +33,9 @@ import javax.servlet.http.HttpServletResponse;
  */
 public class JsonpFilter implements Filter {
 
+    /** Content type for padded responses */
+    private static final String JSONP_CONTENT_TYPE = "text/javascript;charset=UTF-8";
+
     /** Parameter containing function name for callback function */
     private static final String CALLBACK_PARAMETER = "callback";
 
@@ -70,17 +78,15 @@ public class JsonpFilter implements Filter {
 	    if (!SAFE_PATTERN.matcher(callback).matches()) {
 		callback = DEFAULT_CALLBACK;
 	    }
-	    httpResponse.setContentType("text/javascript;charset=UTF-8");
+	    httpResponse.setContentType(JSONP_CONTENT_TYPE);
 
-	    OutputStream out = httpResponse.getOutputStream();
-	    GenericResponseWrapper wrapper = new GenericResponseWrapper(httpResponse);
+	    // Stream padding around the response rather than buffering it.
+	    ServletOutputStream out = httpResponse.getOutputStream();
+	    out.write((callback + "(").getBytes(StandardCharsets.UTF_8));
+	    PaddedResponseWrapper wrapper = new PaddedResponseWrapper(httpResponse, out);
 	    chain.doFilter(request, wrapper);
-
-	    out.write(new String(callback + "(").getBytes());
-	    out.write(wrapper.getData());
-	    out.write(new String(");").getBytes());
-
-	    wrapper.setContentType("text/javascript;charset=UTF-8");
+	    wrapper.flushWriter();
+	    out.write(");".getBytes(StandardCharsets.UTF_8));
 	    out.close();
 	} else {
 	    chain.doFilter(request, response);
@@ -94,4 +100,133 @@ public class JsonpFilter implements Filter {
      */
     public void destroy() {
     }
+
+    /**
+     * Passes output straight through to the padded stream. The content type is
+     * fixed, content length is dropped since padding changes it, and the stream
+     * is not closed by the application so that the closing padding can follow.
+     */
+    private static class PaddedResponseWrapper extends HttpServletResponseWrapper {
+
+	/** Stream that receives output */
+	private PaddedOutputStream stream;
+
+	/** Writer if requested */
+	private PrintWriter writer;
+
+	public PaddedResponseWrapper(HttpServletResponse response, ServletOutputStream out) {
+	    super(response);
+	    this.stream = new PaddedOutputStream(out);
+	}
+
+	/*
+	 * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+	 */
+	@Override
+	public ServletOutputStream getOutputStream() throws IOException {
+	    return stream;
+	}
+
+	/*
+	 * @see javax.servlet.ServletResponseWrapper#getWriter()
+	 */
+	@Override
+	public PrintWriter getWriter() throws IOException {
+	    if (writer == null) {
+		writer = new PrintWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8));
+	    }
+	    return writer;
+	}
+
+	/*
+	 * @see javax.servlet.ServletResponseWrapper#setContentType(java.lang.String)
+	 */
+	@Override
+	public void setContentType(String type) {
+	}
+
+	/*
+	 * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+	 */
+	@Override
+	public void setContentLength(int len) {
+	}
+
+	/*
+	 * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+	 */
+	@Override
+	public void setContentLengthLong(long len) {
+	}
+
+	/**
+	 * Flush writer output to the stream.
+	 */
+	public void flushWriter() {
+	    if (writer != null) {
+		writer.flush();
+	    }
+	}
+    }
+
+    /**
+     * Delegates writes to the servlet stream but ignores close.
+     */
+    private static class PaddedOutputStream extends ServletOutputStream {
+
+	/** Delegate stream */
+	private ServletOutputStream delegate;
+
+	public PaddedOutputStream(ServletOutputStream delegate) {
+	    this.delegate = delegate;
+	}
+
+	/*
+	 * @see java.io.OutputStream#write(int)
+	 */
+	@Override
+	public void write(int b) throws IOException {
+	    delegate.write(b);
+	}
+
+	/*
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+	    delegate.write(b, off, len);
+	}
+
+	/*
+	 * @see java.io.OutputStream#flush()
+	 */
+	@Override
+	public void flush() throws IOException {
+	    delegate.flush();
+	}
+
+	/*
+	 * @see java.io.OutputStream#close()
+	 */
+	@Override
+	public void close() throws IOException {
+	}
+
+	/*
+	 * @see javax.servlet.ServletOutputStream#isReady()
+	 */
+	@Override
+	public boolean isReady() {
+	    return delegate.isReady();
+	}
+
+	/*
+	 * @see javax.servlet.ServletOutputStream#setWriteListener(javax.servlet.
+	 * WriteListener)
+	 */
+	@Override
+	public void setWriteListener(WriteListener writeListener) {
+	    delegate.setWriteListener(writeListener);
+	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.filters;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+/**
+ * Streams REST responses through a {@link StreamingResponseWrapper}, which
+ * handles gzip and weak ETags, and records response time, time to first byte
+ * and bytes written.
+ *
+ * @author Derek
+ */
+public class StreamingResponseFilter extends OncePerRequestFilter {
+
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(StreamingResponseFilter.class);
+
+    /** Max bytes buffered before streaming */
+    private int bufferLimit = StreamingResponseWrapper.DEFAULT_BUFFER_LIMIT;
+
+    /** Time to complete response */
+    private Timer responseTime;
+
+    /** Time until first byte is written to client */
+    private Timer timeToFirstByte;
+
+    /** Bytes written by application */
+    private Histogram responseBytes;
+
+    /** Rate of 304 responses */
+    private Meter notModified;
+
+    public StreamingResponseFilter(MetricRegistry registry) {
+	this.responseTime = registry.timer("rest.responseTime");
+	this.timeToFirstByte = registry.timer("rest.timeToFirstByte");
+	this.responseBytes = registry.histogram("rest.responseBytes");
+	this.notModified = registry.meter("rest.notModified");
+    }
+
+    /*
+     * @see org.springframework.web.filter.OncePerRequestFilter#doFilterInternal(
+     * javax.servlet.http.HttpServletRequest,
+     * javax.servlet.http.HttpServletResponse, javax.servlet.FilterChain)
+     */
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+	    throws ServletException, IOException {
+	long start = System.nanoTime();
+	StreamingResponseWrapper wrapper = new StreamingResponseWrapper(request, response, getBufferLimit());
+	try {
+	    chain.doFilter(request, wrapper);
+	} finally {
+	    try {
+		wrapper.finish();
+	    } finally {
+		recordMetrics(request, wrapper, start);
+	    }
+	}
+    }
+
+    /**
+     * Record response metrics. Called even if the request failed so that errors
+     * are reflected in the response times.
+     * 
+     * @param request
+     * @param wrapper
+     * @param start
+     */
+    protected void recordMetrics(HttpServletRequest request, StreamingResponseWrapper wrapper, long start) {
+	long elapsed = System.nanoTime() - start;
+	responseTime.update(elapsed, TimeUnit.NANOSECONDS);
+	responseBytes.update(wrapper.getStream().getBytesWritten());
+	if (wrapper.getStream().getFirstByteTime() > 0) {
+	    timeToFirstByte.update(wrapper.getStream().getFirstByteTime() - start, TimeUnit.NANOSECONDS);
+	}
+	if (wrapper.isNotModified()) {
+	    notModified.mark();
+	}
+	if (LOGGER.isDebugEnabled()) {
+	    LOGGER.debug("Call for " + request.getMethod() + " to '" + request.getRequestURL() + "' returned "
+		    + wrapper.getStream().getBytesWritten() + " bytes in " + TimeUnit.NANOSECONDS.toMillis(elapsed)
+		    + " ms.");
+	}
+    }
+
+    public int getBufferLimit() {
+	return bufferLimit;
+    }
+
+    public void setBufferLimit(int bufferLimit) {
+	this.bufferLimit = bufferLimit;
+    }
+}
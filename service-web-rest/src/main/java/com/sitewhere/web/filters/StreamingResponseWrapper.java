@@ -0,0 +1,293 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.filters;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+/**
+ * Response wrapper that streams output to the client rather than buffering
+ * the whole response. Gzip is used if the client accepts it and the content is
+ * compressible. Responses small enough to be buffered are sent with a
+ * content length and a weak ETag, and a matching If-None-Match header results
+ * in a 304 with no body.
+ *
+ * @author Derek
+ */
+public class StreamingResponseWrapper extends HttpServletResponseWrapper {
+
+    /** Default max bytes buffered before streaming */
+    public static final int DEFAULT_BUFFER_LIMIT = 64 * 1024;
+
+    /** Responses smaller than this are not compressed */
+    public static final int MIN_GZIP_SIZE = 1024;
+
+    /** Request being answered */
+    private HttpServletRequest request;
+
+    /** Indicates whether client accepts gzip */
+    private boolean gzipAccepted;
+
+    /** Output stream */
+    private StreamingServletOutputStream stream;
+
+    /** Writer if requested */
+    private PrintWriter writer;
+
+    /** Content length set by application */
+    private long contentLength = -1;
+
+    /** Indicates a 304 was sent */
+    private boolean notModified;
+
+    public StreamingResponseWrapper(HttpServletRequest request, HttpServletResponse response, int bufferLimit) {
+	super(response);
+	this.request = request;
+	this.gzipAccepted = acceptsGzip(request.getHeader("Accept-Encoding"));
+	this.stream = new StreamingServletOutputStream(this, bufferLimit);
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#getOutputStream()
+     */
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+	if (writer != null) {
+	    throw new IllegalStateException("Writer already obtained for response.");
+	}
+	return stream;
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#getWriter()
+     */
+    @Override
+    public PrintWriter getWriter() throws IOException {
+	if (writer == null) {
+	    writer = new PrintWriter(new OutputStreamWriter(stream, getCharacterEncoding()));
+	}
+	return writer;
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#setContentLength(int)
+     */
+    @Override
+    public void setContentLength(int length) {
+	this.contentLength = length;
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#setContentLengthLong(long)
+     */
+    @Override
+    public void setContentLengthLong(long length) {
+	this.contentLength = length;
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#flushBuffer()
+     */
+    @Override
+    public void flushBuffer() throws IOException {
+	if (writer != null) {
+	    writer.flush();
+	}
+	stream.startStreaming(false);
+	stream.flush();
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#resetBuffer()
+     */
+    @Override
+    public void resetBuffer() {
+	if (!stream.reset()) {
+	    throw new IllegalStateException("Response already committed.");
+	}
+    }
+
+    /*
+     * @see javax.servlet.ServletResponseWrapper#reset()
+     */
+    @Override
+    public void reset() {
+	resetBuffer();
+	contentLength = -1;
+	super.reset();
+    }
+
+    /*
+     * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int,
+     * java.lang.String)
+     */
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+	stream.reset();
+	super.sendError(sc, msg);
+    }
+
+    /*
+     * @see javax.servlet.http.HttpServletResponseWrapper#sendError(int)
+     */
+    @Override
+    public void sendError(int sc) throws IOException {
+	stream.reset();
+	super.sendError(sc);
+    }
+
+    /*
+     * @see
+     * javax.servlet.http.HttpServletResponseWrapper#sendRedirect(java.lang.String)
+     */
+    @Override
+    public void sendRedirect(String location) throws IOException {
+	stream.reset();
+	super.sendRedirect(location);
+    }
+
+    /**
+     * Write any buffered output and finish compression.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+	if (writer != null) {
+	    writer.flush();
+	}
+	stream.finish();
+    }
+
+    /**
+     * Indicates whether output should be compressed.
+     *
+     * @param length
+     *            length of complete output or -1 if streaming
+     * @return
+     */
+    protected boolean shouldCompress(long length) {
+	if ((!gzipAccepted) || (getHeader("Content-Encoding") != null) || (!isCompressible(getContentType()))) {
+	    return false;
+	}
+	return (length < 0) || (length >= MIN_GZIP_SIZE);
+    }
+
+    /**
+     * Set headers before output is sent. Returns true if the client copy is
+     * current and a 304 was sent instead of the body.
+     *
+     * @param etag
+     *            weak ETag or null if output is being streamed
+     * @param compress
+     * @param length
+     *            length of complete output or -1 if streaming
+     * @return
+     */
+    protected boolean commitHeaders(String etag, boolean compress, long length) {
+	if ((etag != null) && ("GET".equals(request.getMethod())) && (getStatus() == HttpServletResponse.SC_OK)
+		&& (!containsHeader("ETag"))) {
+	    setHeader("ETag", etag);
+	    if (matches(request.getHeader("If-None-Match"), etag)) {
+		setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+		this.notModified = true;
+		return true;
+	    }
+	}
+	if (isCompressible(getContentType())) {
+	    addHeader("Vary", "Accept-Encoding");
+	}
+	if (compress) {
+	    setHeader("Content-Encoding", "gzip");
+	} else if (length >= 0) {
+	    super.setContentLengthLong(length);
+	} else if (contentLength >= 0) {
+	    super.setContentLengthLong(contentLength);
+	}
+	return false;
+    }
+
+    /**
+     * Indicates whether an If-None-Match header matches an ETag using weak
+     * comparison.
+     *
+     * @param header
+     * @param etag
+     * @return
+     */
+    protected static boolean matches(String header, String etag) {
+	if (header == null) {
+	    return false;
+	}
+	String opaque = stripWeak(etag);
+	for (String candidate : header.split(",")) {
+	    String value = candidate.trim();
+	    if ("*".equals(value) || opaque.equals(stripWeak(value))) {
+		return true;
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Remove weak indicator from an ETag.
+     *
+     * @param etag
+     * @return
+     */
+    protected static String stripWeak(String etag) {
+	return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Indicates whether an Accept-Encoding header allows gzip.
+     *
+     * @param header
+     * @return
+     */
+    protected static boolean acceptsGzip(String header) {
+	if (header == null) {
+	    return false;
+	}
+	for (String candidate : header.split(",")) {
+	    String[] parts = candidate.trim().split(";");
+	    if ("gzip".equalsIgnoreCase(parts[0].trim())) {
+		return !((parts.length > 1) && (parts[1].trim().replace(" ", "").matches("q=0(\\.0*)?")));
+	    }
+	}
+	return false;
+    }
+
+    /**
+     * Indicates whether a content type benefits from compression.
+     *
+     * @param contentType
+     * @return
+     */
+    protected static boolean isCompressible(String contentType) {
+	if (contentType == null) {
+	    return false;
+	}
+	String type = contentType.toLowerCase();
+	return type.startsWith("application/json") || type.startsWith("text/") || type.contains("javascript")
+		|| type.contains("xml");
+    }
+
+    public StreamingServletOutputStream getStream() {
+	return stream;
+    }
+
+    public boolean isNotModified() {
+	return notModified;
+    }
+}
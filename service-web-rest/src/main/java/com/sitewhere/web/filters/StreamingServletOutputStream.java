@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.filters;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+
+/**
+ * Output stream for {@link StreamingResponseWrapper}. Output is held in a small
+ * buffer until it grows past the buffer limit, at which point headers are
+ * decided and output is written straight through to the servlet output stream
+ * (gzipped if negotiated). Responses that complete within the buffer limit are
+ * given a weak ETag calculated from the bytes as they are written.
+ *
+ * @author Derek
+ */
+public class StreamingServletOutputStream extends ServletOutputStream {
+
+    /** Wrapper that decides response headers */
+    private StreamingResponseWrapper wrapper;
+
+    /** Max bytes held before streaming */
+    private int bufferLimit;
+
+    /** Holds output until limit is reached */
+    private ByteArrayOutputStream buffer;
+
+    /** Checksum of bytes written, used for ETag */
+    private CRC32 checksum = new CRC32();
+
+    /** Stream output is written to once streaming */
+    private OutputStream target;
+
+    /** Gzip stream if output is compressed */
+    private GZIPOutputStream gzip;
+
+    /** Number of bytes written by the application */
+    private long bytesWritten;
+
+    /** Time first byte was sent to the servlet stream */
+    private long firstByteTime;
+
+    /** Indicates stream has been finished */
+    private boolean finished;
+
+    public StreamingServletOutputStream(StreamingResponseWrapper wrapper, int bufferLimit) {
+	this.wrapper = wrapper;
+	this.bufferLimit = bufferLimit;
+	this.buffer = new ByteArrayOutputStream(Math.min(bufferLimit, 4096));
+    }
+
+    /*
+     * @see java.io.OutputStream#write(int)
+     */
+    @Override
+    public void write(int b) throws IOException {
+	write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    /*
+     * @see java.io.OutputStream#write(byte[], int, int)
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+	if (finished) {
+	    throw new IOException("Response stream already finished.");
+	}
+	bytesWritten += len;
+	if (target == null) {
+	    if (buffer.size() + len <= bufferLimit) {
+		buffer.write(b, off, len);
+		checksum.update(b, off, len);
+		return;
+	    }
+	    startStreaming(false);
+	}
+	writeTarget(b, off, len);
+    }
+
+    /**
+     * Flushes are ignored while output is buffered so that headers can still be
+     * set once the response is complete.
+     *
+     * @see java.io.OutputStream#flush()
+     */
+    @Override
+    public void flush() throws IOException {
+	if (target != null) {
+	    target.flush();
+	}
+    }
+
+    /*
+     * @see java.io.OutputStream#close()
+     */
+    @Override
+    public void close() throws IOException {
+	finish();
+    }
+
+    /**
+     * Start streaming output. Called when the buffer limit is exceeded or when
+     * the response is flushed to the client.
+     *
+     * @param complete
+     *            indicates whether all output has been written
+     * @throws IOException
+     */
+    protected void startStreaming(boolean complete) throws IOException {
+	if (target != null) {
+	    return;
+	}
+	boolean compress = wrapper.shouldCompress(complete ? buffer.size() : -1);
+	String etag = complete ? createETag() : null;
+	if (wrapper.commitHeaders(etag, compress, complete ? buffer.size() : -1)) {
+	    // Not modified, so body is dropped.
+	    buffer.reset();
+	    target = new NullOutputStream();
+	    return;
+	}
+	OutputStream servlet = wrapper.getResponse().getOutputStream();
+	if (compress) {
+	    gzip = new GZIPOutputStream(servlet, 8192, true);
+	    target = gzip;
+	} else {
+	    target = servlet;
+	}
+	if (buffer.size() > 0) {
+	    writeTarget(buffer.toByteArray(), 0, buffer.size());
+	    buffer.reset();
+	}
+    }
+
+    /**
+     * Write to the target stream, recording time of first byte.
+     *
+     * @param b
+     * @param off
+     * @param len
+     * @throws IOException
+     */
+    protected void writeTarget(byte[] b, int off, int len) throws IOException {
+	if ((firstByteTime == 0) && (len > 0)) {
+	    firstByteTime = System.nanoTime();
+	}
+	target.write(b, off, len);
+    }
+
+    /**
+     * Finish the response, writing any buffered output.
+     *
+     * @throws IOException
+     */
+    public void finish() throws IOException {
+	if (finished) {
+	    return;
+	}
+	if ((target == null) && (bytesWritten > 0)) {
+	    startStreaming(true);
+	}
+	finished = true;
+	if (gzip != null) {
+	    gzip.finish();
+	}
+	if (target != null) {
+	    target.flush();
+	}
+    }
+
+    /**
+     * Discard buffered output. Returns false if output has already been sent.
+     *
+     * @return
+     */
+    public boolean reset() {
+	if (target != null) {
+	    return false;
+	}
+	buffer.reset();
+	checksum.reset();
+	bytesWritten = 0;
+	return true;
+    }
+
+    /**
+     * Create a weak ETag from the length and checksum of the output.
+     *
+     * @return
+     */
+    protected String createETag() {
+	return "W/\"" + Long.toHexString(bytesWritten) + "-" + Long.toHexString(checksum.getValue()) + "\"";
+    }
+
+    /**
+     * Indicates whether output is being streamed rather than buffered.
+     *
+     * @return
+     */
+    public boolean isStreaming() {
+	return target != null;
+    }
+
+    /*
+     * @see javax.servlet.ServletOutputStream#isReady()
+     */
+    @Override
+    public boolean isReady() {
+	return true;
+    }
+
+    /*
+     * @see javax.servlet.ServletOutputStream#setWriteListener(javax.servlet.
+     * WriteListener)
+     */
+    @Override
+    public void setWriteListener(WriteListener writeListener) {
+    }
+
+    /**
+     * Discards output for responses that have no body.
+     */
+    private static class NullOutputStream extends OutputStream {
+
+	/*
+	 * @see java.io.OutputStream#write(int)
+	 */
+	@Override
+	public void write(int b) throws IOException {
+	}
+
+	/*
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+	}
+    }
+
+    public long getBytesWritten() {
+	return bytesWritten;
+    }
+
+    public long getFirstByteTime() {
+	return firstByteTime;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.labels;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.sitewhere.grpc.client.spi.client.ILabelGenerationApiDemux;
+import com.sitewhere.server.lifecycle.LifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.label.ILabelGeneration;
+import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
+import com.sitewhere.web.rest.model.LabelPrerenderSummary;
+import com.sitewhere.web.spi.labels.IDeviceLabelPrerenderer;
+
+/**
+ * Requests labels for a list of devices in parallel so that the label
+ * generation service renders and caches them ahead of a print run. All
+ * requests share one thread pool that lives as long as the microservice, and
+ * each request limits how many of its labels are in flight at once. Label
+ * calls run with the authentication of the calling thread so they are routed
+ * to the same tenant.
+ * 
+ * @author Derek
+ */
+public class DeviceLabelPrerenderer extends LifecycleComponent implements IDeviceLabelPrerenderer {
+
+    /** Max number of concurrent label requests */
+    public static final int MAX_CONCURRENCY = 32;
+
+    /** Label generation API demux */
+    private ILabelGenerationApiDemux labelGenerationApiDemux;
+
+    /** Executor shared by all pre-render requests */
+    private ExecutorService executor;
+
+    public DeviceLabelPrerenderer(ILabelGenerationApiDemux labelGenerationApiDemux) {
+	this.labelGenerationApiDemux = labelGenerationApiDemux;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#start(com.sitewhere.spi
+     * .server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	executor = Executors.newFixedThreadPool(MAX_CONCURRENCY, new PrerenderThreadFactory());
+    }
+
+    /*
+     * @see
+     * com.sitewhere.server.lifecycle.LifecycleComponent#stop(com.sitewhere.spi.
+     * server.lifecycle.ILifecycleProgressMonitor)
+     */
+    @Override
+    public void stop(ILifecycleProgressMonitor monitor) throws SiteWhereException {
+	if (executor != null) {
+	    executor.shutdownNow();
+	}
+    }
+
+    /*
+     * @see
+     * com.sitewhere.web.spi.labels.IDeviceLabelPrerenderer#prerender(java.lang.
+     * String, java.util.List, int)
+     */
+    @Override
+    public LabelPrerenderSummary prerender(final String generatorId, List<IDevice> devices, int concurrency)
+	    throws SiteWhereException {
+	if (executor == null) {
+	    throw new SiteWhereException("Label pre-renderer has not been started.");
+	}
+	long start = System.currentTimeMillis();
+	int limit = Math.max(1, Math.min(MAX_CONCURRENCY, concurrency));
+	final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+	final ILabelGeneration labelGeneration = getLabelGenerationApiDemux().getApiChannel();
+	CompletionService<Boolean> completion = new ExecutorCompletionService<Boolean>(executor);
+	Iterator<IDevice> remaining = devices.iterator();
+	int inFlight = 0;
+	int rendered = 0;
+	int failed = 0;
+	try {
+	    while (remaining.hasNext() || (inFlight > 0)) {
+		while (remaining.hasNext() && (inFlight < limit)) {
+		    final IDevice device = remaining.next();
+		    completion.submit(new Callable<Boolean>() {
+
+			@Override
+			public Boolean call() throws Exception {
+			    SecurityContextHolder.getContext().setAuthentication(authentication);
+			    try {
+				return labelGeneration.getDeviceLabel(generatorId, device.getId()) != null;
+			    } finally {
+				SecurityContextHolder.clearContext();
+			    }
+			}
+		    });
+		    inFlight++;
+		}
+		Future<Boolean> result = completion.take();
+		inFlight--;
+		try {
+		    if (result.get()) {
+			rendered++;
+		    } else {
+			failed++;
+		    }
+		} catch (ExecutionException e) {
+		    getLogger().warn("Unable to pre-render device label.", e.getCause());
+		    failed++;
+		}
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while pre-rendering labels.", e);
+	}
+
+	LabelPrerenderSummary summary = new LabelPrerenderSummary();
+	summary.setGeneratorId(generatorId);
+	summary.setRequested(devices.size());
+	summary.setRendered(rendered);
+	summary.setFailed(failed);
+	summary.setElapsedMs(System.currentTimeMillis() - start);
+	return summary;
+    }
+
+    /** Used for naming pre-render threads */
+    private class PrerenderThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Label Prerender " + counter.incrementAndGet());
+	}
+    }
+
+    public ILabelGenerationApiDemux getLabelGenerationApiDemux() {
+	return labelGenerationApiDemux;
+    }
+
+    public void setLabelGenerationApiDemux(ILabelGenerationApiDemux labelGenerationApiDemux) {
+	this.labelGenerationApiDemux = labelGenerationApiDemux;
+    }
+}
@@ -31,7 +31,7 @@ import com.sitewhere.web.auth.RestAuthSwaggerConfiguration;
 import com.sitewhere.web.filters.JsonpFilter;
 import com.sitewhere.web.filters.MethodOverrideFilter;
 import com.sitewhere.web.filters.NoCacheFilter;
-import com.sitewhere.web.filters.ResponseTimerFilter;
+import com.sitewhere.web.filters.StreamingResponseFilter;
 import com.sitewhere.web.rest.RestApiConfiguration;
 import com.sitewhere.web.rest.RestApiSwaggerConfiguration;
 import com.sitewhere.web.security.AuthApiSecurity;
@@ -179,11 +179,14 @@ public class WebRestConfiguration {
     }
 
     @Bean
-    public FilterRegistrationBean<ResponseTimerFilter> responseTimerFilter() {
-	ResponseTimerFilter filter = new ResponseTimerFilter();
-	FilterRegistrationBean<ResponseTimerFilter> registration = new FilterRegistrationBean<>();
+    public FilterRegistrationBean<StreamingResponseFilter> streamingResponseFilter() {
+	StreamingResponseFilter filter = new StreamingResponseFilter(getMicroservice().getMetricRegistry());
+	FilterRegistrationBean<StreamingResponseFilter> registration = new FilterRegistrationBean<>();
 	registration.setFilter(filter);
 	registration.addUrlPatterns(RestApiConfiguration.REST_API_MATCHER);
+
+	// Wrap all other filters so their output is streamed.
+	registration.setOrder(Integer.MIN_VALUE + 1);
 	return registration;
     }
 
@@ -37,6 +37,8 @@ import com.sitewhere.spi.microservice.state.ITopologyStateAggregator;
 import com.sitewhere.spi.server.lifecycle.ICompositeLifecycleStep;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.web.configuration.WebRestModelProvider;
+import com.sitewhere.web.labels.DeviceLabelPrerenderer;
+import com.sitewhere.web.spi.labels.IDeviceLabelPrerenderer;
 import com.sitewhere.web.spi.microservice.IWebRestMicroservice;
 
 /**
@@ -83,6 +85,9 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
     /** Aggregates microservice state info into a topology */
     private ITopologyStateAggregator topologyStateAggregator = new TopologyStateAggregator();
 
+    /** Pre-renders device labels */
+    private IDeviceLabelPrerenderer deviceLabelPrerenderer;
+
     /*
      * (non-Javadoc)
      * 
@@ -166,6 +171,9 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
 	// Create GRPC components.
 	createGrpcComponents();
 
+	// Create label pre-renderer.
+	this.deviceLabelPrerenderer = new DeviceLabelPrerenderer(getLabelGenerationApiDemux());
+
 	// Composite step for initializing microservice.
 	ICompositeLifecycleStep init = new CompositeLifecycleStep("Initialize " + getName());
 
@@ -199,6 +207,9 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
 	// Initialize device state API demux.
 	init.addInitializeStep(this, getDeviceStateApiDemux(), true);
 
+	// Initialize label pre-renderer.
+	init.addInitializeStep(this, getDeviceLabelPrerenderer(), true);
+
 	// Execute initialization steps.
 	init.execute(monitor);
     }
@@ -279,6 +290,9 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
 	// Start device state API demux.
 	start.addStartStep(this, getDeviceStateApiDemux(), true);
 
+	// Start label pre-renderer.
+	start.addStartStep(this, getDeviceLabelPrerenderer(), true);
+
 	// Execute startup steps.
 	start.execute(monitor);
     }
@@ -294,6 +308,9 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
 	// Composite step for stopping microservice.
 	ICompositeLifecycleStep stop = new CompositeLifecycleStep("Stop " + getName());
 
+	// Stop label pre-renderer.
+	stop.addStopStep(this, getDeviceLabelPrerenderer());
+
 	// Stop user mangement API demux.
 	stop.addStopStep(this, getUserManagementApiDemux());
 
@@ -457,4 +474,17 @@ public class WebRestMicroservice extends GlobalMicroservice<MicroserviceIdentifi
     public void setTopologyStateAggregator(ITopologyStateAggregator topologyStateAggregator) {
 	this.topologyStateAggregator = topologyStateAggregator;
     }
+
+    /*
+     * @see com.sitewhere.web.spi.microservice.IWebRestMicroservice#
+     * getDeviceLabelPrerenderer()
+     */
+    @Override
+    public IDeviceLabelPrerenderer getDeviceLabelPrerenderer() {
+	return deviceLabelPrerenderer;
+    }
+
+    public void setDeviceLabelPrerenderer(IDeviceLabelPrerenderer deviceLabelPrerenderer) {
+	this.deviceLabelPrerenderer = deviceLabelPrerenderer;
+    }
 }
\ No newline at end of file
@@ -8,9 +8,7 @@
 package com.sitewhere.web.rest.controllers;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import javax.servlet.http.HttpServletRequest;
@@ -62,6 +60,7 @@ import com.sitewhere.spi.device.event.IDeviceCommandResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
@@ -290,6 +289,35 @@ public class Areas extends RestControllerBase {
 	return new SearchResults<IDeviceMeasurement>(wrapped, results.getNumResults());
     }
 
+    /**
+     * Calculate count, min, max, average and last value per measurement name over
+     * fixed time windows for an area.
+     * 
+     * @param areaToken
+     * @param measurementIds
+     * @param windowMs
+     * @param startDate
+     * @param endDate
+     * @param response
+     * @return
+     * @throws SiteWhereException
+     */
+    @GetMapping(value = "/{areaToken}/measurements/aggregates")
+    @ApiOperation(value = "Aggregate area measurements over time windows")
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForArea(
+	    @ApiParam(value = "Token that identifies area", required = true) @PathVariable String areaToken,
+	    @ApiParam(value = "Measurement names (all if not specified)", required = false) @RequestParam(required = false) List<String> measurementIds,
+	    @ApiParam(value = "Window length in milliseconds", required = false) @RequestParam(required = false, defaultValue = "3600000") long windowMs,
+	    @ApiParam(value = "Start date", required = true) @RequestParam(required = true) String startDate,
+	    @ApiParam(value = "End date", required = true) @RequestParam(required = true) String endDate,
+	    HttpServletResponse response) throws SiteWhereException {
+	List<UUID> areas = resolveAreaIds(areaToken, true, getDeviceManagement());
+	IDateRangeSearchCriteria criteria = Assignments.createDateRangeSearchCriteria(1, 0, startDate, endDate,
+		response);
+	return getDeviceEventManagement().aggregateDeviceMeasurementsForIndex(DeviceEventIndex.Area, areas,
+		measurementIds, windowMs, criteria);
+    }
+
     /**
      * Get device locations for an area.
      * 
@@ -580,29 +608,12 @@ public class Areas extends RestControllerBase {
 	if (existing == null) {
 	    return new ArrayList<IArea>();
 	}
-	Map<String, IArea> resolved = new HashMap<>();
-	resolveAreasRecursively(existing, recursive, resolved, deviceManagement);
 	List<IArea> response = new ArrayList<>();
-	response.addAll(resolved.values());
-	return response;
-    }
-
-    /**
-     * Resolve areas recursively.
-     * 
-     * @param current
-     * @param recursive
-     * @param matches
-     * @param deviceManagement
-     * @throws SiteWhereException
-     */
-    protected static void resolveAreasRecursively(IArea current, boolean recursive, Map<String, IArea> matches,
-	    IDeviceManagement deviceManagement) throws SiteWhereException {
-	matches.put(current.getToken(), current);
-	List<IArea> children = deviceManagement.getAreaChildren(current.getToken());
-	for (IArea child : children) {
-	    resolveAreasRecursively(child, recursive, matches, deviceManagement);
+	response.add(existing);
+	if (recursive) {
+	    response.addAll(deviceManagement.getAreaDescendants(existing.getId()));
 	}
+	return response;
     }
 
     private IDeviceManagement getDeviceManagement() {
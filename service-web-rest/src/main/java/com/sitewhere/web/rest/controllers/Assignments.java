@@ -40,6 +40,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.sitewhere.core.DataUtils;
 import com.sitewhere.device.charting.ChartBuilder;
+import com.sitewhere.device.charting.SeriesAggregation;
 import com.sitewhere.device.marshaling.DeviceAssignmentMarshalHelper;
 import com.sitewhere.device.marshaling.DeviceCommandInvocationMarshalHelper;
 import com.sitewhere.grpc.client.event.BlockingDeviceEventManagement;
@@ -74,6 +75,7 @@ import com.sitewhere.spi.device.event.IDeviceCommandInvocation;
 import com.sitewhere.spi.device.event.IDeviceCommandResponse;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
@@ -347,6 +349,35 @@ public class Assignments extends RestControllerBase {
 		DeviceEventIndex.Assignment, Collections.singletonList(assignment.getId()), criteria);
     }
 
+    /**
+     * Calculate count, min, max, average and last value per measurement name over
+     * fixed time windows for an assignment.
+     * 
+     * @param token
+     * @param measurementIds
+     * @param windowMs
+     * @param startDate
+     * @param endDate
+     * @param response
+     * @return
+     * @throws SiteWhereException
+     */
+    @GetMapping(value = "/{token}/measurements/aggregates")
+    @ApiOperation(value = "Aggregate assignment measurements over time windows")
+    public List<IDeviceMeasurementAggregate> aggregateMeasurementsForAssignment(
+	    @ApiParam(value = "Assignment token", required = true) @PathVariable String token,
+	    @ApiParam(value = "Measurement names (all if not specified)", required = false) @RequestParam(required = false) List<String> measurementIds,
+	    @ApiParam(value = "Window length in milliseconds", required = false) @RequestParam(required = false, defaultValue = "3600000") long windowMs,
+	    @ApiParam(value = "Start date", required = true) @RequestParam(required = true) String startDate,
+	    @ApiParam(value = "End date", required = true) @RequestParam(required = true) String endDate,
+	    HttpServletResponse response) throws SiteWhereException {
+	IDeviceAssignment assignment = assertDeviceAssignment(token);
+	IDateRangeSearchCriteria criteria = createDateRangeSearchCriteria(1, 0, startDate, endDate, response);
+	return new BlockingDeviceEventManagement(getDeviceEventManagement()).aggregateDeviceMeasurementsForIndex(
+		DeviceEventIndex.Assignment, Collections.singletonList(assignment.getId()), measurementIds, windowMs,
+		criteria);
+    }
+
     /**
      * List measurement events for multiple assignments as chart series data.
      * 
@@ -355,6 +386,8 @@ public class Assignments extends RestControllerBase {
      * @param startDate
      * @param endDate
      * @param measurementIds
+     * @param maxPoints
+     * @param aggregation
      * @param bulk
      * @param response
      * @return
@@ -368,8 +401,11 @@ public class Assignments extends RestControllerBase {
 	    @ApiParam(value = "Start date", required = false) @RequestParam(required = false) String startDate,
 	    @ApiParam(value = "End date", required = false) @RequestParam(required = false) String endDate,
 	    @ApiParam(value = "Measurement Ids", required = false) @RequestParam(required = false) String[] measurementIds,
+	    @ApiParam(value = "Max points per series (0 for all)", required = false) @RequestParam(required = false, defaultValue = "0") int maxPoints,
+	    @ApiParam(value = "Aggregation used to reduce points (lttb, average, min, max, minmax)", required = false) @RequestParam(required = false, defaultValue = "lttb") String aggregation,
 	    @RequestBody DeviceAssignmentBulkRequest bulk, HttpServletResponse response) throws SiteWhereException {
 	IDateRangeSearchCriteria criteria = createDateRangeSearchCriteria(page, pageSize, startDate, endDate, response);
+	SeriesAggregation reduction = SeriesAggregation.fromName(aggregation);
 	Map<String, List<IChartSeries<Double>>> results = new HashMap<String, List<IChartSeries<Double>>>();
 	for (String token : bulk.getDeviceAssignmentTokens()) {
 	    IDeviceAssignment assignment = assertDeviceAssignment(token);
@@ -377,7 +413,7 @@ public class Assignments extends RestControllerBase {
 		    getDeviceEventManagement()).listDeviceMeasurementsForIndex(DeviceEventIndex.Assignment,
 			    Collections.singletonList(assignment.getId()), criteria);
 	    ChartBuilder builder = new ChartBuilder();
-	    results.put(token, builder.process(measurements.getResults(), measurementIds));
+	    results.put(token, builder.process(measurements.getResults(), measurementIds, maxPoints, reduction));
 	}
 	return results;
     }
@@ -391,6 +427,8 @@ public class Assignments extends RestControllerBase {
      * @param startDate
      * @param endDate
      * @param measurementIds
+     * @param maxPoints
+     * @param aggregation
      * @param response
      * @return
      * @throws SiteWhereException
@@ -404,14 +442,17 @@ public class Assignments extends RestControllerBase {
 	    @ApiParam(value = "Start date", required = false) @RequestParam(required = false) String startDate,
 	    @ApiParam(value = "End date", required = false) @RequestParam(required = false) String endDate,
 	    @ApiParam(value = "Measurement Ids", required = false) @RequestParam(required = false) String[] measurementIds,
+	    @ApiParam(value = "Max points per series (0 for all)", required = false) @RequestParam(required = false, defaultValue = "0") int maxPoints,
+	    @ApiParam(value = "Aggregation used to reduce points (lttb, average, min, max, minmax)", required = false) @RequestParam(required = false, defaultValue = "lttb") String aggregation,
 	    HttpServletResponse response) throws SiteWhereException {
 	IDateRangeSearchCriteria criteria = createDateRangeSearchCriteria(page, pageSize, startDate, endDate, response);
+	SeriesAggregation reduction = SeriesAggregation.fromName(aggregation);
 	IDeviceAssignment assignment = assertDeviceAssignment(token);
 	ISearchResults<IDeviceMeasurement> measurements = new BlockingDeviceEventManagement(getDeviceEventManagement())
 		.listDeviceMeasurementsForIndex(DeviceEventIndex.Assignment,
 			Collections.singletonList(assignment.getId()), criteria);
 	ChartBuilder builder = new ChartBuilder();
-	return builder.process(measurements.getResults(), measurementIds);
+	return builder.process(measurements.getResults(), measurementIds, maxPoints, reduction);
     }
 
     /**
@@ -62,6 +62,7 @@ import com.sitewhere.spi.device.event.IDeviceCommandResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
@@ -337,6 +338,36 @@ public class Customers extends RestControllerBase {
 	return new SearchResults<IDeviceMeasurement>(wrapped, results.getNumResults());
     }
 
+    /**
+     * Calculate count, min, max, average and last value per measurement name over
+     * fixed time windows for a customer.
+     * 
+     * @param customerToken
+     * @param measurementIds
+     * @param windowMs
+     * @param startDate
+     * @param endDate
+     * @param response
+     * @return
+     * @throws SiteWhereException
+     */
+    @RequestMapping(value = "/{customerToken}/measurements/aggregates", method = RequestMethod.GET)
+    @ApiOperation(value = "Aggregate customer measurements over time windows")
+    @Secured({ SiteWhereRoles.REST })
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForCustomer(
+	    @ApiParam(value = "Token that identifies customer", required = true) @PathVariable String customerToken,
+	    @ApiParam(value = "Measurement names (all if not specified)", required = false) @RequestParam(required = false) List<String> measurementIds,
+	    @ApiParam(value = "Window length in milliseconds", required = false) @RequestParam(required = false, defaultValue = "3600000") long windowMs,
+	    @ApiParam(value = "Start date", required = true) @RequestParam(required = true) String startDate,
+	    @ApiParam(value = "End date", required = true) @RequestParam(required = true) String endDate,
+	    HttpServletResponse response) throws SiteWhereException {
+	List<UUID> customers = resolveCustomerIds(customerToken, true, getDeviceManagement());
+	IDateRangeSearchCriteria criteria = Assignments.createDateRangeSearchCriteria(1, 0, startDate, endDate,
+		response);
+	return getDeviceEventManagement().aggregateDeviceMeasurementsForIndex(DeviceEventIndex.Customer, customers,
+		measurementIds, windowMs, criteria);
+    }
+
     /**
      * Get device locations for a customer.
      * 
@@ -7,6 +7,10 @@
  */
 package com.sitewhere.web.rest.controllers;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -28,6 +32,9 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sitewhere.device.group.DeviceGroupElementFailure;
+import com.sitewhere.device.group.DeviceGroupUtils;
 import com.sitewhere.device.marshaling.DeviceGroupElementMarshalHelper;
 import com.sitewhere.device.marshaling.DeviceGroupMarshalHelper;
 import com.sitewhere.rest.model.device.request.DeviceGroupCreateRequest;
@@ -41,6 +48,8 @@ import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceManagement;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
+import com.sitewhere.spi.device.group.IDeviceGroupElementFailure;
 import com.sitewhere.spi.device.request.IDeviceGroupElementCreateRequest;
 import com.sitewhere.spi.error.ErrorCode;
 import com.sitewhere.spi.error.ErrorLevel;
@@ -50,6 +59,8 @@ import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.user.SiteWhereRoles;
 import com.sitewhere.web.annotation.SiteWhereCrossOrigin;
 import com.sitewhere.web.rest.RestControllerBase;
+import com.sitewhere.web.rest.model.DeviceGroupElementBulkSummary;
+import com.sitewhere.web.rest.model.LabelPrerenderSummary;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -70,6 +81,15 @@ public class DeviceGroups extends RestControllerBase {
     @SuppressWarnings("unused")
     private static Log LOGGER = LogFactory.getLog(DeviceGroups.class);
 
+    /** Media type for newline-delimited JSON */
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    /** Number of elements sent to device management in each bulk call */
+    private static final int ELEMENT_CHUNK_SIZE = 1000;
+
+    /** Used to parse streamed elements */
+    private static ObjectMapper JSON = new ObjectMapper();
+
     /**
      * Create a device group.
      * 
@@ -145,6 +165,31 @@ public class DeviceGroups extends RestControllerBase {
 	return new ResponseEntity<byte[]>(label.getContent(), headers, HttpStatus.OK);
     }
 
+    /**
+     * Render labels for all devices in a device group (including nested groups)
+     * so that they are cached before being requested individually.
+     * 
+     * @param groupToken
+     * @param generatorId
+     * @param concurrency
+     * @param servletRequest
+     * @return
+     * @throws SiteWhereException
+     */
+    @RequestMapping(value = "/{groupToken}/labels/{generatorId}/prerender", method = RequestMethod.POST)
+    @ApiOperation(value = "Pre-render labels for devices in group")
+    @Secured({ SiteWhereRoles.REST })
+    public LabelPrerenderSummary prerenderDeviceGroupLabels(
+	    @ApiParam(value = "Device group token", required = true) @PathVariable String groupToken,
+	    @ApiParam(value = "Generator id", required = true) @PathVariable String generatorId,
+	    @ApiParam(value = "Concurrent label requests", required = false) @RequestParam(required = false, defaultValue = "8") int concurrency,
+	    HttpServletRequest servletRequest) throws SiteWhereException {
+	IDeviceGroup group = assureDeviceGroup(groupToken);
+	List<IDevice> devices = DeviceGroupUtils.getDevicesInGroup(group.getId(), getDeviceManagement(),
+		getAssetManagement());
+	return getMicroservice().getDeviceLabelPrerenderer().prerender(generatorId, devices, concurrency);
+    }
+
     /**
      * Delete an existing device group.
      * 
@@ -247,9 +292,7 @@ public class DeviceGroups extends RestControllerBase {
 		.setIncludeDetails(false);
 	List<IDeviceGroupElementCreateRequest> elements = (List<IDeviceGroupElementCreateRequest>) (List<? extends IDeviceGroupElementCreateRequest>) request;
 
-	// Validate the list of new elements.
-	validateDeviceGroupElements(request, getDeviceManagement());
-
+	// Referenced devices and groups are validated before any element is stored.
 	IDeviceGroup group = assureDeviceGroup(groupToken);
 	List<IDeviceGroupElement> results = getDeviceManagement().addDeviceGroupElements(group.getId(), elements, true);
 	List<IDeviceGroupElement> converted = new ArrayList<IDeviceGroupElement>();
@@ -260,28 +303,135 @@ public class DeviceGroups extends RestControllerBase {
     }
 
     /**
-     * Validate new elements to assure they reference real objects.
+     * Add device group elements in bulk. Elements that can not be added are
+     * reported individually in the response while the rest are stored.
      * 
-     * @param elements
-     * @param deviceManagement
+     * @param groupToken
+     * @param ignoreDuplicates
+     * @param request
+     * @param servletRequest
+     * @return
      * @throws SiteWhereException
      */
-    protected void validateDeviceGroupElements(List<DeviceGroupElementCreateRequest> elements,
-	    IDeviceManagement deviceManagement) throws SiteWhereException {
-	for (DeviceGroupElementCreateRequest request : elements) {
-	    if (request.getDeviceToken() != null) {
-		IDevice device = deviceManagement.getDeviceByToken(request.getDeviceToken());
-		if (device == null) {
-		    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceToken, ErrorLevel.ERROR);
+    @SuppressWarnings("unchecked")
+    @RequestMapping(value = "/{groupToken}/elements/bulk", method = RequestMethod.POST, consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ApiOperation(value = "Add elements to device group in bulk")
+    @Secured({ SiteWhereRoles.REST })
+    public DeviceGroupElementBulkSummary addDeviceGroupElementsBulk(
+	    @ApiParam(value = "Unique token that identifies device group", required = true) @PathVariable String groupToken,
+	    @ApiParam(value = "Ignore elements already in group", required = false) @RequestParam(required = false, defaultValue = "true") boolean ignoreDuplicates,
+	    @RequestBody List<DeviceGroupElementCreateRequest> request, HttpServletRequest servletRequest)
+	    throws SiteWhereException {
+	long start = System.currentTimeMillis();
+	IDeviceGroup group = assureDeviceGroup(groupToken);
+	List<IDeviceGroupElementCreateRequest> elements = (List<IDeviceGroupElementCreateRequest>) (List<? extends IDeviceGroupElementCreateRequest>) request;
+	DeviceGroupElementBulkSummary summary = new DeviceGroupElementBulkSummary();
+	for (int offset = 0; offset < elements.size(); offset += ELEMENT_CHUNK_SIZE) {
+	    addDeviceGroupElementChunk(group.getId(),
+		    elements.subList(offset, Math.min(elements.size(), offset + ELEMENT_CHUNK_SIZE)), offset,
+		    ignoreDuplicates, summary);
+	}
+	summary.setRequested(elements.size());
+	summary.setElapsedMs(System.currentTimeMillis() - start);
+	return summary;
+    }
+
+    /**
+     * Add device group elements in bulk from a newline-delimited JSON stream with
+     * one element per line. Elements are added in chunks as the body is read, so
+     * memberships of any size can be loaded without buffering the whole request.
+     * 
+     * @param groupToken
+     * @param ignoreDuplicates
+     * @param servletRequest
+     * @return
+     * @throws SiteWhereException
+     */
+    @RequestMapping(value = "/{groupToken}/elements/bulk", method = RequestMethod.POST, consumes = NDJSON_MEDIA_TYPE)
+    @ApiOperation(value = "Add elements to device group from newline-delimited JSON stream")
+    @Secured({ SiteWhereRoles.REST })
+    public DeviceGroupElementBulkSummary streamDeviceGroupElements(
+	    @ApiParam(value = "Unique token that identifies device group", required = true) @PathVariable String groupToken,
+	    @ApiParam(value = "Ignore elements already in group", required = false) @RequestParam(required = false, defaultValue = "true") boolean ignoreDuplicates,
+	    HttpServletRequest servletRequest) throws SiteWhereException {
+	long start = System.currentTimeMillis();
+	IDeviceGroup group = assureDeviceGroup(groupToken);
+	DeviceGroupElementBulkSummary summary = new DeviceGroupElementBulkSummary();
+	List<IDeviceGroupElementCreateRequest> chunk = new ArrayList<IDeviceGroupElementCreateRequest>();
+	int index = 0;
+	int offset = 0;
+	try {
+	    BufferedReader reader = new BufferedReader(
+		    new InputStreamReader(servletRequest.getInputStream(), StandardCharsets.UTF_8));
+	    String line;
+	    while ((line = reader.readLine()) != null) {
+		if (line.trim().length() == 0) {
+		    continue;
 		}
-	    }
-	    if (request.getNestedGroupToken() != null) {
-		IDeviceGroup group = deviceManagement.getDeviceGroupByToken(request.getNestedGroupToken());
-		if (group == null) {
-		    throw new SiteWhereSystemException(ErrorCode.InvalidDeviceGroupToken, ErrorLevel.ERROR);
+		try {
+		    chunk.add(JSON.readValue(line, DeviceGroupElementCreateRequest.class));
+		} catch (IOException e) {
+		    // Keep position so that failures line up with input elements.
+		    chunk.add(null);
 		}
+		index++;
+		if (chunk.size() >= ELEMENT_CHUNK_SIZE) {
+		    addDeviceGroupElementChunk(group.getId(), chunk, offset, ignoreDuplicates, summary);
+		    offset = index;
+		    chunk.clear();
+		}
+	    }
+	} catch (IOException e) {
+	    throw new SiteWhereException("Unable to read device group elements from request.", e);
+	}
+	if (chunk.size() > 0) {
+	    addDeviceGroupElementChunk(group.getId(), chunk, offset, ignoreDuplicates, summary);
+	}
+	summary.setRequested(index);
+	summary.setElapsedMs(System.currentTimeMillis() - start);
+	return summary;
+    }
+
+    /**
+     * Add a chunk of elements to a group and merge the result into the summary.
+     * Null entries represent elements that could not be parsed.
+     * 
+     * @param groupId
+     * @param chunk
+     * @param offset
+     * @param ignoreDuplicates
+     * @param summary
+     * @throws SiteWhereException
+     */
+    protected void addDeviceGroupElementChunk(UUID groupId, List<IDeviceGroupElementCreateRequest> chunk, int offset,
+	    boolean ignoreDuplicates, DeviceGroupElementBulkSummary summary) throws SiteWhereException {
+	List<IDeviceGroupElementCreateRequest> parsed = new ArrayList<IDeviceGroupElementCreateRequest>();
+	List<Integer> positions = new ArrayList<Integer>();
+	for (int i = 0; i < chunk.size(); i++) {
+	    if (chunk.get(i) == null) {
+		summary.getFailures().add(new DeviceGroupElementFailure(offset + i, null, ErrorCode.Error,
+			"Unable to parse device group element."));
+	    } else {
+		parsed.add(chunk.get(i));
+		positions.add(offset + i);
 	    }
 	}
+	if (parsed.isEmpty()) {
+	    return;
+	}
+	IDeviceGroupElementBulkResult result = getDeviceManagement().addDeviceGroupElementsBulk(groupId, parsed,
+		ignoreDuplicates);
+	summary.setAdded(summary.getAdded() + result.getAdded().size());
+	summary.setDuplicates(summary.getDuplicates() + result.getDuplicates());
+	for (IDeviceGroupElementFailure failure : result.getFailures()) {
+	    DeviceGroupElementFailure moved = new DeviceGroupElementFailure();
+	    moved.setIndex(positions.get(failure.getIndex()));
+	    moved.setDeviceToken(failure.getDeviceToken());
+	    moved.setNestedGroupToken(failure.getNestedGroupToken());
+	    moved.setErrorCode(failure.getErrorCode());
+	    moved.setMessage(failure.getMessage());
+	    summary.getFailures().add(moved);
+	}
     }
 
     /**
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.rest.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sitewhere.spi.device.group.IDeviceGroupElementFailure;
+
+/**
+ * Summarizes the result of adding device group elements in bulk for sending
+ * via REST. Added elements are counted rather than listed so that large
+ * memberships do not produce large responses.
+ * 
+ * @author Derek
+ */
+public class DeviceGroupElementBulkSummary {
+
+    /** Number of elements in request */
+    private int requested;
+
+    /** Number of elements added */
+    private int added;
+
+    /** Number of elements skipped as duplicates */
+    private int duplicates;
+
+    /** Elements that could not be added */
+    private List<IDeviceGroupElementFailure> failures = new ArrayList<IDeviceGroupElementFailure>();
+
+    /** Elapsed time in milliseconds */
+    private long elapsedMs;
+
+    public int getRequested() {
+	return requested;
+    }
+
+    public void setRequested(int requested) {
+	this.requested = requested;
+    }
+
+    public int getAdded() {
+	return added;
+    }
+
+    public void setAdded(int added) {
+	this.added = added;
+    }
+
+    public int getDuplicates() {
+	return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+	this.duplicates = duplicates;
+    }
+
+    public int getFailed() {
+	return failures.size();
+    }
+
+    public List<IDeviceGroupElementFailure> getFailures() {
+	return failures;
+    }
+
+    public void setFailures(List<IDeviceGroupElementFailure> failures) {
+	this.failures = failures;
+    }
+
+    public long getElapsedMs() {
+	return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+	this.elapsedMs = elapsedMs;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.rest.model;
+
+/**
+ * Summarizes the result of pre-rendering labels for sending via REST.
+ * 
+ * @author Derek
+ */
+public class LabelPrerenderSummary {
+
+    /** Generator used to render labels */
+    private String generatorId;
+
+    /** Number of labels requested */
+    private int requested;
+
+    /** Number of labels rendered or already cached */
+    private int rendered;
+
+    /** Number of labels that failed to render */
+    private int failed;
+
+    /** Elapsed time in milliseconds */
+    private long elapsedMs;
+
+    public String getGeneratorId() {
+	return generatorId;
+    }
+
+    public void setGeneratorId(String generatorId) {
+	this.generatorId = generatorId;
+    }
+
+    public int getRequested() {
+	return requested;
+    }
+
+    public void setRequested(int requested) {
+	this.requested = requested;
+    }
+
+    public int getRendered() {
+	return rendered;
+    }
+
+    public void setRendered(int rendered) {
+	this.rendered = rendered;
+    }
+
+    public int getFailed() {
+	return failed;
+    }
+
+    public void setFailed(int failed) {
+	this.failed = failed;
+    }
+
+    public long getElapsedMs() {
+	return elapsedMs;
+    }
+
+    public void setElapsedMs(long elapsedMs) {
+	this.elapsedMs = elapsedMs;
+    }
+}
@@ -8,8 +8,6 @@
 package com.sitewhere.web.security.jwt;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -20,27 +18,29 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.sitewhere.grpc.client.common.security.VerifiedJwt;
+import com.sitewhere.grpc.client.common.security.VerifiedJwtCache;
 import com.sitewhere.grpc.client.spi.provider.ITenantManagementDemuxProvider;
 import com.sitewhere.microservice.security.InvalidJwtException;
 import com.sitewhere.microservice.security.JwtExpiredException;
-import com.sitewhere.security.SitewhereGrantedAuthority;
+import com.sitewhere.security.SitewhereAuthentication;
+import com.sitewhere.security.SitewhereUserDetails;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.security.ITokenManagement;
 import com.sitewhere.spi.security.ITenantAwareAuthentication;
 import com.sitewhere.spi.tenant.ITenant;
-import com.sitewhere.spi.user.IGrantedAuthority;
 import com.sitewhere.web.security.SiteWhereHttpHeaders;
 
-import io.jsonwebtoken.Claims;
-
 /**
  * Filter that pulls JWT and tenant token from authentication header and pushes
- * it into Spring {@link SecurityContextHolder}.
+ * it into Spring {@link SecurityContextHolder}. Verified tokens and the user
+ * details loaded when they were first authenticated are cached until the token
+ * expires, so repeated requests with the same JWT skip parsing and the
+ * {@link AuthenticationManager}.
  * 
  * @author Derek
  */
@@ -55,6 +55,9 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
     /** Authentication manager */
     private AuthenticationManager authenticationManager;
 
+    /** Cache of verified JWTs */
+    private VerifiedJwtCache jwtCache = new VerifiedJwtCache();
+
     public TokenAuthenticationFilter(ITenantManagementDemuxProvider<?> tenantManagementDemuxProvider,
 	    AuthenticationManager authenticationManager) {
 	this.tenantManagementDemuxProvider = tenantManagementDemuxProvider;
@@ -79,18 +82,11 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
 	    // Get username from token and load user.
 	    ITokenManagement tokenManagement = getTenantManagementDemuxProvider().getTokenManagement();
 	    try {
-		Claims claims = tokenManagement.getClaimsForToken(jwt);
-		String username = tokenManagement.getUsernameFromClaims(claims);
-		LOGGER.debug("JWT decoded for username: " + username);
-		List<IGrantedAuthority> auths = tokenManagement.getGrantedAuthoritiesFromClaims(claims);
-		List<GrantedAuthority> springAuths = new ArrayList<GrantedAuthority>();
-		for (IGrantedAuthority auth : auths) {
-		    springAuths.add(new SitewhereGrantedAuthority(auth));
-		}
+		VerifiedJwt verified = getJwtCache().getVerifiedJwt(jwt, tokenManagement);
+		LOGGER.debug("JWT decoded for username: " + verified.getUsername());
 
 		// Create authentication object based on JWT and tenant token.
-		JwtAuthenticationToken token = new JwtAuthenticationToken(username, springAuths, jwt);
-		Authentication authenticated = getAuthenticationManager().authenticate(token);
+		Authentication authenticated = authenticate(verified);
 		if ((!StringUtils.isEmpty(tenantId)) && (StringUtils.isEmpty(tenantAuth))) {
 		    throw new SiteWhereException("Tenant id passed without corresponding tenant auth token.");
 		}
@@ -113,6 +109,29 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
 	}
     }
 
+    /**
+     * Create authentication for a verified JWT. The authentication manager is
+     * only called the first time a token is seen. Later requests reuse the user
+     * details it loaded, with a new authentication object created per request
+     * since tenant information is added to it.
+     * 
+     * @param verified
+     * @return
+     */
+    protected Authentication authenticate(VerifiedJwt verified) {
+	SitewhereUserDetails details = verified.getUserDetails();
+	if (details != null) {
+	    return new SitewhereAuthentication(details, verified.getToken());
+	}
+	JwtAuthenticationToken token = new JwtAuthenticationToken(verified.getUsername(),
+		verified.getSpringAuthorities(), verified.getToken());
+	Authentication authenticated = getAuthenticationManager().authenticate(token);
+	if (authenticated instanceof SitewhereAuthentication) {
+	    verified.setUserDetails((SitewhereUserDetails) authenticated.getDetails());
+	}
+	return authenticated;
+    }
+
     /**
      * Based on fields passed in HTTP headers, look up tenant and verify that tenant
      * auth token is valid. Store tenant information in Spring authentication data
@@ -159,4 +178,12 @@ public class TokenAuthenticationFilter extends OncePerRequestFilter {
     public void setAuthenticationManager(AuthenticationManager authenticationManager) {
 	this.authenticationManager = authenticationManager;
     }
+
+    public VerifiedJwtCache getJwtCache() {
+	return jwtCache;
+    }
+
+    public void setJwtCache(VerifiedJwtCache jwtCache) {
+	this.jwtCache = jwtCache;
+    }
 }
\ No newline at end of file
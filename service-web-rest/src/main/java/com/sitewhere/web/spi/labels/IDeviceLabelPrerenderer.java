@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.web.spi.labels;
+
+import java.util.List;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.server.lifecycle.ILifecycleComponent;
+import com.sitewhere.web.rest.model.LabelPrerenderSummary;
+
+/**
+ * Requests labels for devices ahead of time so that the label generation
+ * service has them cached before they are requested individually.
+ * 
+ * @author Derek
+ */
+public interface IDeviceLabelPrerenderer extends ILifecycleComponent {
+
+    /**
+     * Request labels for all devices and wait for them to complete.
+     * 
+     * @param generatorId
+     * @param devices
+     * @param concurrency
+     * @return
+     * @throws SiteWhereException
+     */
+    public LabelPrerenderSummary prerender(String generatorId, List<IDevice> devices, int concurrency)
+	    throws SiteWhereException;
+}
@@ -19,6 +19,7 @@ import com.sitewhere.grpc.client.spi.provider.IUserManagementDemuxProvider;
 import com.sitewhere.spi.microservice.IFunctionIdentifier;
 import com.sitewhere.spi.microservice.IGlobalMicroservice;
 import com.sitewhere.spi.microservice.state.ITopologyStateAggregator;
+import com.sitewhere.web.spi.labels.IDeviceLabelPrerenderer;
 
 /**
  * Microservice that provides web/REST functionality.
@@ -83,4 +84,11 @@ public interface IWebRestMicroservice<T extends IFunctionIdentifier>
      * @return
      */
     public ITopologyStateAggregator getTopologyStateAggregator();
+
+    /**
+     * Get component that pre-renders device labels.
+     * 
+     * @return
+     */
+    public IDeviceLabelPrerenderer getDeviceLabelPrerenderer();
 }
\ No newline at end of file
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.communication.protobuf;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.sitewhere.device.DeviceManagementDecorator;
+import com.sitewhere.rest.model.device.DeviceType;
+import com.sitewhere.rest.model.device.command.CommandParameter;
+import com.sitewhere.rest.model.device.command.DeviceCommand;
+import com.sitewhere.rest.model.search.SearchResults;
+import com.sitewhere.rest.model.tenant.Tenant;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.command.IDeviceCommand;
+import com.sitewhere.spi.device.command.ParameterType;
+import com.sitewhere.spi.search.ISearchResults;
+import com.sitewhere.spi.search.device.IDeviceCommandSearchCriteria;
+
+/**
+ * Compares compiling protobuf descriptors for every command with looking them
+ * up in {@link ProtobufDescriptorCache}. Run with "gradle
+ * :sitewhere-communication:jmh".
+ * 
+ * @author Derek
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProtobufDescriptorCacheBenchmark {
+
+    /** Number of commands for the device type */
+    @Param({ "5", "50" })
+    private int commandCount;
+
+    /** Device type being encoded */
+    private DeviceType deviceType;
+
+    /** Tenant */
+    private Tenant tenant;
+
+    /** Returns commands for the device type */
+    private IDeviceManagement deviceManagement;
+
+    /** Cache under test */
+    private ProtobufDescriptorCache cache;
+
+    @Setup
+    public void setup() throws SiteWhereException {
+	deviceType = new DeviceType();
+	deviceType.setId(UUID.randomUUID());
+	deviceType.setToken("benchmark");
+	deviceType.setName("Benchmark");
+	deviceType.setCreatedDate(new Date());
+
+	final List<IDeviceCommand> commands = new ArrayList<IDeviceCommand>();
+	for (int i = 0; i < commandCount; i++) {
+	    DeviceCommand command = new DeviceCommand();
+	    command.setId(UUID.randomUUID());
+	    command.setDeviceTypeId(deviceType.getId());
+	    command.setName("command" + i);
+	    command.setCreatedDate(new Date());
+	    List<CommandParameter> parameters = new ArrayList<CommandParameter>();
+	    for (int j = 0; j < 4; j++) {
+		CommandParameter parameter = new CommandParameter();
+		parameter.setName("param" + j);
+		parameter.setType(ParameterType.String);
+		parameters.add(parameter);
+	    }
+	    command.setParameters(parameters);
+	    commands.add(command);
+	}
+
+	tenant = new Tenant();
+	tenant.setToken("benchmark");
+	deviceManagement = new DeviceManagementDecorator(null) {
+
+	    @Override
+	    public ISearchResults<IDeviceCommand> listDeviceCommands(IDeviceCommandSearchCriteria criteria)
+		    throws SiteWhereException {
+		return new SearchResults<IDeviceCommand>(commands);
+	    }
+	};
+	cache = new ProtobufDescriptorCache();
+	cache.get(deviceType, tenant, deviceManagement);
+    }
+
+    /**
+     * Build and compile descriptors as was done for every command.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    @Benchmark
+    public ProtobufDescriptorCache.CompiledDeviceType compile() throws SiteWhereException {
+	return ProtobufDescriptorCache.compile(deviceType, tenant, deviceManagement);
+    }
+
+    /**
+     * Look up descriptors in the cache, which still lists and fingerprints the
+     * commands.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    @Benchmark
+    public ProtobufDescriptorCache.CompiledDeviceType cached() throws SiteWhereException {
+	return cache.get(deviceType, tenant, deviceManagement);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.communication.protobuf;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.protobuf.DescriptorProtos;
+import com.google.protobuf.Descriptors;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.IDeviceType;
+import com.sitewhere.spi.device.command.IDeviceCommand;
+import com.sitewhere.spi.tenant.ITenant;
+
+/**
+ * Caches compiled protobuf descriptors for device types along with lookup
+ * tables for the command enum, command messages and their fields. Intended to
+ * be owned by a single tenant engine component, so entries are keyed by device
+ * type id.
+ * 
+ * Each entry records a fingerprint of what it was compiled from: the device
+ * type id and dates, followed by the id and created/updated dates of every
+ * command in list order. Command enum numbers depend on the position of each
+ * command in the list, so any added, removed, reordered or changed command
+ * must recompile the entry. The command list is read for each lookup and
+ * compared with the fingerprint, which avoids rebuilding and compiling the
+ * descriptors when nothing has changed.
+ * 
+ * @author Derek
+ */
+public class ProtobufDescriptorCache {
+
+    /** Static logger instance */
+    private static Logger LOGGER = LoggerFactory.getLogger(ProtobufDescriptorCache.class);
+
+    /** Compiled device types by device type id */
+    private Map<UUID, CompiledDeviceType> compiled = new ConcurrentHashMap<UUID, CompiledDeviceType>();
+
+    /**
+     * Get compiled descriptors for a device type, compiling them if not cached or
+     * if the device type or its commands have changed since they were compiled.
+     * 
+     * @param deviceType
+     * @param tenant
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public CompiledDeviceType get(IDeviceType deviceType, ITenant tenant, IDeviceManagement deviceManagement)
+	    throws SiteWhereException {
+	List<IDeviceCommand> commands = ProtobufSpecificationBuilder.getDeviceCommands(deviceType, deviceManagement);
+	String fingerprint = calculateFingerprint(deviceType, commands);
+	CompiledDeviceType entry = compiled.get(deviceType.getId());
+	if ((entry != null) && (entry.getFingerprint().equals(fingerprint))) {
+	    return entry;
+	}
+	entry = compile(deviceType, commands, fingerprint);
+	compiled.put(deviceType.getId(), entry);
+	return entry;
+    }
+
+    /**
+     * Remove cached descriptors for a device type.
+     * 
+     * @param deviceTypeId
+     */
+    public void invalidate(UUID deviceTypeId) {
+	compiled.remove(deviceTypeId);
+    }
+
+    /**
+     * Remove all cached descriptors.
+     */
+    public void clear() {
+	compiled.clear();
+    }
+
+    /**
+     * Build and compile descriptors for a device type.
+     * 
+     * @param deviceType
+     * @param tenant
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public static CompiledDeviceType compile(IDeviceType deviceType, ITenant tenant,
+	    IDeviceManagement deviceManagement) throws SiteWhereException {
+	List<IDeviceCommand> commands = ProtobufSpecificationBuilder.getDeviceCommands(deviceType, deviceManagement);
+	return compile(deviceType, commands, calculateFingerprint(deviceType, commands));
+    }
+
+    /**
+     * Build and compile descriptors for a device type and its commands.
+     * 
+     * @param deviceType
+     * @param commands
+     * @param fingerprint
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static CompiledDeviceType compile(IDeviceType deviceType, List<IDeviceCommand> commands,
+	    String fingerprint) throws SiteWhereException {
+	DescriptorProtos.FileDescriptorProto fdproto = ProtobufSpecificationBuilder.createFileDescriptor(deviceType,
+		commands);
+	if (LOGGER.isDebugEnabled()) {
+	    LOGGER.debug("Compiling the following device type proto:\n" + fdproto.toString());
+	}
+	try {
+	    Descriptors.FileDescriptor filedesc = Descriptors.FileDescriptor.buildFrom(fdproto,
+		    new Descriptors.FileDescriptor[0]);
+	    Descriptors.Descriptor mdesc = filedesc
+		    .findMessageTypeByName(ProtobufNaming.getDeviceTypeIdentifier(deviceType));
+	    return new CompiledDeviceType(mdesc, fingerprint);
+	} catch (Descriptors.DescriptorValidationException e) {
+	    throw new SiteWhereException("Unable to compile protobuf descriptor for device type.", e);
+	}
+    }
+
+    /**
+     * Calculate fingerprint of a device type and its commands. Commands are
+     * included in list order since that determines their enum numbers.
+     * 
+     * @param deviceType
+     * @param commands
+     * @return
+     */
+    protected static String calculateFingerprint(IDeviceType deviceType, List<IDeviceCommand> commands) {
+	StringBuilder fingerprint = new StringBuilder();
+	appendEntity(fingerprint, deviceType.getId(), deviceType.getCreatedDate(), deviceType.getUpdatedDate());
+	for (IDeviceCommand command : commands) {
+	    appendEntity(fingerprint, command.getId(), command.getCreatedDate(), command.getUpdatedDate());
+	}
+	return fingerprint.toString();
+    }
+
+    /**
+     * Append id and dates of an entity to a fingerprint.
+     * 
+     * @param fingerprint
+     * @param id
+     * @param created
+     * @param updated
+     */
+    protected static void appendEntity(StringBuilder fingerprint, UUID id, Date created, Date updated) {
+	fingerprint.append(id).append(':');
+	fingerprint.append((created != null) ? created.getTime() : 0).append(':');
+	fingerprint.append((updated != null) ? updated.getTime() : 0).append(';');
+    }
+
+    /**
+     * Compiled descriptors and lookup tables for a device type.
+     */
+    public static class CompiledDeviceType {
+
+	/** Device type message */
+	private Descriptors.Descriptor message;
+
+	/** Header message */
+	private Descriptors.Descriptor header;
+
+	/** Header command field */
+	private Descriptors.FieldDescriptor headerCommand;
+
+	/** Header originator field */
+	private Descriptors.FieldDescriptor headerOriginator;
+
+	/** Header nested path field */
+	private Descriptors.FieldDescriptor headerNestedPath;
+
+	/** Header nested type field */
+	private Descriptors.FieldDescriptor headerNestedType;
+
+	/** Command enum values by enum name */
+	private Map<String, Descriptors.EnumValueDescriptor> commandEnumValues = new HashMap<>();
+
+	/** Command messages by command name */
+	private Map<String, Descriptors.Descriptor> commandMessages = new HashMap<>();
+
+	/** Command message fields by command name, then field name */
+	private Map<String, Map<String, Descriptors.FieldDescriptor>> commandFields = new HashMap<>();
+
+	/** Fingerprint of the device type and commands compiled from */
+	private String fingerprint;
+
+	public CompiledDeviceType(Descriptors.Descriptor message, String fingerprint) {
+	    this.message = message;
+	    this.fingerprint = fingerprint;
+	    this.header = message.findNestedTypeByName(ProtobufNaming.HEADER_MSG_NAME);
+	    this.headerCommand = header.findFieldByName(ProtobufNaming.HEADER_COMMAND_FIELD_NAME);
+	    this.headerOriginator = header.findFieldByName(ProtobufNaming.HEADER_ORIGINATOR_FIELD_NAME);
+	    this.headerNestedPath = header.findFieldByName(ProtobufNaming.HEADER_NESTED_PATH_FIELD_NAME);
+	    this.headerNestedType = header.findFieldByName(ProtobufNaming.HEADER_NESTED_TYPE_FIELD_NAME);
+
+	    Descriptors.EnumDescriptor enumDesc = message.findEnumTypeByName(ProtobufNaming.COMMAND_TYPES_ENUM);
+	    for (Descriptors.EnumValueDescriptor value : enumDesc.getValues()) {
+		commandEnumValues.put(value.getName(), value);
+	    }
+	    for (Descriptors.Descriptor nested : message.getNestedTypes()) {
+		commandMessages.put(nested.getName(), nested);
+		Map<String, Descriptors.FieldDescriptor> fields = new HashMap<>();
+		for (Descriptors.FieldDescriptor field : nested.getFields()) {
+		    fields.put(field.getName(), field);
+		}
+		commandFields.put(nested.getName(), fields);
+	    }
+	}
+
+	/**
+	 * Get enum value for a command.
+	 * 
+	 * @param command
+	 * @return
+	 */
+	public Descriptors.EnumValueDescriptor getCommandEnumValue(IDeviceCommand command) {
+	    return commandEnumValues.get(ProtobufNaming.getCommandEnumName(command));
+	}
+
+	/**
+	 * Get message descriptor for a command.
+	 * 
+	 * @param command
+	 * @return
+	 */
+	public Descriptors.Descriptor getCommandMessage(IDeviceCommand command) {
+	    return commandMessages.get(command.getName());
+	}
+
+	/**
+	 * Get field descriptor for a command parameter.
+	 * 
+	 * @param command
+	 * @param name
+	 * @return
+	 */
+	public Descriptors.FieldDescriptor getCommandField(IDeviceCommand command, String name) {
+	    Map<String, Descriptors.FieldDescriptor> fields = commandFields.get(command.getName());
+	    return (fields != null) ? fields.get(name) : null;
+	}
+
+	public Descriptors.Descriptor getMessage() {
+	    return message;
+	}
+
+	public Descriptors.Descriptor getHeader() {
+	    return header;
+	}
+
+	public Descriptors.FieldDescriptor getHeaderCommand() {
+	    return headerCommand;
+	}
+
+	public Descriptors.FieldDescriptor getHeaderOriginator() {
+	    return headerOriginator;
+	}
+
+	public Descriptors.FieldDescriptor getHeaderNestedPath() {
+	    return headerNestedPath;
+	}
+
+	public Descriptors.FieldDescriptor getHeaderNestedType() {
+	    return headerNestedType;
+	}
+
+	public String getFingerprint() {
+	    return fingerprint;
+	}
+    }
+}
@@ -16,6 +16,7 @@ import org.slf4j.LoggerFactory;
 import com.google.protobuf.DescriptorProtos;
 import com.google.protobuf.Descriptors;
 import com.google.protobuf.DynamicMessage;
+import com.sitewhere.communication.protobuf.ProtobufDescriptorCache.CompiledDeviceType;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceManagement;
@@ -37,6 +38,8 @@ public class ProtobufMessageBuilder {
 
     /**
      * Create a protobuf message for an {@link IDeviceCommandExecution}.
+     * Descriptors are compiled for each call. Use the variant that takes a
+     * {@link ProtobufDescriptorCache} when encoding many messages.
      * 
      * @param execution
      * @param nested
@@ -50,52 +53,83 @@ public class ProtobufMessageBuilder {
 	    IDeviceAssignment assignment, ITenant tenant, IDeviceManagement deviceManagement)
 	    throws SiteWhereException {
 	IDeviceType deviceType = deviceManagement.getDeviceType(execution.getCommand().getDeviceTypeId());
-	DescriptorProtos.FileDescriptorProto fdproto = getFileDescriptor(deviceType, tenant, deviceManagement);
-	LOGGER.debug("Using the following device type proto:\n" + fdproto.toString());
-	Descriptors.FileDescriptor[] fdescs = new Descriptors.FileDescriptor[0];
+	CompiledDeviceType compiled = ProtobufDescriptorCache.compile(deviceType, tenant, deviceManagement);
+	return createMessage(compiled, execution, nested, deviceManagement);
+    }
+
+    /**
+     * Create a protobuf message for an {@link IDeviceCommandExecution} using
+     * cached descriptors for the device type.
+     * 
+     * @param execution
+     * @param nested
+     * @param assignment
+     * @param tenant
+     * @param deviceManagement
+     * @param cache
+     * @return
+     * @throws SiteWhereException
+     */
+    public static byte[] createMessage(IDeviceCommandExecution execution, IDeviceNestingContext nested,
+	    IDeviceAssignment assignment, ITenant tenant, IDeviceManagement deviceManagement,
+	    ProtobufDescriptorCache cache) throws SiteWhereException {
+	IDeviceType deviceType = deviceManagement.getDeviceType(execution.getCommand().getDeviceTypeId());
+	CompiledDeviceType compiled = cache.get(deviceType, tenant, deviceManagement);
+	return createMessage(compiled, execution, nested, deviceManagement);
+    }
+
+    /**
+     * Encode header and command messages using compiled descriptors.
+     * 
+     * @param compiled
+     * @param execution
+     * @param nested
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static byte[] createMessage(CompiledDeviceType compiled, IDeviceCommandExecution execution,
+	    IDeviceNestingContext nested, IDeviceManagement deviceManagement) throws SiteWhereException {
 	ByteArrayOutputStream out = new ByteArrayOutputStream();
 	try {
-	    Descriptors.FileDescriptor filedesc = Descriptors.FileDescriptor.buildFrom(fdproto, fdescs);
-	    Descriptors.Descriptor mdesc = filedesc
-		    .findMessageTypeByName(ProtobufNaming.getDeviceTypeIdentifier(deviceType));
-
 	    // Create the header message.
-	    Descriptors.Descriptor header = mdesc.findNestedTypeByName(ProtobufNaming.HEADER_MSG_NAME);
-	    DynamicMessage.Builder headBuilder = DynamicMessage.newBuilder(header);
+	    DynamicMessage.Builder headBuilder = DynamicMessage.newBuilder(compiled.getHeader());
 
 	    // Set enum value based on command.
-	    Descriptors.EnumDescriptor enumDesc = mdesc.findEnumTypeByName(ProtobufNaming.COMMAND_TYPES_ENUM);
-	    Descriptors.EnumValueDescriptor enumValue = enumDesc
-		    .findValueByName(ProtobufNaming.getCommandEnumName(execution.getCommand()));
+	    Descriptors.EnumValueDescriptor enumValue = compiled.getCommandEnumValue(execution.getCommand());
 	    if (enumValue == null) {
 		throw new SiteWhereException("No enum value found for command: " + execution.getCommand().getName());
 	    }
-	    headBuilder.setField(header.findFieldByName(ProtobufNaming.HEADER_COMMAND_FIELD_NAME), enumValue);
-	    headBuilder.setField(header.findFieldByName(ProtobufNaming.HEADER_ORIGINATOR_FIELD_NAME),
-		    execution.getInvocation().getId().toString());
+	    headBuilder.setField(compiled.getHeaderCommand(), enumValue);
+	    headBuilder.setField(compiled.getHeaderOriginator(), execution.getInvocation().getId().toString());
 
 	    if (nested.getNested() != null) {
 		IDeviceType nestedType = deviceManagement.getDeviceType(nested.getNested().getDeviceTypeId());
-		LOGGER.debug(
-			"Targeting nested device with type: " + nestedType.getName() + " at path " + nested.getPath());
-		headBuilder.setField(header.findFieldByName(ProtobufNaming.HEADER_NESTED_PATH_FIELD_NAME),
-			nested.getPath());
-		headBuilder.setField(header.findFieldByName(ProtobufNaming.HEADER_NESTED_TYPE_FIELD_NAME),
-			nestedType.getToken());
+		if (LOGGER.isDebugEnabled()) {
+		    LOGGER.debug("Targeting nested device with type: " + nestedType.getName() + " at path "
+			    + nested.getPath());
+		}
+		headBuilder.setField(compiled.getHeaderNestedPath(), nested.getPath());
+		headBuilder.setField(compiled.getHeaderNestedType(), nestedType.getToken());
 	    }
 
 	    DynamicMessage hmessage = headBuilder.build();
-	    LOGGER.debug("Header:\n" + hmessage.toString());
+	    if (LOGGER.isDebugEnabled()) {
+		LOGGER.debug("Header:\n" + hmessage.toString());
+	    }
 	    hmessage.writeDelimitedTo(out);
 
 	    // Find nested type for command and create/populate an instance.
-	    Descriptors.Descriptor command = mdesc.findNestedTypeByName(execution.getCommand().getName());
+	    Descriptors.Descriptor command = compiled.getCommandMessage(execution.getCommand());
+	    if (command == null) {
+		throw new SiteWhereException("No message found for command: " + execution.getCommand().getName());
+	    }
 	    DynamicMessage.Builder cbuilder = DynamicMessage.newBuilder(command);
 
 	    // Set each field in the command message.
 	    for (String name : execution.getParameters().keySet()) {
 		Object value = execution.getParameters().get(name);
-		Descriptors.FieldDescriptor field = command.findFieldByName(name);
+		Descriptors.FieldDescriptor field = compiled.getCommandField(execution.getCommand(), name);
 		if (field == null) {
 		    throw new SiteWhereException("Command parameter '" + name + "' not found in device type: ");
 		}
@@ -108,12 +142,12 @@ public class ProtobufMessageBuilder {
 		}
 	    }
 	    DynamicMessage cmessage = cbuilder.build();
-	    LOGGER.debug("Message:\n" + cmessage.toString());
+	    if (LOGGER.isDebugEnabled()) {
+		LOGGER.debug("Message:\n" + cmessage.toString());
+	    }
 	    cmessage.writeDelimitedTo(out);
 
 	    return out.toByteArray();
-	} catch (Descriptors.DescriptorValidationException e) {
-	    throw new SiteWhereException("Unable to create protobuf message.", e);
 	} catch (IOException e) {
 	    throw new SiteWhereException("Unable to encode protobuf message.", e);
 	}
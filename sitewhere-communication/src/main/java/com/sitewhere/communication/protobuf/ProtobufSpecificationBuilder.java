@@ -41,11 +41,41 @@ public class ProtobufSpecificationBuilder {
      */
     public static DescriptorProtos.FileDescriptorProto createFileDescriptor(IDeviceType deviceType, ITenant tenant,
 	    IDeviceManagement deviceManagement) throws SiteWhereException {
+	return createFileDescriptor(deviceType, getDeviceCommands(deviceType, deviceManagement));
+    }
+
+    /**
+     * Creates a {@link FileDescriptorProto} based on an {@link IDeviceType} and
+     * its commands.
+     * 
+     * @param deviceType
+     * @param commands
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DescriptorProtos.FileDescriptorProto createFileDescriptor(IDeviceType deviceType,
+	    List<IDeviceCommand> commands) throws SiteWhereException {
 	DescriptorProtos.FileDescriptorProto.Builder builder = DescriptorProtos.FileDescriptorProto.newBuilder();
-	builder.addMessageType(createDeviceTypeMessage(deviceType, tenant, deviceManagement));
+	builder.addMessageType(createDeviceTypeMessage(deviceType, commands));
 	return builder.build();
     }
 
+    /**
+     * Get all commands for a device type.
+     * 
+     * @param deviceType
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public static List<IDeviceCommand> getDeviceCommands(IDeviceType deviceType, IDeviceManagement deviceManagement)
+	    throws SiteWhereException {
+	DeviceCommandSearchCriteria criteria = new DeviceCommandSearchCriteria(1, 0);
+	criteria.setDeviceTypeId(deviceType.getId());
+	ISearchResults<IDeviceCommand> commands = deviceManagement.listDeviceCommands(criteria);
+	return commands.getResults();
+    }
+
     /**
      * Create the message for a device type.
      * 
@@ -57,17 +87,26 @@ public class ProtobufSpecificationBuilder {
      */
     public static DescriptorProtos.DescriptorProto createDeviceTypeMessage(IDeviceType deviceType, ITenant tenant,
 	    IDeviceManagement deviceManagement) throws SiteWhereException {
-	DeviceCommandSearchCriteria criteria = new DeviceCommandSearchCriteria(1, 0);
-	criteria.setDeviceTypeId(deviceType.getId());
-	ISearchResults<IDeviceCommand> commands = deviceManagement.listDeviceCommands(criteria);
+	return createDeviceTypeMessage(deviceType, getDeviceCommands(deviceType, deviceManagement));
+    }
 
+    /**
+     * Create the message for a device type with the given commands.
+     * 
+     * @param deviceType
+     * @param commands
+     * @return
+     * @throws SiteWhereException
+     */
+    public static DescriptorProtos.DescriptorProto createDeviceTypeMessage(IDeviceType deviceType,
+	    List<IDeviceCommand> commands) throws SiteWhereException {
 	DescriptorProtos.DescriptorProto.Builder builder = DescriptorProtos.DescriptorProto.newBuilder();
 	builder.setName(ProtobufNaming.getDeviceTypeIdentifier(deviceType));
-	builder.addEnumType(createCommandsEnum(commands.getResults()));
+	builder.addEnumType(createCommandsEnum(commands));
 	builder.addNestedType(createUuidMessage());
 	builder.addNestedType(createHeaderMessage());
 
-	for (IDeviceCommand command : commands.getResults()) {
+	for (IDeviceCommand command : commands) {
 	    builder.addNestedType(createCommandMessage(command)).build();
 	}
 
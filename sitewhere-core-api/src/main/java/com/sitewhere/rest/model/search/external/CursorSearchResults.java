@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.rest.model.search.external;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sitewhere.spi.search.ICursorSearchResults;
+
+/**
+ * Implementation of {@link ICursorSearchResults} used for marshaling.
+ * 
+ * @author Derek
+ *
+ * @param <T>
+ */
+public class CursorSearchResults<T> implements ICursorSearchResults<T> {
+
+    /** Total number of matching results */
+    private long numResults;
+
+    /** Results for page */
+    private List<T> results = new ArrayList<T>();
+
+    /** Token for next page */
+    private String nextCursor;
+
+    public CursorSearchResults() {
+    }
+
+    public CursorSearchResults(List<T> results, long numResults, String nextCursor) {
+	this.results = results;
+	this.numResults = numResults;
+	this.nextCursor = nextCursor;
+    }
+
+    /*
+     * @see com.sitewhere.spi.search.ICursorSearchResults#getNumResults()
+     */
+    @Override
+    public long getNumResults() {
+	return numResults;
+    }
+
+    public void setNumResults(long numResults) {
+	this.numResults = numResults;
+    }
+
+    /*
+     * @see com.sitewhere.spi.search.ICursorSearchResults#getResults()
+     */
+    @Override
+    public List<T> getResults() {
+	return results;
+    }
+
+    public void setResults(List<T> results) {
+	this.results = results;
+    }
+
+    /*
+     * @see com.sitewhere.spi.search.ICursorSearchResults#getNextCursor()
+     */
+    @Override
+    public String getNextCursor() {
+	return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+	this.nextCursor = nextCursor;
+    }
+}
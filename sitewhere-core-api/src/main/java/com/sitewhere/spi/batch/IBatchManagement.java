@@ -7,6 +7,8 @@
  */
 package com.sitewhere.spi.batch;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.sitewhere.spi.SiteWhereException;
@@ -95,6 +97,19 @@ public interface IBatchManagement extends ITenantEngineLifecycleComponent {
     public IBatchElement createBatchElement(UUID batchOperationId, IBatchElementCreateRequest request)
 	    throws SiteWhereException;
 
+    /**
+     * Create multiple batch elements associated with a batch operation. The
+     * result contains one entry for each request in the same order. Entries are
+     * null for requests that could not be created.
+     * 
+     * @param batchOperationId
+     * @param requests
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IBatchElement> createBatchElements(UUID batchOperationId, List<IBatchElementCreateRequest> requests)
+	    throws SiteWhereException;
+
     /**
      * Lists elements for an {@link IBatchOperation} that meet the given criteria.
      * 
@@ -117,6 +132,14 @@ public interface IBatchManagement extends ITenantEngineLifecycleComponent {
     public IBatchElement updateBatchElement(UUID elementId, IBatchElementCreateRequest request)
 	    throws SiteWhereException;
 
+    /**
+     * Update multiple batch elements at once. Requests are keyed by element id.
+     * 
+     * @param requests
+     * @throws SiteWhereException
+     */
+    public void updateBatchElements(Map<UUID, IBatchElementCreateRequest> requests) throws SiteWhereException;
+
     /**
      * Creates an {@link ISearchResults} that will invoke a command on multiple
      * devices.
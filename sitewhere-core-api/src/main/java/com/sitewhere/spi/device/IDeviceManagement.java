@@ -24,6 +24,7 @@ import com.sitewhere.spi.customer.request.ICustomerTypeCreateRequest;
 import com.sitewhere.spi.device.command.IDeviceCommand;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
 import com.sitewhere.spi.device.request.IDeviceAlarmCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceCommandCreateRequest;
@@ -251,6 +252,16 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public IDevice getDeviceByToken(String token) throws SiteWhereException;
 
+    /**
+     * Gets devices for a list of reference tokens. The result has one entry per
+     * token in the same order, with null for tokens that do not match a device.
+     * 
+     * @param tokens
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDevice> getDevicesByToken(List<String> tokens) throws SiteWhereException;
+
     /**
      * Update device information.
      * 
@@ -270,6 +281,18 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
      */
     public ISearchResults<IDevice> listDevices(IDeviceSearchCriteria criteria) throws SiteWhereException;
 
+    /**
+     * Get the devices with the given ids that also meet the given criteria.
+     * Paging settings in the criteria are ignored. Ids that do not match a device
+     * are skipped. The order of the results is not defined.
+     * 
+     * @param deviceIds
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDevice> getDevices(List<UUID> deviceIds, IDeviceSearchCriteria criteria) throws SiteWhereException;
+
     /**
      * Create an {@link IDeviceElementMapping} for a nested device.
      * 
@@ -632,7 +655,27 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
     public List<IArea> getAreaChildren(String token) throws SiteWhereException;
 
     /**
-     * Update information for an area.
+     * Get all areas nested below the given area at any depth.
+     * 
+     * @param areaId
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IArea> getAreaDescendants(UUID areaId) throws SiteWhereException;
+
+    /**
+     * Get the ancestors of an area ordered from the root area down to the parent.
+     * 
+     * @param areaId
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IArea> getAreaAncestors(UUID areaId) throws SiteWhereException;
+
+    /**
+     * Update information for an area. If the request has a parent area token,
+     * the area is moved below that area. An empty parent area token moves the
+     * area to the root.
      * 
      * @param id
      * @param request
@@ -651,7 +694,8 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
     public ISearchResults<IArea> listAreas(IAreaSearchCriteria criteria) throws SiteWhereException;
 
     /**
-     * Delete an area.
+     * Delete an area. Child areas are not deleted, but the deleted area is
+     * removed from their paths so they are no longer returned as its descendants.
      * 
      * @param id
      * @return
@@ -792,6 +836,21 @@ public interface IDeviceManagement extends ITenantEngineLifecycleComponent {
     public List<IDeviceGroupElement> addDeviceGroupElements(UUID groupId,
 	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException;
 
+    /**
+     * Add elements to a device group in bulk. All referenced tokens are resolved
+     * before any element is written. Elements that reference missing devices or
+     * groups, or that duplicate an existing element, are reported in the result
+     * rather than failing the whole request.
+     * 
+     * @param groupId
+     * @param elements
+     * @param ignoreDuplicates
+     * @return
+     * @throws SiteWhereException
+     */
+    public IDeviceGroupElementBulkResult addDeviceGroupElementsBulk(UUID groupId,
+	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException;
+
     /**
      * Remove selected elements from a device group.
      * 
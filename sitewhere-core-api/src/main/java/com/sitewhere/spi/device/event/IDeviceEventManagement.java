@@ -82,6 +82,24 @@ public interface IDeviceEventManagement extends ITenantEngineLifecycleComponent
     public ISearchResults<IDeviceMeasurement> listDeviceMeasurementsForIndex(DeviceEventIndex index,
 	    List<UUID> entityIds, IDateRangeSearchCriteria criteria) throws SiteWhereException;
 
+    /**
+     * Calculate count, min, max, average and last value per measurement name over
+     * fixed time windows for an index. Windows are aligned to the epoch. Both
+     * start and end dates are required. Paging values in the criteria are ignored.
+     * 
+     * @param index
+     * @param entityIds
+     * @param measurementNames
+     *            names to include or empty for all
+     * @param windowMs
+     * @param criteria
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException;
+
     /**
      * Add one or more device locations for a given device assignment.
      * 
@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.event;
+
+import java.util.Date;
+
+/**
+ * Summary of measurement values with a given name over a fixed time window.
+ *
+ * @author Derek
+ */
+public interface IDeviceMeasurementAggregate {
+
+    /**
+     * Get measurement name.
+     *
+     * @return
+     */
+    public String getName();
+
+    /**
+     * Get start of time window (inclusive).
+     *
+     * @return
+     */
+    public Date getWindowStart();
+
+    /**
+     * Get end of time window (exclusive).
+     *
+     * @return
+     */
+    public Date getWindowEnd();
+
+    /**
+     * Get number of measurements in window.
+     *
+     * @return
+     */
+    public long getCount();
+
+    /**
+     * Get minimum value in window.
+     *
+     * @return
+     */
+    public Double getMin();
+
+    /**
+     * Get maximum value in window.
+     *
+     * @return
+     */
+    public Double getMax();
+
+    /**
+     * Get average value in window.
+     *
+     * @return
+     */
+    public Double getAverage();
+
+    /**
+     * Get latest value in window.
+     *
+     * @return
+     */
+    public Double getLast();
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.group;
+
+import java.util.List;
+
+/**
+ * Result of adding device group elements in bulk. Elements that could not be
+ * added are reported individually rather than failing the whole request.
+ * 
+ * @author Derek
+ */
+public interface IDeviceGroupElementBulkResult {
+
+    /**
+     * Get elements that were added to the group.
+     * 
+     * @return
+     */
+    public List<IDeviceGroupElement> getAdded();
+
+    /**
+     * Get number of elements skipped because they were already in the group.
+     * 
+     * @return
+     */
+    public int getDuplicates();
+
+    /**
+     * Get elements that could not be added.
+     * 
+     * @return
+     */
+    public List<IDeviceGroupElementFailure> getFailures();
+}
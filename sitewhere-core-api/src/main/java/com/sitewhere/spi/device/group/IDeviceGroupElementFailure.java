@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.device.group;
+
+import com.sitewhere.spi.error.ErrorCode;
+
+/**
+ * Describes a device group element that could not be added as part of a bulk
+ * request.
+ * 
+ * @author Derek
+ */
+public interface IDeviceGroupElementFailure {
+
+    /**
+     * Get position of the element in the request.
+     * 
+     * @return
+     */
+    public int getIndex();
+
+    /**
+     * Get device token from the element request.
+     * 
+     * @return
+     */
+    public String getDeviceToken();
+
+    /**
+     * Get nested group token from the element request.
+     * 
+     * @return
+     */
+    public String getNestedGroupToken();
+
+    /**
+     * Get code for the error that prevented the element from being added.
+     * 
+     * @return
+     */
+    public ErrorCode getErrorCode();
+
+    /**
+     * Get message describing the failure.
+     * 
+     * @return
+     */
+    public String getMessage();
+}
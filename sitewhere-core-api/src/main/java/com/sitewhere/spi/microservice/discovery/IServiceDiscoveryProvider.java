@@ -8,6 +8,7 @@
 package com.sitewhere.spi.microservice.discovery;
 
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IFunctionIdentifier;
@@ -43,4 +44,20 @@ public interface IServiceDiscoveryProvider extends ILifecycleComponent {
      * @throws SiteWhereException
      */
     public List<IServiceNode> getNodesForFunction(IFunctionIdentifier identifier) throws SiteWhereException;
+
+    /**
+     * Wait for the list of nodes that provide the given functionality to change
+     * from the state at the given index. Returns the current nodes as soon as a
+     * change occurs or when the maximum wait expires. Passing an index of zero
+     * returns immediately.
+     * 
+     * @param identifier
+     * @param index
+     * @param maxWait
+     * @param unit
+     * @return
+     * @throws SiteWhereException
+     */
+    public IServiceNodeSnapshot waitForNodesForFunction(IFunctionIdentifier identifier, long index, long maxWait,
+	    TimeUnit unit) throws SiteWhereException;
 }
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.microservice.discovery;
+
+import java.util.List;
+
+/**
+ * List of nodes providing a function along with the index of the discovery
+ * state it was read from. The index is passed back to the discovery provider
+ * to wait for subsequent changes.
+ * 
+ * @author Derek
+ */
+public interface IServiceNodeSnapshot {
+
+    /**
+     * Get nodes that provide the function.
+     * 
+     * @return
+     */
+    public List<IServiceNode> getNodes();
+
+    /**
+     * Get index of discovery state.
+     * 
+     * @return
+     */
+    public long getIndex();
+}
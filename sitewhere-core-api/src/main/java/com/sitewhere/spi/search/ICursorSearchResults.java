@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spi.search;
+
+import java.util.List;
+
+/**
+ * A single page of search results along with a continuation token used to
+ * request the following page.
+ * 
+ * @author Derek
+ *
+ * @param <T>
+ */
+public interface ICursorSearchResults<T> {
+
+    /**
+     * Get total number of results matching the query.
+     * 
+     * @return
+     */
+    public long getNumResults();
+
+    /**
+     * Get results for the current page.
+     * 
+     * @return
+     */
+    public List<T> getResults();
+
+    /**
+     * Get token passed to request the next page or null if there are no more
+     * results.
+     * 
+     * @return
+     */
+    public String getNextCursor();
+}
@@ -30,6 +30,27 @@ public interface IDeviceEventSearchProvider extends ISearchProvider {
      */
     public List<IDeviceEvent> executeQuery(String query) throws SiteWhereException;
 
+    /**
+     * Executes an event query and returns a single page of results. The query
+     * is interpreted the same way as in {@link #executeQuery(String)}. Results
+     * are ordered by event date (newest first) and then by event id. Pages are
+     * walked using the continuation token returned with each page rather than
+     * by offset, so deep pages cost the same as the first.
+     * 
+     * @param query
+     *            query expression
+     * @param cursor
+     *            token from previous page or null for first page
+     * @param pageSize
+     *            max number of events returned
+     * @param fields
+     *            fields to load or null for all fields
+     * @return
+     * @throws SiteWhereException
+     */
+    public ICursorSearchResults<IDeviceEvent> executeQueryPage(String query, String cursor, int pageSize,
+	    List<String> fields) throws SiteWhereException;
+
     /**
      * Execute a query, returning a raw response from the provider.
      * 
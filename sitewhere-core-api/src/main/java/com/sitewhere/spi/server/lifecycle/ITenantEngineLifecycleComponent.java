@@ -7,6 +7,7 @@
  */
 package com.sitewhere.spi.server.lifecycle;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
@@ -36,6 +37,15 @@ public interface ITenantEngineLifecycleComponent extends ILifecycleComponent {
      */
     public Timer createTimerMetric(String name);
 
+    /**
+     * Create a histogram metric for the component (registered with the metric
+     * registry for the microservice).
+     * 
+     * @param name
+     * @return
+     */
+    public Histogram createHistogramMetric(String name);
+
     /**
      * Set tenant engine for component.
      * 
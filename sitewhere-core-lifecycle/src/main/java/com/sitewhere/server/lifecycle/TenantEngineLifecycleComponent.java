@@ -7,6 +7,7 @@
  */
 package com.sitewhere.server.lifecycle;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import com.sitewhere.spi.SiteWhereException;
@@ -55,6 +56,15 @@ public abstract class TenantEngineLifecycleComponent extends LifecycleComponent
 	return getTenantEngine().getMicroservice().getMetricRegistry().timer(getTenentMetricPrefix() + name);
     }
 
+    /*
+     * @see com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent#
+     * createHistogramMetric(java.lang.String)
+     */
+    @Override
+    public Histogram createHistogramMetric(String name) {
+	return getTenantEngine().getMicroservice().getMetricRegistry().histogram(getTenentMetricPrefix() + name);
+    }
+
     /**
      * Get prefix added to metrics so they are unique.
      * 
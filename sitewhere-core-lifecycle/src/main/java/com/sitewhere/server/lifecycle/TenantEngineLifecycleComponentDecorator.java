@@ -7,6 +7,7 @@
  */
 package com.sitewhere.server.lifecycle;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.Meter;
 import com.codahale.metrics.Timer;
 import com.sitewhere.spi.microservice.multitenant.IMicroserviceTenantEngine;
@@ -37,6 +38,15 @@ public class TenantEngineLifecycleComponentDecorator<T extends ITenantEngineLife
 	return getDelegate().createTimerMetric(name);
     }
 
+    /*
+     * @see com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent#
+     * createHistogramMetric(java.lang.String)
+     */
+    @Override
+    public Histogram createHistogramMetric(String name) {
+	return getDelegate().createHistogramMetric(name);
+    }
+
     /*
      * @see com.sitewhere.spi.server.lifecycle.ITenantEngineLifecycleComponent#
      * setTenantEngine(com.sitewhere.spi.microservice.multitenant.
@@ -7,6 +7,8 @@
  */
 package com.sitewhere.batch;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponentDecorator;
@@ -106,6 +108,17 @@ public class BatchManagementDecorator extends TenantEngineLifecycleComponentDeco
 	return getDelegate().createBatchElement(batchOperationId, request);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId, List<IBatchElementCreateRequest> requests)
+	    throws SiteWhereException {
+	return getDelegate().createBatchElements(batchOperationId, requests);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#listBatchElements(java.util.UUID,
@@ -128,6 +141,15 @@ public class BatchManagementDecorator extends TenantEngineLifecycleComponentDeco
 	return getDelegate().updateBatchElement(elementId, request);
     }
 
+    /*
+     * @see com.sitewhere.spi.batch.IBatchManagement#updateBatchElements(java.util.
+     * Map)
+     */
+    @Override
+    public void updateBatchElements(Map<UUID, IBatchElementCreateRequest> requests) throws SiteWhereException {
+	getDelegate().updateBatchElements(requests);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#createBatchCommandInvocation(com.
@@ -8,7 +8,8 @@
 package com.sitewhere.batch;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 import com.sitewhere.device.group.DeviceGroupUtils;
@@ -59,19 +60,30 @@ public class BatchUtils {
 	IDeviceSearchCriteria deviceSearch = new DeviceSearchCriteria(criteria.getDeviceTypeToken(), false, 1, 0,
 		criteria.getStartDate(), criteria.getEndDate());
 
-	Collection<IDevice> matches;
+	Iterator<IDevice> matches;
 	if (hasGroup) {
 	    IDeviceGroup group = deviceManagement.getDeviceGroupByToken(criteria.getGroupToken());
-	    matches = DeviceGroupUtils.getDevicesInGroup(group, deviceSearch, deviceManagement, assetManagement);
+	    if (group == null) {
+		throw new SiteWhereSystemException(ErrorCode.InvalidDeviceGroupToken, ErrorLevel.ERROR);
+	    }
+	    matches = DeviceGroupUtils.resolveDevicesInGroups(Collections.singletonList(group.getId()), deviceSearch,
+		    deviceManagement);
 	} else if (hasGroupsWithRole) {
-	    matches = DeviceGroupUtils.getDevicesInGroupsWithRole(criteria.getGroupsWithRole(), deviceSearch,
-		    deviceManagement, assetManagement);
+	    matches = DeviceGroupUtils.resolveDevicesInGroupsWithRole(criteria.getGroupsWithRole(), deviceSearch,
+		    deviceManagement);
 	} else {
-	    matches = deviceManagement.listDevices(deviceSearch).getResults();
+	    matches = deviceManagement.listDevices(deviceSearch).getResults().iterator();
 	}
 	List<String> deviceTokens = new ArrayList<String>();
-	for (IDevice match : matches) {
-	    deviceTokens.add(match.getToken());
+	try {
+	    while (matches.hasNext()) {
+		deviceTokens.add(matches.next().getToken());
+	    }
+	} catch (RuntimeException e) {
+	    if (e.getCause() instanceof SiteWhereException) {
+		throw (SiteWhereException) e.getCause();
+	    }
+	    throw e;
 	}
 	return deviceTokens;
     }
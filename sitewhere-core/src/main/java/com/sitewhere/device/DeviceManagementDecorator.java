@@ -32,6 +32,7 @@ import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.command.IDeviceCommand;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
 import com.sitewhere.spi.device.request.IDeviceAlarmCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceCommandCreateRequest;
@@ -297,6 +298,24 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().listDevices(criteria);
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevices(java.util.List,
+     * com.sitewhere.spi.search.device.IDeviceSearchCriteria)
+     */
+    @Override
+    public List<IDevice> getDevices(List<UUID> deviceIds, IDeviceSearchCriteria criteria) throws SiteWhereException {
+	return getDelegate().getDevices(deviceIds, criteria);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDevicesByToken(java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByToken(List<String> tokens) throws SiteWhereException {
+	return getDelegate().getDevicesByToken(tokens);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#createDeviceElementMapping(java.
@@ -660,6 +679,24 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().getAreaChildren(token);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaDescendants(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaDescendants(UUID areaId) throws SiteWhereException {
+	return getDelegate().getAreaDescendants(areaId);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaAncestors(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaAncestors(UUID areaId) throws SiteWhereException {
+	return getDelegate().getAreaAncestors(areaId);
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateArea(java.util.UUID,
      * com.sitewhere.spi.area.request.IAreaCreateRequest)
@@ -812,6 +849,17 @@ public class DeviceManagementDecorator extends TenantEngineLifecycleComponentDec
 	return getDelegate().addDeviceGroupElements(groupId, elements, ignoreDuplicates);
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#addDeviceGroupElementsBulk(java.
+     * util.UUID, java.util.List, boolean)
+     */
+    @Override
+    public IDeviceGroupElementBulkResult addDeviceGroupElementsBulk(UUID groupId,
+	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException {
+	return getDelegate().addDeviceGroupElementsBulk(groupId, elements, ignoreDuplicates);
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#removeDeviceGroupElements(java.
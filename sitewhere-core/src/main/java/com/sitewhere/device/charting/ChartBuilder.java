@@ -9,26 +9,31 @@ package com.sitewhere.device.charting;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Date;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
-import com.sitewhere.rest.model.device.charting.ChartEntry;
 import com.sitewhere.rest.model.device.charting.ChartSeries;
 import com.sitewhere.spi.device.charting.IChartSeries;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
 
 /**
- * Builds chart series from measurements.
+ * Builds chart series from measurements. Measurements are collected per series
+ * in a single pass into primitive arrays and may be reduced to a target number
+ * of points before chart entries are created.
  * 
  * @author Derek
  */
 public class ChartBuilder {
 
-    /** Map of measurement names to series */
-    private Map<String, IChartSeries<Double>> seriesByMeasurementName;
+    /** Initial capacity for series points */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /** Map of measurement names to collected points */
+    private Map<String, SeriesPoints> pointsByMeasurementName;
 
     /**
      * Process measurements into a list of charts series.
@@ -37,23 +42,45 @@ public class ChartBuilder {
      * @return
      */
     public List<IChartSeries<Double>> process(List<IDeviceMeasurement> matches, String[] measurementIds) {
-	seriesByMeasurementName = new HashMap<String, IChartSeries<Double>>();
-	List<String> mxids = null;
+	return process(matches, measurementIds, 0, SeriesAggregation.None);
+    }
+
+    /**
+     * Process measurements into a list of chart series, reducing each series to at
+     * most maxPoints entries with the given aggregation. A maxPoints value of zero
+     * or less keeps all points.
+     * 
+     * @param matches
+     * @param measurementIds
+     * @param maxPoints
+     * @param aggregation
+     * @return
+     */
+    public List<IChartSeries<Double>> process(List<IDeviceMeasurement> matches, String[] measurementIds,
+	    int maxPoints, SeriesAggregation aggregation) {
+	pointsByMeasurementName = new LinkedHashMap<String, SeriesPoints>();
+	Set<String> mxids = null;
 	if ((measurementIds != null) && (measurementIds.length > 0)) {
-	    mxids = Arrays.asList(measurementIds);
+	    mxids = new HashSet<String>(Arrays.asList(measurementIds));
 	}
 
-	// Add all measurements.
+	// Collect points for requested measurements.
 	for (IDeviceMeasurement mx : matches) {
-	    addSeriesEntry(mx.getName(), mx.getValue(), mx.getEventDate());
+	    if ((mxids == null) || (mxids.contains(mx.getName()))) {
+		addSeriesEntry(mx.getName(), mx.getValue(), mx.getEventDate().getTime());
+	    }
 	}
-	// Sort entries by date.
+
+	// Order points by date and reduce.
 	List<IChartSeries<Double>> results = new ArrayList<IChartSeries<Double>>();
-	for (IChartSeries<Double> series : seriesByMeasurementName.values()) {
-	    if ((mxids == null) || (mxids.contains(series.getMeasurementId()))) {
-		Collections.sort(series.getEntries());
-		results.add(series);
-	    }
+	for (Map.Entry<String, SeriesPoints> entry : pointsByMeasurementName.entrySet()) {
+	    SeriesPoints points = entry.getValue();
+	    points.sort();
+	    ChartSeries<Double> series = new ChartSeries<Double>();
+	    series.setMeasurementId(entry.getKey());
+	    series.getEntries().addAll(SeriesDownsampler.downsample(points.getTimes(), points.getValues(),
+		    points.getSize(), maxPoints, aggregation));
+	    results.add(series);
 	}
 	return results;
     }
@@ -64,19 +91,111 @@ public class ChartBuilder {
      * 
      * @param key
      * @param value
-     * @param date
+     * @param time
      */
-    protected void addSeriesEntry(String key, Double value, Date date) {
-	IChartSeries<Double> series = seriesByMeasurementName.get(key);
-	if (series == null) {
-	    ChartSeries<Double> newSeries = new ChartSeries<Double>();
-	    newSeries.setMeasurementId(key);
-	    seriesByMeasurementName.put(key, newSeries);
-	    series = newSeries;
+    protected void addSeriesEntry(String key, Double value, long time) {
+	SeriesPoints points = pointsByMeasurementName.get(key);
+	if (points == null) {
+	    points = new SeriesPoints();
+	    pointsByMeasurementName.put(key, points);
+	}
+	points.add(time, (value != null) ? value.doubleValue() : Double.NaN);
+    }
+
+    /**
+     * Growable arrays of points for a single series.
+     */
+    private static class SeriesPoints {
+
+	/** Point times */
+	private long[] times = new long[INITIAL_CAPACITY];
+
+	/** Point values */
+	private double[] values = new double[INITIAL_CAPACITY];
+
+	/** Number of points */
+	private int size;
+
+	/** Indicates whether points were added in ascending order */
+	private boolean ascending = true;
+
+	/** Indicates whether points were added in descending order */
+	private boolean descending = true;
+
+	/**
+	 * Add a point.
+	 * 
+	 * @param time
+	 * @param value
+	 */
+	public void add(long time, double value) {
+	    if (size == times.length) {
+		times = Arrays.copyOf(times, size * 2);
+		values = Arrays.copyOf(values, size * 2);
+	    }
+	    if (size > 0) {
+		ascending &= (time >= times[size - 1]);
+		descending &= (time <= times[size - 1]);
+	    }
+	    times[size] = time;
+	    values[size] = value;
+	    size++;
+	}
+
+	/**
+	 * Put points in ascending time order. Searches usually return events newest
+	 * first, in which case the points are simply reversed.
+	 */
+	public void sort() {
+	    if (ascending) {
+		return;
+	    }
+	    if (descending) {
+		for (int i = 0, j = size - 1; i < j; i++, j--) {
+		    long time = times[i];
+		    times[i] = times[j];
+		    times[j] = time;
+		    double value = values[i];
+		    values[i] = values[j];
+		    values[j] = value;
+		}
+		return;
+	    }
+	    Integer[] order = new Integer[size];
+	    for (int i = 0; i < size; i++) {
+		order[i] = i;
+	    }
+	    final long[] unsorted = times;
+	    Arrays.sort(order, new Comparator<Integer>() {
+
+		/*
+		 * @see java.util.Comparator#compare(java.lang.Object, java.lang.Object)
+		 */
+		@Override
+		public int compare(Integer a, Integer b) {
+		    return Long.compare(unsorted[a], unsorted[b]);
+		}
+	    });
+	    long[] sortedTimes = new long[size];
+	    double[] sortedValues = new double[size];
+	    for (int i = 0; i < size; i++) {
+		sortedTimes[i] = times[order[i]];
+		sortedValues[i] = values[order[i]];
+	    }
+	    times = sortedTimes;
+	    values = sortedValues;
+	}
+
+	public long[] getTimes() {
+	    return times;
+	}
+
+	public double[] getValues() {
+	    return values;
+	}
+
+	public int getSize() {
+	    return size;
 	}
-	ChartEntry<Double> seriesEntry = new ChartEntry<Double>();
-	seriesEntry.setValue(value);
-	seriesEntry.setMeasurementDate(date);
-	series.getEntries().add(seriesEntry);
     }
-}
\ No newline at end of file
+}
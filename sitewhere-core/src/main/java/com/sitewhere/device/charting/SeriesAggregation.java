@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import com.sitewhere.spi.SiteWhereException;
+
+/**
+ * Methods used to reduce the number of points in a chart series.
+ * 
+ * @author Derek
+ */
+public enum SeriesAggregation {
+
+    /** Keep all points */
+    None,
+
+    /** Largest-triangle-three-buckets selection of representative points */
+    Lttb,
+
+    /** Average of each time bucket */
+    Average,
+
+    /** Minimum of each time bucket */
+    Min,
+
+    /** Maximum of each time bucket */
+    Max,
+
+    /** Minimum and maximum of each time bucket */
+    MinMax;
+
+    /**
+     * Get aggregation by name, ignoring case.
+     * 
+     * @param name
+     * @return
+     * @throws SiteWhereException
+     */
+    public static SeriesAggregation fromName(String name) throws SiteWhereException {
+	for (SeriesAggregation value : SeriesAggregation.values()) {
+	    if (value.name().equalsIgnoreCase(name)) {
+		return value;
+	    }
+	}
+	throw new SiteWhereException("Unknown series aggregation: " + name);
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.charting;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.sitewhere.rest.model.device.charting.ChartEntry;
+
+/**
+ * Reduces a time-ordered series of points to at most a target number of chart
+ * entries. Points are held in primitive arrays so that large series can be
+ * reduced without creating an entry for every point. Missing values are stored
+ * as {@link Double#NaN} and are skipped when reducing.
+ * 
+ * @author Derek
+ */
+public class SeriesDownsampler {
+
+    /**
+     * Reduce points to at most maxPoints entries using the given aggregation.
+     * Times must be in ascending order.
+     * 
+     * @param times
+     * @param values
+     * @param size
+     * @param maxPoints
+     * @param aggregation
+     * @return
+     */
+    public static List<ChartEntry<Double>> downsample(long[] times, double[] values, int size, int maxPoints,
+	    SeriesAggregation aggregation) {
+	if ((maxPoints <= 0) || (size <= maxPoints) || (aggregation == SeriesAggregation.None)) {
+	    return all(times, values, size);
+	}
+	switch (aggregation) {
+	case Lttb: {
+	    return lttb(times, values, size, maxPoints);
+	}
+	case MinMax: {
+	    return buckets(times, values, size, Math.max(1, maxPoints / 2), aggregation);
+	}
+	default: {
+	    return buckets(times, values, size, maxPoints, aggregation);
+	}
+	}
+    }
+
+    /**
+     * Convert all points to entries.
+     * 
+     * @param times
+     * @param values
+     * @param size
+     * @return
+     */
+    protected static List<ChartEntry<Double>> all(long[] times, double[] values, int size) {
+	List<ChartEntry<Double>> entries = new ArrayList<ChartEntry<Double>>(size);
+	for (int i = 0; i < size; i++) {
+	    entries.add(entry(times[i], Double.isNaN(values[i]) ? null : values[i]));
+	}
+	return entries;
+    }
+
+    /**
+     * Select representative points using largest-triangle-three-buckets. The first
+     * and last points are always kept. Points between are split into buckets of
+     * equal count and the point in each bucket forming the largest triangle with
+     * the previously selected point and the average of the next bucket is kept.
+     * 
+     * @param times
+     * @param values
+     * @param size
+     * @param maxPoints
+     * @return
+     */
+    protected static List<ChartEntry<Double>> lttb(long[] times, double[] values, int size, int maxPoints) {
+	// Work only with points that have values.
+	int count = 0;
+	int[] index = new int[size];
+	for (int i = 0; i < size; i++) {
+	    if (!Double.isNaN(values[i])) {
+		index[count++] = i;
+	    }
+	}
+	if ((count <= maxPoints) || (maxPoints < 3)) {
+	    return buckets(times, values, size, maxPoints, SeriesAggregation.Average);
+	}
+
+	List<ChartEntry<Double>> entries = new ArrayList<ChartEntry<Double>>(maxPoints);
+	double every = (double) (count - 2) / (maxPoints - 2);
+	int selected = 0;
+	entries.add(entry(times[index[0]], values[index[0]]));
+	for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+	    // Average of next bucket.
+	    int nextStart = Math.min((int) Math.floor((bucket + 1) * every) + 1, count - 1);
+	    int nextEnd = Math.min(Math.max((int) Math.floor((bucket + 2) * every) + 1, nextStart + 1), count);
+	    double avgTime = 0;
+	    double avgValue = 0;
+	    for (int i = nextStart; i < nextEnd; i++) {
+		avgTime += times[index[i]];
+		avgValue += values[index[i]];
+	    }
+	    avgTime /= (nextEnd - nextStart);
+	    avgValue /= (nextEnd - nextStart);
+
+	    // Point in current bucket with largest triangle area.
+	    int start = (int) Math.floor(bucket * every) + 1;
+	    int end = (int) Math.floor((bucket + 1) * every) + 1;
+	    double selectedTime = times[index[selected]];
+	    double selectedValue = values[index[selected]];
+	    double maxArea = -1;
+	    int best = start;
+	    for (int i = start; i < end; i++) {
+		double area = Math.abs((selectedTime - avgTime) * (values[index[i]] - selectedValue)
+			- (selectedTime - times[index[i]]) * (avgValue - selectedValue));
+		if (area > maxArea) {
+		    maxArea = area;
+		    best = i;
+		}
+	    }
+	    entries.add(entry(times[index[best]], values[index[best]]));
+	    selected = best;
+	}
+	entries.add(entry(times[index[count - 1]], values[index[count - 1]]));
+	return entries;
+    }
+
+    /**
+     * Split the time range into buckets of equal duration and reduce the points
+     * in each bucket. Empty buckets produce no entries.
+     * 
+     * @param times
+     * @param values
+     * @param size
+     * @param bucketCount
+     * @param aggregation
+     * @return
+     */
+    protected static List<ChartEntry<Double>> buckets(long[] times, double[] values, int size, int bucketCount,
+	    SeriesAggregation aggregation) {
+	List<ChartEntry<Double>> entries = new ArrayList<ChartEntry<Double>>();
+	if ((size == 0) || (bucketCount <= 0)) {
+	    return entries;
+	}
+	long first = times[0];
+	double span = (double) (times[size - 1] - first) + 1;
+	int i = 0;
+	while (i < size) {
+	    int bucket = (int) (((times[i] - first) / span) * bucketCount);
+	    int count = 0;
+	    double sum = 0;
+	    double sumTime = 0;
+	    int min = -1;
+	    int max = -1;
+	    while ((i < size) && ((int) (((times[i] - first) / span) * bucketCount) == bucket)) {
+		double value = values[i];
+		if (!Double.isNaN(value)) {
+		    count++;
+		    sum += value;
+		    sumTime += times[i];
+		    if ((min < 0) || (value < values[min])) {
+			min = i;
+		    }
+		    if ((max < 0) || (value > values[max])) {
+			max = i;
+		    }
+		}
+		i++;
+	    }
+	    if (count == 0) {
+		continue;
+	    }
+	    switch (aggregation) {
+	    case Min: {
+		entries.add(entry(times[min], values[min]));
+		break;
+	    }
+	    case Max: {
+		entries.add(entry(times[max], values[max]));
+		break;
+	    }
+	    case MinMax: {
+		int low = Math.min(min, max);
+		int high = Math.max(min, max);
+		entries.add(entry(times[low], values[low]));
+		if (high != low) {
+		    entries.add(entry(times[high], values[high]));
+		}
+		break;
+	    }
+	    default: {
+		entries.add(entry(Math.round(sumTime / count), sum / count));
+		break;
+	    }
+	    }
+	}
+	return entries;
+    }
+
+    /**
+     * Create a chart entry.
+     * 
+     * @param time
+     * @param value
+     * @return
+     */
+    protected static ChartEntry<Double> entry(long time, Double value) {
+	ChartEntry<Double> entry = new ChartEntry<Double>();
+	entry.setValue(value);
+	entry.setMeasurementDate(new Date(time));
+	return entry;
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.event;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
+
+/**
+ * Model object for {@link IDeviceMeasurementAggregate}.
+ *
+ * @author Derek
+ */
+public class DeviceMeasurementAggregate implements IDeviceMeasurementAggregate, Serializable {
+
+    /** Serial version UID */
+    private static final long serialVersionUID = -3518924750328167042L;
+
+    /** Measurement name */
+    private String name;
+
+    /** Start of window */
+    private Date windowStart;
+
+    /** End of window */
+    private Date windowEnd;
+
+    /** Number of measurements */
+    private long count;
+
+    /** Minimum value */
+    private Double min;
+
+    /** Maximum value */
+    private Double max;
+
+    /** Average value */
+    private Double average;
+
+    /** Latest value */
+    private Double last;
+
+    /**
+     * Create a copy of an SPI object so it can be marshaled as JSON.
+     * 
+     * @param input
+     * @return
+     */
+    public static DeviceMeasurementAggregate copy(IDeviceMeasurementAggregate input) {
+	DeviceMeasurementAggregate result = new DeviceMeasurementAggregate();
+	result.setName(input.getName());
+	result.setWindowStart(input.getWindowStart());
+	result.setWindowEnd(input.getWindowEnd());
+	result.setCount(input.getCount());
+	result.setMin(input.getMin());
+	result.setMax(input.getMax());
+	result.setAverage(input.getAverage());
+	result.setLast(input.getLast());
+	return result;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getName()
+     */
+    @Override
+    public String getName() {
+	return name;
+    }
+
+    public void setName(String name) {
+	this.name = name;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getWindowStart()
+     */
+    @Override
+    public Date getWindowStart() {
+	return windowStart;
+    }
+
+    public void setWindowStart(Date windowStart) {
+	this.windowStart = windowStart;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getWindowEnd()
+     */
+    @Override
+    public Date getWindowEnd() {
+	return windowEnd;
+    }
+
+    public void setWindowEnd(Date windowEnd) {
+	this.windowEnd = windowEnd;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getCount()
+     */
+    @Override
+    public long getCount() {
+	return count;
+    }
+
+    public void setCount(long count) {
+	this.count = count;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getMin()
+     */
+    @Override
+    public Double getMin() {
+	return min;
+    }
+
+    public void setMin(Double min) {
+	this.min = min;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getMax()
+     */
+    @Override
+    public Double getMax() {
+	return max;
+    }
+
+    public void setMax(Double max) {
+	this.max = max;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getAverage()
+     */
+    @Override
+    public Double getAverage() {
+	return average;
+    }
+
+    public void setAverage(Double average) {
+	this.average = average;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceMeasurementAggregate#getLast()
+     */
+    @Override
+    public Double getLast() {
+	return last;
+    }
+
+    public void setLast(Double last) {
+	this.last = last;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.event;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
+import com.sitewhere.spi.search.IDateRangeSearchCriteria;
+
+/**
+ * Folds measurements into count, min, max, average and last values per
+ * measurement name over fixed time windows. Windows are aligned to the epoch
+ * so that results match those calculated natively by the datastores.
+ * Measurements may be added in any order and only running totals are kept, so
+ * memory use depends on the number of windows rather than the number of
+ * measurements.
+ *
+ * @author Derek
+ */
+public class MeasurementAggregator {
+
+    /** Max number of windows allowed for a single query */
+    public static final long MAX_WINDOWS = 10000;
+
+    /** Length of window in milliseconds */
+    private long windowMs;
+
+    /** Names to include or null for all */
+    private Set<String> names;
+
+    /** Windows by measurement name and window start */
+    private Map<String, TreeMap<Long, Window>> windows = new TreeMap<String, TreeMap<Long, Window>>();
+
+    public MeasurementAggregator(long windowMs, List<String> names) {
+	this.windowMs = windowMs;
+	if ((names != null) && (!names.isEmpty())) {
+	    this.names = new HashSet<String>(names);
+	}
+    }
+
+    /**
+     * Add a measurement. Measurements without a value or with a name that was
+     * not requested are ignored.
+     *
+     * @param mx
+     */
+    public void add(IDeviceMeasurement mx) {
+	if ((mx.getValue() == null) || (mx.getEventDate() == null) || (mx.getName() == null)) {
+	    return;
+	}
+	if ((names != null) && (!names.contains(mx.getName()))) {
+	    return;
+	}
+	TreeMap<Long, Window> byStart = windows.get(mx.getName());
+	if (byStart == null) {
+	    byStart = new TreeMap<Long, Window>();
+	    windows.put(mx.getName(), byStart);
+	}
+	long time = mx.getEventDate().getTime();
+	long start = getWindowStart(time, getWindowMs());
+	Window window = byStart.get(start);
+	if (window == null) {
+	    window = new Window();
+	    byStart.put(start, window);
+	}
+	window.add(time, mx.getValue());
+    }
+
+    /**
+     * Get aggregates ordered by measurement name and window start.
+     *
+     * @return
+     */
+    public List<IDeviceMeasurementAggregate> getResults() {
+	List<IDeviceMeasurementAggregate> results = new ArrayList<IDeviceMeasurementAggregate>();
+	for (Map.Entry<String, TreeMap<Long, Window>> named : windows.entrySet()) {
+	    for (Map.Entry<Long, Window> entry : named.getValue().entrySet()) {
+		Window window = entry.getValue();
+		DeviceMeasurementAggregate aggregate = new DeviceMeasurementAggregate();
+		aggregate.setName(named.getKey());
+		aggregate.setWindowStart(new Date(entry.getKey()));
+		aggregate.setWindowEnd(new Date(entry.getKey() + getWindowMs()));
+		aggregate.setCount(window.count);
+		aggregate.setMin(window.min);
+		aggregate.setMax(window.max);
+		aggregate.setAverage(window.sum / window.count);
+		aggregate.setLast(window.last);
+		results.add(aggregate);
+	    }
+	}
+	return results;
+    }
+
+    /**
+     * Get start of the window that contains the given time.
+     *
+     * @param time
+     * @param windowMs
+     * @return
+     */
+    public static long getWindowStart(long time, long windowMs) {
+	return time - Math.floorMod(time, windowMs);
+    }
+
+    /**
+     * Verify that a window length is valid for the given criteria. Both start and
+     * end dates are required so that a query never spans the entire history.
+     *
+     * @param windowMs
+     * @param criteria
+     * @throws SiteWhereException
+     */
+    public static void validate(long windowMs, IDateRangeSearchCriteria criteria) throws SiteWhereException {
+	if (windowMs <= 0) {
+	    throw new SiteWhereException("Aggregation window must be greater than zero.");
+	}
+	if ((criteria == null) || (criteria.getStartDate() == null) || (criteria.getEndDate() == null)) {
+	    throw new SiteWhereException("Aggregation requires both a start date and an end date.");
+	}
+	long range = criteria.getEndDate().getTime() - criteria.getStartDate().getTime();
+	if (range < 0) {
+	    throw new SiteWhereException("Aggregation end date must not be before start date.");
+	}
+	if ((range / windowMs) > MAX_WINDOWS) {
+	    throw new SiteWhereException(
+		    "Aggregation window is too small for date range. Max windows allowed is " + MAX_WINDOWS + ".");
+	}
+    }
+
+    /**
+     * Running totals for a single window.
+     */
+    private static class Window {
+
+	/** Number of values */
+	private long count;
+
+	/** Minimum value */
+	private double min = Double.POSITIVE_INFINITY;
+
+	/** Maximum value */
+	private double max = Double.NEGATIVE_INFINITY;
+
+	/** Sum of values */
+	private double sum;
+
+	/** Latest value */
+	private double last;
+
+	/** Time of latest value */
+	private long lastTime = Long.MIN_VALUE;
+
+	public void add(long time, double value) {
+	    count++;
+	    min = Math.min(min, value);
+	    max = Math.max(max, value);
+	    sum += value;
+	    if (time >= lastTime) {
+		last = value;
+		lastTime = time;
+	    }
+	}
+    }
+
+    public long getWindowMs() {
+	return windowMs;
+    }
+}
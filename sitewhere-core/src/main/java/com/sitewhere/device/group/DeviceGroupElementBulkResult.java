@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.group;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
+import com.sitewhere.spi.device.group.IDeviceGroupElementFailure;
+
+/**
+ * Model object for {@link IDeviceGroupElementBulkResult}.
+ * 
+ * @author Derek
+ */
+public class DeviceGroupElementBulkResult implements IDeviceGroupElementBulkResult, Serializable {
+
+    /** Serial version UID */
+    private static final long serialVersionUID = 2911730546513418302L;
+
+    /** Elements added to group */
+    private List<IDeviceGroupElement> added = new ArrayList<IDeviceGroupElement>();
+
+    /** Number of duplicate elements skipped */
+    private int duplicates;
+
+    /** Elements that could not be added */
+    private List<IDeviceGroupElementFailure> failures = new ArrayList<IDeviceGroupElementFailure>();
+
+    /*
+     * @see com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult#getAdded()
+     */
+    @Override
+    public List<IDeviceGroupElement> getAdded() {
+	return added;
+    }
+
+    public void setAdded(List<IDeviceGroupElement> added) {
+	this.added = added;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult#getDuplicates()
+     */
+    @Override
+    public int getDuplicates() {
+	return duplicates;
+    }
+
+    public void setDuplicates(int duplicates) {
+	this.duplicates = duplicates;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult#getFailures()
+     */
+    @Override
+    public List<IDeviceGroupElementFailure> getFailures() {
+	return failures;
+    }
+
+    public void setFailures(List<IDeviceGroupElementFailure> failures) {
+	this.failures = failures;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.group;
+
+import java.io.Serializable;
+
+import com.sitewhere.spi.device.group.IDeviceGroupElementFailure;
+import com.sitewhere.spi.device.request.IDeviceGroupElementCreateRequest;
+import com.sitewhere.spi.error.ErrorCode;
+
+/**
+ * Model object for {@link IDeviceGroupElementFailure}.
+ * 
+ * @author Derek
+ */
+public class DeviceGroupElementFailure implements IDeviceGroupElementFailure, Serializable {
+
+    /** Serial version UID */
+    private static final long serialVersionUID = -4407412630624766148L;
+
+    /** Position of element in request */
+    private int index;
+
+    /** Device token from request */
+    private String deviceToken;
+
+    /** Nested group token from request */
+    private String nestedGroupToken;
+
+    /** Error code */
+    private ErrorCode errorCode;
+
+    /** Error message */
+    private String message;
+
+    public DeviceGroupElementFailure() {
+    }
+
+    public DeviceGroupElementFailure(int index, IDeviceGroupElementCreateRequest request, ErrorCode errorCode,
+	    String message) {
+	this.index = index;
+	this.deviceToken = (request != null) ? request.getDeviceToken() : null;
+	this.nestedGroupToken = (request != null) ? request.getNestedGroupToken() : null;
+	this.errorCode = errorCode;
+	this.message = message;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.group.IDeviceGroupElementFailure#getIndex()
+     */
+    @Override
+    public int getIndex() {
+	return index;
+    }
+
+    public void setIndex(int index) {
+	this.index = index;
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.group.IDeviceGroupElementFailure#getDeviceToken()
+     */
+    @Override
+    public String getDeviceToken() {
+	return deviceToken;
+    }
+
+    public void setDeviceToken(String deviceToken) {
+	this.deviceToken = deviceToken;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.group.IDeviceGroupElementFailure#
+     * getNestedGroupToken()
+     */
+    @Override
+    public String getNestedGroupToken() {
+	return nestedGroupToken;
+    }
+
+    public void setNestedGroupToken(String nestedGroupToken) {
+	this.nestedGroupToken = nestedGroupToken;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.group.IDeviceGroupElementFailure#getErrorCode()
+     */
+    @Override
+    public ErrorCode getErrorCode() {
+	return errorCode;
+    }
+
+    public void setErrorCode(ErrorCode errorCode) {
+	this.errorCode = errorCode;
+    }
+
+    /*
+     * @see com.sitewhere.spi.device.group.IDeviceGroupElementFailure#getMessage()
+     */
+    @Override
+    public String getMessage() {
+	return message;
+    }
+
+    public void setMessage(String message) {
+	this.message = message;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.device.group;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+
+import com.sitewhere.rest.model.search.SearchCriteria;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.IDevice;
+import com.sitewhere.spi.device.IDeviceManagement;
+import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.search.ISearchResults;
+import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
+
+/**
+ * Streams the unique devices contained in one or more device groups. Group
+ * elements are read a page at a time and nested groups are expanded as they
+ * are reached, skipping any group already visited so that loops in the group
+ * hierarchy terminate. Device ids are collected into batches and loaded with a
+ * single query per batch, with the device search criteria applied by the
+ * query. Devices are returned in the order they are resolved, so callers can
+ * start processing before the whole hierarchy has been read.
+ * 
+ * Errors while resolving are thrown from {@link #hasNext()} as a
+ * {@link RuntimeException} wrapping the original {@link SiteWhereException}.
+ * 
+ * @author Derek
+ */
+public class DeviceGroupResolver implements Iterator<IDevice> {
+
+    /** Default number of group elements read per page */
+    public static final int DEFAULT_PAGE_SIZE = 500;
+
+    /** Default number of devices loaded per query */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+
+    /** Device management implementation */
+    private IDeviceManagement deviceManagement;
+
+    /** Criteria devices must match */
+    private IDeviceSearchCriteria criteria;
+
+    /** Number of group elements read per page */
+    private int pageSize;
+
+    /** Number of devices loaded per query */
+    private int batchSize;
+
+    /** Groups waiting to be read */
+    private Deque<UUID> pendingGroups = new ArrayDeque<UUID>();
+
+    /** Groups already queued for reading */
+    private Set<UUID> visitedGroups = new HashSet<UUID>();
+
+    /** Devices already seen */
+    private Set<UUID> seenDevices = new HashSet<UUID>();
+
+    /** Group currently being read */
+    private UUID currentGroup;
+
+    /** Next page to read for current group */
+    private int nextPage;
+
+    /** Device ids waiting to be loaded */
+    private List<UUID> pendingDeviceIds = new ArrayList<UUID>();
+
+    /** Loaded devices waiting to be returned */
+    private Deque<IDevice> resolved = new ArrayDeque<IDevice>();
+
+    public DeviceGroupResolver(List<UUID> groupIds, IDeviceSearchCriteria criteria,
+	    IDeviceManagement deviceManagement) {
+	this(groupIds, criteria, deviceManagement, DEFAULT_PAGE_SIZE, DEFAULT_BATCH_SIZE);
+    }
+
+    public DeviceGroupResolver(List<UUID> groupIds, IDeviceSearchCriteria criteria,
+	    IDeviceManagement deviceManagement, int pageSize, int batchSize) {
+	this.criteria = criteria;
+	this.deviceManagement = deviceManagement;
+	this.pageSize = pageSize;
+	this.batchSize = batchSize;
+	for (UUID groupId : groupIds) {
+	    queueGroup(groupId);
+	}
+    }
+
+    /*
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+	try {
+	    while (resolved.isEmpty()) {
+		if (!advance()) {
+		    return false;
+		}
+	    }
+	    return true;
+	} catch (SiteWhereException e) {
+	    throw new RuntimeException("Unable to resolve devices in group.", e);
+	}
+    }
+
+    /*
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public IDevice next() {
+	if (!hasNext()) {
+	    throw new NoSuchElementException();
+	}
+	return resolved.poll();
+    }
+
+    /**
+     * Read the next page of elements or load the next batch of devices.
+     * 
+     * @return false if there is no more work
+     * @throws SiteWhereException
+     */
+    protected boolean advance() throws SiteWhereException {
+	if (pendingDeviceIds.size() >= getBatchSize()) {
+	    loadPendingDevices();
+	    return true;
+	}
+	if ((currentGroup == null) && (!pendingGroups.isEmpty())) {
+	    currentGroup = pendingGroups.poll();
+	    nextPage = 1;
+	}
+	if (currentGroup != null) {
+	    readNextPage();
+	    return true;
+	}
+	if (!pendingDeviceIds.isEmpty()) {
+	    loadPendingDevices();
+	    return true;
+	}
+	return false;
+    }
+
+    /**
+     * Read the next page of elements for the current group.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void readNextPage() throws SiteWhereException {
+	ISearchResults<IDeviceGroupElement> page = getDeviceManagement().listDeviceGroupElements(currentGroup,
+		new SearchCriteria(nextPage++, getPageSize()));
+	for (IDeviceGroupElement element : page.getResults()) {
+	    if (element.getDeviceId() != null) {
+		if (seenDevices.add(element.getDeviceId())) {
+		    pendingDeviceIds.add(element.getDeviceId());
+		}
+	    } else if (element.getNestedGroupId() != null) {
+		queueGroup(element.getNestedGroupId());
+	    }
+	}
+	if (page.getResults().size() < getPageSize()) {
+	    currentGroup = null;
+	}
+    }
+
+    /**
+     * Load devices for pending ids, applying search criteria.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void loadPendingDevices() throws SiteWhereException {
+	int count = Math.min(getBatchSize(), pendingDeviceIds.size());
+	List<UUID> batch = new ArrayList<UUID>(pendingDeviceIds.subList(0, count));
+	pendingDeviceIds.subList(0, count).clear();
+	resolved.addAll(getDeviceManagement().getDevices(batch, getCriteria()));
+    }
+
+    /**
+     * Queue a group for reading unless it has already been visited.
+     * 
+     * @param groupId
+     */
+    protected void queueGroup(UUID groupId) {
+	if (visitedGroups.add(groupId)) {
+	    pendingGroups.add(groupId);
+	}
+    }
+
+    public IDeviceManagement getDeviceManagement() {
+	return deviceManagement;
+    }
+
+    public IDeviceSearchCriteria getCriteria() {
+	return criteria;
+    }
+
+    public int getPageSize() {
+	return pageSize;
+    }
+
+    public int getBatchSize() {
+	return batchSize;
+    }
+}
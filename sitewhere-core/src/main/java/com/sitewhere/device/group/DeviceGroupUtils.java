@@ -9,22 +9,19 @@ package com.sitewhere.device.group;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
-import com.sitewhere.device.marshaling.DeviceGroupElementMarshalHelper;
-import com.sitewhere.rest.model.device.marshaling.MarshaledDeviceGroupElement;
 import com.sitewhere.rest.model.search.SearchCriteria;
+import com.sitewhere.rest.model.search.device.DeviceSearchCriteria;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.asset.IAssetManagement;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceManagement;
-import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.group.IDeviceGroup;
-import com.sitewhere.spi.device.group.IDeviceGroupElement;
 import com.sitewhere.spi.search.ISearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
@@ -37,7 +34,8 @@ import com.sitewhere.spi.search.device.IDeviceSearchCriteria;
 public class DeviceGroupUtils {
 
     /**
-     * Get devices in a group that match the given criteria.
+     * Get devices in a group that match the given criteria, sorted by created
+     * date.
      * 
      * @param group
      * @param criteria
@@ -48,36 +46,12 @@ public class DeviceGroupUtils {
      */
     public static List<IDevice> getDevicesInGroup(IDeviceGroup group, IDeviceSearchCriteria criteria,
 	    IDeviceManagement deviceManagement, IAssetManagement assetManagement) throws SiteWhereException {
-	Collection<IDevice> devices = getDevicesInGroup(group.getId(), deviceManagement, assetManagement);
-	List<IDevice> matches = new ArrayList<IDevice>();
-	for (IDevice device : devices) {
-
-	    // Handle filter by device type.
-	    if (criteria.getDeviceTypeToken() != null) {
-		IDeviceType deviceType = deviceManagement.getDeviceTypeByToken(criteria.getDeviceTypeToken());
-		if (!device.getDeviceTypeId().equals(deviceType.getId())) {
-		    continue;
-		}
-	    }
-
-	    // Handle exclude assigned.
-	    if (criteria.isExcludeAssigned() && (device.getDeviceAssignmentId() != null)) {
-		continue;
-	    }
-	    if ((criteria.getStartDate() != null) && (device.getCreatedDate().before(criteria.getStartDate()))) {
-		continue;
-	    }
-	    if ((criteria.getEndDate() != null) && (device.getCreatedDate().after(criteria.getEndDate()))) {
-		continue;
-	    }
-	    matches.add(device);
-	}
-	return matches;
+	return toList(resolveDevicesInGroups(Collections.singletonList(group.getId()), criteria, deviceManagement));
     }
 
     /**
-     * Get list of all devices in a group. Recurse into nested groups and prevent
-     * duplicates or loops in the group hierarchy.
+     * Get list of all devices in a group sorted by created date. Recurse into
+     * nested groups and prevent duplicates or loops in the group hierarchy.
      * 
      * @param groupId
      * @param deviceManagement
@@ -87,55 +61,31 @@ public class DeviceGroupUtils {
      */
     public static List<IDevice> getDevicesInGroup(UUID groupId, IDeviceManagement deviceManagement,
 	    IAssetManagement assetManagement) throws SiteWhereException {
-	Map<String, IDevice> devices = new HashMap<>();
-	Map<String, IDeviceGroup> groups = new HashMap<>();
-	getDevicesInGroup(groupId, deviceManagement, assetManagement, devices, groups);
-	List<IDevice> sorted = new ArrayList<>();
-	sorted.addAll(devices.values());
-	sorted.sort(new Comparator<IDevice>() {
-
-	    @Override
-	    public int compare(IDevice o1, IDevice o2) {
-		return o1.getCreatedDate().compareTo(o2.getCreatedDate());
-	    }
-	});
-	return sorted;
+	return toList(resolveDevicesInGroups(Collections.singletonList(groupId), null, deviceManagement));
     }
 
     /**
-     * Get the list of unique devices in a group. (Recurses into subgroups and
-     * removes duplicates). Also prevents loops in group references.
+     * Stream the unique devices in one or more groups, recursing into nested
+     * groups. Devices are returned in resolution order (not sorted) as they are
+     * resolved, so processing can start before the whole hierarchy has been
+     * read.
      * 
-     * @param groupId
+     * @param groupIds
+     * @param criteria
      * @param deviceManagement
-     * @param assetManagement
-     * @param devices
-     * @param groups
-     * @throws SiteWhereException
+     * @return
      */
-    protected static void getDevicesInGroup(UUID groupId, IDeviceManagement deviceManagement,
-	    IAssetManagement assetManagement, Map<String, IDevice> devices, Map<String, IDeviceGroup> groups)
-	    throws SiteWhereException {
-	ISearchResults<IDeviceGroupElement> elements = deviceManagement.listDeviceGroupElements(groupId,
-		SearchCriteria.ALL);
-	DeviceGroupElementMarshalHelper helper = new DeviceGroupElementMarshalHelper(deviceManagement);
-	for (IDeviceGroupElement element : elements.getResults()) {
-	    MarshaledDeviceGroupElement inflated = helper.convert(element, assetManagement);
-	    if (inflated.getDevice() != null) {
-		IDevice device = inflated.getDevice();
-		devices.put(device.getToken(), device);
-	    } else if (inflated.getDeviceGroup() != null) {
-		IDeviceGroup nested = inflated.getDeviceGroup();
-
-		// Prevent loops.
-		if (groups.get(nested.getToken()) != null) {
-		}
-	    }
+    public static Iterator<IDevice> resolveDevicesInGroups(List<UUID> groupIds, IDeviceSearchCriteria criteria,
+	    IDeviceManagement deviceManagement) {
+	if (criteria == null) {
+	    criteria = new DeviceSearchCriteria(null, false, 1, 0, null, null);
 	}
+	return new DeviceGroupResolver(groupIds, criteria, deviceManagement);
     }
 
     /**
-     * Gets devices in all groups that have the given role. Duplicates are removed.
+     * Gets devices in all groups that have the given role. Duplicates are removed
+     * and devices are sorted by created date.
      * 
      * @param groupRole
      * @param criteria
@@ -146,15 +96,56 @@ public class DeviceGroupUtils {
      */
     public static Collection<IDevice> getDevicesInGroupsWithRole(String groupRole, IDeviceSearchCriteria criteria,
 	    IDeviceManagement deviceManagement, IAssetManagement assetManagement) throws SiteWhereException {
-	Map<String, IDevice> devices = new HashMap<String, IDevice>();
+	return toList(resolveDevicesInGroupsWithRole(groupRole, criteria, deviceManagement));
+    }
+
+    /**
+     * Stream the unique devices in all groups that have the given role in
+     * resolution order.
+     * 
+     * @param groupRole
+     * @param criteria
+     * @param deviceManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public static Iterator<IDevice> resolveDevicesInGroupsWithRole(String groupRole, IDeviceSearchCriteria criteria,
+	    IDeviceManagement deviceManagement) throws SiteWhereException {
 	ISearchCriteria groupCriteria = new SearchCriteria(1, 0);
 	ISearchResults<IDeviceGroup> groups = deviceManagement.listDeviceGroupsWithRole(groupRole, groupCriteria);
+	List<UUID> groupIds = new ArrayList<UUID>();
 	for (IDeviceGroup group : groups.getResults()) {
-	    List<IDevice> groupDevices = getDevicesInGroup(group, criteria, deviceManagement, assetManagement);
-	    for (IDevice groupDevice : groupDevices) {
-		devices.put(groupDevice.getToken(), groupDevice);
+	    groupIds.add(group.getId());
+	}
+	return resolveDevicesInGroups(groupIds, criteria, deviceManagement);
+    }
+
+    /**
+     * Drain resolved devices into a list sorted by created date.
+     * 
+     * @param devices
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static List<IDevice> toList(Iterator<IDevice> devices) throws SiteWhereException {
+	List<IDevice> results = new ArrayList<IDevice>();
+	try {
+	    while (devices.hasNext()) {
+		results.add(devices.next());
+	    }
+	} catch (RuntimeException e) {
+	    if (e.getCause() instanceof SiteWhereException) {
+		throw (SiteWhereException) e.getCause();
 	    }
+	    throw e;
 	}
-	return devices.values();
+	results.sort(new Comparator<IDevice>() {
+
+	    @Override
+	    public int compare(IDevice o1, IDevice o2) {
+		return o1.getCreatedDate().compareTo(o2.getCreatedDate());
+	    }
+	});
+	return results;
     }
 }
\ No newline at end of file
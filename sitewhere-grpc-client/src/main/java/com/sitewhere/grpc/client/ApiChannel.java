@@ -19,6 +19,7 @@ import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
 import io.grpc.ConnectivityState;
+import io.grpc.ManagedChannel;
 
 /**
  * Base class for channels that uses SiteWhere APIs to communicate with GRPC
@@ -49,6 +50,9 @@ public abstract class ApiChannel<T extends GrpcChannel<?, ?>> extends TenantEngi
     /** Underlying GRPC channel */
     private T grpcChannel;
 
+    /** Last connectivity state reported by GRPC channel */
+    private volatile ConnectivityState connectivityState = ConnectivityState.IDLE;
+
     public ApiChannel(IApiDemux<?> demux, String hostname, int port) {
 	this.demux = demux;
 	this.hostname = hostname;
@@ -82,6 +86,38 @@ public abstract class ApiChannel<T extends GrpcChannel<?, ?>> extends TenantEngi
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	startNestedComponent(getGrpcChannel(), monitor, true);
+	watchConnectivityState();
+    }
+
+    /**
+     * Record the current connectivity state and register to be notified when it
+     * changes. Requesting the state also asks an idle channel to reconnect so
+     * that channels stay warm without checks on the call path.
+     */
+    protected void watchConnectivityState() {
+	ManagedChannel channel = (getGrpcChannel() != null) ? getGrpcChannel().getChannel() : null;
+	if (channel == null) {
+	    return;
+	}
+	ConnectivityState state = channel.getState(true);
+	this.connectivityState = state;
+	if (state != ConnectivityState.SHUTDOWN) {
+	    channel.notifyWhenStateChanged(state, new Runnable() {
+
+		@Override
+		public void run() {
+		    watchConnectivityState();
+		}
+	    });
+	}
+    }
+
+    /*
+     * @see com.sitewhere.grpc.client.spi.IApiChannel#isChannelAvailable()
+     */
+    @Override
+    public boolean isChannelAvailable() {
+	return connectivityState == ConnectivityState.READY;
     }
 
     /*
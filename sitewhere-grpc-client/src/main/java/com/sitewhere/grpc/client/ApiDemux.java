@@ -13,6 +13,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -28,6 +29,7 @@ import com.sitewhere.server.lifecycle.LifecycleProgressMonitor;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.discovery.IServiceNode;
+import com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot;
 import com.sitewhere.spi.security.ITenantAwareAuthentication;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.server.lifecycle.LifecycleStatus;
@@ -42,8 +44,11 @@ import com.sitewhere.spi.tenant.ITenant;
 @SuppressWarnings("rawtypes")
 public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecycleComponent implements IApiDemux<T> {
 
-    /** Number of seconds to wait between discovery checks */
-    protected static final long DISCOVERY_CHECK_INTERVAL = 5 * 1000;
+    /** Max number of seconds to wait for discovery changes */
+    protected static final long DISCOVERY_WAIT_IN_SECS = 55;
+
+    /** Number of milliseconds to wait before retrying failed discovery */
+    protected static final long DISCOVERY_RETRY_INTERVAL = 5 * 1000;
 
     /** Min of time to wait between checks for available API channel */
     protected static final long API_CHANNEL_WAIT_INTERVAL_MS_MIN = 100;
@@ -51,18 +56,12 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
     /** Max of time to wait between checks for available API channel */
     protected static final long API_CHANNEL_WAIT_INTERVAL_MS_MAX = 60 * 1000;
 
-    /** Interval at which channels are re-verified */
-    protected static final long CHANNEL_VALID_CHECK_INTERVAL_IN_MS = 5 * 1000;
-
     /** Map of API channels indexed by hostname */
     private Map<String, T> apiChannels = new ConcurrentHashMap<>();
 
-    /** Map of last access to API channels indexed by hostname */
-    private Map<String, Long> apiChannelLastAccess = new ConcurrentHashMap<>();
-
     /** Routing strategy */
     @SuppressWarnings("unchecked")
-    private IApiDemuxRoutingStrategy<T> routingStrategy = new RoundRobinDemuxRoutingStrategy();
+    private IApiDemuxRoutingStrategy<T> routingStrategy = new LeastOutstandingRequestsRoutingStrategy();
 
     /** Channel operations pool */
     private ExecutorService channelOperations;
@@ -102,7 +101,7 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
 	    channelOperations.shutdown();
 	}
 	if (discoveryMonitor != null) {
-	    discoveryMonitor.shutdown();
+	    discoveryMonitor.shutdownNow();
 	}
     }
 
@@ -139,34 +138,55 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
     /**
      * Loop through channels to find an available match based on the routing
      * strategy. The matching criteria may be re-implemented in subclasses.
+     * Channels reported as connected by background health tracking are
+     * preferred. The call only blocks waiting for a connection if no channel is
+     * currently connected.
      * 
      * @param tenant
      * @return
      * @throws SiteWhereException
      */
     protected T getApiChannelWithConstraints(ITenant tenant) throws SiteWhereException {
-	int channelCount = getApiChannels().size();
-	if (channelCount == 0) {
+	if (getApiChannels().size() == 0) {
 	    throw new ApiChannelNotAvailableException("No API Channels found.");
 	}
 
-	while (channelCount > 0) {
-	    T selectedChannel = getRoutingStrategy().chooseApiChannel(getApiChannels());
-	    Long lastAccess = getApiChannelLastAccess().get(selectedChannel.getHostname());
-	    if ((lastAccess == null)
-		    || (System.currentTimeMillis() - lastAccess > CHANNEL_VALID_CHECK_INTERVAL_IN_MS)) {
+	Map<String, T> candidates = getAvailableApiChannels();
+	boolean available = candidates.size() > 0;
+	if (!available) {
+	    candidates = new HashMap<String, T>(getApiChannels());
+	}
+
+	// Channels that do not match are excluded from later choices.
+	while (candidates.size() > 0) {
+	    T selectedChannel = getRoutingStrategy().chooseApiChannel(candidates);
+	    if (!available) {
 		selectedChannel.waitForChannelAvailable();
-		getApiChannelLastAccess().put(selectedChannel.getHostname(), System.currentTimeMillis());
 	    }
 	    if (isApiChannelMatch(tenant, selectedChannel)) {
 		return selectedChannel;
 	    }
-	    channelCount--;
+	    candidates.remove(selectedChannel.getHostname());
 	}
 
 	throw new ApiChannelNotAvailableException("No API Channel available.");
     }
 
+    /**
+     * Get API channels that are currently connected.
+     * 
+     * @return
+     */
+    protected Map<String, T> getAvailableApiChannels() {
+	Map<String, T> available = new HashMap<String, T>();
+	for (Map.Entry<String, T> entry : getApiChannels().entrySet()) {
+	    if (entry.getValue().isChannelAvailable()) {
+		available.put(entry.getKey(), entry.getValue());
+	    }
+	}
+	return available;
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.IApiDemux#waitForMicroserviceAvailable()
      */
@@ -244,7 +264,8 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
     }
 
     /**
-     * Monitors Consul to check for addition/removal of services.
+     * Watches service discovery for addition/removal of services. Uses blocking
+     * queries so that changes are handled as soon as they are reported.
      * 
      * @author Derek
      */
@@ -252,10 +273,17 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
 
 	@Override
 	public void run() {
+	    long index = 0;
 	    while (true) {
 		try {
-		    List<IServiceNode> nodes = getMicroservice().getServiceDiscoveryProvider()
-			    .getNodesForFunction(getTargetIdentifier());
+		    IServiceNodeSnapshot snapshot = getMicroservice().getServiceDiscoveryProvider()
+			    .waitForNodesForFunction(getTargetIdentifier(), index, DISCOVERY_WAIT_IN_SECS,
+				    TimeUnit.SECONDS);
+
+		    // Reset index if it goes backward (per Consul guidance).
+		    index = (snapshot.getIndex() < index) ? 0 : snapshot.getIndex();
+
+		    List<IServiceNode> nodes = snapshot.getNodes();
 		    for (IServiceNode node : nodes) {
 			if (getApiChannels().get(node.getAddress()) == null) {
 			    getLogger().info(String.format("Discovered new node for %s at %s.",
@@ -272,19 +300,26 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
 			    channelOperations.execute(new ApiChannelShutdown(channelHost));
 			}
 		    }
-		    Thread.sleep(DISCOVERY_CHECK_INTERVAL);
 		} catch (ConsulException e) {
 		    getLogger().warn(String.format("Consul reported exception: %s", e.getMessage()));
+		    index = 0;
 		    try {
-			Thread.sleep(DISCOVERY_CHECK_INTERVAL);
+			Thread.sleep(DISCOVERY_RETRY_INTERVAL);
 		    } catch (InterruptedException e1) {
 			return;
 		    }
-		} catch (InterruptedException e) {
-		    getLogger().warn("Discovery monitor interrupted.");
-		    return;
 		} catch (Throwable t) {
+		    if (Thread.currentThread().isInterrupted()) {
+			getLogger().warn("Discovery monitor interrupted.");
+			return;
+		    }
 		    getLogger().error("Unhandled exception in service discovery.", t);
+		    index = 0;
+		    try {
+			Thread.sleep(DISCOVERY_RETRY_INTERVAL);
+		    } catch (InterruptedException e1) {
+			return;
+		    }
 		}
 	    }
 	}
@@ -455,8 +490,4 @@ public abstract class ApiDemux<T extends IApiChannel> extends TenantEngineLifecy
     public void setRoutingStrategy(IApiDemuxRoutingStrategy<T> routingStrategy) {
 	this.routingStrategy = routingStrategy;
     }
-
-    protected Map<String, Long> getApiChannelLastAccess() {
-	return apiChannelLastAccess;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,226 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.ForwardingClientCallListener.SimpleForwardingClientCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.Status;
+
+/**
+ * Interceptor that tracks load on a single GRPC channel. Keeps a count of
+ * in-flight unary calls and an exponentially weighted moving average of call
+ * latency which are used to predict how long a new call will take to complete.
+ * Only calls that reached the remote service contribute their real latency.
+ * Transport-level failures, which often complete very quickly, contribute a
+ * fixed penalty instead so that a failing channel does not appear fast.
+ * Channels that fail repeatedly with transport-level errors are ejected for a
+ * period chosen using decorrelated jitter and are re-admitted on probation
+ * afterward.
+ *
+ * @author Derek
+ */
+public class ChannelLoadTracker implements ClientInterceptor {
+
+    /** Weight given to the newest latency sample */
+    private static final double EWMA_ALPHA = 0.2;
+
+    /** Latency assumed for a channel before any calls complete */
+    private static final double INITIAL_LATENCY_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+    /** Latency sample recorded for a call that failed at the transport level */
+    private static final long FAILURE_PENALTY_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** Number of consecutive failures before channel is ejected */
+    private static final int FAILURES_BEFORE_EJECTION = 5;
+
+    /** Base ejection period */
+    private static final long EJECTION_BASE_MS = 1000;
+
+    /** Max ejection period */
+    private static final long EJECTION_MAX_MS = 60 * 1000;
+
+    /** Number of calls currently in flight */
+    private AtomicInteger inFlight = new AtomicInteger();
+
+    /** Consecutive calls that failed with transport-level errors */
+    private AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    /** Weighted average latency in nanoseconds */
+    private volatile double averageLatencyNanos = INITIAL_LATENCY_NANOS;
+
+    /** Time at which ejected channel is re-admitted */
+    private volatile long ejectedUntil = 0;
+
+    /** Length of last ejection period (used for jitter calculation) */
+    private long lastEjectionMs = 0;
+
+    /** Indicates channel was re-admitted and has not succeeded since */
+    private volatile boolean probation = false;
+
+    /*
+     * @see io.grpc.ClientInterceptor#interceptCall(io.grpc.MethodDescriptor,
+     * io.grpc.CallOptions, io.grpc.Channel)
+     */
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+	    CallOptions callOptions, Channel next) {
+	// Long-lived streams would skew load, so only unary calls are tracked.
+	if (method.getType() != MethodType.UNARY) {
+	    return next.newCall(method, callOptions);
+	}
+	return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+
+	    @Override
+	    public void start(Listener<RespT> responseListener, Metadata headers) {
+		final long start = System.nanoTime();
+		inFlight.incrementAndGet();
+		try {
+		    super.start(new SimpleForwardingClientCallListener<RespT>(responseListener) {
+
+			@Override
+			public void onClose(Status status, Metadata trailers) {
+			    onCallCompleted(System.nanoTime() - start, status);
+			    super.onClose(status, trailers);
+			}
+		    }, headers);
+		} catch (RuntimeException e) {
+		    inFlight.decrementAndGet();
+		    throw e;
+		}
+	    }
+	};
+    }
+
+    /**
+     * Update load statistics when a call completes.
+     *
+     * @param latencyNanos
+     * @param status
+     */
+    protected void onCallCompleted(long latencyNanos, Status status) {
+	inFlight.decrementAndGet();
+	if (isTransportFailure(status)) {
+	    recordLatency(Math.max(latencyNanos, FAILURE_PENALTY_NANOS));
+	    onFailure();
+	} else {
+	    recordLatency(latencyNanos);
+	    onSuccess();
+	}
+    }
+
+    /**
+     * Add a latency sample to the weighted average.
+     *
+     * @param latencyNanos
+     */
+    protected synchronized void recordLatency(long latencyNanos) {
+	averageLatencyNanos = (EWMA_ALPHA * latencyNanos) + ((1 - EWMA_ALPHA) * averageLatencyNanos);
+    }
+
+    /**
+     * Indicates whether status reflects a problem with the remote service rather
+     * than with the request itself.
+     *
+     * @param status
+     * @return
+     */
+    protected boolean isTransportFailure(Status status) {
+	switch (status.getCode()) {
+	case UNAVAILABLE:
+	case DEADLINE_EXCEEDED:
+	case RESOURCE_EXHAUSTED:
+	    return true;
+	default:
+	    return false;
+	}
+    }
+
+    /**
+     * Record a failed call, ejecting the channel if needed.
+     */
+    protected void onFailure() {
+	int failures = consecutiveFailures.incrementAndGet();
+	if ((probation) || (failures >= FAILURES_BEFORE_EJECTION)) {
+	    eject();
+	}
+    }
+
+    /**
+     * Record a successful call, clearing failure state.
+     */
+    protected void onSuccess() {
+	consecutiveFailures.set(0);
+	if (probation) {
+	    synchronized (this) {
+		probation = false;
+		lastEjectionMs = 0;
+	    }
+	}
+    }
+
+    /**
+     * Eject channel for a period based on decorrelated jitter. Each consecutive
+     * ejection picks a random period between the base and three times the last
+     * period, capped at the maximum.
+     */
+    protected synchronized void eject() {
+	long now = System.currentTimeMillis();
+	if (now < ejectedUntil) {
+	    return;
+	}
+	long previous = Math.max(EJECTION_BASE_MS, lastEjectionMs);
+	long period = Math.min(EJECTION_MAX_MS,
+		EJECTION_BASE_MS + (long) (ThreadLocalRandom.current().nextDouble() * (previous * 3 - EJECTION_BASE_MS)));
+	lastEjectionMs = period;
+	ejectedUntil = now + period;
+	probation = true;
+	consecutiveFailures.set(0);
+    }
+
+    /**
+     * Indicates whether channel is currently ejected.
+     *
+     * @return
+     */
+    public boolean isEjected() {
+	return System.currentTimeMillis() < ejectedUntil;
+    }
+
+    /**
+     * Predicted time for a new call to complete based on the number of calls
+     * already in flight and the average latency.
+     *
+     * @return
+     */
+    public double getPredictedCompletionNanos() {
+	return (inFlight.get() + 1) * averageLatencyNanos;
+    }
+
+    public int getInFlight() {
+	return inFlight.get();
+    }
+
+    public double getAverageLatencyNanos() {
+	return averageLatencyNanos;
+    }
+
+    public long getEjectedUntil() {
+	return ejectedUntil;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.sitewhere.spi.SiteWhereException;
+
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Performs many lookups with asynchronous calls so that they share the channel
+ * concurrently rather than waiting for a round trip each. The number of calls
+ * in flight is bounded. Results are returned in the same order as the keys.
+ *
+ * @author Derek
+ */
+public abstract class ConcurrentLookup<K, V> {
+
+    /** Max lookups in flight at once */
+    private int maxInFlight;
+
+    public ConcurrentLookup(int maxInFlight) {
+	this.maxInFlight = maxInFlight;
+    }
+
+    /**
+     * Start an asynchronous lookup for a single key. The observer receives the
+     * result (or null) followed by completion, or an error.
+     * 
+     * @param key
+     * @param observer
+     * @throws SiteWhereException
+     */
+    protected abstract void lookup(K key, StreamObserver<V> observer) throws SiteWhereException;
+
+    /**
+     * Look up results for all keys.
+     * 
+     * @param keys
+     * @param failOnError
+     *            if true, the first lookup error is thrown; otherwise keys
+     *            with errors have a null result
+     * @return
+     * @throws SiteWhereException
+     */
+    public List<V> execute(List<K> keys, boolean failOnError) throws SiteWhereException {
+	Object[] values = new Object[keys.size()];
+	Throwable[] errors = new Throwable[keys.size()];
+	CountDownLatch done = new CountDownLatch(keys.size());
+	Semaphore window = new Semaphore(maxInFlight);
+	try {
+	    for (int i = 0; i < keys.size(); i++) {
+		window.acquire();
+		LookupObserver observer = new LookupObserver(i, values, errors, done, window);
+		try {
+		    lookup(keys.get(i), observer);
+		} catch (Throwable t) {
+		    observer.onError(t);
+		}
+	    }
+	    done.await();
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while waiting for lookups.", e);
+	}
+
+	List<V> results = new ArrayList<V>(keys.size());
+	for (int i = 0; i < keys.size(); i++) {
+	    if ((errors[i] != null) && (failOnError)) {
+		throw (errors[i] instanceof SiteWhereException) ? (SiteWhereException) errors[i]
+			: new SiteWhereException("Lookup failed.", errors[i]);
+	    }
+	    @SuppressWarnings("unchecked")
+	    V value = (V) values[i];
+	    results.add(value);
+	}
+	return results;
+    }
+
+    /** Records the result of a single lookup */
+    private class LookupObserver implements StreamObserver<V> {
+
+	/** Index of key */
+	private int index;
+
+	/** Results by key index */
+	private Object[] values;
+
+	/** Errors by key index */
+	private Throwable[] errors;
+
+	/** Counted down when each lookup finishes */
+	private CountDownLatch done;
+
+	/** Limits lookups in flight */
+	private Semaphore window;
+
+	/** Indicates lookup has finished */
+	private AtomicBoolean finished = new AtomicBoolean();
+
+	public LookupObserver(int index, Object[] values, Throwable[] errors, CountDownLatch done,
+		Semaphore window) {
+	    this.index = index;
+	    this.values = values;
+	    this.errors = errors;
+	    this.done = done;
+	    this.window = window;
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onNext(java.lang.Object)
+	 */
+	@Override
+	public void onNext(V value) {
+	    values[index] = value;
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable t) {
+	    errors[index] = t;
+	    finish();
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onCompleted()
+	 */
+	@Override
+	public void onCompleted() {
+	    finish();
+	}
+
+	/**
+	 * Release window slot and count down once.
+	 */
+	protected void finish() {
+	    if (finished.compareAndSet(false, true)) {
+		window.release();
+		done.countDown();
+	    }
+	}
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+
+/**
+ * GRPC interceptor that pushes the event timing envelope from the current
+ * context (if any) into call metadata.
+ * 
+ * @author Derek
+ */
+public class EventTimingClientInterceptor implements ClientInterceptor {
+
+    /*
+     * @see io.grpc.ClientInterceptor#interceptCall(io.grpc.MethodDescriptor,
+     * io.grpc.CallOptions, io.grpc.Channel)
+     */
+    @Override
+    public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(MethodDescriptor<ReqT, RespT> method,
+	    CallOptions callOptions, Channel next) {
+	return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+
+	    /*
+	     * @see io.grpc.ForwardingClientCall#start(io.grpc.ClientCall.Listener,
+	     * io.grpc.Metadata)
+	     */
+	    @Override
+	    public void start(Listener<RespT> responseListener, Metadata headers) {
+		EventTimingEnvelope timing = EventTimingEnvelope.current();
+		if (timing != null) {
+		    headers.put(EventTimingEnvelope.METADATA_KEY, timing.encode());
+		}
+		super.start(responseListener, headers);
+	    }
+	};
+    }
+}
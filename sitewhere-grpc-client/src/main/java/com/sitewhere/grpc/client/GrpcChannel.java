@@ -7,11 +7,6 @@
  */
 package com.sitewhere.grpc.client;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadFactory;
-import java.util.concurrent.atomic.AtomicInteger;
-
 import com.sitewhere.grpc.client.common.tracing.ClientTracingInterceptor;
 import com.sitewhere.grpc.client.spi.IGrpcChannel;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
@@ -33,9 +28,6 @@ import io.opentracing.Tracer;
  */
 public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent implements IGrpcChannel<B, A> {
 
-    /** Max threads used for executing GPRC requests */
-    private static final int THREAD_POOL_SIZE = 25;
-
     /** Tracer provider */
     protected ITracerProvider tracerProvider;
 
@@ -48,6 +40,9 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
     /** Indicates whether to use the tracing interceptor */
     protected boolean useTracingInterceptor = false;
 
+    /** Indicates whether callbacks run directly on the event loop */
+    protected boolean useDirectExecutor = false;
+
     /** GRPC managed channe */
     protected ManagedChannel channel;
 
@@ -60,12 +55,14 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
     /** Client interceptor for adding JWT from Spring Security context */
     private JwtClientInterceptor jwtInterceptor;
 
+    /** Client interceptor for propagating event timing envelope */
+    private EventTimingClientInterceptor eventTimingInterceptor;
+
     /** Client interceptor for GRPC tracing */
     private ClientTracingInterceptor tracingInterceptor;
 
-    /** Executor service used to handle GRPC requests */
-    private ExecutorService serverExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE,
-	    new GrpcClientThreadFactory());
+    /** Client interceptor that tracks load for routing */
+    private ChannelLoadTracker loadTracker;
 
     public GrpcChannel(ITracerProvider tracerProvider, String hostname, int port) {
 	this.tracerProvider = tracerProvider;
@@ -73,6 +70,8 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	this.port = port;
 
 	this.jwtInterceptor = new JwtClientInterceptor();
+	this.eventTimingInterceptor = new EventTimingClientInterceptor();
+	this.loadTracker = new ChannelLoadTracker();
 	if ((tracerProvider != null) && (isUseTracingInterceptor())) {
 	    this.tracingInterceptor = new ClientTracingInterceptor(tracerProvider.getTracer());
 	}
@@ -86,9 +85,10 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	try {
-	    NettyChannelBuilder builder = NettyChannelBuilder.forAddress(getHostname(), getPort());
-	    builder.executor(getServerExecutor());
-	    builder.usePlaintext().intercept(getJwtInterceptor());
+	    NettyChannelBuilder builder = GrpcChannelFactory.getInstance().createChannelBuilder(getHostname(), getPort(),
+		    isUseDirectExecutor());
+	    builder.usePlaintext().intercept(getLoadTracker()).intercept(getJwtInterceptor())
+		    .intercept(getEventTimingInterceptor());
 	    if (isUseTracingInterceptor()) {
 		builder.intercept(getTracingInterceptor());
 	    }
@@ -168,17 +168,6 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	return getTracerProvider().getTracer();
     }
 
-    /** Used for naming gRPC client executor threads */
-    private class GrpcClientThreadFactory implements ThreadFactory {
-
-	/** Counts threads */
-	private AtomicInteger counter = new AtomicInteger();
-
-	public Thread newThread(Runnable r) {
-	    return new Thread(r, "gRPC Client " + counter.incrementAndGet());
-	}
-    }
-
     public JwtClientInterceptor getJwtInterceptor() {
 	return jwtInterceptor;
     }
@@ -187,6 +176,14 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	this.jwtInterceptor = jwtInterceptor;
     }
 
+    public EventTimingClientInterceptor getEventTimingInterceptor() {
+	return eventTimingInterceptor;
+    }
+
+    public void setEventTimingInterceptor(EventTimingClientInterceptor eventTimingInterceptor) {
+	this.eventTimingInterceptor = eventTimingInterceptor;
+    }
+
     public ClientTracingInterceptor getTracingInterceptor() {
 	return tracingInterceptor;
     }
@@ -195,6 +192,14 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	this.tracingInterceptor = tracingInterceptor;
     }
 
+    public ChannelLoadTracker getLoadTracker() {
+	return loadTracker;
+    }
+
+    public void setLoadTracker(ChannelLoadTracker loadTracker) {
+	this.loadTracker = loadTracker;
+    }
+
     public ITracerProvider getTracerProvider() {
 	return tracerProvider;
     }
@@ -227,11 +232,11 @@ public abstract class GrpcChannel<B, A> extends TenantEngineLifecycleComponent i
 	this.useTracingInterceptor = useTracingInterceptor;
     }
 
-    public ExecutorService getServerExecutor() {
-	return serverExecutor;
+    public boolean isUseDirectExecutor() {
+	return useDirectExecutor;
     }
 
-    public void setServerExecutor(ExecutorService serverExecutor) {
-	this.serverExecutor = serverExecutor;
+    public void setUseDirectExecutor(boolean useDirectExecutor) {
+	this.useDirectExecutor = useDirectExecutor;
     }
 }
\ No newline at end of file
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+import io.grpc.netty.NettyChannelBuilder;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * Creates channel builders that share a single Netty event loop group and a
+ * single callback executor across all gRPC channels in a microservice. The
+ * callback executor runs a bounded number of threads and lets idle threads
+ * time out. Its queue is unbounded since a dropped callback would leave a call
+ * that never completes. Channels may optionally use a direct executor, in
+ * which case callbacks run on the event loop and must not block.
+ *
+ * @author Derek
+ */
+public class GrpcChannelFactory {
+
+    /** Metric name prefix for shared channel resources */
+    private static final String METRIC_PREFIX = "grpc.client.";
+
+    /** Number of event loop threads (defaults to twice the core count) */
+    private static final int EVENT_LOOP_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
+    /** Max threads used for executing GRPC callbacks */
+    private static final int CALLBACK_MAX_THREADS = 25;
+
+    /** Time idle callback threads are kept alive */
+    private static final long CALLBACK_KEEP_ALIVE_SECS = 60;
+
+    /** Singleton instance shared by all channels */
+    private static final GrpcChannelFactory INSTANCE = new GrpcChannelFactory();
+
+    /** Shared event loop group */
+    private NioEventLoopGroup eventLoopGroup;
+
+    /** Shared executor for callbacks */
+    private ThreadPoolExecutor callbackExecutor;
+
+    /** Indicates whether metrics have been registered */
+    private boolean metricsRegistered = false;
+
+    private GrpcChannelFactory() {
+	this.eventLoopGroup = new NioEventLoopGroup(EVENT_LOOP_THREADS, new GrpcClientThreadFactory("gRPC Event Loop"));
+	this.callbackExecutor = new ThreadPoolExecutor(CALLBACK_MAX_THREADS, CALLBACK_MAX_THREADS,
+		CALLBACK_KEEP_ALIVE_SECS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+		new GrpcClientThreadFactory("gRPC Client"));
+	this.callbackExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get factory shared by all channels.
+     *
+     * @return
+     */
+    public static GrpcChannelFactory getInstance() {
+	return INSTANCE;
+    }
+
+    /**
+     * Create a channel builder for the given address that uses the shared
+     * resources.
+     *
+     * @param hostname
+     * @param port
+     * @param useDirectExecutor
+     * @return
+     */
+    public NettyChannelBuilder createChannelBuilder(String hostname, int port, boolean useDirectExecutor) {
+	NettyChannelBuilder builder = NettyChannelBuilder.forAddress(hostname, port);
+	builder.eventLoopGroup(getEventLoopGroup()).channelType(NioSocketChannel.class);
+	if (useDirectExecutor) {
+	    builder.directExecutor();
+	} else {
+	    builder.executor(getCallbackExecutor());
+	}
+	return builder;
+    }
+
+    /**
+     * Register gauges for thread counts and queue depth. Only the first call has
+     * any effect.
+     *
+     * @param registry
+     */
+    public synchronized void registerMetrics(MetricRegistry registry) {
+	if (metricsRegistered) {
+	    return;
+	}
+	registry.register(METRIC_PREFIX + "eventLoop.threads", new Gauge<Integer>() {
+
+	    @Override
+	    public Integer getValue() {
+		return getEventLoopGroup().executorCount();
+	    }
+	});
+	registry.register(METRIC_PREFIX + "callback.threads", new Gauge<Integer>() {
+
+	    @Override
+	    public Integer getValue() {
+		return getCallbackExecutor().getPoolSize();
+	    }
+	});
+	registry.register(METRIC_PREFIX + "callback.activeThreads", new Gauge<Integer>() {
+
+	    @Override
+	    public Integer getValue() {
+		return getCallbackExecutor().getActiveCount();
+	    }
+	});
+	registry.register(METRIC_PREFIX + "callback.queueDepth", new Gauge<Integer>() {
+
+	    @Override
+	    public Integer getValue() {
+		return getCallbackExecutor().getQueue().size();
+	    }
+	});
+	registry.register(METRIC_PREFIX + "callback.completed", new Gauge<Long>() {
+
+	    @Override
+	    public Long getValue() {
+		return getCallbackExecutor().getCompletedTaskCount();
+	    }
+	});
+	this.metricsRegistered = true;
+    }
+
+    /** Used for naming shared gRPC client threads */
+    private static class GrpcClientThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	/** Prefix for thread names */
+	private String prefix;
+
+	public GrpcClientThreadFactory(String prefix) {
+	    this.prefix = prefix;
+	}
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, prefix + " " + counter.incrementAndGet());
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+
+    public NioEventLoopGroup getEventLoopGroup() {
+	return eventLoopGroup;
+    }
+
+    public ThreadPoolExecutor getCallbackExecutor() {
+	return callbackExecutor;
+    }
+}
@@ -7,6 +7,8 @@
  */
 package com.sitewhere.grpc.client;
 
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
+
 import io.grpc.Context;
 
 /**
@@ -22,4 +24,7 @@ public class GrpcContextKeys {
 
     /** Key for accessing requested tenant id */
     public static final Context.Key<String> TENANT_ID_KEY = Context.key("tenant");
+
+    /** Key for accessing event timing envelope */
+    public static final Context.Key<EventTimingEnvelope> EVENT_TIMING_KEY = Context.key("eventTiming");
 }
\ No newline at end of file
@@ -7,11 +7,8 @@
  */
 package com.sitewhere.grpc.client;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -21,6 +18,8 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import com.sitewhere.common.MarshalUtils;
 import com.sitewhere.grpc.client.common.security.NotAuthorizedException;
 import com.sitewhere.grpc.client.common.security.UnauthenticatedException;
+import com.sitewhere.grpc.client.common.security.VerifiedJwt;
+import com.sitewhere.grpc.client.common.security.VerifiedJwtCache;
 import com.sitewhere.grpc.client.common.tracing.DebugParameter;
 import com.sitewhere.grpc.client.spi.IApiChannel;
 import com.sitewhere.grpc.client.spi.server.IGrpcApiImplementation;
@@ -44,15 +43,14 @@ import io.grpc.Status.Code;
 import io.grpc.StatusException;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
-import io.jsonwebtoken.Claims;
 
 public class GrpcUtils {
 
     /** Static logger instance */
     private static Logger LOGGER = LoggerFactory.getLogger(GrpcUtils.class);
 
-    /** Hashmap of JWT to decoded claims */
-    private static Map<String, Claims> jwtToClaims = new HashMap<String, Claims>();
+    /** Cache of verified JWTs shared by server calls */
+    private static VerifiedJwtCache jwtCache = new VerifiedJwtCache();
 
     public static void handleClientMethodEntry(IApiChannel<?> channel, MethodDescriptor<?, ?> method,
 	    DebugParameter... parameters) {
@@ -107,32 +105,21 @@ public class GrpcUtils {
 		    tenant = engine.getTenant();
 		}
 	    }
-	    Claims claims = getClaimsForJwt(api, jwt);
-	    String username = api.getMicroservice().getTokenManagement().getUsernameFromClaims(claims);
-	    List<IGrantedAuthority> gauths = api.getMicroservice().getTokenManagement()
-		    .getGrantedAuthoritiesFromClaims(claims);
-	    List<String> auths = gauths.stream().map(g -> g.getAuthority()).collect(Collectors.toList());
-	    establishSecurityContext(jwt, username, gauths, auths, tenant);
+	    VerifiedJwt verified = getJwtCache().getVerifiedJwt(jwt, api.getMicroservice().getTokenManagement());
+	    establishSecurityContext(jwt, verified.getUsername(), verified.getGrantedAuthorities(),
+		    verified.getAuthorityIds(), tenant);
 	} catch (SiteWhereException e) {
 	    LOGGER.error("Error in gRPC server method " + method.getFullMethodName(), e);
 	}
     }
 
     /**
-     * Get cached claims for JWT.
+     * Get cache of verified JWTs shared by server calls.
      * 
-     * @param jwt
      * @return
-     * @throws SiteWhereException
      */
-    protected static Claims getClaimsForJwt(IGrpcApiImplementation api, String jwt) throws SiteWhereException {
-	// TODO: Swap to expiring cache and put limits on number of cached JWTs.
-	Claims claims = jwtToClaims.get(jwt);
-	if (claims == null) {
-	    claims = api.getMicroservice().getTokenManagement().getClaimsForToken(jwt);
-	    jwtToClaims.put(jwt, claims);
-	}
-	return claims;
+    public static VerifiedJwtCache getJwtCache() {
+	return jwtCache;
     }
 
     /**
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import com.sitewhere.grpc.client.spi.IApiDemuxRoutingStrategy;
+
+/**
+ * Routes to the API channel with the lowest predicted completion time based
+ * on in-flight calls and weighted average latency tracked by each channel's
+ * {@link ChannelLoadTracker}. Ejected channels are skipped unless every
+ * channel is ejected, in which case the least loaded channel is used.
+ *
+ * @author Derek
+ */
+@SuppressWarnings("rawtypes")
+public class LeastOutstandingRequestsRoutingStrategy<T extends ApiChannel> implements IApiDemuxRoutingStrategy<T> {
+
+    /*
+     * @see
+     * com.sitewhere.grpc.client.spi.IApiDemuxRoutingStrategy#chooseApiChannel(java.
+     * util.Map)
+     */
+    @Override
+    public T chooseApiChannel(Map<String, T> apiChannels) {
+	List<T> channels = new ArrayList<>(apiChannels.values());
+	if (channels.size() == 0) {
+	    throw new ApiChannelNotAvailableException();
+	}
+
+	// Start at a random offset so ties are spread across channels.
+	int offset = ThreadLocalRandom.current().nextInt(channels.size());
+	T best = null;
+	double bestScore = Double.MAX_VALUE;
+	T fallback = null;
+	double fallbackScore = Double.MAX_VALUE;
+	for (int i = 0; i < channels.size(); i++) {
+	    T channel = channels.get((offset + i) % channels.size());
+	    ChannelLoadTracker tracker = getLoadTracker(channel);
+	    if (tracker == null) {
+		continue;
+	    }
+	    double score = tracker.getPredictedCompletionNanos();
+	    if (tracker.isEjected()) {
+		if (score < fallbackScore) {
+		    fallback = channel;
+		    fallbackScore = score;
+		}
+	    } else if (score < bestScore) {
+		best = channel;
+		bestScore = score;
+	    }
+	}
+	if (best != null) {
+	    return best;
+	}
+	if (fallback != null) {
+	    return fallback;
+	}
+	return channels.get(offset);
+    }
+
+    /**
+     * Get load tracker for an API channel.
+     *
+     * @param channel
+     * @return
+     */
+    protected ChannelLoadTracker getLoadTracker(T channel) {
+	GrpcChannel grpc = channel.getGrpcChannel();
+	return (grpc != null) ? grpc.getLoadTracker() : null;
+    }
+}
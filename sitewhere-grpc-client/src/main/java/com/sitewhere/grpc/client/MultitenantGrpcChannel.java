@@ -7,9 +7,6 @@
  */
 package com.sitewhere.grpc.client;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-
 import com.sitewhere.grpc.client.spi.multitenant.IMultitenantGrpcChannel;
 import com.sitewhere.grpc.service.GCheckTenantEngineAvailableRequest;
 import com.sitewhere.grpc.service.GCheckTenantEngineAvailableResponse;
@@ -19,7 +16,7 @@ import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.tracing.ITracerProvider;
 
-import io.grpc.ManagedChannelBuilder;
+import io.grpc.netty.NettyChannelBuilder;
 
 /**
  * Management wrapper for a GRPC channel that handles requests for multiple
@@ -32,15 +29,9 @@ import io.grpc.ManagedChannelBuilder;
  */
 public abstract class MultitenantGrpcChannel<B, A> extends GrpcChannel<B, A> implements IMultitenantGrpcChannel<B, A> {
 
-    /** Max threads used for executing GPRC requests */
-    private static final int THREAD_POOL_SIZE = 25;
-
     /** Client interceptor for adding tenant token */
     private TenantTokenClientInterceptor tenantTokenInterceptor = new TenantTokenClientInterceptor();
 
-    /** Executor service used to handle GRPC requests */
-    private ExecutorService serverExecutor = Executors.newFixedThreadPool(THREAD_POOL_SIZE);
-
     public MultitenantGrpcChannel(ITracerProvider tracerProvider, String hostname, int port) {
 	super(tracerProvider, hostname, port);
     }
@@ -54,9 +45,10 @@ public abstract class MultitenantGrpcChannel<B, A> extends GrpcChannel<B, A> imp
      */
     @Override
     public void start(ILifecycleProgressMonitor monitor) throws SiteWhereException {
-	ManagedChannelBuilder<?> builder = ManagedChannelBuilder.forAddress(getHostname(), getPort());
-	builder.executor(getServerExecutor());
-	builder.usePlaintext().intercept(getTenantTokenInterceptor()).intercept(getJwtInterceptor());
+	NettyChannelBuilder builder = GrpcChannelFactory.getInstance().createChannelBuilder(getHostname(), getPort(),
+		isUseDirectExecutor());
+	builder.usePlaintext().intercept(getLoadTracker()).intercept(getTenantTokenInterceptor())
+		.intercept(getJwtInterceptor()).intercept(getEventTimingInterceptor());
 	if (isUseTracingInterceptor()) {
 	    builder.intercept(getTracingInterceptor());
 	}
@@ -90,12 +82,4 @@ public abstract class MultitenantGrpcChannel<B, A> extends GrpcChannel<B, A> imp
     protected void setTenantTokenInterceptor(TenantTokenClientInterceptor tenantTokenInterceptor) {
 	this.tenantTokenInterceptor = tenantTokenInterceptor;
     }
-
-    public ExecutorService getServerExecutor() {
-	return serverExecutor;
-    }
-
-    public void setServerExecutor(ExecutorService serverExecutor) {
-	this.serverExecutor = serverExecutor;
-    }
 }
\ No newline at end of file
@@ -7,6 +7,9 @@
  */
 package com.sitewhere.grpc.client.batch;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.sitewhere.grpc.client.GrpcUtils;
@@ -257,6 +260,25 @@ public class BatchManagementApiChannel extends MultitenantApiChannel<BatchManage
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.batch.IBatchManagement#createBatchElements(java.util.UUID,
+     * java.util.List)
+     */
+    @Override
+    public List<IBatchElement> createBatchElements(UUID batchOperationId, List<IBatchElementCreateRequest> requests)
+	    throws SiteWhereException {
+	List<IBatchElement> results = new ArrayList<IBatchElement>();
+	for (IBatchElementCreateRequest request : requests) {
+	    try {
+		results.add(createBatchElement(batchOperationId, request));
+	    } catch (SiteWhereException e) {
+		results.add(null);
+	    }
+	}
+	return results;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.batch.IBatchManagement#listBatchElements(java.util.UUID,
@@ -305,4 +327,15 @@ public class BatchManagementApiChannel extends MultitenantApiChannel<BatchManage
 	    throw GrpcUtils.handleClientMethodException(BatchManagementGrpc.getUpdateBatchElementMethod(), t);
 	}
     }
+
+    /*
+     * @see com.sitewhere.spi.batch.IBatchManagement#updateBatchElements(java.util.
+     * Map)
+     */
+    @Override
+    public void updateBatchElements(Map<UUID, IBatchElementCreateRequest> requests) throws SiteWhereException {
+	for (Map.Entry<UUID, IBatchElementCreateRequest> entry : requests.entrySet()) {
+	    updateBatchElement(entry.getKey(), entry.getValue());
+	}
+    }
 }
\ No newline at end of file
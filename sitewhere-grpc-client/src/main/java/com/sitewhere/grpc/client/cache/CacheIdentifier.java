@@ -34,6 +34,8 @@ public enum CacheIdentifier {
 
     DeviceAssignmentById("device_assignment_by_id"),
 
+    DeviceCommandByToken("device_command_by_token"),
+
     DeviceTypeByToken("device_type_by_token"),
 
     DeviceTypeById("device_type_by_id"),
@@ -14,6 +14,7 @@ import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceType;
+import com.sitewhere.spi.device.command.IDeviceCommand;
 
 /**
  * Cache providers for device management entities.
@@ -117,4 +118,16 @@ public class DeviceManagementCacheProviders {
 	    super(CacheIdentifier.DeviceAssignmentById, UUID.class, IDeviceAssignment.class, configuration);
 	}
     }
+
+    /**
+     * Cache for device commands by token.
+     * 
+     * @author Derek
+     */
+    public static class DeviceCommandByTokenCache extends CacheProvider<String, IDeviceCommand> {
+
+	public DeviceCommandByTokenCache(ICacheConfiguration configuration) {
+	    super(CacheIdentifier.DeviceCommandByToken, String.class, IDeviceCommand.class, configuration);
+	}
+    }
 }
\ No newline at end of file
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.common.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import com.sitewhere.security.SitewhereGrantedAuthority;
+import com.sitewhere.security.SitewhereUserDetails;
+import com.sitewhere.spi.user.IGrantedAuthority;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Result of parsing and verifying a JWT. Holds the claims along with the
+ * username and authorities derived from them so that they are only calculated
+ * once per token.
+ * 
+ * @author Derek
+ */
+public class VerifiedJwt {
+
+    /** Token */
+    private String token;
+
+    /** Verified claims */
+    private Claims claims;
+
+    /** Username from claims */
+    private String username;
+
+    /** Granted authorities from claims */
+    private List<IGrantedAuthority> grantedAuthorities;
+
+    /** Authority ids from claims */
+    private List<String> authorityIds;
+
+    /** Spring authorities from claims */
+    private List<GrantedAuthority> springAuthorities;
+
+    /** Time at which entry expires */
+    private long expires;
+
+    /** User details loaded when token was first authenticated */
+    private volatile SitewhereUserDetails userDetails;
+
+    public VerifiedJwt(String token, Claims claims, String username, List<IGrantedAuthority> grantedAuthorities,
+	    long expires) {
+	this.token = token;
+	this.claims = claims;
+	this.username = username;
+	this.grantedAuthorities = Collections.unmodifiableList(grantedAuthorities);
+	this.expires = expires;
+
+	List<String> ids = new ArrayList<String>();
+	List<GrantedAuthority> spring = new ArrayList<GrantedAuthority>();
+	for (IGrantedAuthority auth : grantedAuthorities) {
+	    ids.add(auth.getAuthority());
+	    spring.add(new SitewhereGrantedAuthority(auth));
+	}
+	this.authorityIds = Collections.unmodifiableList(ids);
+	this.springAuthorities = Collections.unmodifiableList(spring);
+    }
+
+    public String getToken() {
+	return token;
+    }
+
+    public Claims getClaims() {
+	return claims;
+    }
+
+    public String getUsername() {
+	return username;
+    }
+
+    public List<IGrantedAuthority> getGrantedAuthorities() {
+	return grantedAuthorities;
+    }
+
+    public List<String> getAuthorityIds() {
+	return authorityIds;
+    }
+
+    public List<GrantedAuthority> getSpringAuthorities() {
+	return springAuthorities;
+    }
+
+    public long getExpires() {
+	return expires;
+    }
+
+    public SitewhereUserDetails getUserDetails() {
+	return userDetails;
+    }
+
+    public void setUserDetails(SitewhereUserDetails userDetails) {
+	this.userDetails = userDetails;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.common.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.security.ITokenManagement;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Bounded cache of verified JWTs so that a token presented on many requests is
+ * only parsed and verified once. Entries are keyed by a digest of the token
+ * signature and expire at the expiration time in the token claims. Least
+ * recently used entries are evicted when the cache is full. Tokens that fail
+ * verification are never cached.
+ * 
+ * @author Derek
+ */
+public class VerifiedJwtCache {
+
+    /** Default max number of cached tokens */
+    public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+    /** Time entries remain valid if token has no expiration */
+    public static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+
+    /** Max number of cached tokens */
+    private int maxEntries;
+
+    /** Verified tokens in access order */
+    private Map<String, VerifiedJwt> entries;
+
+    public VerifiedJwtCache() {
+	this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public VerifiedJwtCache(int maxEntries) {
+	this.maxEntries = maxEntries;
+	this.entries = new LinkedHashMap<String, VerifiedJwt>(16, 0.75f, true) {
+
+	    /** Serial version UID */
+	    private static final long serialVersionUID = -3128853390817244460L;
+
+	    /*
+	     * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+	     */
+	    @Override
+	    protected boolean removeEldestEntry(Map.Entry<String, VerifiedJwt> eldest) {
+		return size() > getMaxEntries();
+	    }
+	};
+    }
+
+    /**
+     * Get verified information for a JWT, parsing and verifying the token if it
+     * is not cached or the cached entry has expired. Exceptions thrown by token
+     * management for invalid or expired tokens are passed to the caller.
+     * 
+     * @param jwt
+     * @param tokenManagement
+     * @return
+     * @throws SiteWhereException
+     */
+    public VerifiedJwt getVerifiedJwt(String jwt, ITokenManagement tokenManagement) throws SiteWhereException {
+	String key = getKey(jwt);
+	long now = System.currentTimeMillis();
+	synchronized (entries) {
+	    VerifiedJwt entry = entries.get(key);
+	    if (entry != null) {
+		// Compare full token so a reused signature can not match other claims.
+		if ((entry.getExpires() > now) && (entry.getToken().equals(jwt))) {
+		    return entry;
+		}
+		entries.remove(key);
+	    }
+	}
+	Claims claims = tokenManagement.getClaimsForToken(jwt);
+	long expires = (claims.getExpiration() != null) ? claims.getExpiration().getTime() : now + DEFAULT_TTL_MS;
+	VerifiedJwt verified = new VerifiedJwt(jwt, claims, tokenManagement.getUsernameFromClaims(claims),
+		tokenManagement.getGrantedAuthoritiesFromClaims(claims), expires);
+	synchronized (entries) {
+	    entries.put(key, verified);
+	}
+	return verified;
+    }
+
+    /**
+     * Remove all cached entries.
+     */
+    public void clear() {
+	synchronized (entries) {
+	    entries.clear();
+	}
+    }
+
+    /**
+     * Get number of cached entries.
+     * 
+     * @return
+     */
+    public int size() {
+	synchronized (entries) {
+	    return entries.size();
+	}
+    }
+
+    /**
+     * Get cache key for a token based on a digest of its signature.
+     * 
+     * @param jwt
+     * @return
+     * @throws SiteWhereException
+     */
+    protected static String getKey(String jwt) throws SiteWhereException {
+	String signature = jwt.substring(jwt.lastIndexOf('.') + 1);
+	try {
+	    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+	    return Base64.getEncoder().encodeToString(digest.digest(signature.getBytes(StandardCharsets.UTF_8)));
+	} catch (NoSuchAlgorithmException e) {
+	    throw new SiteWhereException("Unable to create digest for JWT.", e);
+	}
+    }
+
+    public int getMaxEntries() {
+	return maxEntries;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.device;
+
+import com.sitewhere.grpc.service.DeviceManagementGrpc;
+import com.sitewhere.grpc.service.GGetAreaChildrenResponse;
+import com.sitewhere.grpc.service.GGetAreaRequest;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.protobuf.ProtoUtils;
+
+/**
+ * Describes the area subtree and ancestor calls, which are served alongside
+ * the generated device management methods. The generated service contract has
+ * no hierarchy calls, so these methods are registered by hand. They reuse the
+ * generated area request and area list messages.
+ *
+ * @author Derek
+ */
+public class AreaHierarchyGrpc {
+
+    /** Name of method that returns all descendants of an area */
+    public static final String DESCENDANTS_METHOD_NAME = "GetAreaDescendants";
+
+    /** Name of method that returns ancestors of an area */
+    public static final String ANCESTORS_METHOD_NAME = "GetAreaAncestors";
+
+    /** Descriptor for descendants method */
+    private static final MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> DESCENDANTS_METHOD = createMethod(
+	    DESCENDANTS_METHOD_NAME);
+
+    /** Descriptor for ancestors method */
+    private static final MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> ANCESTORS_METHOD = createMethod(
+	    ANCESTORS_METHOD_NAME);
+
+    /**
+     * Get descriptor for method that returns all descendants of an area.
+     *
+     * @return
+     */
+    public static MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> getGetAreaDescendantsMethod() {
+	return DESCENDANTS_METHOD;
+    }
+
+    /**
+     * Get descriptor for method that returns ancestors of an area ordered from
+     * the root down to the parent.
+     *
+     * @return
+     */
+    public static MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> getGetAreaAncestorsMethod() {
+	return ANCESTORS_METHOD;
+    }
+
+    /**
+     * Create a unary method descriptor on the device management service.
+     *
+     * @param name
+     * @return
+     */
+    protected static MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> createMethod(String name) {
+	return MethodDescriptor.<GGetAreaRequest, GGetAreaChildrenResponse> newBuilder()
+		.setType(MethodDescriptor.MethodType.UNARY)
+		.setFullMethodName(MethodDescriptor.generateFullMethodName(DeviceManagementGrpc.SERVICE_NAME, name))
+		.setRequestMarshaller(ProtoUtils.marshaller(GGetAreaRequest.getDefaultInstance()))
+		.setResponseMarshaller(ProtoUtils.marshaller(GGetAreaChildrenResponse.getDefaultInstance())).build();
+    }
+}
@@ -20,6 +20,7 @@ import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.device.IDevice;
 import com.sitewhere.spi.device.IDeviceAssignment;
 import com.sitewhere.spi.device.IDeviceType;
+import com.sitewhere.spi.device.command.IDeviceCommand;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 import com.sitewhere.spi.tenant.ITenant;
 
@@ -54,6 +55,9 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
     /** Device assignment by id cache */
     private ICacheProvider<UUID, IDeviceAssignment> deviceAssignmentByIdCache;
 
+    /** Device command cache */
+    private ICacheProvider<String, IDeviceCommand> deviceCommandCache;
+
     public CachedDeviceManagementApiChannel(IApiDemux<?> demux, String host, int port, CacheSettings settings) {
 	super(demux, host, port);
 	this.areaCache = new DeviceManagementCacheProviders.AreaByTokenCache(settings.getAreaConfiguration());
@@ -68,6 +72,8 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 		settings.getDeviceAssignmentConfiguration());
 	this.deviceAssignmentByIdCache = new DeviceManagementCacheProviders.DeviceAssignmentByIdCache(
 		settings.getDeviceAssignmentConfiguration());
+	this.deviceCommandCache = new DeviceManagementCacheProviders.DeviceCommandByTokenCache(
+		settings.getDeviceCommandConfiguration());
     }
 
     /*
@@ -85,6 +91,7 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	initializeNestedComponent(getDeviceByIdCache(), monitor, true);
 	initializeNestedComponent(getDeviceAssignmentCache(), monitor, true);
 	initializeNestedComponent(getDeviceAssignmentByIdCache(), monitor, true);
+	initializeNestedComponent(getDeviceCommandCache(), monitor, true);
 	super.initialize(monitor);
     }
 
@@ -103,6 +110,7 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	startNestedComponent(getDeviceByIdCache(), monitor, true);
 	startNestedComponent(getDeviceAssignmentCache(), monitor, true);
 	startNestedComponent(getDeviceAssignmentByIdCache(), monitor, true);
+	startNestedComponent(getDeviceCommandCache(), monitor, true);
 	super.start(monitor);
     }
 
@@ -121,6 +129,7 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	stopNestedComponent(getDeviceByIdCache(), monitor);
 	stopNestedComponent(getDeviceAssignmentCache(), monitor);
 	stopNestedComponent(getDeviceAssignmentByIdCache(), monitor);
+	stopNestedComponent(getDeviceCommandCache(), monitor);
 	super.stop(monitor);
     }
 
@@ -248,6 +257,21 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	return assignment;
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.device.DeviceManagementApiChannel#
+     * getDeviceCommandByToken(java.lang.String)
+     */
+    @Override
+    public IDeviceCommand getDeviceCommandByToken(String token) throws SiteWhereException {
+	ITenant tenant = UserContextManager.getCurrentTenant(true);
+	IDeviceCommand command = getDeviceCommandCache().getCacheEntry(tenant, token);
+	if (command == null) {
+	    command = super.getDeviceCommandByToken(token);
+	    getDeviceCommandCache().setCacheEntry(tenant, token, command);
+	}
+	return command;
+    }
+
     /**
      * Contains default cache settings for device management entities.
      */
@@ -265,6 +289,9 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	/** Cache configuration for device assignments */
 	private ICacheConfiguration deviceAssignmentConfiguration = new CacheConfiguration(10000, 30);
 
+	/** Cache configuration for device commands */
+	private ICacheConfiguration deviceCommandConfiguration = new CacheConfiguration(1000, 60);
+
 	public ICacheConfiguration getAreaConfiguration() {
 	    return areaConfiguration;
 	}
@@ -296,6 +323,14 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
 	public void setDeviceAssignmentConfiguration(ICacheConfiguration deviceAssignmentConfiguration) {
 	    this.deviceAssignmentConfiguration = deviceAssignmentConfiguration;
 	}
+
+	public ICacheConfiguration getDeviceCommandConfiguration() {
+	    return deviceCommandConfiguration;
+	}
+
+	public void setDeviceCommandConfiguration(ICacheConfiguration deviceCommandConfiguration) {
+	    this.deviceCommandConfiguration = deviceCommandConfiguration;
+	}
     }
 
     public ICacheProvider<String, IArea> getAreaCache() {
@@ -361,4 +396,12 @@ public class CachedDeviceManagementApiChannel extends DeviceManagementApiChannel
     public void setDeviceAssignmentByIdCache(ICacheProvider<UUID, IDeviceAssignment> deviceAssignmentByIdCache) {
 	this.deviceAssignmentByIdCache = deviceAssignmentByIdCache;
     }
+
+    public ICacheProvider<String, IDeviceCommand> getDeviceCommandCache() {
+	return deviceCommandCache;
+    }
+
+    public void setDeviceCommandCache(ICacheProvider<String, IDeviceCommand> deviceCommandCache) {
+	this.deviceCommandCache = deviceCommandCache;
+    }
 }
\ No newline at end of file
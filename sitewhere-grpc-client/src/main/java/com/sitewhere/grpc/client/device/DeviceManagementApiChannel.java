@@ -7,9 +7,14 @@
  */
 package com.sitewhere.grpc.client.device;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import com.sitewhere.device.group.DeviceGroupElementBulkResult;
+import com.sitewhere.device.group.DeviceGroupElementFailure;
+import com.sitewhere.grpc.client.ConcurrentLookup;
 import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.MultitenantApiChannel;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
@@ -17,6 +22,7 @@ import com.sitewhere.grpc.client.spi.IApiDemux;
 import com.sitewhere.grpc.client.spi.client.IDeviceManagementApiChannel;
 import com.sitewhere.grpc.service.*;
 import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.SiteWhereSystemException;
 import com.sitewhere.spi.area.IArea;
 import com.sitewhere.spi.area.IAreaType;
 import com.sitewhere.spi.area.IZone;
@@ -36,6 +42,7 @@ import com.sitewhere.spi.device.IDeviceType;
 import com.sitewhere.spi.device.command.IDeviceCommand;
 import com.sitewhere.spi.device.group.IDeviceGroup;
 import com.sitewhere.spi.device.group.IDeviceGroupElement;
+import com.sitewhere.spi.device.group.IDeviceGroupElementBulkResult;
 import com.sitewhere.spi.device.request.IDeviceAlarmCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceAssignmentCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceCommandCreateRequest;
@@ -44,6 +51,9 @@ import com.sitewhere.spi.device.request.IDeviceGroupCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceGroupElementCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceStatusCreateRequest;
 import com.sitewhere.spi.device.request.IDeviceTypeCreateRequest;
+import com.sitewhere.spi.error.ErrorCode;
+import com.sitewhere.spi.error.ErrorLevel;
+import com.sitewhere.spi.microservice.ServiceNotAvailableException;
 import com.sitewhere.spi.search.ISearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.search.area.IAreaSearchCriteria;
@@ -56,6 +66,10 @@ import com.sitewhere.spi.search.device.IDeviceStatusSearchCriteria;
 import com.sitewhere.spi.search.device.IZoneSearchCriteria;
 import com.sitewhere.spi.tracing.ITracerProvider;
 
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.StreamObserver;
+
 /**
  * Supports SiteWhere device management APIs on top of a
  * {@link DeviceManagementGrpcChannel}.
@@ -65,6 +79,12 @@ import com.sitewhere.spi.tracing.ITracerProvider;
 public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceManagementGrpcChannel>
 	implements IDeviceManagementApiChannel<DeviceManagementGrpcChannel> {
 
+    /** Number of group elements sent in each call when adding in bulk */
+    private static final int GROUP_ELEMENT_CHUNK_SIZE = 1000;
+
+    /** Max lookups in flight when resolving entities in bulk */
+    private static final int MAX_LOOKUPS_IN_FLIGHT = 64;
+
     public DeviceManagementApiChannel(IApiDemux<?> demux, String host, int port) {
 	super(demux, host, port);
     }
@@ -557,6 +577,49 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaDescendants(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaDescendants(UUID areaId) throws SiteWhereException {
+	return getAreaHierarchy(AreaHierarchyGrpc.getGetAreaDescendantsMethod(), areaId);
+    }
+
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getAreaAncestors(java.util.UUID)
+     */
+    @Override
+    public List<IArea> getAreaAncestors(UUID areaId) throws SiteWhereException {
+	return getAreaHierarchy(AreaHierarchyGrpc.getGetAreaAncestorsMethod(), areaId);
+    }
+
+    /**
+     * Get areas related to an area using one of the hierarchy methods, which are
+     * not part of the generated service contract.
+     * 
+     * @param method
+     * @param areaId
+     * @return
+     * @throws SiteWhereException
+     */
+    protected List<IArea> getAreaHierarchy(MethodDescriptor<GGetAreaRequest, GGetAreaChildrenResponse> method,
+	    UUID areaId) throws SiteWhereException {
+	try {
+	    GrpcUtils.handleClientMethodEntry(this, method);
+	    GGetAreaRequest.Builder grequest = GGetAreaRequest.newBuilder();
+	    grequest.setId(CommonModelConverter.asGrpcUuid(areaId));
+	    GGetAreaChildrenResponse gresponse = ClientCalls.blockingUnaryCall(getGrpcChannel().getChannel(), method,
+		    getGrpcChannel().getBlockingStub().getCallOptions(), grequest.build());
+	    List<IArea> response = DeviceModelConverter.asApiAreas(gresponse.getAreasList());
+	    GrpcUtils.logClientMethodResponse(method, response);
+	    return response;
+	} catch (Throwable t) {
+	    throw GrpcUtils.handleClientMethodException(method, t);
+	}
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateArea(java.util.UUID,
      * com.sitewhere.spi.area.request.IAreaCreateRequest)
@@ -1193,6 +1256,49 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#getDevicesByToken(java.util.List)
+     */
+    @Override
+    public List<IDevice> getDevicesByToken(List<String> tokens) throws SiteWhereException {
+	GrpcUtils.handleClientMethodEntry(this, DeviceManagementGrpc.getGetDeviceByTokenMethod());
+	ConcurrentLookup<String, IDevice> lookup = new ConcurrentLookup<String, IDevice>(MAX_LOOKUPS_IN_FLIGHT) {
+
+	    @Override
+	    protected void lookup(String token, StreamObserver<IDevice> observer) throws SiteWhereException {
+		GGetDeviceByTokenRequest.Builder grequest = GGetDeviceByTokenRequest.newBuilder();
+		grequest.setToken(token);
+		getGrpcChannel().getAsyncStub().getDeviceByToken(grequest.build(),
+			new StreamObserver<GGetDeviceByTokenResponse>() {
+
+			    @Override
+			    public void onNext(GGetDeviceByTokenResponse gresponse) {
+				try {
+				    observer.onNext((gresponse.hasDevice())
+					    ? DeviceModelConverter.asApiDevice(gresponse.getDevice())
+					    : null);
+				} catch (Throwable t) {
+				    onError(t);
+				}
+			    }
+
+			    @Override
+			    public void onError(Throwable t) {
+				MethodDescriptor<?, ?> method = DeviceManagementGrpc.getGetDeviceByTokenMethod();
+				observer.onError(GrpcUtils.handleClientMethodException(method, t));
+			    }
+
+			    @Override
+			    public void onCompleted() {
+				observer.onCompleted();
+			    }
+			});
+	    }
+	};
+	return lookup.execute(tokens, true);
+    }
+
     /*
      * @see com.sitewhere.spi.device.IDeviceManagement#updateDevice(java.util.UUID,
      * com.sitewhere.spi.device.request.IDeviceCreateRequest)
@@ -1233,6 +1339,75 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.device.IDeviceManagement#getDevices(java.util.List,
+     * com.sitewhere.spi.search.device.IDeviceSearchCriteria)
+     */
+    @Override
+    public List<IDevice> getDevices(List<UUID> deviceIds, IDeviceSearchCriteria criteria) throws SiteWhereException {
+	UUID deviceTypeId = null;
+	if ((criteria.getDeviceTypeToken() != null) && (criteria.getDeviceTypeToken().length() > 0)) {
+	    IDeviceType deviceType = getDeviceTypeByToken(criteria.getDeviceTypeToken());
+	    if (deviceType == null) {
+		return new ArrayList<IDevice>();
+	    }
+	    deviceTypeId = deviceType.getId();
+	}
+	GrpcUtils.handleClientMethodEntry(this, DeviceManagementGrpc.getGetDeviceMethod());
+	ConcurrentLookup<UUID, IDevice> lookup = new ConcurrentLookup<UUID, IDevice>(MAX_LOOKUPS_IN_FLIGHT) {
+
+	    @Override
+	    protected void lookup(UUID deviceId, StreamObserver<IDevice> observer) throws SiteWhereException {
+		GGetDeviceRequest.Builder grequest = GGetDeviceRequest.newBuilder();
+		grequest.setId(CommonModelConverter.asGrpcUuid(deviceId));
+		getGrpcChannel().getAsyncStub().getDevice(grequest.build(), new StreamObserver<GGetDeviceResponse>() {
+
+		    @Override
+		    public void onNext(GGetDeviceResponse gresponse) {
+			try {
+			    observer.onNext((gresponse.hasDevice())
+				    ? DeviceModelConverter.asApiDevice(gresponse.getDevice())
+				    : null);
+			} catch (Throwable t) {
+			    onError(t);
+			}
+		    }
+
+		    @Override
+		    public void onError(Throwable t) {
+			MethodDescriptor<?, ?> method = DeviceManagementGrpc.getGetDeviceMethod();
+			observer.onError(GrpcUtils.handleClientMethodException(method, t));
+		    }
+
+		    @Override
+		    public void onCompleted() {
+			observer.onCompleted();
+		    }
+		});
+	    }
+	};
+	List<IDevice> matches = new ArrayList<IDevice>();
+	for (IDevice device : lookup.execute(deviceIds, true)) {
+	    if (device == null) {
+		continue;
+	    }
+	    if ((deviceTypeId != null) && (!deviceTypeId.equals(device.getDeviceTypeId()))) {
+		continue;
+	    }
+	    if (criteria.isExcludeAssigned() && (device.getDeviceAssignmentId() != null)) {
+		continue;
+	    }
+	    if ((criteria.getStartDate() != null) && (device.getCreatedDate().before(criteria.getStartDate()))) {
+		continue;
+	    }
+	    if ((criteria.getEndDate() != null) && (device.getCreatedDate().after(criteria.getEndDate()))) {
+		continue;
+	    }
+	    matches.add(device);
+	}
+	return matches;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#createDeviceElementMapping(java.
@@ -1770,6 +1945,49 @@ public class DeviceManagementApiChannel extends MultitenantApiChannel<DeviceMana
 	}
     }
 
+    /*
+     * @see
+     * com.sitewhere.spi.device.IDeviceManagement#addDeviceGroupElementsBulk(java.
+     * util.UUID, java.util.List, boolean)
+     */
+    @Override
+    public IDeviceGroupElementBulkResult addDeviceGroupElementsBulk(UUID groupId,
+	    List<IDeviceGroupElementCreateRequest> elements, boolean ignoreDuplicates) throws SiteWhereException {
+	// Service contract has no bulk call, so send chunks through the standard call
+	// and retry single elements to identify failures within a chunk.
+	DeviceGroupElementBulkResult result = new DeviceGroupElementBulkResult();
+	for (int start = 0; start < elements.size(); start += GROUP_ELEMENT_CHUNK_SIZE) {
+	    List<IDeviceGroupElementCreateRequest> chunk = elements.subList(start,
+		    Math.min(elements.size(), start + GROUP_ELEMENT_CHUNK_SIZE));
+	    try {
+		List<IDeviceGroupElement> added = addDeviceGroupElements(groupId, chunk, ignoreDuplicates);
+		result.getAdded().addAll(added);
+		result.setDuplicates(result.getDuplicates() + chunk.size() - added.size());
+	    } catch (ServiceNotAvailableException e) {
+		throw e;
+	    } catch (SiteWhereException e) {
+		for (int i = 0; i < chunk.size(); i++) {
+		    IDeviceGroupElementCreateRequest request = chunk.get(i);
+		    try {
+			List<IDeviceGroupElement> added = addDeviceGroupElements(groupId,
+				Collections.singletonList(request), ignoreDuplicates);
+			result.getAdded().addAll(added);
+			result.setDuplicates(result.getDuplicates() + 1 - added.size());
+		    } catch (ServiceNotAvailableException se) {
+			throw se;
+		    } catch (SiteWhereSystemException se) {
+			result.getFailures()
+				.add(new DeviceGroupElementFailure(start + i, request, se.getCode(), se.getMessage()));
+		    } catch (SiteWhereException se) {
+			result.getFailures().add(
+				new DeviceGroupElementFailure(start + i, request, ErrorCode.Error, se.getMessage()));
+		    }
+		}
+	    }
+	}
+	return result;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.IDeviceManagement#removeDeviceGroupElements(java.
@@ -50,6 +50,7 @@ public class DeviceManagementApiDemux extends MultitenantApiDemux<IDeviceManagem
 	    settings.getDeviceTypeConfiguration().setEnabled(false);
 	    settings.getDeviceConfiguration().setEnabled(false);
 	    settings.getDeviceAssignmentConfiguration().setEnabled(false);
+	    settings.getDeviceCommandConfiguration().setEnabled(false);
 	}
 	return new CachedDeviceManagementApiChannel(this, host, getMicroservice().getInstanceSettings().getGrpcPort(),
 		settings);
@@ -10,6 +10,7 @@ package com.sitewhere.grpc.client.event;
 import java.util.List;
 import java.util.UUID;
 
+import com.sitewhere.device.event.MeasurementAggregator;
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
@@ -23,6 +24,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -111,6 +113,22 @@ public class BlockingDeviceEventManagement extends TenantEngineLifecycleComponen
 	return observer.getResult();
     }
 
+    /*
+     * @see com.sitewhere.spi.device.event.IDeviceEventManagement#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria)
+     */
+    @Override
+    public List<IDeviceMeasurementAggregate> aggregateDeviceMeasurementsForIndex(DeviceEventIndex index,
+	    List<UUID> entityIds, List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria)
+	    throws SiteWhereException {
+	MeasurementAggregator.validate(windowMs, criteria);
+	BlockingStreamObserver<List<IDeviceMeasurementAggregate>> observer = new BlockingStreamObserver<>();
+	api.aggregateDeviceMeasurementsForIndex(index, entityIds, measurementNames, windowMs, criteria, observer);
+	return observer.getResult();
+    }
+
     /*
      * @see
      * com.sitewhere.spi.device.event.IDeviceEventManagement#addDeviceLocations(java
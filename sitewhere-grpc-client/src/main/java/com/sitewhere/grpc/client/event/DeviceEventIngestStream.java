@@ -0,0 +1,713 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
+import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiDemux;
+import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.rest.model.device.event.request.DeviceAlertCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.device.event.DeviceEventType;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
+import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceCommandResponseCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceEventCreateRequest;
+import com.sitewhere.spi.device.event.request.IDeviceStateChangeCreateRequest;
+
+import io.grpc.stub.StreamObserver;
+
+/**
+ * Client for streaming a continuous flow of event create requests to event
+ * management. Measurements, locations and alerts are coalesced per assignment
+ * and sent with the batch API so that many events share a single call. Each
+ * batch holds a single event type and is sealed as soon as an event of another
+ * type arrives for the assignment. Batches are also sealed when they reach the
+ * maximum size or when the linger interval expires. Event types not supported
+ * by the batch API are sent with unary calls.
+ *
+ * At most one call is in flight for each assignment. Sealed batches and unary
+ * requests wait in a per-assignment queue until the previous call completes,
+ * so events for an assignment are stored in the order they were added even
+ * when calls are routed to different channels. Callers block while more than
+ * the maximum number of calls are queued or in flight rather than flooding
+ * the channels. Results are delivered to the observer passed with each event
+ * as soon as its call completes.
+ *
+ * @author Derek
+ */
+public class DeviceEventIngestStream {
+
+    /** Static logger instance */
+    private static Logger LOGGER = LoggerFactory.getLogger(DeviceEventIngestStream.class);
+
+    /** Demux used to choose a channel for each batch */
+    private IDeviceEventManagementApiDemux demux;
+
+    /** Maximum number of events in a batch */
+    private int maxBatchSize;
+
+    /** Maximum time an event waits before its batch is sent */
+    private long lingerMs;
+
+    /** Max number of calls queued or in flight before callers block */
+    private int maxInFlight;
+
+    /** Batches being accumulated, indexed by assignment id */
+    private Map<UUID, PendingBatch> pending = new HashMap<UUID, PendingBatch>();
+
+    /** Sealed calls waiting to be sent, indexed by assignment id (guarded by pending) */
+    private Map<UUID, AssignmentCalls> outbound = new HashMap<UUID, AssignmentCalls>();
+
+    /** Number of calls queued or in flight (guarded by pending) */
+    private int outstanding;
+
+    /** Executor for sending batches that reach the linger interval */
+    private ScheduledExecutorService flusher;
+
+    public DeviceEventIngestStream(IDeviceEventManagementApiDemux demux, int maxBatchSize, long lingerMs,
+	    int maxInFlightBatches) {
+	this.demux = demux;
+	this.maxBatchSize = maxBatchSize;
+	this.lingerMs = lingerMs;
+	this.maxInFlight = maxInFlightBatches;
+    }
+
+    /**
+     * Start background flushing of lingering batches.
+     */
+    public void start() {
+	this.flusher = Executors.newSingleThreadScheduledExecutor(new IngestFlusherThreadFactory());
+	flusher.scheduleWithFixedDelay(new LingerFlusher(), lingerMs, lingerMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send any pending batches and stop background flushing.
+     */
+    public void stop() {
+	if (flusher != null) {
+	    flusher.shutdownNow();
+	}
+	flush();
+    }
+
+    /**
+     * Add an event to the stream. The observer receives the created event (or an
+     * error) once it has been stored.
+     *
+     * @param deviceAssignmentId
+     * @param deviceToken
+     * @param request
+     * @param observer
+     * @throws SiteWhereException
+     */
+    public void send(UUID deviceAssignmentId, String deviceToken, IDeviceEventCreateRequest request,
+	    StreamObserver<IDeviceEvent> observer) throws SiteWhereException {
+	Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+	List<OutboundCall> sealed = new ArrayList<OutboundCall>(2);
+	if (!isBatchable(request)) {
+	    if (!isUnary(request)) {
+		throw new SiteWhereException("Unable to stream event type: " + request.getEventType().name());
+	    }
+	    synchronized (pending) {
+		PendingBatch previous = pending.remove(deviceAssignmentId);
+		if (previous != null) {
+		    sealed.add(enqueue(previous));
+		}
+		sealed.add(enqueue(new UnaryCall(deviceAssignmentId, authentication, request, observer)));
+	    }
+	} else {
+	    synchronized (pending) {
+		PendingBatch batch = pending.get(deviceAssignmentId);
+		if ((batch != null) && (!batch.accepts(request))) {
+		    sealed.add(enqueue(pending.remove(deviceAssignmentId)));
+		    batch = null;
+		}
+		if (batch == null) {
+		    batch = new PendingBatch(deviceAssignmentId, deviceToken, authentication);
+		    pending.put(deviceAssignmentId, batch);
+		}
+		batch.add(request, observer);
+		if (batch.size() >= getMaxBatchSize()) {
+		    sealed.add(enqueue(pending.remove(deviceAssignmentId)));
+		}
+	    }
+	}
+	if (!sealed.isEmpty()) {
+	    drain(deviceAssignmentId);
+	    awaitWindow();
+	}
+    }
+
+    /**
+     * Send all pending batches regardless of size.
+     */
+    public void flush() {
+	List<PendingBatch> batches;
+	synchronized (pending) {
+	    batches = new ArrayList<PendingBatch>(pending.values());
+	    pending.clear();
+	    for (PendingBatch batch : batches) {
+		enqueue(batch);
+	    }
+	}
+	for (PendingBatch batch : batches) {
+	    drain(batch.getDeviceAssignmentId());
+	}
+    }
+
+    /**
+     * Send batches that have been waiting longer than the linger interval.
+     */
+    protected void flushExpired() {
+	long cutoff = System.currentTimeMillis() - getLingerMs();
+	List<PendingBatch> expired = new ArrayList<PendingBatch>();
+	synchronized (pending) {
+	    for (PendingBatch batch : new ArrayList<PendingBatch>(pending.values())) {
+		if (batch.getCreated() <= cutoff) {
+		    expired.add(pending.remove(batch.getDeviceAssignmentId()));
+		}
+	    }
+	    for (PendingBatch batch : expired) {
+		enqueue(batch);
+	    }
+	}
+	for (PendingBatch batch : expired) {
+	    drain(batch.getDeviceAssignmentId());
+	}
+    }
+
+    /**
+     * Add a sealed call to the queue for its assignment. Must be called while
+     * holding the pending lock so that calls are queued in the order they were
+     * sealed.
+     *
+     * @param call
+     * @return
+     */
+    protected OutboundCall enqueue(OutboundCall call) {
+	AssignmentCalls calls = outbound.get(call.getDeviceAssignmentId());
+	if (calls == null) {
+	    calls = new AssignmentCalls();
+	    outbound.put(call.getDeviceAssignmentId(), calls);
+	}
+	calls.getQueued().add(call);
+	outstanding++;
+	return call;
+    }
+
+    /**
+     * Send the next queued call for an assignment unless a call for the
+     * assignment is already in flight.
+     *
+     * @param deviceAssignmentId
+     */
+    protected void drain(UUID deviceAssignmentId) {
+	OutboundCall next;
+	synchronized (pending) {
+	    AssignmentCalls calls = outbound.get(deviceAssignmentId);
+	    if ((calls == null) || (calls.isInFlight())) {
+		return;
+	    }
+	    next = calls.getQueued().poll();
+	    if (next == null) {
+		outbound.remove(deviceAssignmentId);
+		return;
+	    }
+	    calls.setInFlight(true);
+	}
+	transmit(next);
+    }
+
+    /**
+     * Called when a call has completed. Sends the next call queued for the same
+     * assignment and wakes callers waiting on the window.
+     *
+     * @param call
+     */
+    protected void completed(OutboundCall call) {
+	synchronized (pending) {
+	    outstanding--;
+	    AssignmentCalls calls = outbound.get(call.getDeviceAssignmentId());
+	    if (calls != null) {
+		calls.setInFlight(false);
+	    }
+	    pending.notifyAll();
+	}
+	drain(call.getDeviceAssignmentId());
+    }
+
+    /**
+     * Block while more than the max number of calls are queued or in flight.
+     */
+    protected void awaitWindow() {
+	synchronized (pending) {
+	    while (outstanding > getMaxInFlight()) {
+		try {
+		    pending.wait();
+		} catch (InterruptedException e) {
+		    Thread.currentThread().interrupt();
+		    return;
+		}
+	    }
+	}
+    }
+
+    /**
+     * Indicates whether the request can be sent via the batch API.
+     *
+     * @param request
+     * @return
+     */
+    protected boolean isBatchable(IDeviceEventCreateRequest request) {
+	return (request instanceof DeviceMeasurementCreateRequest) || (request instanceof DeviceLocationCreateRequest)
+		|| (request instanceof DeviceAlertCreateRequest);
+    }
+
+    /**
+     * Indicates whether the request is sent with a unary call.
+     *
+     * @param request
+     * @return
+     */
+    protected boolean isUnary(IDeviceEventCreateRequest request) {
+	return (request instanceof IDeviceCommandInvocationCreateRequest)
+		|| (request instanceof IDeviceCommandResponseCreateRequest)
+		|| (request instanceof IDeviceStateChangeCreateRequest);
+    }
+
+    /**
+     * Send a call using the credentials of the thread that sealed it. Failures
+     * to start the call complete it immediately.
+     *
+     * @param call
+     */
+    protected void transmit(OutboundCall call) {
+	Authentication previous = SecurityContextHolder.getContext().getAuthentication();
+	SecurityContextHolder.getContext().setAuthentication(call.getAuthentication());
+	try {
+	    call.send(getDemux().getApiChannel());
+	} catch (Throwable t) {
+	    call.fail(t);
+	} finally {
+	    SecurityContextHolder.getContext().setAuthentication(previous);
+	}
+    }
+
+    /**
+     * Call that has been sealed and is sent once earlier calls for the same
+     * assignment have completed.
+     *
+     * @author Derek
+     */
+    private abstract class OutboundCall {
+
+	/** Assignment id */
+	private UUID deviceAssignmentId;
+
+	/** Credentials used to send call */
+	private Authentication authentication;
+
+	/** Indicates call has completed */
+	private AtomicBoolean done = new AtomicBoolean();
+
+	public OutboundCall(UUID deviceAssignmentId, Authentication authentication) {
+	    this.deviceAssignmentId = deviceAssignmentId;
+	    this.authentication = authentication;
+	}
+
+	/**
+	 * Start the call on the given channel.
+	 *
+	 * @param channel
+	 * @throws SiteWhereException
+	 */
+	public abstract void send(IDeviceEventManagementApiChannel<?> channel) throws SiteWhereException;
+
+	/**
+	 * Deliver an error to every observer of the call.
+	 *
+	 * @param t
+	 */
+	public abstract void onError(Throwable t);
+
+	/**
+	 * Mark the call as completed. Returns false if it was already completed.
+	 *
+	 * @return
+	 */
+	public boolean complete() {
+	    if (done.compareAndSet(false, true)) {
+		completed(this);
+		return true;
+	    }
+	    return false;
+	}
+
+	/**
+	 * Complete the call with an error.
+	 *
+	 * @param t
+	 */
+	public void fail(Throwable t) {
+	    if (complete()) {
+		onError(t);
+	    }
+	}
+
+	public UUID getDeviceAssignmentId() {
+	    return deviceAssignmentId;
+	}
+
+	public Authentication getAuthentication() {
+	    return authentication;
+	}
+    }
+
+    /**
+     * Events accumulated for a single assignment.
+     *
+     * @author Derek
+     */
+    private class PendingBatch extends OutboundCall {
+
+	/** Time batch was started */
+	private long created = System.currentTimeMillis();
+
+	/** Batch being built */
+	private DeviceEventBatch batch = new DeviceEventBatch();
+
+	/** Type of events in batch */
+	private DeviceEventType eventType;
+
+	/** Observers for measurements in batch order */
+	private List<StreamObserver<IDeviceEvent>> measurementObservers = new ArrayList<>();
+
+	/** Observers for locations in batch order */
+	private List<StreamObserver<IDeviceEvent>> locationObservers = new ArrayList<>();
+
+	/** Observers for alerts in batch order */
+	private List<StreamObserver<IDeviceEvent>> alertObservers = new ArrayList<>();
+
+	public PendingBatch(UUID deviceAssignmentId, String deviceToken, Authentication authentication) {
+	    super(deviceAssignmentId, authentication);
+	    batch.setDeviceToken(deviceToken);
+	}
+
+	/*
+	 * @see com.sitewhere.grpc.client.event.DeviceEventIngestStream.OutboundCall#
+	 * send(com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel)
+	 */
+	@Override
+	public void send(IDeviceEventManagementApiChannel<?> channel) throws SiteWhereException {
+	    channel.addDeviceEventBatch(getDeviceAssignmentId(), getBatch(), new BatchResponseObserver(this));
+	}
+
+	/**
+	 * Indicates whether the request has the same event type as the batch.
+	 *
+	 * @param request
+	 * @return
+	 */
+	public boolean accepts(IDeviceEventCreateRequest request) {
+	    return (eventType == null) || (eventType == request.getEventType());
+	}
+
+	public void add(IDeviceEventCreateRequest request, StreamObserver<IDeviceEvent> observer) {
+	    this.eventType = request.getEventType();
+	    if (request instanceof DeviceMeasurementCreateRequest) {
+		batch.getMeasurements().add((DeviceMeasurementCreateRequest) request);
+		measurementObservers.add(observer);
+	    } else if (request instanceof DeviceLocationCreateRequest) {
+		batch.getLocations().add((DeviceLocationCreateRequest) request);
+		locationObservers.add(observer);
+	    } else if (request instanceof DeviceAlertCreateRequest) {
+		batch.getAlerts().add((DeviceAlertCreateRequest) request);
+		alertObservers.add(observer);
+	    }
+	}
+
+	public int size() {
+	    return measurementObservers.size() + locationObservers.size() + alertObservers.size();
+	}
+
+	/**
+	 * Deliver created events to the observers in the order they were added.
+	 *
+	 * @param response
+	 */
+	public void onResponse(IDeviceEventBatchResponse response) {
+	    deliver(response.getCreatedMeasurements(), measurementObservers);
+	    deliver(response.getCreatedLocations(), locationObservers);
+	    deliver(response.getCreatedAlerts(), alertObservers);
+	}
+
+	/*
+	 * @see com.sitewhere.grpc.client.event.DeviceEventIngestStream.OutboundCall#
+	 * onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable t) {
+	    deliverError(t, measurementObservers);
+	    deliverError(t, locationObservers);
+	    deliverError(t, alertObservers);
+	}
+
+	protected void deliver(List<? extends IDeviceEvent> created, List<StreamObserver<IDeviceEvent>> observers) {
+	    for (int i = 0; i < observers.size(); i++) {
+		if ((created != null) && (i < created.size())) {
+		    observers.get(i).onNext(created.get(i));
+		    observers.get(i).onCompleted();
+		} else {
+		    observers.get(i).onError(new SiteWhereException("Event was not created by batch request."));
+		}
+	    }
+	}
+
+	protected void deliverError(Throwable t, List<StreamObserver<IDeviceEvent>> observers) {
+	    for (StreamObserver<IDeviceEvent> observer : observers) {
+		observer.onError(t);
+	    }
+	}
+
+	public long getCreated() {
+	    return created;
+	}
+
+	public DeviceEventBatch getBatch() {
+	    return batch;
+	}
+    }
+
+    /**
+     * Event type not supported by the batch API, sent with a unary call.
+     *
+     * @author Derek
+     */
+    private class UnaryCall extends OutboundCall {
+
+	/** Event create request */
+	private IDeviceEventCreateRequest request;
+
+	/** Observer for created event */
+	private StreamObserver<IDeviceEvent> observer;
+
+	public UnaryCall(UUID deviceAssignmentId, Authentication authentication, IDeviceEventCreateRequest request,
+		StreamObserver<IDeviceEvent> observer) {
+	    super(deviceAssignmentId, authentication);
+	    this.request = request;
+	    this.observer = observer;
+	}
+
+	/*
+	 * @see com.sitewhere.grpc.client.event.DeviceEventIngestStream.OutboundCall#
+	 * send(com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel)
+	 */
+	@Override
+	public void send(IDeviceEventManagementApiChannel<?> channel) throws SiteWhereException {
+	    switch (request.getEventType()) {
+	    case CommandInvocation:
+		channel.addDeviceCommandInvocations(getDeviceAssignmentId(), new EventObserver<>(this),
+			(IDeviceCommandInvocationCreateRequest) request);
+		break;
+	    case CommandResponse:
+		channel.addDeviceCommandResponses(getDeviceAssignmentId(), new EventObserver<>(this),
+			(IDeviceCommandResponseCreateRequest) request);
+		break;
+	    case StateChange:
+		channel.addDeviceStateChanges(getDeviceAssignmentId(), new EventObserver<>(this),
+			(IDeviceStateChangeCreateRequest) request);
+		break;
+	    default:
+		throw new SiteWhereException("Unable to stream event type: " + request.getEventType().name());
+	    }
+	}
+
+	/*
+	 * @see com.sitewhere.grpc.client.event.DeviceEventIngestStream.OutboundCall#
+	 * onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable t) {
+	    observer.onError(t);
+	}
+
+	public StreamObserver<IDeviceEvent> getObserver() {
+	    return observer;
+	}
+    }
+
+    /**
+     * Calls queued for a single assignment.
+     *
+     * @author Derek
+     */
+    private class AssignmentCalls {
+
+	/** Calls waiting to be sent in the order they were sealed */
+	private Deque<OutboundCall> queued = new ArrayDeque<OutboundCall>();
+
+	/** Indicates a call for the assignment is in flight */
+	private boolean inFlight;
+
+	public Deque<OutboundCall> getQueued() {
+	    return queued;
+	}
+
+	public boolean isInFlight() {
+	    return inFlight;
+	}
+
+	public void setInFlight(boolean inFlight) {
+	    this.inFlight = inFlight;
+	}
+    }
+
+    /**
+     * Distributes a batch response to per-event observers and completes the
+     * batch so that the next call for the assignment can be sent.
+     *
+     * @author Derek
+     */
+    private class BatchResponseObserver implements StreamObserver<IDeviceEventBatchResponse> {
+
+	/** Batch that was sent */
+	private PendingBatch batch;
+
+	public BatchResponseObserver(PendingBatch batch) {
+	    this.batch = batch;
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onNext(java.lang.Object)
+	 */
+	@Override
+	public void onNext(IDeviceEventBatchResponse response) {
+	    if (batch.complete()) {
+		batch.onResponse(response);
+	    }
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onError(java.lang.Throwable)
+	 */
+	@Override
+	public void onError(Throwable t) {
+	    batch.fail(t);
+	}
+
+	/*
+	 * @see io.grpc.stub.StreamObserver#onCompleted()
+	 */
+	@Override
+	public void onCompleted() {
+	    batch.fail(new SiteWhereException("Event batch completed without a response."));
+	}
+    }
+
+    /**
+     * Adapts a typed event observer to the generic observer passed by callers
+     * and completes the unary call so that the next call for the assignment can
+     * be sent.
+     *
+     * @author Derek
+     *
+     * @param <T>
+     */
+    private class EventObserver<T extends IDeviceEvent> implements StreamObserver<T> {
+
+	/** Unary call that was sent */
+	private UnaryCall call;
+
+	public EventObserver(UnaryCall call) {
+	    this.call = call;
+	}
+
+	@Override
+	public void onNext(T value) {
+	    call.getObserver().onNext(value);
+	}
+
+	@Override
+	public void onError(Throwable t) {
+	    call.fail(t);
+	}
+
+	@Override
+	public void onCompleted() {
+	    if (call.complete()) {
+		call.getObserver().onCompleted();
+	    }
+	}
+    }
+
+    /**
+     * Periodically sends batches that have lingered too long.
+     *
+     * @author Derek
+     */
+    private class LingerFlusher implements Runnable {
+
+	@Override
+	public void run() {
+	    try {
+		flushExpired();
+	    } catch (Throwable t) {
+		LOGGER.error("Unhandled exception flushing event batches.", t);
+	    }
+	}
+    }
+
+    /** Used for naming ingest flusher thread */
+    private class IngestFlusherThreadFactory implements ThreadFactory {
+
+	/** Counts threads */
+	private AtomicInteger counter = new AtomicInteger();
+
+	public Thread newThread(Runnable r) {
+	    return new Thread(r, "Event Ingest Flusher " + counter.incrementAndGet());
+	}
+    }
+
+    public IDeviceEventManagementApiDemux getDemux() {
+	return demux;
+    }
+
+    public int getMaxBatchSize() {
+	return maxBatchSize;
+    }
+
+    public long getLingerMs() {
+	return lingerMs;
+    }
+
+    public int getMaxInFlight() {
+	return maxInFlight;
+    }
+}
@@ -7,6 +7,7 @@
  */
 package com.sitewhere.grpc.client.event;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,6 +15,8 @@ import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.MultitenantApiChannel;
 import com.sitewhere.grpc.client.common.converter.CommonModelConverter;
 import com.sitewhere.grpc.client.common.tracing.DebugParameter;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateResponse;
 import com.sitewhere.grpc.client.spi.IApiDemux;
 import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
 import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
@@ -65,6 +68,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatch;
 import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -76,6 +80,8 @@ import com.sitewhere.spi.search.IDateRangeSearchCriteria;
 import com.sitewhere.spi.search.ISearchResults;
 import com.sitewhere.spi.tracing.ITracerProvider;
 
+import io.grpc.MethodDescriptor;
+import io.grpc.stub.ClientCalls;
 import io.grpc.stub.StreamObserver;
 
 /**
@@ -324,6 +330,58 @@ public class DeviceEventManagementApiChannel extends MultitenantApiChannel<Devic
 		});
     }
 
+    /*
+     * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
+     * aggregateDeviceMeasurementsForIndex(com.sitewhere.spi.device.event.
+     * DeviceEventIndex, java.util.List, java.util.List, long,
+     * com.sitewhere.spi.search.IDateRangeSearchCriteria,
+     * io.grpc.stub.StreamObserver)
+     */
+    @Override
+    public void aggregateDeviceMeasurementsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria,
+	    StreamObserver<List<IDeviceMeasurementAggregate>> observer) throws SiteWhereException {
+	MethodDescriptor<AggregateRequest, AggregateResponse> method = MeasurementAggregationGrpc
+		.getAggregateMeasurementsForIndexMethod();
+	GrpcUtils.handleClientMethodEntry(this, method, DebugParameter.create("Index", index),
+		DebugParameter.create("Entity Ids", entityIds), DebugParameter.create("Names", measurementNames),
+		DebugParameter.create("Window", windowMs), DebugParameter.create("Criteria", criteria));
+	AggregateRequest request = new AggregateRequest();
+	request.setIndex(index);
+	request.setEntityIds(entityIds);
+	if (measurementNames != null) {
+	    request.setMeasurementNames(measurementNames);
+	}
+	request.setWindowMs(windowMs);
+	request.setStartDate(criteria.getStartDate());
+	request.setEndDate(criteria.getEndDate());
+	ClientCalls.asyncUnaryCall(
+		getGrpcChannel().getChannel().newCall(method, getGrpcChannel().getAsyncStub().getCallOptions()),
+		GrpcUtils.logGrpcClientRequest(method, request), new StreamObserver<AggregateResponse>() {
+
+		    @Override
+		    public void onNext(AggregateResponse gresponse) {
+			try {
+			    List<IDeviceMeasurementAggregate> response = new ArrayList<>(gresponse.getAggregates());
+			    GrpcUtils.logClientMethodResponse(method, response);
+			    observer.onNext(response);
+			} catch (Throwable t) {
+			    observer.onError(GrpcUtils.handleClientMethodException(method, t));
+			}
+		    }
+
+		    @Override
+		    public void onError(Throwable t) {
+			observer.onError(t);
+		    }
+
+		    @Override
+		    public void onCompleted() {
+			observer.onCompleted();
+		    }
+		});
+    }
+
     /*
      * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel#
      * addDeviceLocations(java.util.UUID, io.grpc.stub.StreamObserver,
@@ -47,4 +47,13 @@ public class DeviceEventManagementApiDemux extends MultitenantApiDemux<IDeviceEv
 	    throws SiteWhereException {
 	return new DeviceEventManagementApiChannel(this, host, getMicroservice().getInstanceSettings().getGrpcPort());
     }
+
+    /*
+     * @see com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiDemux#
+     * createEventIngestStream(int, long, int)
+     */
+    @Override
+    public DeviceEventIngestStream createEventIngestStream(int maxBatchSize, long lingerMs, int maxInFlightBatches) {
+	return new DeviceEventIngestStream(this, maxBatchSize, lingerMs, maxInFlightBatches);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import com.sitewhere.grpc.client.GrpcContextKeys;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+
+/**
+ * Lightweight timing envelope that travels with an event as it moves through
+ * the processing pipeline. Each stage adds a timestamp so that consumers can
+ * determine how long an event spent between stages. The envelope is carried as
+ * a Kafka record header between microservices, as gRPC metadata on calls
+ * between microservices and in the gRPC {@link Context} within a
+ * microservice.
+ *
+ * Timestamps are wall-clock milliseconds since stages run in separate
+ * processes where monotonic clocks are not comparable.
+ *
+ * Instances are immutable. Stamping a stage returns a new envelope.
+ *
+ * @author Derek
+ */
+public class EventTimingEnvelope {
+
+    /** Kafka header / gRPC metadata name for encoded envelope */
+    public static final String HEADER_NAME = "sw-timing";
+
+    /** Metadata key used for passing envelope in gRPC calls */
+    public static final Metadata.Key<String> METADATA_KEY = Metadata.Key.of(HEADER_NAME,
+	    Metadata.ASCII_STRING_MARSHALLER);
+
+    /** Stage indicating event was received by an event source */
+    public static final String STAGE_RECEIVED = "received";
+
+    /** Stage indicating event was decoded and forwarded by an event source */
+    public static final String STAGE_DECODED = "decoded";
+
+    /** Stage indicating event was persisted by event management */
+    public static final String STAGE_PERSISTED = "persisted";
+
+    /** Stage indicating event was enriched by inbound processing */
+    public static final String STAGE_ENRICHED = "enriched";
+
+    /** Stage indicating decoded event was consumed by inbound processing */
+    public static final String STAGE_INBOUND_PROCESSING = "inboundProcessing";
+
+    /** Stage indicating persisted event was consumed for enrichment */
+    public static final String STAGE_ENRICHMENT = "enrichment";
+
+    /** Stage indicating enriched event was consumed by device state */
+    public static final String STAGE_DEVICE_STATE = "deviceState";
+
+    /** Stage prefix for enriched events consumed by a rule processor */
+    public static final String STAGE_RULE_PROCESSOR = "ruleProcessor";
+
+    /** Stage prefix for enriched events consumed by an outbound connector */
+    public static final String STAGE_OUTBOUND_CONNECTOR = "outboundConnector";
+
+    /** Separates stages in encoded form */
+    private static final char STAGE_SEPARATOR = ',';
+
+    /** Separates stage name from timestamp in encoded form */
+    private static final char VALUE_SEPARATOR = '=';
+
+    /** Stage timestamps in the order they were stamped */
+    private final Map<String, Long> stamps;
+
+    private EventTimingEnvelope(Map<String, Long> stamps) {
+	this.stamps = Collections.unmodifiableMap(stamps);
+    }
+
+    /**
+     * Get name of a stage qualified by the id of the component that handles it.
+     *
+     * @param stage
+     * @param id
+     * @return
+     */
+    public static String qualify(String stage, String id) {
+	return stage + "." + id;
+    }
+
+    /**
+     * Create a new envelope stamped with the initial stage.
+     *
+     * @param stage
+     * @return
+     */
+    public static EventTimingEnvelope start(String stage) {
+	Map<String, Long> stamps = new LinkedHashMap<String, Long>();
+	stamps.put(stage, System.currentTimeMillis());
+	return new EventTimingEnvelope(stamps);
+    }
+
+    /**
+     * Create a copy of the envelope with the given stage stamped at the current
+     * time.
+     *
+     * @param stage
+     * @return
+     */
+    public EventTimingEnvelope stamp(String stage) {
+	Map<String, Long> updated = new LinkedHashMap<String, Long>(stamps);
+	updated.remove(stage);
+	updated.put(stage, System.currentTimeMillis());
+	return new EventTimingEnvelope(updated);
+    }
+
+    /**
+     * Get name of first stage stamped on the envelope.
+     *
+     * @return
+     */
+    public String getSourceStage() {
+	return stamps.keySet().iterator().next();
+    }
+
+    /**
+     * Get timestamp for first stage stamped on the envelope.
+     *
+     * @return
+     */
+    public long getSourceTimestamp() {
+	return stamps.get(getSourceStage());
+    }
+
+    /**
+     * Get name of most recent stage stamped on the envelope.
+     *
+     * @return
+     */
+    public String getLastStage() {
+	String last = null;
+	for (String stage : stamps.keySet()) {
+	    last = stage;
+	}
+	return last;
+    }
+
+    /**
+     * Get timestamp for most recent stage stamped on the envelope.
+     *
+     * @return
+     */
+    public long getLastTimestamp() {
+	return stamps.get(getLastStage());
+    }
+
+    /**
+     * Get all stage timestamps in the order they were stamped.
+     *
+     * @return
+     */
+    public Map<String, Long> getStamps() {
+	return stamps;
+    }
+
+    /**
+     * Encode envelope into compact string form.
+     *
+     * @return
+     */
+    public String encode() {
+	StringBuilder encoded = new StringBuilder();
+	for (Map.Entry<String, Long> stamp : stamps.entrySet()) {
+	    if (encoded.length() > 0) {
+		encoded.append(STAGE_SEPARATOR);
+	    }
+	    encoded.append(stamp.getKey()).append(VALUE_SEPARATOR).append(stamp.getValue());
+	}
+	return encoded.toString();
+    }
+
+    /**
+     * Decode an envelope from its string form. Returns null if the value can not
+     * be parsed.
+     *
+     * @param encoded
+     * @return
+     */
+    public static EventTimingEnvelope decode(String encoded) {
+	if ((encoded == null) || (encoded.isEmpty())) {
+	    return null;
+	}
+	Map<String, Long> stamps = new LinkedHashMap<String, Long>();
+	for (String part : encoded.split(String.valueOf(STAGE_SEPARATOR))) {
+	    int index = part.indexOf(VALUE_SEPARATOR);
+	    if (index < 1) {
+		return null;
+	    }
+	    try {
+		stamps.put(part.substring(0, index), Long.parseLong(part.substring(index + 1)));
+	    } catch (NumberFormatException e) {
+		return null;
+	    }
+	}
+	return new EventTimingEnvelope(stamps);
+    }
+
+    /**
+     * Add envelope to Kafka record headers, replacing any existing value.
+     *
+     * @param headers
+     */
+    public void addTo(Headers headers) {
+	headers.remove(HEADER_NAME);
+	headers.add(HEADER_NAME, encode().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Extract envelope from Kafka record headers. Returns null if not present.
+     *
+     * @param headers
+     * @return
+     */
+    public static EventTimingEnvelope from(Headers headers) {
+	Header header = headers.lastHeader(HEADER_NAME);
+	if ((header == null) || (header.value() == null)) {
+	    return null;
+	}
+	return decode(new String(header.value(), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Get envelope associated with the current gRPC context (if any).
+     *
+     * @return
+     */
+    public static EventTimingEnvelope current() {
+	return GrpcContextKeys.EVENT_TIMING_KEY.get();
+    }
+
+    /**
+     * Create a context based on the current context which carries the given
+     * envelope. Callers attach the context around work related to the event.
+     *
+     * @param timing
+     * @return
+     */
+    public static Context contextFor(EventTimingEnvelope timing) {
+	return Context.current().withValue(GrpcContextKeys.EVENT_TIMING_KEY, timing);
+    }
+
+    /*
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+	return encode();
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import com.google.common.io.ByteStreams;
+import com.sitewhere.common.MarshalUtils;
+import com.sitewhere.device.event.DeviceMeasurementAggregate;
+import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+
+import io.grpc.MethodDescriptor;
+
+/**
+ * Describes the measurement aggregation call, which is served alongside the
+ * generated device event management methods. The generated service contract
+ * has no aggregation call, so this method is registered by hand and its
+ * messages are marshaled as JSON.
+ * 
+ * @author Derek
+ */
+public class MeasurementAggregationGrpc {
+
+    /** Name of aggregation method within device event management service */
+    public static final String METHOD_NAME = "AggregateMeasurementsForIndex";
+
+    /** Descriptor for aggregation method */
+    private static final MethodDescriptor<AggregateRequest, AggregateResponse> AGGREGATE_METHOD = MethodDescriptor
+	    .<AggregateRequest, AggregateResponse> newBuilder().setType(MethodDescriptor.MethodType.UNARY)
+	    .setFullMethodName(
+		    MethodDescriptor.generateFullMethodName(DeviceEventManagementGrpc.SERVICE_NAME, METHOD_NAME))
+	    .setRequestMarshaller(new JsonMarshaller<>(AggregateRequest.class))
+	    .setResponseMarshaller(new JsonMarshaller<>(AggregateResponse.class)).build();
+
+    /**
+     * Get descriptor for aggregation method.
+     * 
+     * @return
+     */
+    public static MethodDescriptor<AggregateRequest, AggregateResponse> getAggregateMeasurementsForIndexMethod() {
+	return AGGREGATE_METHOD;
+    }
+
+    /**
+     * Marshals messages as JSON.
+     * 
+     * @param <T>
+     */
+    public static class JsonMarshaller<T> implements MethodDescriptor.Marshaller<T> {
+
+	/** Message type */
+	private Class<T> type;
+
+	public JsonMarshaller(Class<T> type) {
+	    this.type = type;
+	}
+
+	/*
+	 * @see io.grpc.MethodDescriptor.Marshaller#stream(java.lang.Object)
+	 */
+	@Override
+	public InputStream stream(T value) {
+	    return new ByteArrayInputStream(MarshalUtils.marshalJson(value));
+	}
+
+	/*
+	 * @see io.grpc.MethodDescriptor.Marshaller#parse(java.io.InputStream)
+	 */
+	@Override
+	public T parse(InputStream stream) {
+	    try {
+		return MarshalUtils.unmarshalJson(ByteStreams.toByteArray(stream), type);
+	    } catch (IOException e) {
+		throw new RuntimeException("Unable to read aggregation message.", e);
+	    }
+	}
+    }
+
+    /**
+     * Request for measurement aggregates.
+     */
+    public static class AggregateRequest {
+
+	/** Index to query */
+	private DeviceEventIndex index;
+
+	/** Ids of indexed entities */
+	private List<UUID> entityIds = new ArrayList<>();
+
+	/** Measurement names or empty for all */
+	private List<String> measurementNames = new ArrayList<>();
+
+	/** Length of window in milliseconds */
+	private long windowMs;
+
+	/** Start of date range */
+	private Date startDate;
+
+	/** End of date range */
+	private Date endDate;
+
+	public DeviceEventIndex getIndex() {
+	    return index;
+	}
+
+	public void setIndex(DeviceEventIndex index) {
+	    this.index = index;
+	}
+
+	public List<UUID> getEntityIds() {
+	    return entityIds;
+	}
+
+	public void setEntityIds(List<UUID> entityIds) {
+	    this.entityIds = entityIds;
+	}
+
+	public List<String> getMeasurementNames() {
+	    return measurementNames;
+	}
+
+	public void setMeasurementNames(List<String> measurementNames) {
+	    this.measurementNames = measurementNames;
+	}
+
+	public long getWindowMs() {
+	    return windowMs;
+	}
+
+	public void setWindowMs(long windowMs) {
+	    this.windowMs = windowMs;
+	}
+
+	public Date getStartDate() {
+	    return startDate;
+	}
+
+	public void setStartDate(Date startDate) {
+	    this.startDate = startDate;
+	}
+
+	public Date getEndDate() {
+	    return endDate;
+	}
+
+	public void setEndDate(Date endDate) {
+	    this.endDate = endDate;
+	}
+    }
+
+    /**
+     * Response containing measurement aggregates.
+     */
+    public static class AggregateResponse {
+
+	/** Aggregates ordered by name and window start */
+	private List<DeviceMeasurementAggregate> aggregates = new ArrayList<>();
+
+	public List<DeviceMeasurementAggregate> getAggregates() {
+	    return aggregates;
+	}
+
+	public void setAggregates(List<DeviceMeasurementAggregate> aggregates) {
+	    this.aggregates = aggregates;
+	}
+    }
+}
@@ -52,6 +52,14 @@ public interface IApiChannel<T extends GrpcChannel<?, ?>> extends ITenantEngineL
      */
     public T getGrpcChannel();
 
+    /**
+     * Indicates whether the channel is currently connected based on connectivity
+     * state tracked in the background.
+     * 
+     * @return
+     */
+    public boolean isChannelAvailable();
+
     /**
      * Wait the default amount of time for channel to become available.
      * 
@@ -23,6 +23,7 @@ import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
 import com.sitewhere.spi.device.event.IDeviceEventManagement;
 import com.sitewhere.spi.device.event.IDeviceLocation;
 import com.sitewhere.spi.device.event.IDeviceMeasurement;
+import com.sitewhere.spi.device.event.IDeviceMeasurementAggregate;
 import com.sitewhere.spi.device.event.IDeviceStateChange;
 import com.sitewhere.spi.device.event.request.IDeviceAlertCreateRequest;
 import com.sitewhere.spi.device.event.request.IDeviceCommandInvocationCreateRequest;
@@ -96,6 +97,21 @@ public interface IDeviceEventManagementApiChannel<T extends MultitenantGrpcChann
 	    IDateRangeSearchCriteria criteria, StreamObserver<ISearchResults<IDeviceMeasurement>> observer)
 	    throws SiteWhereException;
 
+    /**
+     * Calculate measurement aggregates over fixed time windows for an index.
+     * 
+     * @param index
+     * @param entityIds
+     * @param measurementNames
+     * @param windowMs
+     * @param criteria
+     * @param observer
+     * @throws SiteWhereException
+     */
+    public void aggregateDeviceMeasurementsForIndex(DeviceEventIndex index, List<UUID> entityIds,
+	    List<String> measurementNames, long windowMs, IDateRangeSearchCriteria criteria,
+	    StreamObserver<List<IDeviceMeasurementAggregate>> observer) throws SiteWhereException;
+
     /**
      * Add locations for a given device assignment.
      * 
@@ -7,7 +7,19 @@
  */
 package com.sitewhere.grpc.client.spi.client;
 
+import com.sitewhere.grpc.client.event.DeviceEventIngestStream;
 import com.sitewhere.grpc.client.spi.multitenant.IMultitenantApiDemux;
 
 public interface IDeviceEventManagementApiDemux extends IMultitenantApiDemux<IDeviceEventManagementApiChannel<?>> {
+
+    /**
+     * Create a stream that coalesces event create requests into batches sent
+     * across the available API channels.
+     * 
+     * @param maxBatchSize
+     * @param lingerMs
+     * @param maxInFlightBatches
+     * @return
+     */
+    public DeviceEventIngestStream createEventIngestStream(int maxBatchSize, long lingerMs, int maxInFlightBatches);
 }
\ No newline at end of file
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.ByteStreams;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.MethodDescriptor;
+import io.grpc.MethodDescriptor.MethodType;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+public class ChannelLoadTrackerTest {
+
+    /** Service name */
+    private static final String SERVICE = "test.Echo";
+
+    /** Request that completes normally after a delay */
+    private static final String SLOW = "slow";
+
+    /** Request that fails with a transport-level status */
+    private static final String UNAVAILABLE = "unavailable";
+
+    /** Request that fails with an application-level status */
+    private static final String INVALID = "invalid";
+
+    /** Unary method used for all calls */
+    private static final MethodDescriptor<String, String> METHOD = MethodDescriptor.<String, String>newBuilder()
+	    .setType(MethodType.UNARY).setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, "Call"))
+	    .setRequestMarshaller(new StringMarshaller()).setResponseMarshaller(new StringMarshaller()).build();
+
+    /** In-process server */
+    private Server server;
+
+    /** Channel with load tracker installed */
+    private ManagedChannel channel;
+
+    /** Tracker under test */
+    private ChannelLoadTracker tracker;
+
+    @Before
+    public void setUp() throws IOException {
+	String name = UUID.randomUUID().toString();
+	ServerServiceDefinition service = ServerServiceDefinition.builder(SERVICE)
+		.addMethod(METHOD, ServerCalls.asyncUnaryCall(new ServerCalls.UnaryMethod<String, String>() {
+
+		    @Override
+		    public void invoke(String request, StreamObserver<String> responseObserver) {
+			if (UNAVAILABLE.equals(request)) {
+			    responseObserver.onError(Status.UNAVAILABLE.asRuntimeException());
+			} else if (INVALID.equals(request)) {
+			    responseObserver.onError(Status.INVALID_ARGUMENT.asRuntimeException());
+			} else {
+			    if (SLOW.equals(request)) {
+				try {
+				    Thread.sleep(50);
+				} catch (InterruptedException e) {
+				    Thread.currentThread().interrupt();
+				}
+			    }
+			    responseObserver.onNext(request);
+			    responseObserver.onCompleted();
+			}
+		    }
+		})).build();
+	this.server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+	this.tracker = new ChannelLoadTracker();
+	this.channel = InProcessChannelBuilder.forName(name).directExecutor().intercept(tracker).build();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+	channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+	server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testSuccessfulCallRecordsLatency() {
+	double initial = tracker.getAverageLatencyNanos();
+	assertEquals(SLOW, call(SLOW));
+	assertTrue(tracker.getAverageLatencyNanos() > initial);
+	assertEquals(0, tracker.getInFlight());
+	assertFalse(tracker.isEjected());
+    }
+
+    @Test
+    public void testTransportFailureDoesNotLowerLatency() {
+	double initial = tracker.getAverageLatencyNanos();
+	callExpectingFailure(UNAVAILABLE);
+	assertTrue(tracker.getAverageLatencyNanos() > initial);
+	assertTrue(tracker.getAverageLatencyNanos() >= TimeUnit.MILLISECONDS.toNanos(100));
+	assertEquals(0, tracker.getInFlight());
+    }
+
+    @Test
+    public void testApplicationErrorsDoNotEject() {
+	for (int i = 0; i < 10; i++) {
+	    callExpectingFailure(INVALID);
+	}
+	assertFalse(tracker.isEjected());
+	assertTrue(tracker.getAverageLatencyNanos() < TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    public void testRepeatedTransportFailuresEject() {
+	for (int i = 0; i < 5; i++) {
+	    callExpectingFailure(UNAVAILABLE);
+	}
+	assertTrue(tracker.isEjected());
+    }
+
+    @Test
+    public void testFailingChannelPredictedSlower() {
+	ChannelLoadTracker healthy = new ChannelLoadTracker();
+	callExpectingFailure(UNAVAILABLE);
+	assertTrue(tracker.getPredictedCompletionNanos() > healthy.getPredictedCompletionNanos());
+    }
+
+    /**
+     * Make a blocking unary call.
+     *
+     * @param request
+     * @return
+     */
+    protected String call(String request) {
+	return ClientCalls.blockingUnaryCall(channel, METHOD, CallOptions.DEFAULT, request);
+    }
+
+    /**
+     * Make a call that is expected to fail.
+     *
+     * @param request
+     */
+    protected void callExpectingFailure(String request) {
+	try {
+	    call(request);
+	    fail("Call was expected to fail.");
+	} catch (StatusRuntimeException e) {
+	    // Expected.
+	}
+    }
+
+    /** Marshals strings as UTF-8 */
+    private static class StringMarshaller implements MethodDescriptor.Marshaller<String> {
+
+	@Override
+	public InputStream stream(String value) {
+	    return new ByteArrayInputStream(value.getBytes(StandardCharsets.UTF_8));
+	}
+
+	@Override
+	public String parse(InputStream stream) {
+	    try {
+		return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+	    } catch (IOException e) {
+		throw new RuntimeException(e);
+	    }
+	}
+    }
+}
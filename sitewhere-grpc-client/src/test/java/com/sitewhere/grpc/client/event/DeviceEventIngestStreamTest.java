@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiChannel;
+import com.sitewhere.grpc.client.spi.client.IDeviceEventManagementApiDemux;
+import com.sitewhere.rest.model.device.event.DeviceEventBatch;
+import com.sitewhere.rest.model.device.event.DeviceEventBatchResponse;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.request.DeviceLocationCreateRequest;
+import com.sitewhere.rest.model.device.event.request.DeviceMeasurementCreateRequest;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+import com.sitewhere.spi.device.event.IDeviceEventBatchResponse;
+
+import io.grpc.stub.StreamObserver;
+
+public class DeviceEventIngestStreamTest {
+
+    /** Batches sent to channel in the order calls were started */
+    private List<DeviceEventBatch> sent = new ArrayList<DeviceEventBatch>();
+
+    /** Observers for calls that have been started */
+    private List<StreamObserver<IDeviceEventBatchResponse>> calls = new ArrayList<>();
+
+    /** Stream under test */
+    private DeviceEventIngestStream stream;
+
+    @Before
+    public void setUp() {
+	final IDeviceEventManagementApiChannel<?> channel;
+	channel = (IDeviceEventManagementApiChannel<?>) Proxy.newProxyInstance(getClass().getClassLoader(),
+		new Class<?>[] { IDeviceEventManagementApiChannel.class }, new InvocationHandler() {
+
+		    @SuppressWarnings("unchecked")
+		    @Override
+		    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("addDeviceEventBatch")) {
+			    sent.add((DeviceEventBatch) args[1]);
+			    calls.add((StreamObserver<IDeviceEventBatchResponse>) args[2]);
+			    return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+	IDeviceEventManagementApiDemux demux = (IDeviceEventManagementApiDemux) Proxy.newProxyInstance(
+		getClass().getClassLoader(), new Class<?>[] { IDeviceEventManagementApiDemux.class },
+		new InvocationHandler() {
+
+		    @Override
+		    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().equals("getApiChannel")) {
+			    return channel;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		    }
+		});
+	this.stream = new DeviceEventIngestStream(demux, 2, 60000, 10);
+    }
+
+    @Test
+    public void testOneBatchInFlightPerAssignment() throws Exception {
+	UUID assignment = UUID.randomUUID();
+	List<String> created = new ArrayList<String>();
+	for (int i = 0; i < 6; i++) {
+	    stream.send(assignment, "device", createMeasurement("mx" + i), new RecordingObserver(created));
+	}
+	assertEquals(1, sent.size());
+
+	respond(0);
+	assertEquals(2, sent.size());
+	respond(1);
+	assertEquals(3, sent.size());
+	respond(2);
+	assertEquals(3, sent.size());
+
+	assertEquals(6, created.size());
+	for (int i = 0; i < 6; i++) {
+	    assertEquals("mx" + i, created.get(i));
+	}
+    }
+
+    @Test
+    public void testFailedBatchSendsNext() throws Exception {
+	UUID assignment = UUID.randomUUID();
+	List<String> created = new ArrayList<String>();
+	stream.send(assignment, "device", createMeasurement("mx0"), new RecordingObserver(created));
+	stream.send(assignment, "device", new DeviceLocationCreateRequest(), new RecordingObserver(created));
+	stream.flush();
+	assertEquals(1, sent.size());
+
+	calls.get(0).onError(new RuntimeException("Failed."));
+	assertEquals(2, sent.size());
+	assertEquals(1, sent.get(1).getLocations().size());
+	assertEquals(Collections.singletonList("error"), created);
+    }
+
+    @Test
+    public void testAssignmentsAreSentIndependently() throws Exception {
+	List<String> created = new ArrayList<String>();
+	for (int i = 0; i < 4; i++) {
+	    stream.send(UUID.randomUUID(), "device", createMeasurement("mx" + i), new RecordingObserver(created));
+	}
+	stream.flush();
+	assertEquals(4, sent.size());
+    }
+
+    /**
+     * Respond to a call with a measurement for each request in its batch.
+     *
+     * @param index
+     */
+    protected void respond(int index) {
+	DeviceEventBatchResponse response = new DeviceEventBatchResponse();
+	List<DeviceMeasurement> measurements = new ArrayList<DeviceMeasurement>();
+	for (DeviceMeasurementCreateRequest request : sent.get(index).getMeasurements()) {
+	    DeviceMeasurement mx = new DeviceMeasurement();
+	    mx.setName(request.getName());
+	    measurements.add(mx);
+	}
+	response.setCreatedMeasurements(measurements);
+	calls.get(index).onNext(response);
+	calls.get(index).onCompleted();
+    }
+
+    protected DeviceMeasurementCreateRequest createMeasurement(String name) {
+	DeviceMeasurementCreateRequest request = new DeviceMeasurementCreateRequest();
+	request.setName(name);
+	request.setValue(1.0);
+	return request;
+    }
+
+    /**
+     * Records names of created measurements, or "error" for failures.
+     */
+    private static class RecordingObserver implements StreamObserver<IDeviceEvent> {
+
+	/** Shared list of results */
+	private List<String> results;
+
+	public RecordingObserver(List<String> results) {
+	    this.results = results;
+	}
+
+	@Override
+	public void onNext(IDeviceEvent value) {
+	    results.add(((DeviceMeasurement) value).getName());
+	}
+
+	@Override
+	public void onError(Throwable t) {
+	    results.add("error");
+	}
+
+	@Override
+	public void onCompleted() {
+	}
+    }
+}
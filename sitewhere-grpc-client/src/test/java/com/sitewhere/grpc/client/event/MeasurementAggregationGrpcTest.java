@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.grpc.client.event;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sitewhere.device.event.DeviceMeasurementAggregate;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateRequest;
+import com.sitewhere.grpc.client.event.MeasurementAggregationGrpc.AggregateResponse;
+import com.sitewhere.grpc.service.DeviceEventManagementGrpc;
+import com.sitewhere.spi.device.event.DeviceEventIndex;
+
+import io.grpc.CallOptions;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.ClientCalls;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+public class MeasurementAggregationGrpcTest {
+
+    /** In-process server */
+    private Server server;
+
+    /** Channel to server */
+    private ManagedChannel channel;
+
+    /** Last request received by server */
+    private AggregateRequest received;
+
+    @Before
+    public void setUp() throws IOException {
+	String name = UUID.randomUUID().toString();
+	ServerServiceDefinition service = ServerServiceDefinition.builder(DeviceEventManagementGrpc.SERVICE_NAME)
+		.addMethod(MeasurementAggregationGrpc.getAggregateMeasurementsForIndexMethod(),
+			ServerCalls.asyncUnaryCall(new ServerCalls.UnaryMethod<AggregateRequest, AggregateResponse>() {
+
+			    @Override
+			    public void invoke(AggregateRequest request,
+				    StreamObserver<AggregateResponse> responseObserver) {
+				received = request;
+				DeviceMeasurementAggregate aggregate = new DeviceMeasurementAggregate();
+				aggregate.setName("temp");
+				aggregate.setWindowStart(request.getStartDate());
+				long start = request.getStartDate().getTime();
+				aggregate.setWindowEnd(new Date(start + request.getWindowMs()));
+				aggregate.setCount(3);
+				aggregate.setMin(1.5);
+				aggregate.setMax(9.0);
+				aggregate.setAverage(4.0);
+				aggregate.setLast(9.0);
+				AggregateResponse response = new AggregateResponse();
+				response.getAggregates().add(aggregate);
+				responseObserver.onNext(response);
+				responseObserver.onCompleted();
+			    }
+			}))
+		.build();
+	this.server = InProcessServerBuilder.forName(name).directExecutor().addService(service).build().start();
+	this.channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+	channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+	server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testRequestAndResponseRoundTrip() {
+	UUID entityId = UUID.randomUUID();
+	AggregateRequest request = new AggregateRequest();
+	request.setIndex(DeviceEventIndex.Area);
+	request.setEntityIds(Collections.singletonList(entityId));
+	request.setMeasurementNames(Arrays.asList("temp", "humidity"));
+	request.setWindowMs(60000);
+	request.setStartDate(new Date(1000));
+	request.setEndDate(new Date(3601000));
+
+	AggregateResponse response = ClientCalls.blockingUnaryCall(channel,
+		MeasurementAggregationGrpc.getAggregateMeasurementsForIndexMethod(), CallOptions.DEFAULT, request);
+
+	assertEquals(DeviceEventIndex.Area, received.getIndex());
+	assertEquals(Collections.singletonList(entityId), received.getEntityIds());
+	assertEquals(Arrays.asList("temp", "humidity"), received.getMeasurementNames());
+	assertEquals(60000, received.getWindowMs());
+	assertEquals(new Date(1000), received.getStartDate());
+	assertEquals(new Date(3601000), received.getEndDate());
+
+	assertEquals(1, response.getAggregates().size());
+	DeviceMeasurementAggregate aggregate = response.getAggregates().get(0);
+	assertEquals("temp", aggregate.getName());
+	assertEquals(new Date(1000), aggregate.getWindowStart());
+	assertEquals(new Date(61000), aggregate.getWindowEnd());
+	assertEquals(3, aggregate.getCount());
+	assertEquals(1.5, aggregate.getMin(), 0.0);
+	assertEquals(9.0, aggregate.getMax(), 0.0);
+	assertEquals(4.0, aggregate.getAverage(), 0.0);
+	assertEquals(9.0, aggregate.getLast(), 0.0);
+    }
+}
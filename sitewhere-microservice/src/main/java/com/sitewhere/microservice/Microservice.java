@@ -24,6 +24,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.ScheduledReporter;
 import com.codahale.metrics.Slf4jReporter;
 import com.sitewhere.Version;
+import com.sitewhere.grpc.client.GrpcChannelFactory;
 import com.sitewhere.microservice.discovery.consul.ConsulServiceDiscoveryProvider;
 import com.sitewhere.microservice.management.MicroserviceManagementGrpcServer;
 import com.sitewhere.microservice.scripting.ScriptTemplateManager;
@@ -248,6 +249,7 @@ public abstract class Microservice<T extends IFunctionIdentifier> extends Lifecy
      * Initialize metrics.
      */
     protected void initializeMetrics() {
+	GrpcChannelFactory.getInstance().registerMetrics(getMetricRegistry());
 	if (getInstanceSettings().isLogMetrics()) {
 	    this.metricsReporter = Slf4jReporter.forRegistry(getMetricRegistry()).convertRatesTo(TimeUnit.SECONDS)
 		    .convertDurationsTo(TimeUnit.MILLISECONDS).build();
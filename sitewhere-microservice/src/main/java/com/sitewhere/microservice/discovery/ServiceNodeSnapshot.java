@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.discovery;
+
+import java.util.List;
+
+import com.sitewhere.spi.microservice.discovery.IServiceNode;
+import com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot;
+
+/**
+ * Nodes for a function along with the discovery index they were read from.
+ * 
+ * @author Derek
+ */
+public class ServiceNodeSnapshot implements IServiceNodeSnapshot {
+
+    /** Nodes providing function */
+    private List<IServiceNode> nodes;
+
+    /** Discovery index */
+    private long index;
+
+    public ServiceNodeSnapshot(List<IServiceNode> nodes, long index) {
+	this.nodes = nodes;
+	this.index = index;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot#getNodes()
+     */
+    @Override
+    public List<IServiceNode> getNodes() {
+	return nodes;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot#getIndex()
+     */
+    @Override
+    public long getIndex() {
+	return index;
+    }
+}
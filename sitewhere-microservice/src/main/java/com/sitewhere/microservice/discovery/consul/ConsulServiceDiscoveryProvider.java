@@ -7,27 +7,33 @@
  */
 package com.sitewhere.microservice.discovery.consul;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import com.google.common.net.HostAndPort;
 import com.orbitz.consul.AgentClient;
 import com.orbitz.consul.Consul;
 import com.orbitz.consul.HealthClient;
 import com.orbitz.consul.NotRegisteredException;
+import com.orbitz.consul.model.ConsulResponse;
 import com.orbitz.consul.model.agent.ImmutableRegistration;
 import com.orbitz.consul.model.agent.Registration;
 import com.orbitz.consul.model.health.ServiceHealth;
+import com.orbitz.consul.option.QueryOptions;
 import com.sitewhere.core.Boilerplate;
 import com.sitewhere.microservice.discovery.ServiceNode;
+import com.sitewhere.microservice.discovery.ServiceNodeSnapshot;
 import com.sitewhere.server.lifecycle.LifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IFunctionIdentifier;
 import com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider;
 import com.sitewhere.spi.microservice.discovery.IServiceNode;
+import com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot;
 import com.sitewhere.spi.microservice.instance.IInstanceSettings;
 import com.sitewhere.spi.server.lifecycle.ILifecycleProgressMonitor;
 
@@ -42,6 +48,15 @@ public class ConsulServiceDiscoveryProvider extends LifecycleComponent implement
     /** Number of seconds to wait between registration retries */
     private static final int REGISTRATION_RETRY_INTERVAL_IN_SECS = 5;
 
+    /** Max number of seconds a blocking query may wait for changes */
+    private static final long MAX_BLOCKING_WAIT_IN_SECS = 60;
+
+    /** Client read timeout (must exceed max blocking wait) */
+    private static final long READ_TIMEOUT_IN_MS = (MAX_BLOCKING_WAIT_IN_SECS + 15) * 1000;
+
+    /** Time to wait for changes before Consul client is connected */
+    private static final long CLIENT_UNAVAILABLE_WAIT_IN_MS = 1000;
+
     /** Consul client */
     private Consul consulClient;
 
@@ -98,7 +113,7 @@ public class ConsulServiceDiscoveryProvider extends LifecycleComponent implement
 		    IInstanceSettings settings = getMicroservice().getInstanceSettings();
 		    setConsulClient(Consul.builder()
 			    .withHostAndPort(HostAndPort.fromParts(settings.getConsulHost(), settings.getConsulPort()))
-			    .build());
+			    .withReadTimeoutMillis(READ_TIMEOUT_IN_MS).build());
 
 		    AgentClient agentClient = getConsulClient().agentClient();
 		    List<String> tags = new ArrayList<>();
@@ -168,20 +183,58 @@ public class ConsulServiceDiscoveryProvider extends LifecycleComponent implement
 	    HealthClient healthClient = getConsulClient().healthClient();
 	    List<ServiceHealth> matches = healthClient.getHealthyServiceInstances(identifier.getShortName())
 		    .getResponse();
-	    List<IServiceNode> nodes = new ArrayList<>();
-	    for (ServiceHealth match : matches) {
-		String host = match.getService().getAddress();
-		ServiceNode node = new ServiceNode();
-		node.setAddress(host);
-		nodes.add(node);
-	    }
-	    return nodes;
+	    return convertServiceHealth(matches);
 	} else {
 	    List<IServiceNode> nodes = new ArrayList<>();
 	    return nodes;
 	}
     }
 
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider#
+     * waitForNodesForFunction(com.sitewhere.spi.microservice.IFunctionIdentifier,
+     * long, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public IServiceNodeSnapshot waitForNodesForFunction(IFunctionIdentifier identifier, long index, long maxWait,
+	    TimeUnit unit) throws SiteWhereException {
+	if (getConsulClient() == null) {
+	    try {
+		Thread.sleep(Math.min(unit.toMillis(maxWait), CLIENT_UNAVAILABLE_WAIT_IN_MS));
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+		throw new SiteWhereException("Interrupted while waiting for Consul client.", e);
+	    }
+	    return new ServiceNodeSnapshot(new ArrayList<IServiceNode>(), index);
+	}
+
+	// Blocking query returns as soon as the index changes.
+	int waitSecs = (int) Math.max(1, Math.min(unit.toSeconds(maxWait), MAX_BLOCKING_WAIT_IN_SECS));
+	QueryOptions options = QueryOptions.blockSeconds(waitSecs, BigInteger.valueOf(index)).build();
+	HealthClient healthClient = getConsulClient().healthClient();
+	ConsulResponse<List<ServiceHealth>> response = healthClient
+		.getHealthyServiceInstances(identifier.getShortName(), options);
+	return new ServiceNodeSnapshot(convertServiceHealth(response.getResponse()),
+		response.getIndex().longValue());
+    }
+
+    /**
+     * Convert Consul service health entries to service nodes.
+     * 
+     * @param matches
+     * @return
+     */
+    protected List<IServiceNode> convertServiceHealth(List<ServiceHealth> matches) {
+	List<IServiceNode> nodes = new ArrayList<>();
+	for (ServiceHealth match : matches) {
+	    String host = match.getService().getAddress();
+	    ServiceNode node = new ServiceNode();
+	    node.setAddress(host);
+	    nodes.add(node);
+	}
+	return nodes;
+    }
+
     protected Consul getConsulClient() {
 	return consulClient;
     }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.discovery.memory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.sitewhere.microservice.discovery.ServiceNode;
+import com.sitewhere.microservice.discovery.ServiceNodeSnapshot;
+import com.sitewhere.server.lifecycle.LifecycleComponent;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.IFunctionIdentifier;
+import com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider;
+import com.sitewhere.spi.microservice.discovery.IServiceNode;
+import com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot;
+
+/**
+ * Implementation of {@link IServiceDiscoveryProvider} that keeps node
+ * membership in memory. Nodes are added and removed programmatically, which
+ * allows discovery-driven components to be exercised without Consul. Waiting
+ * callers are woken as soon as membership changes.
+ * 
+ * @author Derek
+ */
+public class InMemoryServiceDiscoveryProvider extends LifecycleComponent implements IServiceDiscoveryProvider {
+
+    /** Node addresses indexed by function short name */
+    private Map<String, Set<String>> nodesByFunction = new HashMap<>();
+
+    /** Incremented on every membership change */
+    private long index = 1;
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider#
+     * registerService()
+     */
+    @Override
+    public void registerService() throws SiteWhereException {
+	addNode(getMicroservice().getIdentifier(), getMicroservice().getHostname());
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider#
+     * sendHeartbeat()
+     */
+    @Override
+    public void sendHeartbeat() throws SiteWhereException {
+    }
+
+    /**
+     * Add a node that provides the given function.
+     * 
+     * @param identifier
+     * @param address
+     */
+    public synchronized void addNode(IFunctionIdentifier identifier, String address) {
+	Set<String> addresses = nodesByFunction.get(identifier.getShortName());
+	if (addresses == null) {
+	    addresses = new LinkedHashSet<>();
+	    nodesByFunction.put(identifier.getShortName(), addresses);
+	}
+	if (addresses.add(address)) {
+	    index++;
+	    notifyAll();
+	}
+    }
+
+    /**
+     * Remove a node that provides the given function.
+     * 
+     * @param identifier
+     * @param address
+     */
+    public synchronized void removeNode(IFunctionIdentifier identifier, String address) {
+	Set<String> addresses = nodesByFunction.get(identifier.getShortName());
+	if ((addresses != null) && (addresses.remove(address))) {
+	    index++;
+	    notifyAll();
+	}
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider#
+     * getNodesForFunction(com.sitewhere.spi.microservice.IFunctionIdentifier)
+     */
+    @Override
+    public synchronized List<IServiceNode> getNodesForFunction(IFunctionIdentifier identifier)
+	    throws SiteWhereException {
+	List<IServiceNode> nodes = new ArrayList<>();
+	Set<String> addresses = nodesByFunction.get(identifier.getShortName());
+	if (addresses != null) {
+	    for (String address : addresses) {
+		ServiceNode node = new ServiceNode();
+		node.setAddress(address);
+		nodes.add(node);
+	    }
+	}
+	return nodes;
+    }
+
+    /*
+     * @see com.sitewhere.spi.microservice.discovery.IServiceDiscoveryProvider#
+     * waitForNodesForFunction(com.sitewhere.spi.microservice.IFunctionIdentifier,
+     * long, long, java.util.concurrent.TimeUnit)
+     */
+    @Override
+    public synchronized IServiceNodeSnapshot waitForNodesForFunction(IFunctionIdentifier identifier, long index,
+	    long maxWait, TimeUnit unit) throws SiteWhereException {
+	long deadline = System.currentTimeMillis() + unit.toMillis(maxWait);
+	try {
+	    while (this.index == index) {
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+		    break;
+		}
+		wait(remaining);
+	    }
+	} catch (InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    throw new SiteWhereException("Interrupted while waiting for node changes.", e);
+	}
+	return new ServiceNodeSnapshot(getNodesForFunction(identifier), this.index);
+    }
+}
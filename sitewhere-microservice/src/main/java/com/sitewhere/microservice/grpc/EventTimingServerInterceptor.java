@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.grpc;
+
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
+
+import io.grpc.Context;
+import io.grpc.Contexts;
+import io.grpc.Metadata;
+import io.grpc.ServerCall;
+import io.grpc.ServerCall.Listener;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+
+/**
+ * Interceptor that makes an event timing envelope passed in call metadata
+ * available in the context of the service method.
+ * 
+ * @author Derek
+ */
+public class EventTimingServerInterceptor implements ServerInterceptor {
+
+    /*
+     * @see io.grpc.ServerInterceptor#interceptCall(io.grpc.ServerCall,
+     * io.grpc.Metadata, io.grpc.ServerCallHandler)
+     */
+    @Override
+    public <ReqT, RespT> Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call, Metadata headers,
+	    ServerCallHandler<ReqT, RespT> next) {
+	EventTimingEnvelope timing = EventTimingEnvelope.decode(headers.get(EventTimingEnvelope.METADATA_KEY));
+	if (timing != null) {
+	    Context ctx = EventTimingEnvelope.contextFor(timing);
+	    return Contexts.interceptCall(ctx, call, headers, next);
+	}
+	return next.startCall(call, headers);
+    }
+}
@@ -49,6 +49,9 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
     /** Interceptor for JWT authentication */
     private JwtServerInterceptor jwtInterceptor;
 
+    /** Interceptor for event timing envelope */
+    private EventTimingServerInterceptor eventTimingInterceptor;
+
     /** Interceptor for open tracing APIs */
     private ServerTracingInterceptor tracingInterceptor;
 
@@ -68,7 +71,8 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
      */
     protected Server buildServer() {
 	NettyServerBuilder builder = NettyServerBuilder.forPort(port);
-	builder.addService(getServiceImplementation()).intercept(getJwtInterceptor());
+	builder.addService(getServiceImplementation()).intercept(getJwtInterceptor())
+		.intercept(getEventTimingInterceptor());
 	builder.executor(getServerExecutor());
 	builder.bossEventLoopGroup(new NioEventLoopGroup(1));
 	builder.workerEventLoopGroup(new NioEventLoopGroup(100));
@@ -88,6 +92,7 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
     public void initialize(ILifecycleProgressMonitor monitor) throws SiteWhereException {
 	try {
 	    this.jwtInterceptor = new JwtServerInterceptor(getMicroservice(), getServiceImplementation().getClass());
+	    this.eventTimingInterceptor = new EventTimingServerInterceptor();
 	    this.tracingInterceptor = new ServerTracingInterceptor(getMicroservice().getTracer());
 	    this.server = buildServer();
 	    getLogger().debug("Initialized GRPC server on port " + port + ".");
@@ -192,6 +197,14 @@ public class GrpcServer extends TenantEngineLifecycleComponent implements IGrpcS
 	this.jwtInterceptor = jwtInterceptor;
     }
 
+    public EventTimingServerInterceptor getEventTimingInterceptor() {
+	return eventTimingInterceptor;
+    }
+
+    public void setEventTimingInterceptor(EventTimingServerInterceptor eventTimingInterceptor) {
+	this.eventTimingInterceptor = eventTimingInterceptor;
+    }
+
     public ServerTracingInterceptor getTracingInterceptor() {
 	return tracingInterceptor;
     }
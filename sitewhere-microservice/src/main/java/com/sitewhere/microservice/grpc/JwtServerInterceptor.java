@@ -11,7 +11,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.sitewhere.grpc.client.GrpcContextKeys;
+import com.sitewhere.grpc.client.GrpcUtils;
 import com.sitewhere.grpc.client.JwtClientInterceptor;
+import com.sitewhere.microservice.security.InvalidJwtException;
+import com.sitewhere.microservice.security.JwtExpiredException;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.IMicroservice;
 
 import io.grpc.BindableService;
@@ -26,7 +30,9 @@ import io.grpc.Status;
 
 /**
  * Interceptor that enforces JWT authentication constraints before invoking
- * service methods.
+ * service methods. Tokens are verified through the shared cache in
+ * {@link GrpcUtils} so that calls with an invalid or expired JWT are rejected
+ * before reaching the service.
  * 
  * @author Derek
  */
@@ -58,15 +64,38 @@ public class JwtServerInterceptor implements ServerInterceptor {
 	if (headers.containsKey(JwtClientInterceptor.JWT_KEY)) {
 	    String jwt = headers.get(JwtClientInterceptor.JWT_KEY);
 	    LOGGER.trace("Server received jwt key: " + jwt);
+	    try {
+		GrpcUtils.getJwtCache().getVerifiedJwt(jwt, getMicroservice().getTokenManagement());
+	    } catch (JwtExpiredException e) {
+		return reject(call, headers, "JWT has expired.");
+	    } catch (InvalidJwtException e) {
+		return reject(call, headers, "JWT is invalid.");
+	    } catch (SiteWhereException e) {
+		LOGGER.error("Error processing JWT.", e);
+		return reject(call, headers, "Error processing JWT.");
+	    }
 	    Context ctx = Context.current().withValue(GrpcContextKeys.JWT_KEY, jwt);
 	    return Contexts.interceptCall(ctx, call, headers, next);
 	} else {
-	    call.close(Status.UNAUTHENTICATED.withDescription("JWT not passed in metadata."), headers);
-	    return new ServerCall.Listener<ReqT>() {
-	    };
+	    return reject(call, headers, "JWT not passed in metadata.");
 	}
     }
 
+    /**
+     * Close call as unauthenticated.
+     * 
+     * @param call
+     * @param headers
+     * @param description
+     * @return
+     */
+    protected <ReqT, RespT> Listener<ReqT> reject(ServerCall<ReqT, RespT> call, Metadata headers,
+	    String description) {
+	call.close(Status.UNAUTHENTICATED.withDescription(description), headers);
+	return new ServerCall.Listener<ReqT>() {
+	};
+    }
+
     protected IMicroservice<?> getMicroservice() {
 	return microservice;
     }
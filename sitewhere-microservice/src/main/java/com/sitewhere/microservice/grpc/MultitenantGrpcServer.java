@@ -37,7 +37,7 @@ public class MultitenantGrpcServer extends GrpcServer {
 	this.tenantTokenInterceptor = new TenantTokenServerInterceptor(getMicroservice());
 	NettyServerBuilder builder = NettyServerBuilder.forPort(getPort());
 	builder.addService(getServiceImplementation()).intercept(getTenantTokenInterceptor())
-		.intercept(getJwtInterceptor());
+		.intercept(getJwtInterceptor()).intercept(getEventTimingInterceptor());
 	builder.addService(new MultitenantManagementImpl((IMultitenantMicroservice<?, ?>) getMicroservice()));
 	builder.executor(getServerExecutor());
 	builder.bossEventLoopGroup(new NioEventLoopGroup(1));
@@ -9,7 +9,9 @@ package com.sitewhere.microservice.kafka;
 
 import java.time.Duration;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
@@ -24,6 +26,8 @@ import org.apache.kafka.common.errors.WakeupException;
 import org.apache.kafka.common.serialization.ByteArrayDeserializer;
 import org.apache.kafka.common.serialization.StringDeserializer;
 
+import com.codahale.metrics.Histogram;
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer;
@@ -43,6 +47,9 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
     /** Executor service */
     private ExecutorService executor;
 
+    /** Event latency histograms indexed by metric name */
+    private Map<String, Histogram> eventLatencyHistograms = new ConcurrentHashMap<String, Histogram>();
+
     /*
      * (non-Javadoc)
      * 
@@ -96,6 +103,56 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 	return config;
     }
 
+    /**
+     * Get name of pipeline stage used when recording latency for records that
+     * carry an event timing envelope. Returns null if latency is not recorded.
+     * 
+     * @return
+     */
+    protected String getEventTimingStage() {
+	return null;
+    }
+
+    /**
+     * Record source-to-stage and stage-to-stage latency for records that carry an
+     * event timing envelope.
+     * 
+     * @param records
+     */
+    protected void recordEventLatency(List<ConsumerRecord<String, byte[]>> records) {
+	String stage = getEventTimingStage();
+	if (stage == null) {
+	    return;
+	}
+	long now = System.currentTimeMillis();
+	for (ConsumerRecord<String, byte[]> record : records) {
+	    EventTimingEnvelope timing = EventTimingEnvelope.from(record.headers());
+	    if (timing != null) {
+		getEventLatencyHistogram(stage + ".from." + timing.getSourceStage())
+			.update(now - timing.getSourceTimestamp());
+		if (!timing.getSourceStage().equals(timing.getLastStage())) {
+		    getEventLatencyHistogram(stage + ".from." + timing.getLastStage())
+			    .update(now - timing.getLastTimestamp());
+		}
+	    }
+	}
+    }
+
+    /**
+     * Get (or create) histogram used for tracking event latency.
+     * 
+     * @param name
+     * @return
+     */
+    protected Histogram getEventLatencyHistogram(String name) {
+	Histogram histogram = eventLatencyHistograms.get(name);
+	if (histogram == null) {
+	    histogram = createHistogramMetric("eventLatency." + name);
+	    eventLatencyHistograms.put(name, histogram);
+	}
+	return histogram;
+    }
+
     /*
      * @see
      * com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaConsumer#getConsumer()
@@ -140,6 +197,7 @@ public abstract class MicroserviceKafkaConsumer extends TenantEngineLifecycleCom
 		    for (TopicPartition topicPartition : records.partitions()) {
 			try {
 			    List<ConsumerRecord<String, byte[]>> topicRecords = records.records(topicPartition);
+			    recordEventLatency(topicRecords);
 			    process(topicPartition, topicRecords);
 			} catch (Throwable e) {
 			    getLogger().error("Unhandled exception in consumer processing.", e);
@@ -19,6 +19,7 @@ import org.apache.kafka.clients.producer.RecordMetadata;
 import org.apache.kafka.common.serialization.ByteArraySerializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 
+import com.sitewhere.grpc.client.event.EventTimingEnvelope;
 import com.sitewhere.server.lifecycle.TenantEngineLifecycleComponent;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.kafka.IMicroserviceKafkaProducer;
@@ -110,6 +111,7 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
     @Override
     public Future<RecordMetadata> send(String key, byte[] message) throws SiteWhereException {
 	ProducerRecord<String, byte[]> record = new ProducerRecord<String, byte[]>(getTargetTopicName(), key, message);
+	addEventTiming(record);
 	try {
 	    return getProducer().send(record);
 	} catch (IllegalStateException e) {
@@ -119,6 +121,33 @@ public abstract class MicroserviceKafkaProducer extends TenantEngineLifecycleCom
 	}
     }
 
+    /**
+     * If an event timing envelope is associated with the current context, stamp
+     * it with the stage for this producer (if any) and add it to the record
+     * headers so that downstream consumers can track pipeline latency.
+     * 
+     * @param record
+     */
+    protected void addEventTiming(ProducerRecord<String, byte[]> record) {
+	EventTimingEnvelope timing = EventTimingEnvelope.current();
+	if (timing != null) {
+	    if (getEventTimingStage() != null) {
+		timing = timing.stamp(getEventTimingStage());
+	    }
+	    timing.addTo(record.headers());
+	}
+    }
+
+    /**
+     * Get name of pipeline stage stamped on event timing envelopes for records
+     * sent by this producer. Returns null if records are not stamped.
+     * 
+     * @return
+     */
+    protected String getEventTimingStage() {
+	return null;
+    }
+
     /**
      * Build configuration settings used by producer.
      * 
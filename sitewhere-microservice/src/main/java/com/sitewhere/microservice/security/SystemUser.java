@@ -10,14 +10,22 @@ package com.sitewhere.microservice.security;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 
 import com.sitewhere.rest.model.user.GrantedAuthority;
 import com.sitewhere.rest.model.user.User;
-import com.sitewhere.security.SitewhereAuthentication;
 import com.sitewhere.security.SitewhereUserDetails;
 import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.microservice.security.ISystemUser;
@@ -31,10 +39,18 @@ import com.sitewhere.spi.user.SiteWhereAuthority;
  * Bean that provides a system "superuser" that allows microservices to
  * authenticate with other microservices.
  * 
+ * Authentications are immutable and kept in a registry by tenant so that
+ * threads working for different tenants never share an object. The JWT is
+ * generated once and renewed by a background thread well before it expires,
+ * at which point the registry entries are replaced.
+ * 
  * @author Derek
  */
 public class SystemUser implements ISystemUser {
 
+    /** Static logger instance */
+    private static Log LOGGER = LogFactory.getLog(SystemUser.class);
+
     /** Number of seconds between renewing JWT */
     private static final int RENEW_INTERVAL_SEC = 60 * 60;
 
@@ -51,11 +67,17 @@ public class SystemUser implements ISystemUser {
     /** System user authorities */
     private List<IGrantedAuthority> auths = SystemUser.getNonGroupAuthorities();
 
-    /** Last authentication result */
-    private SitewhereAuthentication last = null;
+    /** User details shared by all authentications */
+    private SitewhereUserDetails details = new SitewhereUserDetails(user, auths);
+
+    /** Authentication not associated with a tenant */
+    private volatile SystemUserAuthentication authentication;
 
-    /** Last time JWT was generated */
-    private long lastGenerated = 0;
+    /** Authentications by tenant id */
+    private Map<UUID, SystemUserAuthentication> tenantAuthentications = new ConcurrentHashMap<>();
+
+    /** Renews JWT in the background */
+    private ScheduledExecutorService renewer;
 
     /*
      * (non-Javadoc)
@@ -63,14 +85,12 @@ public class SystemUser implements ISystemUser {
      * @see com.sitewhere.microservice.spi.security.ISystemUser#getAuthentication()
      */
     @Override
-    public SitewhereAuthentication getAuthentication() throws SiteWhereException {
-	if ((System.currentTimeMillis() - lastGenerated) > (RENEW_INTERVAL_SEC * 1000)) {
-	    String jwt = tokenManagement.generateToken(user, SYSTEM_USER_TOKEN_EXPIRATION_IN_MINS);
-	    SitewhereUserDetails details = new SitewhereUserDetails(user, auths);
-	    this.last = new SitewhereAuthentication(details, jwt);
-	    this.lastGenerated = System.currentTimeMillis();
+    public SystemUserAuthentication getAuthentication() throws SiteWhereException {
+	SystemUserAuthentication current = authentication;
+	if (current == null) {
+	    current = initialize();
 	}
-	return this.last;
+	return current;
     }
 
     /*
@@ -81,11 +101,88 @@ public class SystemUser implements ISystemUser {
      */
     @Override
     public Authentication getAuthenticationForTenant(ITenant tenant) throws SiteWhereException {
-	SitewhereAuthentication auth = getAuthentication();
-	auth.setTenant(tenant);
+	SystemUserAuthentication base = getAuthentication();
+	if (tenant == null) {
+	    return base;
+	}
+	SystemUserAuthentication auth = tenantAuthentications.get(tenant.getId());
+
+	// Replace entries for a stale JWT or a tenant that has been reloaded.
+	if ((auth == null) || (auth.getTenant() != tenant) || (!auth.getJwt().equals(base.getJwt()))) {
+	    auth = new SystemUserAuthentication(details, base.getJwt(), tenant);
+	    tenantAuthentications.put(tenant.getId(), auth);
+	}
 	return auth;
     }
 
+    /**
+     * Generate the initial JWT and start background renewal.
+     * 
+     * @return
+     * @throws SiteWhereException
+     */
+    protected synchronized SystemUserAuthentication initialize() throws SiteWhereException {
+	if (authentication == null) {
+	    renew();
+	    this.renewer = Executors.newSingleThreadScheduledExecutor(new SystemUserThreadFactory());
+	    renewer.scheduleWithFixedDelay(new Renewer(), RENEW_INTERVAL_SEC, RENEW_INTERVAL_SEC, TimeUnit.SECONDS);
+	}
+	return authentication;
+    }
+
+    /**
+     * Generate a new JWT and replace all authentications with ones that use it.
+     * 
+     * @throws SiteWhereException
+     */
+    protected void renew() throws SiteWhereException {
+	String jwt = tokenManagement.generateToken(user, SYSTEM_USER_TOKEN_EXPIRATION_IN_MINS);
+	this.authentication = new SystemUserAuthentication(details, jwt, null);
+	for (SystemUserAuthentication existing : tenantAuthentications.values()) {
+	    ITenant tenant = existing.getTenant();
+	    tenantAuthentications.put(tenant.getId(), new SystemUserAuthentication(details, jwt, tenant));
+	}
+    }
+
+    /**
+     * Stop background renewal. Called by Spring when the bean is destroyed.
+     */
+    public void shutdown() {
+	if (renewer != null) {
+	    renewer.shutdownNow();
+	}
+    }
+
+    /**
+     * Renews JWT. Failures are logged and the current JWT is kept since it
+     * remains valid long after the renewal interval.
+     */
+    private class Renewer implements Runnable {
+
+	/*
+	 * @see java.lang.Runnable#run()
+	 */
+	@Override
+	public void run() {
+	    try {
+		renew();
+		LOGGER.debug("Renewed system user JWT.");
+	    } catch (Throwable e) {
+		LOGGER.error("Unable to renew system user JWT.", e);
+	    }
+	}
+    }
+
+    /** Used for naming system user threads */
+    private class SystemUserThreadFactory implements ThreadFactory {
+
+	public Thread newThread(Runnable r) {
+	    Thread thread = new Thread(r, "System User Renewal");
+	    thread.setDaemon(true);
+	    return thread;
+	}
+    }
+
     /**
      * Create default (fully authenticated) system user.
      * 
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.security;
+
+import com.sitewhere.security.SitewhereAuthentication;
+import com.sitewhere.security.SitewhereUserDetails;
+import com.sitewhere.spi.tenant.ITenant;
+
+/**
+ * Authentication for the system user. Instances are shared between threads,
+ * so the tenant and JWT are fixed when created and may not be changed.
+ * 
+ * @author Derek
+ */
+public class SystemUserAuthentication extends SitewhereAuthentication {
+
+    /** Serial version UID */
+    private static final long serialVersionUID = -6795330474226563146L;
+
+    /** JWT for system user */
+    private String jwt;
+
+    public SystemUserAuthentication(SitewhereUserDetails details, String jwt, ITenant tenant) {
+	super(details, jwt);
+	super.setTenant(tenant);
+	this.jwt = jwt;
+    }
+
+    /*
+     * @see com.sitewhere.security.SitewhereAuthentication#setTenant(com.sitewhere.
+     * spi.tenant.ITenant)
+     */
+    @Override
+    public void setTenant(ITenant tenant) {
+	throw new UnsupportedOperationException("System user authentication can not be modified.");
+    }
+
+    /*
+     * @see com.sitewhere.security.SitewhereAuthentication#setAuthenticated(boolean)
+     */
+    @Override
+    public void setAuthenticated(boolean value) throws IllegalArgumentException {
+	throw new UnsupportedOperationException("System user authentication can not be modified.");
+    }
+
+    /**
+     * Get details shared by all system user authentications.
+     * 
+     * @return
+     */
+    public SitewhereUserDetails getUserDetails() {
+	return (SitewhereUserDetails) getDetails();
+    }
+
+    public String getJwt() {
+	return jwt;
+    }
+}
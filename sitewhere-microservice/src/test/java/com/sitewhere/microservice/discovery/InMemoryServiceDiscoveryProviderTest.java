@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.microservice.discovery;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sitewhere.microservice.discovery.memory.InMemoryServiceDiscoveryProvider;
+import com.sitewhere.spi.SiteWhereException;
+import com.sitewhere.spi.microservice.MicroserviceIdentifier;
+import com.sitewhere.spi.microservice.discovery.IServiceNodeSnapshot;
+
+public class InMemoryServiceDiscoveryProviderTest {
+
+    /** Address of first node */
+    private static final String NODE1 = "10.0.0.1";
+
+    /** Address of second node */
+    private static final String NODE2 = "10.0.0.2";
+
+    /** Provider under test */
+    private InMemoryServiceDiscoveryProvider provider;
+
+    @Before
+    public void setUp() {
+	this.provider = new InMemoryServiceDiscoveryProvider();
+	provider.addNode(MicroserviceIdentifier.DeviceManagement, NODE1);
+    }
+
+    @Test
+    public void testInitialIndexReturnsImmediately() throws SiteWhereException {
+	long start = System.currentTimeMillis();
+	IServiceNodeSnapshot snapshot = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement, 0,
+		10, TimeUnit.SECONDS);
+	assertTrue(System.currentTimeMillis() - start < 1000);
+	assertEquals(1, snapshot.getNodes().size());
+	assertEquals(NODE1, snapshot.getNodes().get(0).getAddress());
+    }
+
+    @Test
+    public void testWaitTimesOutWithoutChange() throws SiteWhereException {
+	IServiceNodeSnapshot initial = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement, 0, 0,
+		TimeUnit.MILLISECONDS);
+	long start = System.currentTimeMillis();
+	IServiceNodeSnapshot snapshot = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement,
+		initial.getIndex(), 200, TimeUnit.MILLISECONDS);
+	assertTrue(System.currentTimeMillis() - start >= 200);
+	assertEquals(initial.getIndex(), snapshot.getIndex());
+	assertEquals(1, snapshot.getNodes().size());
+    }
+
+    @Test
+    public void testWaitWakesOnNodeAdded() throws Exception {
+	final IServiceNodeSnapshot initial = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement,
+		0, 0, TimeUnit.MILLISECONDS);
+	Thread adder = new Thread(new Runnable() {
+
+	    @Override
+	    public void run() {
+		try {
+		    Thread.sleep(100);
+		} catch (InterruptedException e) {
+		    return;
+		}
+		provider.addNode(MicroserviceIdentifier.DeviceManagement, NODE2);
+	    }
+	});
+	adder.start();
+	long start = System.currentTimeMillis();
+	IServiceNodeSnapshot snapshot = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement,
+		initial.getIndex(), 10, TimeUnit.SECONDS);
+	adder.join();
+	assertTrue(System.currentTimeMillis() - start < 5000);
+	assertTrue(snapshot.getIndex() > initial.getIndex());
+	assertEquals(2, snapshot.getNodes().size());
+    }
+
+    @Test
+    public void testRemoveNodeChangesIndex() throws SiteWhereException {
+	IServiceNodeSnapshot initial = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement, 0, 0,
+		TimeUnit.MILLISECONDS);
+	provider.removeNode(MicroserviceIdentifier.DeviceManagement, NODE1);
+	IServiceNodeSnapshot snapshot = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement,
+		initial.getIndex(), 0, TimeUnit.MILLISECONDS);
+	assertTrue(snapshot.getIndex() > initial.getIndex());
+	assertEquals(0, snapshot.getNodes().size());
+    }
+
+    @Test
+    public void testDuplicateAddDoesNotChangeIndex() throws SiteWhereException {
+	IServiceNodeSnapshot initial = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement, 0, 0,
+		TimeUnit.MILLISECONDS);
+	provider.addNode(MicroserviceIdentifier.DeviceManagement, NODE1);
+	IServiceNodeSnapshot snapshot = provider.waitForNodesForFunction(MicroserviceIdentifier.DeviceManagement,
+		initial.getIndex(), 0, TimeUnit.MILLISECONDS);
+	assertEquals(initial.getIndex(), snapshot.getIndex());
+	assertEquals(1, snapshot.getNodes().size());
+    }
+}
@@ -199,11 +199,11 @@ public class SiteWhereSolrFactory {
      */
     protected static void addFieldsFromEventDocument(SolrDocument document, DeviceEvent event)
 	    throws SiteWhereException {
-	UUID id = (UUID) document.get(ISolrFields.EVENT_ID);
-	UUID deviceId = (UUID) document.get(ISolrFields.DEVICE_ID);
-	UUID assignmentId = (UUID) document.get(ISolrFields.ASSIGNMENT_ID);
-	UUID areaId = (UUID) document.get(ISolrFields.AREA_ID);
-	UUID assetId = (UUID) document.get(ISolrFields.ASSET_ID);
+	UUID id = getUuid(document, ISolrFields.EVENT_ID);
+	UUID deviceId = getUuid(document, ISolrFields.DEVICE_ID);
+	UUID assignmentId = getUuid(document, ISolrFields.ASSIGNMENT_ID);
+	UUID areaId = getUuid(document, ISolrFields.AREA_ID);
+	UUID assetId = getUuid(document, ISolrFields.ASSET_ID);
 	Date eventDate = (Date) document.get(ISolrFields.EVENT_DATE);
 	Date receivedDate = (Date) document.get(ISolrFields.RECEIVED_DATE);
 
@@ -227,6 +227,22 @@ public class SiteWhereSolrFactory {
 	}
     }
 
+    /**
+     * Get a UUID field value. Binary responses return UUIDs as strings, so both
+     * forms are accepted.
+     * 
+     * @param document
+     * @param field
+     * @return
+     */
+    protected static UUID getUuid(SolrDocument document, String field) {
+	Object value = document.get(field);
+	if (value == null) {
+	    return null;
+	}
+	return (value instanceof UUID) ? (UUID) value : UUID.fromString(value.toString());
+    }
+
     /**
      * Adds common fields from base SiteWhere {@link IDeviceEvent} object.
      * 
@@ -7,24 +7,46 @@
  */
 package com.sitewhere.spark;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.spark.storage.StorageLevel;
 import org.apache.spark.streaming.receiver.Receiver;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.hazelcast.client.HazelcastClient;
-import com.hazelcast.client.config.ClientConfig;
-import com.hazelcast.core.HazelcastInstance;
-import com.hazelcast.core.Message;
-import com.hazelcast.core.MessageListener;
-import com.sitewhere.rest.model.device.event.DeviceAlert;
-import com.sitewhere.rest.model.device.event.DeviceLocation;
-import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.grpc.client.event.EventModelConverter;
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.grpc.model.DeviceEventModel.GEnrichedEventPayload;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.spi.SiteWhereException;
 import com.sitewhere.spi.device.event.IDeviceEvent;
 
 /**
- * Implements a {@link Receiver} that listens for events on the default
- * Hazelcast topics published by SiteWhere and makes them available to Spark.
+ * Implements a {@link Receiver} that consumes the enriched events topic for a
+ * SiteWhere tenant and makes the events available to Spark.
+ * 
+ * Records are decoded and stored a partition batch at a time. Storing a batch
+ * blocks until Spark has stored it, and only then are the offsets for that
+ * partition committed back to Kafka, so events are not lost if the receiver
+ * fails. Ingestion may be limited to a maximum number of events per second.
  * 
  * @author Derek
  */
@@ -36,29 +58,58 @@ public class SiteWhereReceiver extends Receiver<IDeviceEvent> {
     /** Static logger instance */
     private static final Logger LOGGER = LoggerFactory.getLogger(SiteWhereReceiver.class);
 
-    /** Number of milliseconds to wait for Hazelcast to connect */
-    private static final int HAZELCAST_CONNECTION_TIMEOUT = 10000;
+    /** Default product id used in topic names */
+    public static final String DEFAULT_PRODUCT_ID = "sitewhere";
+
+    /** Default max number of records returned by a poll */
+    public static final int DEFAULT_MAX_POLL_RECORDS = 500;
+
+    /** Topic suffix for events that have been persisted and enriched */
+    private static final String ENRICHED_EVENTS_SUFFIX = "inbound-enriched-events";
+
+    /** Number of milliseconds to wait for records on each poll */
+    private static final long POLL_TIMEOUT_MS = 1000;
 
-    /** Hazelcast client for SiteWhere */
-    private HazelcastInstance hazelcast;
+    /** Nanoseconds per second */
+    private static final long NANOS_PER_SECOND = 1000 * 1000 * 1000;
 
-    /** Hazelcast address set in connect */
-    private String hazelcastAddress;
+    /** Kafka bootstrap servers */
+    private String bootstrapServers;
 
-    /** Hazelcast username set in connect */
-    private String username;
+    /** Product id used in topic names */
+    private String productId = DEFAULT_PRODUCT_ID;
 
-    /** Hazelcast password set in connect */
-    private String password;
+    /** SiteWhere instance id */
+    private String instanceId;
 
-    /** Tenant id set in connect */
+    /** Tenant id */
     private String tenantId;
 
-    public SiteWhereReceiver(String hazelcastAddress, String username, String password, String tenantId) {
+    /** Consumer group id or null to derive from topic */
+    private String groupId;
+
+    /** Max number of records returned by a poll */
+    private int maxPollRecords = DEFAULT_MAX_POLL_RECORDS;
+
+    /** Max events stored per second or zero for no limit */
+    private long maxRatePerSecond;
+
+    /** Kafka consumer */
+    private transient KafkaConsumer<String, byte[]> consumer;
+
+    /** Thread polling Kafka */
+    private transient Thread consumerThread;
+
+    /** Next offset to be consumed for each partition that has been stored */
+    private transient Map<TopicPartition, Long> storedOffsets;
+
+    /** Time at which the next event may be stored when rate limited */
+    private transient long nextPermitNanos;
+
+    public SiteWhereReceiver(String bootstrapServers, String instanceId, String tenantId) {
 	super(StorageLevel.MEMORY_AND_DISK_SER_2());
-	this.hazelcastAddress = hazelcastAddress;
-	this.username = username;
-	this.password = password;
+	this.bootstrapServers = bootstrapServers;
+	this.instanceId = instanceId;
 	this.tenantId = tenantId;
     }
 
@@ -70,17 +121,13 @@ public class SiteWhereReceiver extends Receiver<IDeviceEvent> {
     @Override
     public void onStart() {
 	try {
-	    // Configure the Hazelcast client.
-	    ClientConfig clientConfig = new ClientConfig();
-	    clientConfig.getGroupConfig().setName(getUsername());
-	    clientConfig.getGroupConfig().setPassword(getPassword());
-
-	    clientConfig.getNetworkConfig().setConnectionTimeout(HAZELCAST_CONNECTION_TIMEOUT);
-	    clientConfig.getNetworkConfig().addAddress(getHazelcastAddress());
-	    clientConfig.getNetworkConfig().setSmartRouting(true);
-
-	    this.hazelcast = HazelcastClient.newHazelcastClient(clientConfig);
-	    // Use a non-hazelcast transport for connecting.
+	    this.storedOffsets = new ConcurrentHashMap<TopicPartition, Long>();
+	    this.nextPermitNanos = 0;
+	    this.consumer = new KafkaConsumer<String, byte[]>(buildConfiguration());
+	    LOGGER.info("Receiver consuming events from " + getTopicName() + " at " + getBootstrapServers() + ".");
+	    this.consumerThread = new Thread(new EventConsumer(), "SiteWhere Receiver " + getTenantId());
+	    consumerThread.setDaemon(true);
+	    consumerThread.start();
 	} catch (Exception e) {
 	    stop("Unable to start SiteWhere receiver.", e);
 	}
@@ -93,111 +140,210 @@ public class SiteWhereReceiver extends Receiver<IDeviceEvent> {
      */
     @Override
     public void onStop() {
-	if (hazelcast != null) {
-	    hazelcast.shutdown();
+	if (consumer != null) {
+	    consumer.wakeup();
 	}
+	if (consumerThread != null) {
+	    try {
+		consumerThread.join(POLL_TIMEOUT_MS * 10);
+	    } catch (InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	}
+    }
+
+    /**
+     * Build Kafka consumer configuration. Offsets are committed explicitly once
+     * events have been stored.
+     * 
+     * @return
+     */
+    protected Properties buildConfiguration() {
+	Properties config = new Properties();
+	config.put(ConsumerConfig.GROUP_ID_CONFIG, getConsumerGroupId());
+	config.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, getBootstrapServers());
+	config.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+	config.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	config.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+	config.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+	config.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, getMaxPollRecords());
+	return config;
     }
 
     /**
-     * Handles inbound measurements events.
+     * Get name of enriched events topic for the tenant.
      * 
-     * @author Derek
+     * @return
      */
-    @SuppressWarnings("unused")
-    private class MeasurementsEventListener implements MessageListener<DeviceMeasurement> {
+    public String getTopicName() {
+	return getProductId() + "." + getInstanceId() + ".tenant." + getTenantId() + "." + ENRICHED_EVENTS_SUFFIX;
+    }
 
-	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.hazelcast.core.MessageListener#onMessage(com.hazelcast.core.
-	 * Message)
-	 */
-	@Override
-	public void onMessage(Message<DeviceMeasurement> message) {
+    /**
+     * Get consumer group id, deriving one from the topic if not set.
+     * 
+     * @return
+     */
+    public String getConsumerGroupId() {
+	return (getGroupId() != null) ? getGroupId() : getTopicName() + ".spark-receiver";
+    }
+
+    /**
+     * Decode and store records for a single partition, then record the offset
+     * that follows them.
+     * 
+     * @param partition
+     * @param records
+     * @throws InterruptedException
+     */
+    protected void storeRecords(TopicPartition partition, List<ConsumerRecord<String, byte[]>> records)
+	    throws InterruptedException {
+	List<IDeviceEvent> events = new ArrayList<IDeviceEvent>(records.size());
+	for (ConsumerRecord<String, byte[]> record : records) {
 	    try {
-		DeviceMeasurement mx = message.getMessageObject();
-		SiteWhereReceiver.this.store(mx);
-		LOGGER.debug("Stored a measurements event.");
-	    } catch (Exception e) {
-		SiteWhereReceiver.this.reportError("Error receiving SiteWhere measurements.", e);
+		GEnrichedEventPayload grpc = EventModelMarshaler.parseEnrichedEventPayloadMessage(record.value());
+		EnrichedEventPayload payload = EventModelConverter.asApiEnrichedEventPayload(grpc);
+		events.add(payload.getEvent());
+	    } catch (SiteWhereException e) {
+		LOGGER.error("Unable to parse enriched event payload at offset " + record.offset() + ".", e);
 	    }
 	}
+	throttle(events.size());
+	if (!events.isEmpty()) {
+	    store(events.iterator());
+	    LOGGER.debug("Stored " + events.size() + " events from " + partition + ".");
+	}
+	storedOffsets.put(partition, records.get(records.size() - 1).offset() + 1);
+    }
+
+    /**
+     * Commit offsets for records that have been stored.
+     */
+    protected void commitStoredOffsets() {
+	Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<TopicPartition, OffsetAndMetadata>();
+	for (Map.Entry<TopicPartition, Long> entry : storedOffsets.entrySet()) {
+	    offsets.put(entry.getKey(), new OffsetAndMetadata(entry.getValue()));
+	}
+	if (!offsets.isEmpty()) {
+	    consumer.commitSync(offsets);
+	}
+    }
+
+    /**
+     * Wait until the given number of events may be stored without exceeding the
+     * max rate.
+     * 
+     * @param count
+     * @throws InterruptedException
+     */
+    protected void throttle(int count) throws InterruptedException {
+	if ((getMaxRatePerSecond() <= 0) || (count == 0)) {
+	    return;
+	}
+	long now = System.nanoTime();
+
+	// Allow at most one second of unused capacity to build up.
+	nextPermitNanos = Math.max(nextPermitNanos, now - NANOS_PER_SECOND);
+	nextPermitNanos += (count * NANOS_PER_SECOND) / getMaxRatePerSecond();
+	long wait = nextPermitNanos - now;
+	if (wait > 0) {
+	    Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+	}
     }
 
     /**
-     * Handles inbound location events.
+     * Get next offset to be consumed for each partition that has been stored.
      * 
-     * @author Derek
+     * @return
      */
-    @SuppressWarnings("unused")
-    private class LocationsEventListener implements MessageListener<DeviceLocation> {
+    public Map<TopicPartition, Long> getStoredOffsets() {
+	return Collections.unmodifiableMap(storedOffsets);
+    }
+
+    /**
+     * Polls Kafka and stores events until the receiver is stopped.
+     */
+    private class EventConsumer implements Runnable {
 
 	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.hazelcast.core.MessageListener#onMessage(com.hazelcast.core.
-	 * Message)
+	 * @see java.lang.Runnable#run()
 	 */
 	@Override
-	public void onMessage(Message<DeviceLocation> message) {
+	public void run() {
 	    try {
-		DeviceLocation location = message.getMessageObject();
-		SiteWhereReceiver.this.store(location);
-		LOGGER.debug("Stored a location event.");
-	    } catch (Exception e) {
-		SiteWhereReceiver.this.reportError("Error receiving SiteWhere location.", e);
+		consumer.subscribe(Collections.singletonList(getTopicName()), new OffsetCommitter());
+		while (!isStopped()) {
+		    ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(POLL_TIMEOUT_MS));
+		    if (records.isEmpty()) {
+			continue;
+		    }
+		    for (TopicPartition partition : records.partitions()) {
+			storeRecords(partition, records.records(partition));
+		    }
+		    commitStoredOffsets();
+		}
+	    } catch (WakeupException e) {
+		LOGGER.info("Receiver consumer thread received shutdown request.");
+	    } catch (InterruptedException e) {
+		LOGGER.info("Receiver consumer thread interrupted.");
+	    } catch (Throwable e) {
+		restart("Error consuming SiteWhere events.", e);
+	    } finally {
+		consumer.close();
 	    }
 	}
     }
 
     /**
-     * Handles inbound alert events.
-     * 
-     * @author Derek
+     * Commits stored offsets before partitions are reassigned so that another
+     * consumer resumes where this one stopped.
      */
-    @SuppressWarnings("unused")
-    private class AlertsEventListener implements MessageListener<DeviceAlert> {
+    private class OffsetCommitter implements ConsumerRebalanceListener {
 
 	/*
-	 * (non-Javadoc)
-	 * 
-	 * @see com.hazelcast.core.MessageListener#onMessage(com.hazelcast.core.
-	 * Message)
+	 * @see org.apache.kafka.clients.consumer.ConsumerRebalanceListener#
+	 * onPartitionsRevoked(java.util.Collection)
 	 */
 	@Override
-	public void onMessage(Message<DeviceAlert> message) {
-	    try {
-		DeviceAlert alert = message.getMessageObject();
-		SiteWhereReceiver.this.store(alert);
-		LOGGER.debug("Stored an alert event.");
-	    } catch (Exception e) {
-		SiteWhereReceiver.this.reportError("Error receiving SiteWhere alert.", e);
+	public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+	    commitStoredOffsets();
+	    for (TopicPartition partition : partitions) {
+		storedOffsets.remove(partition);
 	    }
 	}
+
+	/*
+	 * @see org.apache.kafka.clients.consumer.ConsumerRebalanceListener#
+	 * onPartitionsAssigned(java.util.Collection)
+	 */
+	@Override
+	public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+	    LOGGER.info("Receiver assigned partitions " + partitions + ".");
+	}
     }
 
-    public String getHazelcastAddress() {
-	return hazelcastAddress;
+    public String getBootstrapServers() {
+	return bootstrapServers;
     }
 
-    public void setHazelcastAddress(String hazelcastAddress) {
-	this.hazelcastAddress = hazelcastAddress;
+    public void setBootstrapServers(String bootstrapServers) {
+	this.bootstrapServers = bootstrapServers;
     }
 
-    public String getUsername() {
-	return username;
+    public String getProductId() {
+	return productId;
     }
 
-    public void setUsername(String username) {
-	this.username = username;
+    public void setProductId(String productId) {
+	this.productId = productId;
     }
 
-    public String getPassword() {
-	return password;
+    public String getInstanceId() {
+	return instanceId;
     }
 
-    public void setPassword(String password) {
-	this.password = password;
+    public void setInstanceId(String instanceId) {
+	this.instanceId = instanceId;
     }
 
     public String getTenantId() {
@@ -207,4 +353,28 @@ public class SiteWhereReceiver extends Receiver<IDeviceEvent> {
     public void setTenantId(String tenantId) {
 	this.tenantId = tenantId;
     }
-}
\ No newline at end of file
+
+    public String getGroupId() {
+	return groupId;
+    }
+
+    public void setGroupId(String groupId) {
+	this.groupId = groupId;
+    }
+
+    public int getMaxPollRecords() {
+	return maxPollRecords;
+    }
+
+    public void setMaxPollRecords(int maxPollRecords) {
+	this.maxPollRecords = maxPollRecords;
+    }
+
+    public long getMaxRatePerSecond() {
+	return maxRatePerSecond;
+    }
+
+    public void setMaxRatePerSecond(long maxRatePerSecond) {
+	this.maxRatePerSecond = maxRatePerSecond;
+    }
+}
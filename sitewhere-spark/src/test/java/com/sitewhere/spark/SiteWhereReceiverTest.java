@@ -0,0 +1,335 @@
+/*
+ * Copyright (c) SiteWhere, LLC. All rights reserved. http://www.sitewhere.com
+ *
+ * The software in this package is published under the terms of the CPAL v1.0
+ * license, a copy of which has been included with this distribution in the
+ * LICENSE.txt file.
+ */
+package com.sitewhere.spark;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.apache.curator.test.TestingServer;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.apache.spark.SparkConf;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.function.Function;
+import org.apache.spark.streaming.Durations;
+import org.apache.spark.streaming.api.java.JavaStreamingContext;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sitewhere.grpc.client.event.EventModelMarshaler;
+import com.sitewhere.rest.model.device.event.DeviceEventContext;
+import com.sitewhere.rest.model.device.event.DeviceMeasurement;
+import com.sitewhere.rest.model.device.event.kafka.EnrichedEventPayload;
+import com.sitewhere.spi.device.event.IDeviceEvent;
+
+import kafka.server.KafkaConfig;
+import kafka.server.KafkaServerStartable;
+
+public class SiteWhereReceiverTest {
+
+    /** Instance id used in topic names */
+    private static final String INSTANCE_ID = "test";
+
+    /** Number of partitions in enriched events topic */
+    private static final int PARTITIONS = 2;
+
+    /** Max time to wait for events or offsets */
+    private static final long WAIT_MS = 60 * 1000;
+
+    /** Events collected from Spark batches */
+    private static final ConcurrentLinkedQueue<IDeviceEvent> RECEIVED = new ConcurrentLinkedQueue<IDeviceEvent>();
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    /** Embedded ZooKeeper */
+    private static TestingServer zookeeper;
+
+    /** Embedded Kafka broker */
+    private static KafkaServerStartable kafka;
+
+    /** Kafka bootstrap servers */
+    private static String bootstrapServers;
+
+    /** Tenant id unique to each test */
+    private String tenantId;
+
+    /** Streaming context for running receiver */
+    private JavaStreamingContext streaming;
+
+    @BeforeClass
+    public static void startKafka() throws Exception {
+	zookeeper = new TestingServer(true);
+	int port;
+	try (ServerSocket socket = new ServerSocket(0)) {
+	    port = socket.getLocalPort();
+	}
+	bootstrapServers = "localhost:" + port;
+
+	Properties props = new Properties();
+	props.put("zookeeper.connect", zookeeper.getConnectString());
+	props.put("broker.id", "0");
+	props.put("listeners", "PLAINTEXT://" + bootstrapServers);
+	props.put("log.dirs", folder.newFolder("kafka").getAbsolutePath());
+	props.put("offsets.topic.replication.factor", "1");
+	props.put("offsets.topic.num.partitions", "1");
+	props.put("group.initial.rebalance.delay.ms", "0");
+	kafka = new KafkaServerStartable(KafkaConfig.fromProps(props));
+	kafka.startup();
+    }
+
+    @AfterClass
+    public static void stopKafka() throws Exception {
+	if (kafka != null) {
+	    kafka.shutdown();
+	    kafka.awaitShutdown();
+	}
+	if (zookeeper != null) {
+	    zookeeper.close();
+	}
+    }
+
+    @Before
+    public void setUp() throws Exception {
+	RECEIVED.clear();
+	this.tenantId = UUID.randomUUID().toString();
+	try (AdminClient admin = AdminClient.create(Collections
+		.<String, Object> singletonMap(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers))) {
+	    admin.createTopics(
+		    Collections.singletonList(new NewTopic(createReceiver().getTopicName(), PARTITIONS, (short) 1)))
+		    .all().get();
+	}
+    }
+
+    @After
+    public void tearDown() {
+	stopStreaming();
+    }
+
+    @Test
+    public void testReceivesEventsAndCommitsOffsets() throws Exception {
+	SiteWhereReceiver receiver = createReceiver();
+	Set<UUID> sent = sendEvents(receiver.getTopicName(), 20);
+	sendRecord(receiver.getTopicName(), "invalid".getBytes());
+
+	startStreaming(receiver);
+	awaitReceived(20);
+	assertEquals(sent, getReceivedIds());
+
+	// Unparseable record is skipped but its offset is still committed.
+	awaitCommitted(receiver, 21);
+    }
+
+    @Test
+    public void testResumesFromCommittedOffsets() throws Exception {
+	SiteWhereReceiver receiver = createReceiver();
+	sendEvents(receiver.getTopicName(), 10);
+	startStreaming(receiver);
+	awaitReceived(10);
+	awaitCommitted(receiver, 10);
+	stopStreaming();
+
+	RECEIVED.clear();
+	Set<UUID> sent = sendEvents(receiver.getTopicName(), 5);
+	startStreaming(createReceiver());
+	awaitReceived(5);
+
+	// Allow further batches to run so that redelivered events would show up.
+	Thread.sleep(2000);
+	assertEquals(sent, getReceivedIds());
+	assertEquals(5, RECEIVED.size());
+    }
+
+    /**
+     * Create receiver for the current tenant.
+     * 
+     * @return
+     */
+    protected SiteWhereReceiver createReceiver() {
+	return new SiteWhereReceiver(bootstrapServers, INSTANCE_ID, tenantId);
+    }
+
+    /**
+     * Start a local streaming context that collects events from the receiver.
+     * 
+     * @param receiver
+     */
+    protected void startStreaming(SiteWhereReceiver receiver) {
+	SparkConf conf = new SparkConf().setMaster("local[2]").setAppName(getClass().getSimpleName())
+		.set("spark.ui.enabled", "false");
+	this.streaming = new JavaStreamingContext(conf, Durations.milliseconds(250));
+	streaming.receiverStream(receiver).foreachRDD(new EventCollector());
+	streaming.start();
+    }
+
+    /**
+     * Stop streaming context after processing data already received.
+     */
+    protected void stopStreaming() {
+	if (streaming != null) {
+	    streaming.stop(true, true);
+	    streaming = null;
+	}
+    }
+
+    /**
+     * Send measurement events to a topic.
+     * 
+     * @param topic
+     * @param count
+     * @return
+     * @throws Exception
+     */
+    protected Set<UUID> sendEvents(String topic, int count) throws Exception {
+	Set<UUID> ids = new HashSet<UUID>();
+	for (int i = 0; i < count; i++) {
+	    DeviceMeasurement mx = new DeviceMeasurement();
+	    mx.setId(UUID.randomUUID());
+	    mx.setDeviceId(UUID.randomUUID());
+	    mx.setDeviceAssignmentId(UUID.randomUUID());
+	    mx.setEventDate(new Date());
+	    mx.setReceivedDate(new Date());
+	    mx.setName("temp");
+	    mx.setValue((double) i);
+
+	    DeviceEventContext context = new DeviceEventContext();
+	    context.setDeviceId(mx.getDeviceId());
+	    context.setDeviceTypeId(UUID.randomUUID());
+	    context.setDeviceMetadata(new HashMap<String, String>());
+	    context.setAssignmentMetadata(new HashMap<String, String>());
+
+	    EnrichedEventPayload payload = new EnrichedEventPayload();
+	    payload.setEventContext(context);
+	    payload.setEvent(mx);
+	    sendRecord(topic, EventModelMarshaler.buildEnrichedEventPayloadMessage(payload));
+	    ids.add(mx.getId());
+	}
+	return ids;
+    }
+
+    /**
+     * Send a single record to a topic.
+     * 
+     * @param topic
+     * @param value
+     * @throws Exception
+     */
+    protected void sendRecord(String topic, byte[] value) throws Exception {
+	Properties props = new Properties();
+	props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+	props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class.getName());
+	props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class.getName());
+	try (KafkaProducer<String, byte[]> producer = new KafkaProducer<String, byte[]>(props)) {
+	    producer.send(new ProducerRecord<String, byte[]>(topic, UUID.randomUUID().toString(), value)).get();
+	}
+    }
+
+    /**
+     * Wait until at least the given number of events have been received.
+     * 
+     * @param count
+     * @throws InterruptedException
+     */
+    protected void awaitReceived(int count) throws InterruptedException {
+	long deadline = System.currentTimeMillis() + WAIT_MS;
+	while ((RECEIVED.size() < count) && (System.currentTimeMillis() < deadline)) {
+	    Thread.sleep(100);
+	}
+	assertTrue("Expected " + count + " events but received " + RECEIVED.size() + ".", RECEIVED.size() >= count);
+    }
+
+    /**
+     * Wait until offsets committed for the receiver group cover the given
+     * number of records.
+     * 
+     * @param receiver
+     * @param total
+     * @throws InterruptedException
+     */
+    protected void awaitCommitted(SiteWhereReceiver receiver, long total) throws InterruptedException {
+	Properties props = new Properties();
+	props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+	props.put(ConsumerConfig.GROUP_ID_CONFIG, receiver.getConsumerGroupId());
+	props.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+	props.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+	try (KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<String, byte[]>(props)) {
+	    long deadline = System.currentTimeMillis() + WAIT_MS;
+	    long committed = 0;
+	    while (System.currentTimeMillis() < deadline) {
+		committed = 0;
+		for (int i = 0; i < PARTITIONS; i++) {
+		    OffsetAndMetadata offset = consumer.committed(new TopicPartition(receiver.getTopicName(), i));
+		    committed += (offset != null) ? offset.offset() : 0;
+		}
+		if (committed >= total) {
+		    break;
+		}
+		Thread.sleep(100);
+	    }
+	    assertEquals(total, committed);
+	}
+    }
+
+    /**
+     * Get ids of events received so far.
+     * 
+     * @return
+     */
+    protected Set<UUID> getReceivedIds() {
+	Set<UUID> ids = new HashSet<UUID>();
+	for (IDeviceEvent event : RECEIVED) {
+	    ids.add(event.getId());
+	}
+	return ids;
+    }
+
+    /**
+     * Collects events from each batch on the driver.
+     */
+    private static class EventCollector implements Function<JavaRDD<IDeviceEvent>, Void> {
+
+	/** Serial version UID */
+	private static final long serialVersionUID = -4383287146370473561L;
+
+	/*
+	 * @see org.apache.spark.api.java.function.Function#call(java.lang.Object)
+	 */
+	@Override
+	public Void call(JavaRDD<IDeviceEvent> rdd) throws Exception {
+	    RECEIVED.addAll(rdd.collect());
+	    return null;
+	}
+    }
+}